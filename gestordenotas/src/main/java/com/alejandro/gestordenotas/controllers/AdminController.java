@@ -1,6 +1,5 @@
 package com.alejandro.gestordenotas.controllers;
 
-import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,8 +15,12 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.alejandro.gestordenotas.dto.AdminDto;
+import com.alejandro.gestordenotas.dto.UserBulkDto;
+import com.alejandro.gestordenotas.dto.UserFilterDto;
+import com.alejandro.gestordenotas.entities.RoleLevel;
 import com.alejandro.gestordenotas.entities.User;
 import com.alejandro.gestordenotas.services.AdminService;
+import com.alejandro.gestordenotas.services.UserBulkService;
 import com.alejandro.gestordenotas.services.UserService;
 import com.alejandro.gestordenotas.utils.UtilValidation;
 
@@ -36,6 +39,10 @@ public class AdminController {
     @Autowired
     private AdminService service;
 
+    // To Inject the service dependency
+    @Autowired
+    private UserBulkService bulkService;
+
     @Autowired
     private UtilValidation utilValidation;
     
@@ -43,9 +50,17 @@ public class AdminController {
     // Endpoint's for the admin role ----------------------
     
     // To create an endpoint that allows invoking the 'getAllUsersWithUserRole' method.
+    // The users are returned page by page; the query parameters are the filters ('enabled' and 'username',
+    // the beginning of the username), the order ('sort': 'id' or 'username'), the size of the page ('limit')
+    // and the cursor returned by the previous page ('after').
     @GetMapping("/users")
-    public ResponseEntity<?> getAllUsersWithUserRole() {
-        return ResponseEntity.ok(service.getAllUsersWithUserRole());
+    public ResponseEntity<?> getAllUsersWithUserRole(@Valid UserFilterDto filter, BindingResult result) {
+        // To handle the obligations of the parameters
+        if (result.hasFieldErrors()) {
+            return utilValidation.validation(result);
+        }
+
+        return ResponseEntity.ok(service.getAllUsersWithUserRole(filter));
     }
     
     // To create an endpoint that allows invoking the 'getUserWithUserRole' method.
@@ -80,19 +95,12 @@ public class AdminController {
     }
 
     // To create an endpoint that allows invoking the 'disableEnableUser' method.
+    // An admin can only disable or enable the users with the user role (the users with the role 
+    // of admin or super admin are not changed and a 404 status code is returned).
     @PatchMapping("/user/{userId}")
     public ResponseEntity<?> disableEnableUser(@PathVariable Long userId) {
 
-        List<Long> ids = service.getAllIdsWithAdminAndSuperAdminRole();
-
-        // If the list of IDs contains the 'userId', it means that the admin is 
-        // trying to disable a user with the role of admin or super admin.
-        if ( ids.contains(userId) ) {
-            // So, this operation is not allowed.
-            return ResponseEntity.notFound().build();
-        }
-
-        Optional<User> optionalUser = service.disableEnableUser(userId);
+        Optional<User> optionalUser = service.disableEnableUser(userId, RoleLevel.USER);
 
         // If the user is present, it means the operation to disable or enable the user was successful.
         if (optionalUser.isPresent()) {
@@ -105,4 +113,28 @@ public class AdminController {
         return ResponseEntity.notFound().build();
     }
 
+    // To create endpoints that allow enabling or disabling many users with the user role at once.
+    // The users are a list of ids ('ids') or the users of the filters ('enabled', 'admin' and 'username'),
+    // and the response is a report of the change (the admins and super admins of the list are not changed).
+    @PatchMapping("/users/enable")
+    public ResponseEntity<?> enableUsers(@Valid @RequestBody UserBulkDto bulk, BindingResult result) {
+        return disableEnableUsers(bulk, result, true);
+    }
+
+    @PatchMapping("/users/disable")
+    public ResponseEntity<?> disableUsers(@Valid @RequestBody UserBulkDto bulk, BindingResult result) {
+        return disableEnableUsers(bulk, result, false);
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    private ResponseEntity<?> disableEnableUsers(UserBulkDto bulk, BindingResult result, boolean enabled) {
+        // To handle the obligations of object attributes
+        if (result.hasFieldErrors()) {
+            return utilValidation.validation(result);
+        }
+
+        return ResponseEntity.ok(bulkService.disableEnableUsers(bulk, enabled, RoleLevel.USER));
+    }
+
 }
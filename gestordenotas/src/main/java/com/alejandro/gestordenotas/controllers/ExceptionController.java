@@ -3,12 +3,17 @@ package com.alejandro.gestordenotas.controllers;
 import java.time.LocalDateTime;
 
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import com.alejandro.gestordenotas.entities.ErrorMessage;
+import com.alejandro.gestordenotas.exceptions.InvalidCursorException;
+import com.alejandro.gestordenotas.exceptions.InvalidRefreshTokenException;
+import com.alejandro.gestordenotas.exceptions.NoteVersionConflictException;
+import com.alejandro.gestordenotas.exceptions.PasswordHashingBusyException;
 
 // This class is used to handle when an exception is fired 
 @RestControllerAdvice
@@ -36,4 +41,54 @@ public class ExceptionController {
 
         return ResponseEntity.internalServerError().body(error);
     }
+
+    @ExceptionHandler({ InvalidCursorException.class })
+    public ResponseEntity<ErrorMessage> invalidCursor(Exception e) {
+
+        ErrorMessage error = new ErrorMessage();
+        error.setDateTime(LocalDateTime.now());
+        error.setError("Error! El cursor de paginacion no es valido.");
+        error.setMessage(e.getMessage());
+        error.setStatus(HttpStatus.BAD_REQUEST.value());
+
+        return ResponseEntity.badRequest().body(error);
+    }
+
+    @ExceptionHandler({ InvalidRefreshTokenException.class })
+    public ResponseEntity<ErrorMessage> invalidRefreshToken(Exception e) {
+
+        ErrorMessage error = new ErrorMessage();
+        error.setDateTime(LocalDateTime.now());
+        error.setError("Error! El refresh token no es valido, inicie sesion de nuevo.");
+        error.setMessage(e.getMessage());
+        error.setStatus(HttpStatus.UNAUTHORIZED.value());
+
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+    }
+
+    @ExceptionHandler({ NoteVersionConflictException.class })
+    public ResponseEntity<ErrorMessage> noteVersionConflict(Exception e) {
+
+        ErrorMessage error = new ErrorMessage();
+        error.setDateTime(LocalDateTime.now());
+        error.setError("Error! La nota cambio despues de la version enviada en 'If-Match'.");
+        error.setMessage(e.getMessage());
+        error.setStatus(HttpStatus.PRECONDITION_FAILED.value());
+
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(error);
+    }
+
+    @ExceptionHandler({ PasswordHashingBusyException.class })
+    public ResponseEntity<ErrorMessage> passwordHashingBusy(PasswordHashingBusyException e) {
+
+        ErrorMessage error = new ErrorMessage();
+        error.setDateTime(LocalDateTime.now());
+        error.setError("Error! Hay demasiadas contrasenas por procesar en este momento.");
+        error.setMessage(e.getMessage());
+        error.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .body(error);
+    }
 }
@@ -1,10 +1,16 @@
 package com.alejandro.gestordenotas.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,13 +19,21 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.alejandro.gestordenotas.dto.NoteBatchDto;
+import com.alejandro.gestordenotas.dto.NoteBatchResultDto;
 import com.alejandro.gestordenotas.dto.UserDto;
 import com.alejandro.gestordenotas.entities.Note;
-import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.services.NoteImportService;
+import com.alejandro.gestordenotas.services.NoteSearchService;
 import com.alejandro.gestordenotas.services.NoteService;
+import com.alejandro.gestordenotas.services.NoteVersionService;
 import com.alejandro.gestordenotas.services.UserService;
 import com.alejandro.gestordenotas.utils.UtilValidation;
 
@@ -34,9 +48,27 @@ public class NoteController {
     @Autowired
     private UserService userService;
 
+    // Media type of the csv files
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    // The notes are private and the clients must ask if they changed before using their copy
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     // To Inject the service dependency
     @Autowired
     private NoteService service;
+
+    // To Inject the service dependency
+    @Autowired
+    private NoteImportService importService;
+
+    // To Inject the service dependency
+    @Autowired
+    private NoteSearchService searchService;
+
+    // To Inject the service dependency
+    @Autowired
+    private NoteVersionService versionService;
     
     @Autowired
     private UtilValidation utilValidation;
@@ -46,9 +78,72 @@ public class NoteController {
     // Methods for note entity
     // -----------------------------
 
-    // To create an endpoint that allows invoking the 'getNotesByUserId' method.
+    // To create an endpoint that allows getting the notes of a user page by page.
+    // The 'after' parameter is the cursor returned by the previous page.
+    // If the notes have not changed since the etag sent by the client then
+    // a 304 status code is returned without reading the notes.
     @GetMapping("/{userId}/notes")
-    public ResponseEntity<?> getNotesByUserId(@PathVariable Long userId, Principal principal) {
+    public ResponseEntity<?> getNotesByUserId(@PathVariable Long userId, @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit, Principal principal, WebRequest request) {
+
+        // Check if the user that wants to access the resource is the owner
+        if (!userService.isOwner(userId, principal)) {
+            // return a 404 status code.
+            return ResponseEntity.notFound().build();
+        }
+
+        // The etag is read before the notes (see 'getNotesEtag')
+        String etag = versionService.getNotesEtag(userId, after, limit);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+        }
+
+        // Return the requested page of notes
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(service.getNotesByUser(userId, after, limit));
+    }
+
+    // To create an endpoint that allows searching the notes of a user by their content.
+    // The notes are ranked from the best to the worst match of the query.
+    @GetMapping("/{userId}/notes/search")
+    public ResponseEntity<?> searchNotesByUserId(@PathVariable Long userId, @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "20") int limit, Principal principal) {
+
+        // To handle the obligation of the query
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("q", "El campo q no debe estar vacio"));
+        }
+
+        // Check if the user that wants to access the resource is the owner
+        if (!userService.isOwner(userId, principal)) {
+            // return a 404 status code.
+            return ResponseEntity.notFound().build();
+        }
+
+        // Return the notes found
+        return ResponseEntity.ok(searchService.searchNotesByUser(userId, q, limit));
+    }
+
+    // To create an endpoint that allows getting the notes of a user created, updated or 
+    // deleted after a sync token. The 'since' parameter is the token returned by the 
+    // previous sync (without it the sync starts from the beginning).
+    @GetMapping("/{userId}/notes/changes")
+    public ResponseEntity<?> getNoteChangesByUserId(@PathVariable Long userId, @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "100") int limit, Principal principal) {
+
+        // Check if the user that wants to access the resource is the owner
+        if (!userService.isOwner(userId, principal)) {
+            // return a 404 status code.
+            return ResponseEntity.notFound().build();
+        }
+
+        // Return the changes after the token
+        return ResponseEntity.ok(service.getNoteChangesByUser(userId, since, limit));
+    }
+
+    // To create an endpoint that allows downloading all of the notes of a user as 
+    // newline-delimited JSON. The notes are written while they are read from the db.
+    @GetMapping("/{userId}/notes/export")
+    public ResponseEntity<StreamingResponseBody> exportNotesByUserId(@PathVariable Long userId, Principal principal) {
 
         // Check if the user that wants to access the resource is the owner
         if (!userService.isOwner(userId, principal)) {
@@ -56,12 +151,37 @@ public class NoteController {
             return ResponseEntity.notFound().build();
         }
 
-        // Search for a specific user
-        Optional<User> optionalUser = userService.findById(userId);
+        StreamingResponseBody body = outputStream -> service.exportNotesByUser(userId, outputStream);
 
-        // if the user is present then return the note array.
-        if (optionalUser.isPresent()) {
-            return ResponseEntity.ok(optionalUser.get().getNotes());
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"notes-" + userId + ".ndjson\"")
+            .body(body);
+    }
+
+    // To create an endpoint that allows getting a certain note of a certain user.
+    // If the note has not changed since the etag sent by the client then a 304 status code is returned.
+    @GetMapping("/{userId}/notes/{noteId}")
+    public ResponseEntity<?> getNoteByUserId(@PathVariable Long userId, @PathVariable Long noteId,
+            Principal principal, WebRequest request) {
+
+        // Check if the user that wants to access the resource is the owner
+        if (!userService.isOwner(userId, principal)) {
+            // return a 404 status code.
+            return ResponseEntity.notFound().build();
+        }
+
+        // Call the 'getNoteByUser' method
+        Optional<Note> optionalNote = service.getNoteByUser(userId, noteId);
+
+        // if the note is present then return it
+        if (optionalNote.isPresent()) {
+            String etag = versionService.getNoteEtag(optionalNote.get());
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+            }
+
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(optionalNote.get());
         }
 
         // Else, return a 404 status code.
@@ -84,13 +204,10 @@ public class NoteController {
         }
 
         // Call the 'saveNoteByUser' method
-        Optional<User> optionalNewUser = service.saveNoteByUser(userId, newNote);
-
-        // if the user is present then it means that the object could be saved
-        if (optionalNewUser.isPresent()) {
-            UserDto userDto = new UserDto();
-            userDto.setId(optionalNewUser.get().getId());
-            userDto.setUsername(optionalNewUser.get().getUsername());
+        // if it returns true then it means that the object could be saved
+        if (service.saveNoteByUser(userId, newNote)) {
+            // The authenticated user is the owner, so the user is not loaded again
+            UserDto userDto = new UserDto(userId, principal.getName());
 
             return ResponseEntity.status(HttpStatus.CREATED).body(userDto);
         }
@@ -99,11 +216,60 @@ public class NoteController {
         return ResponseEntity.notFound().build();
     }
 
+    // To create an endpoint that allows saving many notes of a certain user at once
+    @PostMapping("/{userId}/notes/batch")
+    public ResponseEntity<?> saveNewNotesByUserId(@Valid @RequestBody NoteBatchDto batch, BindingResult result,
+            @PathVariable Long userId, Principal principal) {
+        // To handle of obligations of object attributes
+        if (result.hasFieldErrors()) {
+            return utilValidation.validation(result);
+        }
+
+        // Check if the user that wants to access the resource is the owner
+        if (!userService.isOwner(userId, principal)) {
+            // return a 404 status code.
+            return ResponseEntity.notFound().build();
+        }
+
+        // Call the 'saveNotesByUser' method
+        // if it returns the number of notes then it means that the notes could be saved
+        Optional<Integer> created = service.saveNotesByUser(userId, batch.getNotes());
+
+        if (created.isPresent()) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(new NoteBatchResultDto(userId, created.get()));
+        }
+
+        // Else (the user was deleted), return a 404 status code.
+        return ResponseEntity.notFound().build();
+    }
+
+    // To create an endpoint that allows importing the notes of a user from a NDJSON or CSV file.
+    // The body is read while the notes are saved, so the file is never loaded all at once.
+    @PostMapping(value = "/{userId}/notes/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE })
+    public ResponseEntity<?> importNotesByUserId(@PathVariable Long userId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body, Principal principal)
+            throws IOException {
+
+        // Check if the user that wants to access the resource is the owner
+        if (!userService.isOwner(userId, principal)) {
+            // return a 404 status code.
+            return ResponseEntity.notFound().build();
+        }
+
+        // Call the 'importNotesByUser' method
+        boolean csv = MediaType.valueOf(TEXT_CSV_VALUE).isCompatibleWith(contentType);
+
+        return ResponseEntity.ok(importService.importNotesByUser(userId, body, csv));
+    }
+
     // To create an endpoint that allows updating information of a certain note of a
-    // certain user
+    // certain user.
+    // If the client sends the etag of the note ('If-Match') and the note changed after it 
+    // then a 412 status code is returned, so the other change is not overwritten.
     @PatchMapping("/{userId}/notes/{noteId}")
     public ResponseEntity<?> editNoteByUserId(@Valid @RequestBody Note editNote, BindingResult result,
-            @PathVariable Long userId, @PathVariable Long noteId, Principal principal) {
+            @PathVariable Long userId, @PathVariable Long noteId, Principal principal,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         // To handle of obligations of object attributes
         if (result.hasFieldErrors()) {
@@ -117,13 +283,10 @@ public class NoteController {
         }
 
         // Call the 'editNoteByUser' method
-        Optional<User> optionalUpdateUser = service.editNoteByUser(userId, noteId, editNote);
-
-        // if the user is present then it means that the object could be updated
-        if ( optionalUpdateUser.isPresent() ) {
-            UserDto userDto = new UserDto();
-            userDto.setId(optionalUpdateUser.get().getId());
-            userDto.setUsername(optionalUpdateUser.get().getUsername());
+        // if it returns true then it means that the note could be updated
+        if ( service.editNoteByUser(userId, noteId, editNote, versionService.getExpectedVersion(noteId, ifMatch)) ) {
+            // The authenticated user is the owner, so the user is not loaded again
+            UserDto userDto = new UserDto(userId, principal.getName());
 
             return ResponseEntity.status(HttpStatus.CREATED).body(userDto);
         }
@@ -132,10 +295,12 @@ public class NoteController {
         return ResponseEntity.notFound().build();
     }
 
-    // To create an endpoint that allows deleting a certain note of a certain user
+    // To create an endpoint that allows deleting a certain note of a certain user.
+    // If the client sends the etag of the note ('If-Match') and the note changed after it 
+    // then a 412 status code is returned.
     @DeleteMapping("/{userId}/notes/{noteId}")
     public ResponseEntity<?> deleteNoteByUserId(@PathVariable Long userId, @PathVariable Long noteId,
-            Principal principal) {
+            Principal principal, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         // Check if the user that wants to access the resource is the owner
         if (!userService.isOwner(userId, principal)) {
@@ -144,13 +309,10 @@ public class NoteController {
         }
 
         // Call the 'deleteNoteByUser' method
-        Optional<User> optionalUpdateUser = service.deleteNoteByUser(userId, noteId);
-
-        // if the user is present then it means that the object could be deleted
-        if ( optionalUpdateUser.isPresent() ) {
-            UserDto userDto = new UserDto();
-            userDto.setId(optionalUpdateUser.get().getId());
-            userDto.setUsername(optionalUpdateUser.get().getUsername());
+        // if it returns true then it means that the note could be deleted
+        if ( service.deleteNoteByUser(userId, noteId, versionService.getExpectedVersion(noteId, ifMatch)) ) {
+            // The authenticated user is the owner, so the user is not loaded again
+            UserDto userDto = new UserDto(userId, principal.getName());
 
             return ResponseEntity.status(HttpStatus.OK).body(userDto);
         }
@@ -4,16 +4,25 @@ import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.alejandro.gestordenotas.dto.SuperAdminDto;
+import com.alejandro.gestordenotas.dto.UserBulkDto;
+import com.alejandro.gestordenotas.dto.UserFilterDto;
+import com.alejandro.gestordenotas.entities.RoleLevel;
 import com.alejandro.gestordenotas.entities.User;
 import com.alejandro.gestordenotas.services.AdminService;
 import com.alejandro.gestordenotas.services.SuperAdminService;
+import com.alejandro.gestordenotas.services.UserBulkService;
+import com.alejandro.gestordenotas.utils.UtilValidation;
+
+import jakarta.validation.Valid;
 
 @RestController // To create a api rest.
 @RequestMapping("/api/super-admins") // To create a base path.
@@ -27,12 +36,26 @@ public class SuperAdminController {
     @Autowired
     private AdminService adminService;
 
+    // To Inject the service dependency
+    @Autowired
+    private UserBulkService bulkService;
+
+    @Autowired
+    private UtilValidation utilValidation;
+
     // Endpoint's for super admin role ----------------------
 
     // To create an endpoint that allows invoking the 'getAllUsersWithUserAndAdminRole' method.
+    // The users are returned page by page, with the same parameters of the list of the admins
+    // and the 'admin' filter (only the admins or only the users without the admin role).
     @GetMapping("/users-and-admins")
-    public ResponseEntity<?> getAllUsersWithUserAndAdminRole() {
-        return ResponseEntity.ok(service.getAllUsersWithUserAndAdminRole());
+    public ResponseEntity<?> getAllUsersWithUserAndAdminRole(@Valid UserFilterDto filter, BindingResult result) {
+        // To handle the obligations of the parameters
+        if (result.hasFieldErrors()) {
+            return utilValidation.validation(result);
+        }
+
+        return ResponseEntity.ok(service.getAllUsersWithUserAndAdminRole(filter));
     }
 
     // To create an endpoint that allows invoking the 'getUserWithUserAndAdminRole' method.
@@ -50,18 +73,25 @@ public class SuperAdminController {
         return ResponseEntity.notFound().build();
     }
 
+    // To create an endpoint that allows knowing the hits, misses and evictions of the 
+    // cache of the users used in the login
+    @GetMapping("/user-details-cache")
+    public ResponseEntity<?> getUserDetailsCacheStats() {
+        return ResponseEntity.ok(service.getUserDetailsCacheStats());
+    }
+
+    // To create an endpoint that allows knowing the state of the threads and the queue 
+    // of the passwords to hash (logins, new users and updated users)
+    @GetMapping("/password-hashing")
+    public ResponseEntity<?> getPasswordHashingStats() {
+        return ResponseEntity.ok(service.getPasswordHashingStats());
+    }
+
     // To create an endpoint that allows converting a user into an administrator
-    // user
+    // user (a user with the super admin role is not changed and a 404 status code is returned)
     @PatchMapping("/convert-user-into-admin/{userId}")
     public ResponseEntity<?> addRemoveAdminRoleFromUser(@PathVariable Long userId) {
 
-        // If the user to remove the admin role is a user with the super admin
-        // role, then do not allow that operation.
-        if (service.isSuperAdmin(userId)) {
-            // Else, return a 404 status code.
-            return ResponseEntity.notFound().build();
-        }
-
         // Call the 'addRemoveAdminRoleFromUser' method
         Optional<User> optionalUser = service.addRemoveAdminRoleFromUser(userId);
 
@@ -78,18 +108,13 @@ public class SuperAdminController {
     }
 
     // To create an endpoint that allows invoking the 'disableEnableUser' method.
+    // A super admin can disable or enable the users and the admins (a user with the super admin
+    // role is not changed and a 404 status code is returned).
     @PatchMapping("/disable-enable-user/{userId}")
     public ResponseEntity<?> superAdminEnableUser(@PathVariable Long userId) {
 
-        // If the user to remove the admin role is a user with the super admin
-        // role, then do not allow that operation.
-        if (service.isSuperAdmin(userId)) {
-            // Else, return a 404 status code.
-            return ResponseEntity.notFound().build();
-        }
-
         // Call the 'disableEnableUser' method
-        Optional<User> optionalUser = adminService.disableEnableUser(userId);
+        Optional<User> optionalUser = adminService.disableEnableUser(userId, RoleLevel.ADMIN);
 
         if (optionalUser.isPresent()) {
             User user = optionalUser.get();
@@ -101,4 +126,45 @@ public class SuperAdminController {
         return ResponseEntity.notFound().build();
     }
 
+    // To create endpoints that allow enabling or disabling many users and admins at once.
+    // The users are a list of ids ('ids') or the users of the filters ('enabled', 'admin' and 'username'),
+    // and the response is a report of the change (the super admins of the list are not changed).
+    @PatchMapping("/users/enable")
+    public ResponseEntity<?> enableUsers(@Valid @RequestBody UserBulkDto bulk, BindingResult result) {
+        if (result.hasFieldErrors()) {
+            return utilValidation.validation(result);
+        }
+
+        return ResponseEntity.ok(bulkService.disableEnableUsers(bulk, true, RoleLevel.ADMIN));
+    }
+
+    @PatchMapping("/users/disable")
+    public ResponseEntity<?> disableUsers(@Valid @RequestBody UserBulkDto bulk, BindingResult result) {
+        if (result.hasFieldErrors()) {
+            return utilValidation.validation(result);
+        }
+
+        return ResponseEntity.ok(bulkService.disableEnableUsers(bulk, false, RoleLevel.ADMIN));
+    }
+
+    // To create endpoints that allow converting many users into admins (or many admins into users) at once.
+    // Only the users with the user role are promoted and only the admins are demoted.
+    @PatchMapping("/users/promote")
+    public ResponseEntity<?> promoteUsers(@Valid @RequestBody UserBulkDto bulk, BindingResult result) {
+        if (result.hasFieldErrors()) {
+            return utilValidation.validation(result);
+        }
+
+        return ResponseEntity.ok(bulkService.addRemoveAdminRoleFromUsers(bulk, true));
+    }
+
+    @PatchMapping("/users/demote")
+    public ResponseEntity<?> demoteUsers(@Valid @RequestBody UserBulkDto bulk, BindingResult result) {
+        if (result.hasFieldErrors()) {
+            return utilValidation.validation(result);
+        }
+
+        return ResponseEntity.ok(bulkService.addRemoveAdminRoleFromUsers(bulk, false));
+    }
+
 }
@@ -16,8 +16,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.alejandro.gestordenotas.dto.LoginResponseDto;
+import com.alejandro.gestordenotas.dto.RefreshTokenDto;
 import com.alejandro.gestordenotas.dto.UserDto;
 import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.services.RefreshTokenService;
 import com.alejandro.gestordenotas.services.UserService;
 import com.alejandro.gestordenotas.utils.UtilValidation;
 
@@ -32,6 +35,10 @@ public class UserController {
     @Autowired
     private UserService service;
 
+    // To Inject the service dependency
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     @Autowired
     private UtilValidation utilValidation;
 
@@ -87,6 +94,21 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(userDto);
     }
 
+    // To create an endpoint that allows getting a new access token with a refresh token
+    // (without the password). The refresh token can be used only once, the response has a new one.
+    @PostMapping("/token/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenDto refreshToken, BindingResult result) {
+        // To handle the obligations of object attributes
+        if (result.hasFieldErrors()) {
+            return utilValidation.validation(result);
+        }
+
+        LoginResponseDto response = refreshTokenService.refresh(refreshToken.getRefreshToken());
+        response.setMessage(String.format("Hola %s tu sesion fue renovada con exito!", response.getUsername()));
+
+        return ResponseEntity.ok(response);
+    }
+
     // To create an endpoint that allows updating all of the values
     // of a specific user based its id.
     @PutMapping("/{id}")
@@ -8,6 +8,8 @@ public class LoginResponseDto {
     
     private String username;
 
+    private String refreshToken;
+
     public String getMessage() {
         return message;
     }
@@ -32,4 +34,12 @@ public class LoginResponseDto {
         this.username = username;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
 }
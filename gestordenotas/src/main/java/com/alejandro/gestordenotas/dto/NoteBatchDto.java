@@ -0,0 +1,37 @@
+package com.alejandro.gestordenotas.dto;
+
+import java.util.List;
+
+import com.alejandro.gestordenotas.entities.Note;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+// To create objects that contain many notes to be saved at once
+public class NoteBatchDto {
+
+    // Maximum number of notes that can be saved in a single request
+    public static final int MAX_NOTES = 10000;
+
+    @NotEmpty // To obligate to this attribute to have at least one note.
+    @Size(max = MAX_NOTES)
+    @Valid // To validate each one of the notes
+    private List<Note> notes;
+
+    public NoteBatchDto() {
+    }
+
+    public NoteBatchDto(List<Note> notes) {
+        this.notes = notes;
+    }
+
+    public List<Note> getNotes() {
+        return notes;
+    }
+
+    public void setNotes(List<Note> notes) {
+        this.notes = notes;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.alejandro.gestordenotas.dto;
+
+// To create objects that inform how many notes were saved for a user
+public class NoteBatchResultDto {
+
+    private Long userId;
+
+    private int created;
+
+    public NoteBatchResultDto() {
+    }
+
+    public NoteBatchResultDto(Long userId, int created) {
+        this.userId = userId;
+        this.created = created;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.alejandro.gestordenotas.dto;
+
+import java.util.List;
+
+import com.alejandro.gestordenotas.entities.Note;
+
+// To create objects that contain the notes of a user created, updated or deleted after 
+// a sync token, and the token to request the next changes
+// ('hasMore' is true when there are more changes after this page)
+public class NoteChangesDto {
+
+    private List<Note> upserted;
+
+    private List<Long> deleted;
+
+    private String nextToken;
+
+    private boolean hasMore;
+
+    public NoteChangesDto() {
+    }
+
+    public NoteChangesDto(List<Note> upserted, List<Long> deleted, String nextToken, boolean hasMore) {
+        this.upserted = upserted;
+        this.deleted = deleted;
+        this.nextToken = nextToken;
+        this.hasMore = hasMore;
+    }
+
+    public List<Note> getUpserted() {
+        return upserted;
+    }
+
+    public void setUpserted(List<Note> upserted) {
+        this.upserted = upserted;
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Long> deleted) {
+        this.deleted = deleted;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setNextToken(String nextToken) {
+        this.nextToken = nextToken;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+}
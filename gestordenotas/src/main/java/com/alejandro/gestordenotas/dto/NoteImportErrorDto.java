@@ -0,0 +1,34 @@
+package com.alejandro.gestordenotas.dto;
+
+// To create objects that inform why a line of an imported file was rejected
+public class NoteImportErrorDto {
+
+    private long line;
+
+    private String message;
+
+    public NoteImportErrorDto() {
+    }
+
+    public NoteImportErrorDto(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+}
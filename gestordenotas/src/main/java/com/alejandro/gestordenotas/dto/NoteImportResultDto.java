@@ -0,0 +1,77 @@
+package com.alejandro.gestordenotas.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// To create objects that inform the result of importing the notes of a user from a file
+public class NoteImportResultDto {
+
+    private Long userId;
+
+    private long imported;
+
+    private long rejected;
+
+    // Only the first errors are reported, the rest of them are only counted in 'rejected'
+    private List<NoteImportErrorDto> errors = new ArrayList<>();
+
+    private long durationMillis;
+
+    private long rowsPerSecond;
+
+    public NoteImportResultDto() {
+    }
+
+    public NoteImportResultDto(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<NoteImportErrorDto> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<NoteImportErrorDto> errors) {
+        this.errors = errors;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+}
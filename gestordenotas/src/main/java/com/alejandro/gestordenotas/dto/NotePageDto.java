@@ -0,0 +1,39 @@
+package com.alejandro.gestordenotas.dto;
+
+import java.util.List;
+
+import com.alejandro.gestordenotas.entities.Note;
+
+// To create objects that contain a page of the notes of a user and the cursor 
+// to request the next page (it is null when there are no more notes)
+public class NotePageDto {
+
+    private List<Note> notes;
+
+    private String nextCursor;
+
+    public NotePageDto() {
+    }
+
+    public NotePageDto(List<Note> notes, String nextCursor) {
+        this.notes = notes;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Note> getNotes() {
+        return notes;
+    }
+
+    public void setNotes(List<Note> notes) {
+        this.notes = notes;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+}
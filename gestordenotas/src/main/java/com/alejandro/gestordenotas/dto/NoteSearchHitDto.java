@@ -0,0 +1,37 @@
+package com.alejandro.gestordenotas.dto;
+
+import com.alejandro.gestordenotas.entities.Note;
+
+// To create objects that contain a note found by a search and its score 
+// (the greater the score, the better the note matches the query)
+public class NoteSearchHitDto {
+
+    private Note note;
+
+    private double score;
+
+    public NoteSearchHitDto() {
+    }
+
+    public NoteSearchHitDto(Note note, double score) {
+        this.note = note;
+        this.score = score;
+    }
+
+    public Note getNote() {
+        return note;
+    }
+
+    public void setNote(Note note) {
+        this.note = note;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+}
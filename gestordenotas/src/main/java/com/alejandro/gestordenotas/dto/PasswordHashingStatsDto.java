@@ -0,0 +1,79 @@
+package com.alejandro.gestordenotas.dto;
+
+// To create objects that inform the state of the threads that hash and verify the passwords
+public class PasswordHashingStatsDto {
+
+    private int threads;
+
+    private int activeThreads;
+
+    private int queueDepth;
+
+    private int queueCapacity;
+
+    private long completed;
+
+    private long rejected;
+
+    public PasswordHashingStatsDto() {
+    }
+
+    public PasswordHashingStatsDto(int threads, int activeThreads, int queueDepth, int queueCapacity, long completed,
+            long rejected) {
+        this.threads = threads;
+        this.activeThreads = activeThreads;
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.completed = completed;
+        this.rejected = rejected;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getActiveThreads() {
+        return activeThreads;
+    }
+
+    public void setActiveThreads(int activeThreads) {
+        this.activeThreads = activeThreads;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+}
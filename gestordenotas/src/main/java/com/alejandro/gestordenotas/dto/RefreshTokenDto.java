@@ -0,0 +1,26 @@
+package com.alejandro.gestordenotas.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+// To create objects that inform the refresh token that a client wants to exchange
+public class RefreshTokenDto {
+
+    @NotBlank
+    private String refreshToken;
+
+    public RefreshTokenDto() {
+    }
+
+    public RefreshTokenDto(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.alejandro.gestordenotas.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+// To create objects with the users of a bulk change: a list of ids or the filters of the users
+// (the same filters of the lists of users)
+public class UserBulkDto {
+
+    // Maximum number of ids that can be sent in a single request
+    public static final int MAX_IDS = 10000;
+
+    @Size(max = MAX_IDS)
+    private List<@NotNull Long> ids;
+
+    // To change only the enabled or the disabled users
+    private Boolean enabled;
+
+    // To change only the admins or only the users without the admin role
+    private Boolean admin;
+
+    // The beginning of the usernames
+    private String username;
+
+    public UserBulkDto() {
+    }
+
+    public UserBulkDto(List<Long> ids, Boolean enabled, Boolean admin, String username) {
+        this.ids = ids;
+        this.enabled = enabled;
+        this.admin = admin;
+        this.username = username;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Boolean getAdmin() {
+        return admin;
+    }
+
+    public void setAdmin(Boolean admin) {
+        this.admin = admin;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    // To know if the users are the ids of the list (else they are the users of the filters)
+    public boolean hasIds() {
+        return ids != null && !ids.isEmpty();
+    }
+
+    // The users are a list of ids or the users of at least one filter (a request without users
+    // does not change all of the users)
+    @JsonIgnore
+    @AssertTrue(message = "debe tener una lista de ids o al menos un filtro, pero no ambos")
+    public boolean isIdsOrFilters() {
+        boolean hasFilters = enabled != null || admin != null || (username != null && !username.isBlank());
+        return hasIds() != hasFilters;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.alejandro.gestordenotas.dto;
+
+// To create objects that inform the result of a bulk change of users
+public class UserBulkResultDto {
+
+    // The ids of the list (without the repeated ids) or the users found with the filters
+    private long requested;
+
+    // The users that were changed
+    private long updated;
+
+    // The ids of users that can not be changed by the caller (the admins and super admins)
+    private long guarded;
+
+    // The users that already had the change or that were not found
+    private long unchanged;
+
+    // The transactions used (each one changes a chunk of users)
+    private int chunks;
+
+    private long durationMillis;
+
+    public UserBulkResultDto() {
+    }
+
+    public UserBulkResultDto(long requested, long updated, long guarded, long unchanged, int chunks, long durationMillis) {
+        this.requested = requested;
+        this.updated = updated;
+        this.guarded = guarded;
+        this.unchanged = unchanged;
+        this.chunks = chunks;
+        this.durationMillis = durationMillis;
+    }
+
+    public long getRequested() {
+        return requested;
+    }
+
+    public void setRequested(long requested) {
+        this.requested = requested;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getGuarded() {
+        return guarded;
+    }
+
+    public void setGuarded(long guarded) {
+        this.guarded = guarded;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(long unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+}
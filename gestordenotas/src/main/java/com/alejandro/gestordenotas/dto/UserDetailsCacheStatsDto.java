@@ -0,0 +1,56 @@
+package com.alejandro.gestordenotas.dto;
+
+// To create objects that inform the counters of the cache of the users used in the login
+public class UserDetailsCacheStatsDto {
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private int size;
+
+    public UserDetailsCacheStatsDto() {
+    }
+
+    public UserDetailsCacheStatsDto(long hits, long misses, long evictions, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+}
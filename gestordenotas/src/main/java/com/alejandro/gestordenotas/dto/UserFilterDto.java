@@ -0,0 +1,87 @@
+package com.alejandro.gestordenotas.dto;
+
+import jakarta.validation.constraints.Pattern;
+
+// To create objects with the parameters of the lists of users: the filters, the order 
+// and the page (they are the query parameters of the request)
+public class UserFilterDto {
+
+    // The cursor returned by the previous page
+    private String after;
+
+    private int limit = 20;
+
+    // The order of the users: 'id' or 'username'
+    @Pattern(regexp = "id|username")
+    private String sort = "id";
+
+    // To get only the enabled or the disabled users
+    private Boolean enabled;
+
+    // To get only the admins or only the users without the admin role
+    private Boolean admin;
+
+    // The beginning of the usernames
+    private String username;
+
+    public UserFilterDto() {
+    }
+
+    public UserFilterDto(String after, int limit, String sort, Boolean enabled, Boolean admin, String username) {
+        this.after = after;
+        this.limit = limit;
+        this.sort = sort;
+        this.enabled = enabled;
+        this.admin = admin;
+        this.username = username;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Boolean getAdmin() {
+        return admin;
+    }
+
+    public void setAdmin(Boolean admin) {
+        this.admin = admin;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.alejandro.gestordenotas.dto;
+
+import java.util.List;
+
+// To create objects that contain a page of a list of users and the cursor 
+// to request the next page (it is null when there are no more users)
+public class UserPageDto<T extends UserDto> {
+
+    private List<T> users;
+
+    private String nextCursor;
+
+    public UserPageDto() {
+    }
+
+    public UserPageDto(List<T> users, String nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<T> users) {
+        this.users = users;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+}
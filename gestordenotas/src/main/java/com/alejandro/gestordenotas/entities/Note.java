@@ -1,38 +1,80 @@
 package com.alejandro.gestordenotas.entities;
 
-import java.time.LocalDate;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.hibernate.Length;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 
 // To specific the name of the table in mysql
 // In mysql the name of this table is 'note' but in this project 
 // the name of this class is 'Note'
+// The index allows reading the notes of a user changed after a certain version of its notes (delta sync)
 @Entity
-@Table(name = "note")
+@Table(name = "note", indexes = @Index(name = "idx_note_user_notes_version", columnList = "id_user, notes_version, id_note"))
 public class Note {
 
     // Mapping of class attributes with table fields in mysql
 
+    // A pooled sequence is used instead of an identity column because the identity
+    // columns disable the JDBC batch inserts of hibernate
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_seq")
+    @SequenceGenerator(name = "note_seq", sequenceName = "note_seq", allocationSize = 50)
     @Column(name = "id_note")
     private Long id;
 
     @NotBlank // To obligate to this attribute not to empty or blank values.
+    // The content is saved by the converter in a binary column (the big contents are compressed)
+    @Convert(converter = NoteContentConverter.class)
+    @JdbcTypeCode(SqlTypes.LONG32VARBINARY)
+    @Column(length = Length.LONG32)
     private String content;
 
-    // These attributes can have empty values because they are set in cycle life events of entity objects
-    private LocalDate createdAt;
+    // These attributes can have empty values because they are set in cycle life events of entity objects.
+    // 'updatedAt' is also set when the note is created, so it is the moment of the last change
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    // To detect the concurrent changes of a note: it is incremented on each update, so a change
+    // based on an old version of the note is rejected instead of overwriting the newest content
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(nullable = false)
+    private long version;
+
+    // The version of the notes of the user (see 'User') when this note was saved or updated for the
+    // last time. The sync sends the notes with a version greater than the version of its token.
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "notes_version", nullable = false)
+    private long notesVersion;
 
-    private LocalDate updatedAt;
+    // Mapping of the foreign key (it is also written by the 'notes' relationship of the User entity)
+    // It allows querying and inserting the notes of a user without loading the user
+    @JsonIgnore
+    @Column(name = "id_user", updatable = false)
+    private Long userId;
 
     public Note() {
     }
@@ -58,32 +100,63 @@ public class Note {
         this.content = content;
     }
 
-    public LocalDate getCreatedAt() {
+    public Instant getCreatedAt() {
         return createdAt;
     }
 
-    public void setCreatedAt(LocalDate createdAt) {
+    public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
 
-    public LocalDate getUpdatedAt() {
+    public Instant getUpdatedAt() {
         return updatedAt;
     }
 
-    public void setUpdatedAt(LocalDate updatedAt) {
+    public void setUpdatedAt(Instant updatedAt) {
         this.updatedAt = updatedAt;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getNotesVersion() {
+        return notesVersion;
+    }
+
+    public void setNotesVersion(long notesVersion) {
+        this.notesVersion = notesVersion;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
     // To set the date when the record is saved in the db 
     @PrePersist
     public void prePersist() {
-        this.createdAt = LocalDate.now();
+        this.createdAt = now();
+        this.updatedAt = this.createdAt;
     }
 
     // To set the date when the record is updated in the db 
     @PreUpdate
     public void preUpdate() {
-        this.updatedAt = LocalDate.now();
+        this.updatedAt = now();
+    }
+
+    // To get the current moment with the precision of the db columns (microseconds), 
+    // so the value sent to the client is the same value saved in the db
+    public static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
     }
 
 }
@@ -0,0 +1,68 @@
+package com.alejandro.gestordenotas.entities;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// To register each transaction that changes the notes of a user (a save, an update or a deletion).
+// The id of the change is the version of the notes that it sets (see 'Note' and 'NoteTombstone'):
+// it is given by the auto increment of the db, so the changes of the notes of the same user
+// get different versions without locking the user.
+// The ids are given in the order of the inserts but the changes are committed in any order,
+// so the sync only reads the versions of the changes that settled (see 'NoteChangeRepository').
+// In mysql the name of this table is 'note_change'
+@Entity
+@Table(name = "note_change")
+public class NoteChange {
+
+    // Mapping of class attributes with table fields in mysql
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_note_change")
+    private Long id;
+
+    // The user whose notes were changed (it is not a foreign key, the changes are kept after the user is deleted)
+    @Column(name = "id_user", nullable = false)
+    private Long userId;
+
+    // The moment of the insert in the clock of the db (the db sets it, so all of the instances use the same clock)
+    @ColumnDefault("LOCALTIMESTAMP(6)")
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public NoteChange() {
+    }
+
+    public NoteChange(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.alejandro.gestordenotas.entities;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+// To register that a note was deleted, so the clients that sync the notes 
+// of a user can delete it too.
+// In mysql the name of this table is 'note_tombstone'
+@Entity
+@Table(name = "note_tombstone", indexes = @Index(name = "idx_note_tombstone_user_notes_version", columnList = "id_user, notes_version, id_note_tombstone"))
+public class NoteTombstone {
+
+    // Mapping of class attributes with table fields in mysql
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_note_tombstone")
+    private Long id;
+
+    // The id of the deleted note (the note does not exist anymore, so it is not a foreign key)
+    @Column(name = "id_note", nullable = false)
+    private Long noteId;
+
+    @Column(name = "id_user", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Instant deletedAt;
+
+    // The version of the notes of the user (see 'User') when the note was deleted
+    @ColumnDefault("0")
+    @Column(name = "notes_version", nullable = false)
+    private long notesVersion;
+
+    public NoteTombstone() {
+    }
+
+    public NoteTombstone(Long noteId, Long userId, Instant deletedAt, long notesVersion) {
+        this.noteId = noteId;
+        this.userId = userId;
+        this.deletedAt = deletedAt;
+        this.notesVersion = notesVersion;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(Long noteId) {
+        this.noteId = noteId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(Instant deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+    public long getNotesVersion() {
+        return notesVersion;
+    }
+
+    public void setNotesVersion(long notesVersion) {
+        this.notesVersion = notesVersion;
+    }
+
+}
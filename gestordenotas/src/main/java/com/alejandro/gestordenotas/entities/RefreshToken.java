@@ -0,0 +1,116 @@
+package com.alejandro.gestordenotas.entities;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+// A refresh token of a user, to get new access tokens without the password.
+// Only the SHA-256 hash of the token is saved. Each token is used once: when it is used a new
+// token of the same family is created, so if a used token comes back it was stolen and all of
+// the tokens of its family are revoked.
+// In mysql the name of this table is 'refresh_token'
+@Entity
+@Table(name = "refresh_token", uniqueConstraints = @UniqueConstraint(name = "UK_refresh_token_hash", columnNames = { "token_hash" }),
+    indexes = { @Index(name = "idx_refresh_token_family", columnList = "family"),
+        @Index(name = "idx_refresh_token_user", columnList = "id_user") })
+public class RefreshToken {
+
+    // Mapping of class attributes with table fields in mysql
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_refresh_token")
+    private Long id;
+
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+
+    @Column(name = "id_user", nullable = false)
+    private Long userId;
+
+    // The tokens created from the same login
+    @Column(nullable = false, length = 36)
+    private String family;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    // When the token was exchanged for a new one (null if it was not used)
+    private Instant usedAt;
+
+    private boolean revoked;
+
+    public RefreshToken() {
+    }
+
+    public RefreshToken(String tokenHash, Long userId, String family, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.userId = userId;
+        this.family = family;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public void setTokenHash(String tokenHash) {
+        this.tokenHash = tokenHash;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getFamily() {
+        return family;
+    }
+
+    public void setFamily(String family) {
+        this.family = family;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Instant getUsedAt() {
+        return usedAt;
+    }
+
+    public void setUsedAt(Instant usedAt) {
+        this.usedAt = usedAt;
+    }
+
+    public boolean isRevoked() {
+        return revoked;
+    }
+
+    public void setRevoked(boolean revoked) {
+        this.revoked = revoked;
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.alejandro.gestordenotas.entities;
+
+import java.util.Collection;
+
+// The level of the highest role of a user. It is saved in the column 'role_level' of the users,
+// so the users of a role are found with an index instead of a join with their roles.
+public final class RoleLevel {
+
+    // Only the user role
+    public static final int USER = 0;
+
+    // The user and admin roles
+    public static final int ADMIN = 1;
+
+    // The super admin role
+    public static final int SUPER_ADMIN = 2;
+
+    private RoleLevel() {
+    }
+
+    // To get the level of some roles
+    public static int of(Collection<Role> roles) {
+        int level = USER;
+        if (roles == null) {
+            return level;
+        }
+
+        for (Role role : roles) {
+            if ("ROLE_SUPER_ADMIN".equals(role.getName())) {
+                return SUPER_ADMIN;
+            }
+            if ("ROLE_ADMIN".equals(role.getName())) {
+                level = ADMIN;
+            }
+        }
+        return level;
+    }
+
+}
@@ -5,6 +5,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -14,6 +16,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
@@ -27,7 +30,9 @@ import jakarta.validation.constraints.NotBlank;
 // In mysql the name of this table is 'user' but in this project 
 // the name of this class is 'User'
 @Entity
-@Table(name = "tbl_user", uniqueConstraints = @UniqueConstraint(name = "UK_user", columnNames = { "username" }))
+@Table(name = "tbl_user", uniqueConstraints = @UniqueConstraint(name = "UK_user", columnNames = { "username" }),
+    indexes = { @Index(name = "idx_user_role_level", columnList = "role_level, id_user"),
+        @Index(name = "idx_user_role_level_username", columnList = "role_level, username") })
 public class User {
 
     // Mapping of class attributes with table fields in mysql
@@ -50,6 +55,18 @@ public class User {
     // This attribute can be empty because it is set in cycle life events of entity objects
     private boolean enabled;
 
+    // The level of the highest role of this user (see 'RoleLevel'). It is a copy of the roles,
+    // so it is set when the user is saved and when its roles change.
+    @ColumnDefault("0")
+    @Column(name = "role_level", nullable = false)
+    private int roleLevel;
+
+    // The tokens of this user created before the last change of its credentials or roles have
+    // a lower epoch, so they are rejected (see 'TokenRevocations')
+    @ColumnDefault("0")
+    @Column(name = "token_epoch", nullable = false)
+    private long tokenEpoch;
+
     // To set a relationship one to many
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "id_user")
@@ -140,8 +157,27 @@ public class User {
         this.enabled = enabled;
     }
 
+    @JsonIgnore // To not send the level of the roles
+    public int getRoleLevel() {
+        return roleLevel;
+    }
+
+    public void setRoleLevel(int roleLevel) {
+        this.roleLevel = roleLevel;
+    }
+
+    @JsonIgnore // To not send the epoch of the tokens
+    public long getTokenEpoch() {
+        return tokenEpoch;
+    }
+
+    public void setTokenEpoch(long tokenEpoch) {
+        this.tokenEpoch = tokenEpoch;
+    }
+
     // To set the status of user (it can or not can't login the app) and to set the user is not admin
-    // when the record is saved in the db 
+    // when the record is saved in the db (the level of its roles is set by the service, because the roles
+    // are references and their names are not read)
     @PrePersist
     public void prePersist() {
         this.enabled = true;
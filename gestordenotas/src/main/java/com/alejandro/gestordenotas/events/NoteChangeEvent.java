@@ -0,0 +1,68 @@
+package com.alejandro.gestordenotas.events;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alejandro.gestordenotas.entities.Note;
+
+// This event is published when the notes of a user are saved, updated or deleted 
+// (or when the user is deleted), so the components that keep a copy of the notes 
+// can update it after the transaction is committed
+public class NoteChangeEvent {
+
+    private final Long userId;
+
+    // The id and the new content of each saved or updated note
+    private final Map<Long, String> upserted;
+
+    private final List<Long> deleted;
+
+    private final boolean userDeleted;
+
+    private NoteChangeEvent(Long userId, Map<Long, String> upserted, List<Long> deleted, boolean userDeleted) {
+        this.userId = userId;
+        this.upserted = upserted;
+        this.deleted = deleted;
+        this.userDeleted = userDeleted;
+    }
+
+    // To create the event of some new notes of a user
+    public static NoteChangeEvent saved(Long userId, List<Note> notes) {
+        Map<Long, String> upserted = new LinkedHashMap<>();
+        notes.forEach(note -> upserted.put(note.getId(), note.getContent()));
+        return new NoteChangeEvent(userId, upserted, List.of(), false);
+    }
+
+    // To create the event of a note whose content was updated
+    public static NoteChangeEvent updated(Long userId, Long noteId, String content) {
+        return new NoteChangeEvent(userId, Map.of(noteId, content), List.of(), false);
+    }
+
+    // To create the event of a deleted note
+    public static NoteChangeEvent deleted(Long userId, Long noteId) {
+        return new NoteChangeEvent(userId, Map.of(), List.of(noteId), false);
+    }
+
+    // To create the event of a deleted user (all of its notes were deleted)
+    public static NoteChangeEvent userDeleted(Long userId) {
+        return new NoteChangeEvent(userId, Map.of(), List.of(), true);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Map<Long, String> getUpserted() {
+        return upserted;
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public boolean isUserDeleted() {
+        return userDeleted;
+    }
+
+}
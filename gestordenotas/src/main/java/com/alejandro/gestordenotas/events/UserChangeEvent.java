@@ -0,0 +1,39 @@
+package com.alejandro.gestordenotas.events;
+
+// This event is published when the data of a user used in the login changes
+// (username, password, state or roles) or when the user is deleted, so the components
+// that keep a copy of that data can forget it after the transaction is committed
+public class UserChangeEvent {
+
+    private final Long userId;
+
+    // The username of the user before the change
+    private final String username;
+
+    // If the access of the user changed (its password, its roles or its state, or it was deleted),
+    // then a copy read before the change must not be kept
+    private final boolean accessChanged;
+
+    public UserChangeEvent(Long userId, String username) {
+        this(userId, username, false);
+    }
+
+    public UserChangeEvent(Long userId, String username, boolean accessChanged) {
+        this.userId = userId;
+        this.username = username;
+        this.accessChanged = accessChanged;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isAccessChanged() {
+        return accessChanged;
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.alejandro.gestordenotas.events;
+
+import java.util.List;
+
+// This event is published when the state or the roles of many users change at once (a chunk of
+// a bulk change), so the components that keep a copy of their data can read them again after
+// the transaction is committed with one query for all of the users
+public class UsersChangeEvent {
+
+    private final List<Long> userIds;
+
+    // If the roles of the users changed (else only their state changed)
+    private final boolean roles;
+
+    public UsersChangeEvent(List<Long> userIds, boolean roles) {
+        this.userIds = List.copyOf(userIds);
+        this.roles = roles;
+    }
+
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    public boolean isRoles() {
+        return roles;
+    }
+
+}
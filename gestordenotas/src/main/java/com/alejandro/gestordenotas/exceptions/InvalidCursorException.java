@@ -0,0 +1,10 @@
+package com.alejandro.gestordenotas.exceptions;
+
+// This exception is fired when a pagination cursor sent by the client can not be decoded
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super(String.format("El cursor '%s' no es valido!", cursor));
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.alejandro.gestordenotas.exceptions;
+
+// This exception is fired when a refresh token does not exist, expired, was revoked or was already used
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+
+}
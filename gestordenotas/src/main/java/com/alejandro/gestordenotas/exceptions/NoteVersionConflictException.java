@@ -0,0 +1,11 @@
+package com.alejandro.gestordenotas.exceptions;
+
+// This exception is fired when a note is changed with the version of an etag ('If-Match') 
+// but the note was changed by other request after that version
+public class NoteVersionConflictException extends RuntimeException {
+
+    public NoteVersionConflictException(Long noteId) {
+        super(String.format("La nota '%s' fue modificada por otra peticion!", noteId));
+    }
+
+}
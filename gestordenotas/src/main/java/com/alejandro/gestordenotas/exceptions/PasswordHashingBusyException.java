@@ -0,0 +1,19 @@
+package com.alejandro.gestordenotas.exceptions;
+
+// This exception is fired when there are too many passwords waiting to be hashed or verified,
+// so the request is rejected at once instead of waiting
+public class PasswordHashingBusyException extends RuntimeException {
+
+    // The seconds that the client should wait before trying again
+    private final int retryAfterSeconds;
+
+    public PasswordHashingBusyException(int retryAfterSeconds) {
+        super(String.format("El servidor esta ocupado, intente de nuevo en %s segundos!", retryAfterSeconds));
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.alejandro.gestordenotas.repositories;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.alejandro.gestordenotas.entities.NoteChange;
+
+public interface NoteChangeRepository extends CrudRepository<NoteChange, Long> {
+
+    // ---------------------
+    // Custom queries ------
+    // ---------------------
+
+    // To get the last version of the notes given to a change
+    @Query("SELECT MAX(c.id) FROM NoteChange c")
+    Optional<Long> getLastVersion();
+
+    // To get the last version of the notes given to a change inserted at least 'settleSeconds' ago.
+    // A change is inserted close to the end of its transaction, so the changes before that version
+    // are already committed (or rolled back) and no change with a lower version can appear later.
+    @Query("SELECT MAX(c.id) FROM NoteChange c WHERE c.createdAt <= local datetime - ?1 second")
+    Optional<Long> getSettledVersion(long settleSeconds);
+
+    // To delete the changes before a version (the versions are kept in the notes and in the tombstones)
+    @Modifying
+    @Query("DELETE FROM NoteChange c WHERE c.id < ?1")
+    int deleteBefore(long notesVersion);
+
+}
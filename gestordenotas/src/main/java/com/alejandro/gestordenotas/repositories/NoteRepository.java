@@ -1,9 +1,116 @@
 package com.alejandro.gestordenotas.repositories;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
 import com.alejandro.gestordenotas.entities.Note;
 
+import jakarta.persistence.QueryHint;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 public interface NoteRepository extends CrudRepository<Note, Long> {
-    
+
+    // ---------------------
+    // Custom queries ------
+    // ---------------------
+
+    // To get a note only if it belongs to the user
+    Optional<Note> findByIdAndUserId(Long id, Long userId);
+
+    // To get a page of the notes of a certain user whose id is greater than the cursor (keyset pagination)
+    List<Note> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Limit limit);
+
+    // To get the notes of a certain user changed after a position of the sync (keyset pagination).
+    // The position is the version of the notes of the user and the id of the note, because many 
+    // notes can change in the same version. The changes after 'maxNotesVersion' are not read.
+    @Query("""
+        SELECT n
+        FROM Note n
+        WHERE n.userId = ?1 AND (n.notesVersion > ?2 OR (n.notesVersion = ?2 AND n.id > ?3)) AND n.notesVersion <= ?4
+        ORDER BY n.notesVersion, n.id
+    """)
+    List<Note> findChangedAfter(Long userId, long notesVersion, Long id, long maxNotesVersion, Limit limit);
+
+    // To read all of the notes of a certain user one by one (the stream must be consumed 
+    // inside a transaction and closed after that).
+    // The rows are fetched from the db in blocks, so the notes are never loaded all at once.
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT n
+        FROM Note n
+        WHERE n.userId = ?1
+        ORDER BY n.id
+    """)
+    Stream<Note> streamByUserId(Long userId);
+
+    // To read only the id and the content of all of the notes of a certain user one by one
+    // (the values are not entities, so they are not kept in the persistence context)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+        SELECT n.id AS id, n.content AS content
+        FROM Note n
+        WHERE n.userId = ?1
+    """)
+    Stream<NoteContent> streamContentByUserId(Long userId);
+
+    // To know if a note belongs to the user
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    // To get the last version of the notes of a certain user among its notes (0 without notes)
+    @Query("SELECT COALESCE(MAX(n.notesVersion), 0) FROM Note n WHERE n.userId = ?1")
+    long getLastNotesVersion(Long userId);
+
+    // To update the content of a note only if it belongs to the user and it has the expected
+    // version (any version if it is null). The version of the note is incremented.
+    // It returns the number of updated records (0 or 1)
+    @Modifying
+    @Query("""
+        UPDATE Note n
+        SET n.content = ?3, n.updatedAt = ?4, n.version = n.version + 1
+        WHERE n.id = ?1 AND n.userId = ?2 AND (?5 IS NULL OR n.version = ?5)
+    """)
+    int updateContentByIdAndUserId(Long id, Long userId, String content, Instant updatedAt, Long version);
+
+    // To set the version of the notes of the user in a note that was just updated
+    // (the row is already locked by the update)
+    @Modifying
+    @Query("""
+        UPDATE Note n
+        SET n.notesVersion = ?2
+        WHERE n.id = ?1
+    """)
+    int updateNotesVersion(Long id, long notesVersion);
+
+    // To delete a note only if it belongs to the user and it has the expected version 
+    // (any version if it is null).
+    // It returns the number of deleted records (0 or 1)
+    @Modifying
+    @Query("""
+        DELETE FROM Note n
+        WHERE n.id = ?1 AND n.userId = ?2 AND (?3 IS NULL OR n.version = ?3)
+    """)
+    int deleteByIdAndUserId(Long id, Long userId, Long version);
+
+    // Projection with the id and the content of a note
+    interface NoteContent {
+
+        Long getId();
+
+        String getContent();
+
+    }
+
 }
@@ -0,0 +1,40 @@
+package com.alejandro.gestordenotas.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.alejandro.gestordenotas.entities.NoteTombstone;
+
+public interface NoteTombstoneRepository extends CrudRepository<NoteTombstone, Long> {
+
+    // ---------------------
+    // Custom queries ------
+    // ---------------------
+
+    // To get the notes of a certain user deleted after a position of the sync (keyset pagination)
+    // up to a version of the notes of the user
+    @Query("""
+        SELECT t
+        FROM NoteTombstone t
+        WHERE t.userId = ?1 AND (t.notesVersion > ?2 OR (t.notesVersion = ?2 AND t.id > ?3)) AND t.notesVersion <= ?4
+        ORDER BY t.notesVersion, t.id
+    """)
+    List<NoteTombstone> findDeletedAfter(Long userId, long notesVersion, Long id, long maxNotesVersion, Limit limit);
+
+    // To get the last version of the notes of a certain user among its deleted notes (0 without deletions)
+    @Query("SELECT COALESCE(MAX(t.notesVersion), 0) FROM NoteTombstone t WHERE t.userId = ?1")
+    long getLastNotesVersion(Long userId);
+
+    // To delete the tombstones of a certain user (when the user is deleted)
+    @Modifying
+    @Query("""
+        DELETE FROM NoteTombstone t
+        WHERE t.userId = ?1
+    """)
+    int deleteByUserId(Long userId);
+
+}
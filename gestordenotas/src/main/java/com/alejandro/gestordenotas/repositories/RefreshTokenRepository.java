@@ -0,0 +1,64 @@
+package com.alejandro.gestordenotas.repositories;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.alejandro.gestordenotas.entities.RefreshToken;
+
+public interface RefreshTokenRepository extends CrudRepository<RefreshToken, Long> {
+
+    // ---------------------
+    // Custom queries ------
+    // ---------------------
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // To mark a token as used only if it was not used or revoked before
+    // (if two requests use the same token at the same time only one of them changes the row)
+    @Modifying
+    @Query("""
+        UPDATE RefreshToken r
+        SET r.usedAt = ?2
+        WHERE r.id = ?1 AND r.usedAt IS NULL AND r.revoked = false
+    """)
+    int markUsed(Long id, Instant usedAt);
+
+    // To revoke all of the tokens of a family (when a used token is used again)
+    @Modifying
+    @Query("""
+        UPDATE RefreshToken r
+        SET r.revoked = true
+        WHERE r.family = ?1
+    """)
+    int revokeFamily(String family);
+
+    // To revoke all of the tokens of a certain user (when its password changes)
+    @Modifying
+    @Query("""
+        UPDATE RefreshToken r
+        SET r.revoked = true
+        WHERE r.userId = ?1
+    """)
+    int revokeByUserId(Long userId);
+
+    // To delete the tokens of a certain user (when the user is deleted)
+    @Modifying
+    @Query("""
+        DELETE FROM RefreshToken r
+        WHERE r.userId = ?1
+    """)
+    int deleteByUserId(Long userId);
+
+    // To delete the tokens that can not be used anymore
+    @Modifying
+    @Query("""
+        DELETE FROM RefreshToken r
+        WHERE r.expiresAt < ?1
+    """)
+    int deleteExpired(Instant now);
+
+}
@@ -0,0 +1,120 @@
+package com.alejandro.gestordenotas.repositories;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.alejandro.gestordenotas.entities.Role;
+import com.alejandro.gestordenotas.entities.RoleLevel;
+
+import jakarta.persistence.EntityManager;
+
+// The roles of the db, read once when the application starts, so the services don't search a role
+// by its name each time they add it to a user.
+// A role is handed out as a reference of the current persistence context (it is managed, so it can be
+// added to the roles of a user, and it is not read from the db). The names of the roles are kept
+// apart, so they are known without reading the references.
+// The roles are read again with 'refresh' and when a role that is not known is requested
+// (e.g. a role created after the start of the application).
+@Component
+public class RoleRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleRegistry.class);
+
+    // To read the roles
+    private final RoleRepository repository;
+
+    // To create the references of the roles
+    private final EntityManager entityManager;
+
+    private volatile Roles roles;
+
+    @Autowired
+    public RoleRegistry(RoleRepository repository, EntityManager entityManager) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.roles = load();
+    }
+
+    // To get a reference of a role based on its name
+    public Optional<Role> findByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        Long id = roles.ids.get(name);
+        if (id == null) {
+            id = load().ids.get(name);
+        }
+        return Optional.ofNullable(id).map(this::reference);
+    }
+
+    // To get a reference of a role based on its id
+    public Optional<Role> findById(Long id) {
+        if (id == null || !roles.names.containsKey(id) && !load().names.containsKey(id)) {
+            return Optional.empty();
+        }
+        return Optional.of(reference(id));
+    }
+
+    // To get the level of some roles (the roles can be references, only their ids are read)
+    public int levelOf(Collection<Role> userRoles) {
+        Roles current = roles;
+        List<Role> named = new ArrayList<>(userRoles.size());
+        for (Role role : userRoles) {
+            if (role.getId() != null) {
+                named.add(new Role(role.getId(), current.names.get(role.getId())));
+            }
+        }
+        return RoleLevel.of(named);
+    }
+
+    // To read the roles of the db again
+    public void refresh() {
+        load();
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    private synchronized Roles load() {
+        Map<String, Long> ids = new HashMap<>();
+        for (Role role : repository.findAll()) {
+            if (role.getId() != null && role.getName() != null) {
+                ids.put(role.getName(), role.getId());
+            }
+        }
+
+        roles = new Roles(ids);
+        logger.debug("Roles read from the db: {}", ids.keySet());
+        return roles;
+    }
+
+    private Role reference(Long id) {
+        return entityManager.getReference(Role.class, id);
+    }
+
+    // The roles at a moment (it is replaced as a whole when the roles are read again)
+    private static final class Roles {
+
+        private final Map<String, Long> ids;
+
+        private final Map<Long, String> names;
+
+        private Roles(Map<String, Long> ids) {
+            this.ids = Map.copyOf(ids);
+
+            Map<Long, String> names = new HashMap<>();
+            ids.forEach((name, id) -> names.put(id, name));
+            this.names = Map.copyOf(names);
+        }
+
+    }
+
+}
@@ -1,8 +1,14 @@
 package com.alejandro.gestordenotas.repositories;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
@@ -10,7 +16,9 @@ import com.alejandro.gestordenotas.dto.AdminDto;
 import com.alejandro.gestordenotas.dto.SuperAdminDto;
 import com.alejandro.gestordenotas.entities.User;
 
-public interface UserRepository extends CrudRepository<User, Long> {
+import jakarta.persistence.LockModeType;
+
+public interface UserRepository extends CrudRepository<User, Long>, JpaSpecificationExecutor<User> {
 
     // ---------------------
     // Custom queries ------
@@ -21,86 +29,141 @@ public interface UserRepository extends CrudRepository<User, Long> {
     // To get a user based on its name
     Optional<User> findByUsername(String username);
 
+    // Custom queries for the revocation of the tokens -------------------------
+
+    // To get all of the id's of the disabled users
+    @Query("SELECT u.id FROM User u WHERE u.enabled = false")
+    List<Long> getAllIdsOfDisabledUsers();
+
+    // To get the id and the token epoch of the users with an epoch greater than 0
+    @Query("SELECT u.id, u.tokenEpoch FROM User u WHERE u.tokenEpoch > 0")
+    List<Object[]> getAllTokenEpochs();
+
+    // To know which of some id's are of existing users
+    @Query("SELECT u.id FROM User u WHERE u.id IN ?1")
+    List<Long> getExistingIds(Collection<Long> ids);
+
+    // To get the id, the enabled flag and the token epoch of some users (only the columns, no user is loaded)
+    @Query("SELECT u.id, u.enabled, u.tokenEpoch FROM User u WHERE u.id IN ?1")
+    List<Object[]> getRevocationStates(Collection<Long> ids);
+
     // Custom queries for the admin role --------------------------------------
+    // (the roles of the users are read from the column 'role_level', see 'RoleLevel')
 
-    // To get all of the users with the user role
-    @Query("""
-        SELECT DISTINCT new com.alejandro.gestordenotas.dto.AdminDto(u.id, u.username, u.enabled)
-        FROM User u
-        WHERE u.id NOT IN (
-            SELECT DISTINCT u2.id
-            FROM User u2
-            JOIN u2.roles r
-            WHERE r.id = 2 OR r.id = 3
-        )
-    """)
-    List<AdminDto> getAllUsersWithUserRole();
+    // To get a page of the users of a specification ordered by a property (id or username).
+    // Only the users of the page are read (there is not a count of all of the users).
+    default List<User> findPage(Specification<User> specification, String sortProperty, int size) {
+        return findBy(specification, query -> query.sortBy(Sort.by(sortProperty)).limit(size).all());
+    }
     
     // To get a specific user who only has the user role 
     @Query("""
-        SELECT DISTINCT new com.alejandro.gestordenotas.dto.AdminDto(u.id, u.username, u.enabled)
+        SELECT new com.alejandro.gestordenotas.dto.AdminDto(u.id, u.username, u.enabled)
         FROM User u
-        WHERE u.id NOT IN (
-            SELECT DISTINCT u2.id
-            FROM User u2
-            JOIN u2.roles r
-            WHERE r.id = 2 OR r.id = 3
-        ) and u.id = ?1
+        WHERE u.id = ?1 AND u.roleLevel = 0
     """)
     Optional<AdminDto> getUserWithUserRole(Long id);
 
-    // To get all of the id's of users with role 'admin' and 'super admin'
-    @Query("""
-        SELECT u.id
-        FROM User u
-        WHERE u.id IN (
-            SELECT DISTINCT u2.id
-            FROM User u2
-            JOIN u2.roles r
-            WHERE r.id = 2 OR r.id = 3
-        )
-    """)
-    List<Long> getAllIdsWithAdminAndSuperAdminRole();
-
     // Custom queries for the super admin role --------------------------------------
     
-    // To get all of the users who have the user role or the user and admin role
+    // To get a specific user who has the user role or the user and admin role
     @Query("""
-        SELECT DISTINCT new com.alejandro.gestordenotas.dto.SuperAdminDto(u.id, u.username, u.enabled, u.admin)
+        SELECT new com.alejandro.gestordenotas.dto.SuperAdminDto(u.id, u.username, u.enabled, u.admin)
         FROM User u
-        WHERE u.id NOT IN (
-            SELECT DISTINCT u2.id
-            FROM User u2
-            JOIN u2.roles r
-            WHERE r.id = 3
-        )
+        WHERE u.id = ?1 AND u.roleLevel < 2
     """)
-    List<SuperAdminDto> getAllUsersWithUserAndAdminRole();
+    Optional<SuperAdminDto> getUserWithUserAndAdminRole(Long id);
 
-    // To get a specific user who has the user role or the user and admin role
+    // To set the level of the users with a role that is higher than their level
+    // (the users saved before the column 'role_level' existed).
+    // The query is native because mysql doesn't allow a subquery of the updated table.
+    @Modifying
+    @Query(value = """
+        UPDATE tbl_user
+        SET role_level = ?2
+        WHERE role_level < ?2 AND id_user IN (
+            SELECT ur.id_user
+            FROM users_roles ur
+            JOIN role r ON r.id_role = ur.id_role
+            WHERE r.name = ?1
+        )
+    """, nativeQuery = true)
+    int raiseRoleLevel(String roleName, int roleLevel);
+
+    // To replace the hash of the password of a user only if it is still the hash read in the login
+    // (a password changed meanwhile is not overwritten)
+    @Modifying
     @Query("""
-        SELECT DISTINCT new com.alejandro.gestordenotas.dto.SuperAdminDto(u.id, u.username, u.enabled, u.admin)
-        FROM User u
-        WHERE u.id NOT IN (
-            SELECT DISTINCT u2.id
-            FROM User u2
-            JOIN u2.roles r
-            WHERE r.id = 3
-        ) and u.id = ?1
+        UPDATE User u
+        SET u.password = ?3
+        WHERE u.username = ?1 AND u.password = ?2
     """)
-    Optional<SuperAdminDto> getUserWithUserAndAdminRole(Long id);
+    int updatePassword(String username, String oldPassword, String newPassword);
+
+    // Custom statements for the bulk changes -----------------------------------
+    // (each statement changes a chunk of users at once, the guards of the roles are in the conditions)
+
+    // To count the users of a list that the guards of a bulk change protect (their level of roles
+    // is higher than the level that can be changed), it is the complement of the conditions of the statements
+    @Query("SELECT COUNT(u) FROM User u WHERE u.id IN ?1 AND u.roleLevel > ?2")
+    long countIdsWithRoleLevelAbove(Collection<Long> ids, int maxRoleLevel);
+
+    // To get (and lock until the end of the transaction) the users of a list that 'updateEnabled' changes,
+    // so only the changed users are notified
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u.id FROM User u WHERE u.id IN ?1 AND u.roleLevel <= ?3 AND u.enabled <> ?2")
+    List<Long> lockIdsToUpdateEnabled(Collection<Long> ids, boolean enabled, int maxRoleLevel);
 
-    // To get the id of the user with the super admin role
+    // To enable or disable the users of a list whose level of roles is not higher than a level.
+    // Only the users that don't have the state are changed (and counted).
+    @Modifying
     @Query("""
-        SELECT u.id
-        FROM User u
-        WHERE u.id IN (
-            SELECT DISTINCT u2.id
-            FROM User u2
-            JOIN u2.roles r
-            WHERE r.id = 3
+        UPDATE User u
+        SET u.enabled = ?2
+        WHERE u.id IN ?1 AND u.roleLevel <= ?3 AND u.enabled <> ?2
+    """)
+    int updateEnabled(Collection<Long> ids, boolean enabled, int maxRoleLevel);
+
+    // To get (and lock until the end of the transaction) the users of a list with a level of roles,
+    // so only the users whose roles are changed are notified
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u.id FROM User u WHERE u.id IN ?1 AND u.roleLevel = ?2")
+    List<Long> lockIdsWithRoleLevel(Collection<Long> ids, int roleLevel);
+
+    // To add a role to the users of a list that only have the user role
+    @Modifying
+    @Query(value = """
+        INSERT INTO users_roles (id_user, id_role)
+        SELECT u.id_user, ?2
+        FROM tbl_user u
+        WHERE u.id_user IN ?1 AND u.role_level = 0 AND NOT EXISTS (
+            SELECT 1
+            FROM users_roles ur
+            WHERE ur.id_user = u.id_user AND ur.id_role = ?2
         )
+    """, nativeQuery = true)
+    int insertRole(Collection<Long> ids, Long roleId);
+
+    // To remove a role from the users of a list that have the admin role (but not the super admin role)
+    @Modifying
+    @Query(value = """
+        DELETE FROM users_roles
+        WHERE id_role = ?2 AND id_user IN (
+            SELECT u.id_user
+            FROM tbl_user u
+            WHERE u.id_user IN ?1 AND u.role_level = 1
+        )
+    """, nativeQuery = true)
+    int deleteRole(Collection<Long> ids, Long roleId);
+
+    // To set the admin attribute and the level of the roles of the users of a list with a previous level.
+    // The tokens with the previous roles are rejected (the token epoch is incremented).
+    @Modifying
+    @Query("""
+        UPDATE User u
+        SET u.admin = ?2, u.roleLevel = ?3, u.tokenEpoch = u.tokenEpoch + 1
+        WHERE u.id IN ?1 AND u.roleLevel = ?4
     """)
-    Long getIdOfSuperAdmin();
+    int updateRoleLevel(Collection<Long> ids, boolean admin, int roleLevel, int previousRoleLevel);
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package com.alejandro.gestordenotas.repositories;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.alejandro.gestordenotas.entities.User;
+
+// The conditions of the lists of users. They are combined by the services, so each query 
+// only has the conditions of its filters (and the db can use the indexes of those columns).
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    // To get the users with a certain level of roles (see 'RoleLevel')
+    public static Specification<User> hasRoleLevel(int roleLevel) {
+        return (root, query, cb) -> cb.equal(root.get("roleLevel"), roleLevel);
+    }
+
+    // To get the users with a level of roles lower than a certain level
+    public static Specification<User> hasRoleLevelBelow(int roleLevel) {
+        return (root, query, cb) -> cb.lessThan(root.get("roleLevel"), roleLevel);
+    }
+
+    // To get the enabled or the disabled users (no condition if it is null)
+    public static Specification<User> isEnabled(Boolean enabled) {
+        return enabled == null ? null : (root, query, cb) -> cb.equal(root.get("enabled"), enabled);
+    }
+
+    // To get the users whose username starts with a prefix (no condition if it is empty).
+    // The wildcards of 'like' in the prefix are escaped.
+    public static Specification<User> usernameStartsWith(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return null;
+        }
+        String pattern = prefix.strip().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(root.get("username"), pattern, '\\');
+    }
+
+    // To get the users whose id is greater than the id of the last user of the previous page (keyset pagination)
+    public static Specification<User> idAfter(Long id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    // To get the users whose username is greater than the username of the last user of the previous page
+    public static Specification<User> usernameAfter(String username) {
+        return (root, query, cb) -> cb.greaterThan(root.get("username"), username);
+    }
+
+}
@@ -0,0 +1,352 @@
+package com.alejandro.gestordenotas.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-memory inverted index over the content of the notes of a single user.
+// Each term keeps the ids of the notes that contain it, so a query only reads the notes
+// of its terms instead of the content of every note. The results are ranked with BM25.
+// The index can be used from many threads (the changes are exclusive, the queries are shared).
+public class NoteIndex {
+
+    // Parameters of BM25 (saturation of the term frequency and normalization of the length)
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // To order the hits from the best to the worst (the newest note first on a tie)
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::getScore)
+        .thenComparingLong(Hit::getNoteId)
+        .reversed();
+
+    // The notes of each term
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    // The terms of each note, to remove the note without reading all of the terms
+    private final Map<Long, PostingList[]> noteTerms = new HashMap<>();
+
+    // Sum of the number of terms of all of the notes (to know the average length)
+    private long totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // To add a note to the index or to replace its content
+    public void put(long noteId, String content) {
+        List<String> terms = tokenize(content);
+
+        // Count the frequency of each term in the note
+        Map<String, Integer> frequencies = new HashMap<>();
+        terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+
+        lock.writeLock().lock();
+        try {
+            removeNote(noteId);
+
+            PostingList[] lists = new PostingList[frequencies.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+                PostingList list = postings.computeIfAbsent(frequency.getKey(), PostingList::new);
+                list.add(noteId, frequency.getValue(), terms.size());
+                lists[i++] = list;
+            }
+
+            noteTerms.put(noteId, lists);
+            totalLength += terms.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // To remove a note from the index
+    public void remove(long noteId) {
+        lock.writeLock().lock();
+        try {
+            removeNote(noteId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // To know how many notes are in the index
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return noteTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // To get the best notes for a query (a note must contain at least one of its terms).
+    // The lists of the terms are sorted by id, so they are merged note by note and only
+    // the best notes are kept, without a map of the scores of all of the notes found.
+    public List<Hit> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+
+        lock.readLock().lock();
+        try {
+            int notes = noteTerms.size();
+            List<PostingList> lists = new ArrayList<>(terms.size());
+            terms.forEach(term -> {
+                PostingList list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                }
+            });
+
+            if (lists.isEmpty() || limit < 1) {
+                return List.of();
+            }
+
+            double averageLength = Math.max(1.0, (double) totalLength / notes);
+            double[] idfs = new double[lists.size()];
+            int[] positions = new int[lists.size()];
+            for (int t = 0; t < lists.size(); t++) {
+                // The rare terms are worth more than the common ones
+                int documents = lists.get(t).size;
+                idfs[t] = Math.log(1 + (notes - documents + 0.5) / (documents + 0.5));
+            }
+
+            TopHits top = new TopHits(limit);
+
+            while (true) {
+                // The next note is the smallest id of the current positions of the lists
+                long noteId = Long.MAX_VALUE;
+                for (int t = 0; t < positions.length; t++) {
+                    PostingList list = lists.get(t);
+                    if (positions[t] < list.size && list.noteIds[positions[t]] < noteId) {
+                        noteId = list.noteIds[positions[t]];
+                    }
+                }
+
+                if (noteId == Long.MAX_VALUE) {
+                    break;
+                }
+
+                double score = 0;
+                for (int t = 0; t < positions.length; t++) {
+                    PostingList list = lists.get(t);
+                    int i = positions[t];
+                    if (i < list.size && list.noteIds[i] == noteId) {
+                        double frequency = list.frequencies[i];
+                        double normalization = K1 * (1 - B + B * list.lengths[i] / averageLength);
+                        score += idfs[t] * frequency * (K1 + 1) / (frequency + normalization);
+                        positions[t]++;
+                    }
+                }
+
+                top.offer(noteId, score);
+            }
+
+            return top.toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // To split a text into terms: lowercase and without accents
+    // (so 'Canción' and 'cancion' are the same term)
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        String normalized = MARKS.matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+            .replaceAll("");
+
+        List<String> terms = new ArrayList<>();
+        for (String term : SEPARATORS.split(normalized)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // To remove a note (the caller must have the write lock)
+    private void removeNote(long noteId) {
+        PostingList[] lists = noteTerms.remove(noteId);
+        if (lists == null) {
+            return;
+        }
+
+        for (PostingList list : lists) {
+            totalLength -= list.remove(noteId);
+
+            // The terms without notes are forgotten
+            if (list.size == 0) {
+                postings.remove(list.term);
+            }
+        }
+    }
+
+    // The notes that contain a term, sorted by id. For each note it keeps the frequency of
+    // the term and the length of the note, so the score is calculated without other lookups.
+    // The new notes have the greatest ids, so they are usually added at the end.
+    private static class PostingList {
+
+        private final String term;
+
+        private long[] noteIds = new long[2];
+        private int[] frequencies = new int[2];
+        private int[] lengths = new int[2];
+        private int size;
+
+        private PostingList(String term) {
+            this.term = term;
+        }
+
+        private void add(long noteId, int frequency, int length) {
+            int index = size == 0 || noteIds[size - 1] < noteId ? size : Arrays.binarySearch(noteIds, 0, size, noteId);
+            if (index < 0) {
+                index = -index - 1;
+            }
+
+            if (size == noteIds.length) {
+                int capacity = size + (size >> 1) + 1;
+                noteIds = Arrays.copyOf(noteIds, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+
+            System.arraycopy(noteIds, index, noteIds, index + 1, size - index);
+            System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+            System.arraycopy(lengths, index, lengths, index + 1, size - index);
+            noteIds[index] = noteId;
+            frequencies[index] = frequency;
+            lengths[index] = length;
+            size++;
+        }
+
+        // It returns the frequency of the term in the removed note
+        private int remove(long noteId) {
+            int index = Arrays.binarySearch(noteIds, 0, size, noteId);
+            if (index < 0) {
+                return 0;
+            }
+
+            int frequency = frequencies[index];
+            System.arraycopy(noteIds, index + 1, noteIds, index, size - index - 1);
+            System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+            System.arraycopy(lengths, index + 1, lengths, index, size - index - 1);
+            size--;
+            return frequency;
+        }
+
+    }
+
+    // The best hits of a query: a heap whose first element is the worst of the best hits,
+    // so a note is only kept if it is better than that one
+    private static class TopHits {
+
+        private final long[] noteIds;
+        private final double[] scores;
+        private int size;
+
+        private TopHits(int limit) {
+            this.noteIds = new long[limit];
+            this.scores = new double[limit];
+        }
+
+        private void offer(long noteId, double score) {
+            if (size < noteIds.length) {
+                noteIds[size] = noteId;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (isBetter(noteId, score, 0)) {
+                noteIds[0] = noteId;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private List<Hit> toList() {
+            List<Hit> hits = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                hits.add(new Hit(noteIds[i], scores[i]));
+            }
+            hits.sort(RANKING);
+            return hits;
+        }
+
+        // A hit is better if its score is greater (or if it is newer on a tie)
+        private boolean isBetter(long noteId, double score, int i) {
+            return score > scores[i] || (score == scores[i] && noteId > noteIds[i]);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!isBetter(noteIds[parent], scores[parent], i)) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int worst = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (isBetter(noteIds[worst], scores[worst], child)) {
+                        worst = child;
+                    }
+                }
+                if (worst == i) {
+                    break;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long noteId = noteIds[i];
+            double score = scores[i];
+            noteIds[i] = noteIds[j];
+            scores[i] = scores[j];
+            noteIds[j] = noteId;
+            scores[j] = score;
+        }
+
+    }
+
+    // A note found by a query and its score
+    public static class Hit {
+
+        private final long noteId;
+
+        private final double score;
+
+        public Hit(long noteId, double score) {
+            this.noteId = noteId;
+            this.score = score;
+        }
+
+        public long getNoteId() {
+            return noteId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.alejandro.gestordenotas.security;
+
+import static com.alejandro.gestordenotas.security.TokenJwtConfig.*;
+
+import java.util.Collection;
+import java.util.Date;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import io.jsonwebtoken.Jwts;
+
+// To create the access tokens of the users (in the login and when a refresh token is used)
+public class AccessTokenIssuer {
+
+    // The keys that sign the tokens
+    private final SigningKeyRing keyRing;
+
+    // The bits of the roles
+    private final RoleBits roleBits;
+
+    public AccessTokenIssuer(SigningKeyRing keyRing, RoleBits roleBits) {
+        this.keyRing = keyRing;
+        this.roleBits = roleBits;
+    }
+
+    // To create a token with the id, the username, the token epoch and the roles of a user (the roles are a bitmask
+    // in the claims and the epoch is only in the claims when it is greater than 0).
+    // The id of the key is in the header, so the token is verified with the same key.
+    public String issue(Long userId, String username, long tokenEpoch, Collection<? extends GrantedAuthority> authorities) {
+        long now = System.currentTimeMillis();
+        SigningKeyRing.SigningKey signingKey = keyRing.getSigningKey();
+
+        return Jwts.builder()
+                .header().keyId(signingKey.getId()).and()
+                .subject(username)
+                .claim(ROLES_CLAIM, roleBits.maskOf(authorities))
+                .claim(USER_ID_CLAIM, userId)
+                .claim(TOKEN_EPOCH_CLAIM, tokenEpoch > 0 ? tokenEpoch : null)
+                .claim("username", username)
+                .expiration(new Date(now + TOKEN_EXPIRATION_MILLIS))
+                .issuedAt(new Date(now))
+                .signWith(signingKey.getKey())
+                .compact();
+    }
+
+}
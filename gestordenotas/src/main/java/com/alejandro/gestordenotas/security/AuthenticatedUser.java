@@ -0,0 +1,45 @@
+package com.alejandro.gestordenotas.security;
+
+import java.security.Principal;
+
+// The user of a request authenticated with a token.
+// The id comes from the claims of the token, so the owner of a resource is known
+// without reading the user from the db.
+public class AuthenticatedUser implements Principal {
+
+    private final Long id;
+
+    private final String username;
+
+    // The token epoch of the user when the token was created
+    private final long tokenEpoch;
+
+    public AuthenticatedUser(Long id, String username) {
+        this(id, username, 0);
+    }
+
+    public AuthenticatedUser(Long id, String username, long tokenEpoch) {
+        this.id = id;
+        this.username = username;
+        this.tokenEpoch = tokenEpoch;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getTokenEpoch() {
+        return tokenEpoch;
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.alejandro.gestordenotas.security;
+
+import java.time.Duration;
+import java.util.function.IntToLongFunction;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+// To choose the cost (work factor) of BCrypt for the cpu of this server.
+// Each cost doubles the time of a hash, so the cost is increased while the time of
+// the next cost is still within the budget. The cost is never lower than the minimum.
+public final class BCryptCostCalibrator {
+
+    // The default cost of the library, it is the minimum accepted
+    public static final int MIN_COST = 10;
+
+    public static final int MAX_COST = 16;
+
+    private static final String SAMPLE_PASSWORD = "calibracion-del-costo";
+
+    private BCryptCostCalibrator() {
+    }
+
+    // To get the greatest cost whose hash takes at most the budget in this server
+    public static int calibrate(Duration budget) {
+        // The first hash warms up the code of BCrypt, so it is not measured
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(4));
+        return calibrate(budget, BCryptCostCalibrator::measureMillis);
+    }
+
+    // The hash time of each cost is measured with the given function (to test the choice)
+    static int calibrate(Duration budget, IntToLongFunction millisOfCost) {
+        long budgetMillis = budget.toMillis();
+        int cost = MIN_COST;
+        long millis = millisOfCost.applyAsLong(cost);
+
+        // The next cost takes about twice the time, so it is only measured if it could be within the budget
+        while (cost < MAX_COST && millis * 2 <= budgetMillis) {
+            long nextMillis = millisOfCost.applyAsLong(cost + 1);
+            if (nextMillis > budgetMillis) {
+                break;
+            }
+            cost++;
+            millis = nextMillis;
+        }
+        return cost;
+    }
+
+    private static long measureMillis(int cost) {
+        long start = System.nanoTime();
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(cost));
+        return Duration.ofNanos(System.nanoTime() - start).toMillis();
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.alejandro.gestordenotas.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.alejandro.gestordenotas.dto.PasswordHashingStatsDto;
+import com.alejandro.gestordenotas.exceptions.PasswordHashingBusyException;
+
+// Password encoder that hashes and verifies the passwords in its own threads.
+// Hashing a password (BCrypt) is slow on purpose, so a lot of logins at the same time could use
+// all of the cpu and all of the threads of the server, and the other requests (the notes) would wait.
+// - There is one thread per core, so the hashing never uses more cpu than that.
+// - The passwords wait in a bounded queue. If the queue is full the password is not hashed and
+//   a 'PasswordHashingBusyException' is fired at once (the client gets a 503 and tries again later).
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int queueCapacity;
+
+    private final int retryAfterSeconds;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, int retryAfterSeconds) {
+        this.delegate = delegate;
+        this.queueCapacity = queueCapacity;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    // To know the state of the threads and the queue
+    public PasswordHashingStatsDto getStats() {
+        return new PasswordHashingStatsDto(executor.getPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+            queueCapacity, executor.getCompletedTaskCount(), rejected.get());
+    }
+
+    // To stop the threads when the application is stopped
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // To run a task in the threads of the encoder and wait for its result.
+    // The request thread waits, but the cpu used by the hashing is limited and
+    // the requests that can not be queued are rejected without waiting.
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new PasswordHashingBusyException(retryAfterSeconds);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("La espera del hash de la contrasena fue interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // The threads are daemon threads with a name, to find them in a thread dump
+    private static class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
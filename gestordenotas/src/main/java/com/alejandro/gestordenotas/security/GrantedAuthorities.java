@@ -0,0 +1,49 @@
+package com.alejandro.gestordenotas.security;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+// The authorities of the tokens.
+// There are only a few roles, so the tokens always have the same combinations of roles:
+// the set of each combination is created once and the same immutable set is shared by all of the requests.
+public final class GrantedAuthorities {
+
+    // The combinations of roles that are kept (the others are created in each request)
+    private static final int MAX_COMBINATIONS = 64;
+
+    private static final Map<List<String>, Set<GrantedAuthority>> COMBINATIONS = new ConcurrentHashMap<>();
+
+    private GrantedAuthorities() {
+    }
+
+    // To get the authorities of a list of role names (the value of the claim of a token, see 'RoleBits')
+    public static Set<GrantedAuthority> of(List<?> names) {
+        if (names == null || names.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<GrantedAuthority> authorities = COMBINATIONS.get(names);
+        if (authorities != null) {
+            return authorities;
+        }
+
+        List<String> key = names.stream().map(String::valueOf).toList();
+        Set<GrantedAuthority> newAuthorities = new LinkedHashSet<>();
+        key.forEach(name -> newAuthorities.add(new SimpleGrantedAuthority(name)));
+        authorities = Collections.unmodifiableSet(newAuthorities);
+
+        if (COMBINATIONS.size() < MAX_COMBINATIONS) {
+            Set<GrantedAuthority> previous = COMBINATIONS.putIfAbsent(key, authorities);
+            return previous != null ? previous : authorities;
+        }
+        return authorities;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.alejandro.gestordenotas.security;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+// The user loaded in the login with its id and its token epoch, so they can be added to the claims of the token
+public class JpaUserDetails extends User {
+
+    private final Long id;
+
+    private final long tokenEpoch;
+
+    public JpaUserDetails(Long id, String username, String password, boolean enabled,
+            Collection<? extends GrantedAuthority> authorities) {
+        this(id, username, password, enabled, 0, authorities);
+    }
+
+    public JpaUserDetails(Long id, String username, String password, boolean enabled, long tokenEpoch,
+            Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.id = id;
+        this.tokenEpoch = tokenEpoch;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getTokenEpoch() {
+        return tokenEpoch;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.alejandro.gestordenotas.security;
+
+import java.util.Collection;
+
+// An immutable set of longs with open addressing: the ids are in an array of twice the size
+// of the set (a power of 2), in the slot of their hash or in the next free slots.
+final class LongSet {
+
+    static final LongSet EMPTY = new LongSet(new long[0]);
+
+    // The value of the free slots (0 is not an id of the db, it is saved apart if it is in the set)
+    private static final long FREE = 0L;
+
+    private final long[] slots;
+
+    private final int mask;
+
+    private final boolean containsFree;
+
+    private final int size;
+
+    LongSet(long[] values) {
+        int capacity = Integer.highestOneBit(Math.max(2, values.length) * 2 - 1) << 1;
+        slots = new long[capacity];
+        mask = capacity - 1;
+
+        boolean free = false;
+        int count = 0;
+        for (long value : values) {
+            if (value == FREE) {
+                count += free ? 0 : 1;
+                free = true;
+                continue;
+            }
+            int slot = slotOf(value);
+            while (slots[slot] != FREE && slots[slot] != value) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] == FREE) {
+                slots[slot] = value;
+                count++;
+            }
+        }
+        containsFree = free;
+        size = count;
+    }
+
+    // To create a set with the ids of a collection
+    static LongSet of(Collection<Long> values) {
+        return new LongSet(values.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    boolean contains(long value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+        int slot = slotOf(value);
+        while (slots[slot] != FREE) {
+            if (slots[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // The bits of the id are mixed, so the consecutive ids are not in consecutive slots
+    private int slotOf(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.alejandro.gestordenotas.security;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.GrantedAuthority;
+
+import com.alejandro.gestordenotas.entities.Role;
+
+// The roles of a token as a bitmask: the bit of each role is its id in the 'role' table
+// (e.g. ROLE_USER = 1 and ROLE_ADMIN = 2 give the mask 0b110 = 6).
+// The claim is a number instead of a list of names, so the token is shorter and the validation
+// only reads a number and gets the shared set of authorities of that mask.
+// The roles are read from the db the first time they are needed and again when a token has
+// a role that is not known (e.g. a role created after the start of the application).
+public class RoleBits {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleBits.class);
+
+    // The bits of a long (the last one is not used, so a mask is never negative)
+    private static final int MAX_ROLE_ID = 62;
+
+    // The combinations of roles that are kept (the others are created in each request)
+    private static final int MAX_COMBINATIONS = 64;
+
+    // To read the roles of the db
+    private final Supplier<? extends Iterable<Role>> loader;
+
+    private volatile Mapping mapping;
+
+    public RoleBits(Supplier<? extends Iterable<Role>> loader) {
+        this.loader = loader;
+    }
+
+    // To get the mask of some authorities (the value of the claim of a new token)
+    public long maskOf(Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            Integer bit = mapping().bits.get(authority.getAuthority());
+            if (bit == null) {
+                bit = load().bits.get(authority.getAuthority());
+            }
+            if (bit != null) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    // To get the authorities of a mask (the value of the claim of a token)
+    public Set<GrantedAuthority> authoritiesOf(long mask) {
+        Mapping current = mapping();
+        Set<GrantedAuthority> authorities = current.combinations.get(mask);
+        if (authorities != null) {
+            return authorities;
+        }
+
+        if ((mask & ~current.knownBits) != 0) {
+            current = load();
+        }
+
+        List<String> names = new ArrayList<>(Long.bitCount(mask));
+        for (long bits = mask & current.knownBits; bits != 0; bits &= bits - 1) {
+            names.add(current.names[Long.numberOfTrailingZeros(bits)]);
+        }
+        authorities = GrantedAuthorities.of(names);
+
+        if (current.combinations.size() < MAX_COMBINATIONS) {
+            current.combinations.putIfAbsent(mask, authorities);
+        }
+        return authorities;
+    }
+
+    // To read the roles of the db again
+    public void reload() {
+        load();
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    private synchronized Mapping load() {
+        Map<String, Integer> bits = new HashMap<>();
+        for (Role role : loader.get()) {
+            if (role.getId() == null || role.getId() < 0 || role.getId() > MAX_ROLE_ID) {
+                logger.warn("The role {} can not be in the tokens, its id is not between 0 and {}", role.getName(), MAX_ROLE_ID);
+                continue;
+            }
+            bits.put(role.getName(), role.getId().intValue());
+        }
+
+        mapping = new Mapping(bits);
+        return mapping;
+    }
+
+    private Mapping mapping() {
+        Mapping current = mapping;
+        return current != null ? current : load();
+    }
+
+    // The roles at a moment (it is replaced as a whole when the roles are read again)
+    private static class Mapping {
+
+        private final Map<String, Integer> bits;
+
+        private final String[] names = new String[MAX_ROLE_ID + 1];
+
+        private final long knownBits;
+
+        private final Map<Long, Set<GrantedAuthority>> combinations = new ConcurrentHashMap<>();
+
+        private Mapping(Map<String, Integer> bits) {
+            this.bits = Map.copyOf(bits);
+
+            long known = 0;
+            for (Map.Entry<String, Integer> bit : bits.entrySet()) {
+                names[bit.getValue()] = bit.getKey();
+                known |= 1L << bit.getValue();
+            }
+            this.knownBits = known;
+        }
+
+    }
+
+}
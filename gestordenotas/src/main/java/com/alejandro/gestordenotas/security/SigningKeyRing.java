@@ -0,0 +1,303 @@
+package com.alejandro.gestordenotas.security;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.crypto.SecretKey;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.UnsupportedJwtException;
+
+// The keys that sign and verify the tokens.
+// - The newest key signs the new tokens, and its id is in the header of each token ('kid').
+// - After a rotation the old keys only verify the tokens signed before it, until their grace
+//   window ends (the window must be longer than the life of a token).
+// - The keys are saved in a PKCS12 keystore, so the tokens survive a restart and the nodes that
+//   share the file accept the tokens of each other. Without a file the keys only live in memory.
+// - The key of a token is found by its id in a map, so a token is verified with one key only.
+//   A token with an unknown id makes the ring read the file again (at most once per 'RELOAD_INTERVAL'),
+//   so the tokens signed with a key just created by another node are accepted before the next refresh.
+public class SigningKeyRing {
+
+    private static final Logger logger = LoggerFactory.getLogger(SigningKeyRing.class);
+
+    private static final Comparator<SigningKey> NEWEST_FIRST = Comparator.comparing(SigningKey::getCreatedAt).reversed();
+
+    // The minimum time between two reads of the file caused by tokens with an unknown key
+    static final Duration RELOAD_INTERVAL = Duration.ofSeconds(1);
+
+    private final Path path;
+
+    private final char[] password;
+
+    private final Duration rotation;
+
+    private final Duration grace;
+
+    private final Clock clock;
+
+    // The keys are replaced as a whole, so a request never sees a ring in the middle of a change
+    private volatile Keys keys = new Keys(List.of());
+
+    // When the keys were read from the file for the last time (or a read was tried for an unknown key)
+    private Instant updatedAt = Instant.MIN;
+
+    // The parser finds the key of each token in the ring
+    private final JwtParser parser = Jwts.parser().keyLocator(header -> locate(header)).build();
+
+    // With a null path the keys are not saved (each start creates a new key)
+    public SigningKeyRing(Path path, String password, Duration rotation, Duration grace, Clock clock) {
+        this.path = path;
+        this.password = password == null ? new char[0] : password.toCharArray();
+        this.rotation = rotation;
+        this.grace = grace;
+        this.clock = clock;
+
+        try {
+            update();
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("The signing keys could not be read from " + path, e);
+        }
+    }
+
+    // To get the key that signs the new tokens
+    public SigningKey getSigningKey() {
+        return keys.current;
+    }
+
+    // To verify the tokens signed with any of the keys of the ring
+    public JwtParser getParser() {
+        return parser;
+    }
+
+    // To know the ids of the keys that verify tokens (the newest first)
+    public List<String> getKeyIds() {
+        return keys.sorted.stream().map(SigningKey::getId).toList();
+    }
+
+    // To rotate the key when it is old enough, to forget the keys out of their grace window
+    // and to read the keys created by other nodes
+    @Scheduled(fixedDelayString = "${security.jwt.key-ring.check-interval:1m}",
+        initialDelayString = "${security.jwt.key-ring.check-interval:1m}")
+    public void refresh() {
+        try {
+            update();
+        } catch (IOException | GeneralSecurityException e) {
+            // The current keys are still valid, so the next check tries again
+            logger.error("The signing keys could not be updated", e);
+        }
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    private synchronized void update() throws IOException, GeneralSecurityException {
+        if (path == null) {
+            List<SigningKey> ring = new ArrayList<>(keys.sorted);
+            boolean rotated = rotate(ring);
+            boolean pruned = prune(ring);
+
+            if (rotated || pruned) {
+                keys = new Keys(ring);
+            }
+            return;
+        }
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        // The nodes that share the file change it one at a time
+        Path lockPath = path.resolveSibling(path.getFileName() + ".lock");
+        try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = channel.lock()) {
+
+            KeyStore store = KeyStore.getInstance("PKCS12");
+            if (Files.exists(path)) {
+                try (InputStream input = Files.newInputStream(path)) {
+                    store.load(input, password);
+                }
+            } else {
+                store.load(null, password);
+            }
+
+            List<SigningKey> ring = read(store);
+            boolean rotated = rotate(ring);
+            boolean pruned = prune(ring);
+
+            if (rotated || pruned) {
+                write(store, ring);
+            }
+
+            keys = new Keys(ring);
+            updatedAt = clock.instant();
+        }
+    }
+
+    // To read the file again when a token has the id of a key that is not in the ring (a key created
+    // by another node). The read is skipped if the key was read meanwhile or the file was read recently
+    // (so the tokens with a wrong id don't read the file on each request).
+    private synchronized SigningKey reload(String id) {
+        SigningKey key = keys.byId.get(id);
+        if (key != null || path == null || clock.instant().isBefore(updatedAt.plus(RELOAD_INTERVAL))) {
+            return key;
+        }
+
+        // The attempt is counted even if the read fails, so a broken file is not read on each request
+        updatedAt = clock.instant();
+        refresh();
+        return keys.byId.get(id);
+    }
+
+    // To add a new key if there isn't a key or the current one is older than the rotation
+    private boolean rotate(List<SigningKey> ring) {
+        Instant now = clock.instant();
+        if (!ring.isEmpty() && ring.get(0).getCreatedAt().plus(rotation).isAfter(now)) {
+            return false;
+        }
+
+        // The id starts with the moment of the creation, so the age of a key is known from the file
+        SigningKey key = new SigningKey(now.toEpochMilli() + "-" + UUID.randomUUID(), Jwts.SIG.HS256.key().build(), now);
+        ring.add(0, key);
+        logger.info("New signing key of the tokens: {}", key.getId());
+        return true;
+    }
+
+    // To remove the old keys whose grace window ended (it starts when the next key was created)
+    private boolean prune(List<SigningKey> ring) {
+        Instant now = clock.instant();
+        for (int i = 1; i < ring.size(); i++) {
+            if (!ring.get(i - 1).getCreatedAt().plus(grace).isAfter(now)) {
+                ring.subList(i, ring.size()).clear();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<SigningKey> read(KeyStore store) throws GeneralSecurityException {
+        List<SigningKey> ring = new ArrayList<>();
+        for (String alias : Collections.list(store.aliases())) {
+            Key key = store.getKey(alias, password);
+            int separator = alias.indexOf('-');
+            if (key instanceof SecretKey secretKey && separator > 0) {
+                Instant createdAt = Instant.ofEpochMilli(Long.parseLong(alias.substring(0, separator)));
+                ring.add(new SigningKey(alias, secretKey, createdAt));
+            }
+        }
+        ring.sort(NEWEST_FIRST);
+        return ring;
+    }
+
+    // The file is replaced as a whole, so the other nodes never read half of it
+    private void write(KeyStore store, List<SigningKey> ring) throws IOException, GeneralSecurityException {
+        List<String> ids = ring.stream().map(SigningKey::getId).toList();
+        for (String alias : Collections.list(store.aliases())) {
+            if (!ids.contains(alias)) {
+                store.deleteEntry(alias);
+            }
+        }
+
+        KeyStore.ProtectionParameter protection = new KeyStore.PasswordProtection(password);
+        for (SigningKey key : ring) {
+            if (!store.containsAlias(key.getId())) {
+                store.setEntry(key.getId(), new KeyStore.SecretKeyEntry(key.getKey()), protection);
+            }
+        }
+
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream output = Files.newOutputStream(temporary)) {
+                store.store(output, password);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Key locate(io.jsonwebtoken.Header header) {
+        String id = header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null;
+        SigningKey key = id == null ? null : keys.byId.get(id);
+        if (key == null && id != null) {
+            key = reload(id);
+        }
+        if (key == null) {
+            throw new UnsupportedJwtException("The token was not signed with a known key");
+        }
+        return key.getKey();
+    }
+
+    // The keys of the ring at a moment
+    private static class Keys {
+
+        private final List<SigningKey> sorted;
+
+        private final Map<String, SigningKey> byId;
+
+        private final SigningKey current;
+
+        private Keys(List<SigningKey> ring) {
+            this.sorted = List.copyOf(ring);
+            this.byId = new HashMap<>();
+            ring.forEach(key -> byId.put(key.getId(), key));
+            this.current = ring.isEmpty() ? null : ring.get(0);
+        }
+
+    }
+
+    // A key and its id
+    public static class SigningKey {
+
+        private final String id;
+
+        private final SecretKey key;
+
+        private final Instant createdAt;
+
+        public SigningKey(String id, SecretKey key, Instant createdAt) {
+            this.id = id;
+            this.key = key;
+            this.createdAt = createdAt;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public SecretKey getKey() {
+            return key;
+        }
+
+        public Instant getCreatedAt() {
+            return createdAt;
+        }
+
+    }
+
+}
@@ -1,30 +1,147 @@
 package com.alejandro.gestordenotas.security;
 
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+import com.alejandro.gestordenotas.repositories.RoleRepository;
+import com.alejandro.gestordenotas.repositories.UserRepository;
 import com.alejandro.gestordenotas.security.filter.JwtAuthenticationFilter;
 import com.alejandro.gestordenotas.security.filter.JwtValidationFilter;
+import com.alejandro.gestordenotas.services.RefreshTokenService;
+
+import jakarta.servlet.DispatcherType;
 
 @Configuration
+@EnableScheduling
 public class SpringSecurityConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(SpringSecurityConfig.class);
+
     @Autowired
     private AuthenticationConfiguration authenticationConfiguration;
 
-    // To be able to encrypt passwords
+    // To read the roles of the tokens
+    @Autowired
+    private RoleRepository roleRepository;
+
+    // To read the users whose tokens are revoked
+    @Autowired
+    private UserRepository userRepository;
+
+    // The threads that hash the passwords (0 means one thread per core)
+    @Value("${security.password-hashing.threads:0}")
+    private int passwordHashingThreads;
+
+    // The passwords that can wait to be hashed before the requests are rejected
+    @Value("${security.password-hashing.queue-capacity:64}")
+    private int passwordHashingQueueCapacity;
+
+    // The seconds that a rejected client should wait before trying again
+    @Value("${security.password-hashing.retry-after:1}")
+    private int passwordHashingRetryAfter;
+
+    // The cost of BCrypt (0 means that it is calibrated with the latency budget when the application starts)
+    @Value("${security.password-hashing.bcrypt-cost:0}")
+    private int bcryptCost;
+
+    // The time that a hash should take in this server
+    @Value("${security.password-hashing.latency-budget:100ms}")
+    private Duration passwordHashingLatencyBudget;
+
+    // To be able to encrypt passwords (in their own threads, see 'BoundedPasswordEncoder').
+    // The hashes are saved with the id of their encoder ('{bcrypt}...') and the cost of BCrypt
+    // is inside the hash, so a hash with another encoder or with a lower cost is hashed again
+    // in the next login of its user (see 'JpaUserDetailsService.updatePassword').
+    @Bean
+    BoundedPasswordEncoder passwordEncoder() {
+        int cost = bcryptCost > 0 ? bcryptCost : BCryptCostCalibrator.calibrate(passwordHashingLatencyBudget);
+        logger.info("BCrypt cost of the passwords: {}", cost);
+
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(cost);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        // The hashes saved before the id of the encoder are BCrypt hashes
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        int threads = passwordHashingThreads > 0 ? passwordHashingThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(encoder, threads, passwordHashingQueueCapacity, passwordHashingRetryAfter);
+    }
+
+    // The file of the signing keys of the tokens (empty to keep the keys only in memory)
+    @Value("${security.jwt.key-ring.path:}")
+    private String keyRingPath;
+
+    // The password of the file, required when the keys are saved (there is no default password)
+    @Value("${security.jwt.key-ring.password:}")
+    private String keyRingPassword;
+
+    // The time that a key signs new tokens
+    @Value("${security.jwt.key-ring.rotation:24h}")
+    private Duration keyRingRotation;
+
+    // The time that an old key still verifies tokens (longer than the life of a token)
+    @Value("${security.jwt.key-ring.grace:2h}")
+    private Duration keyRingGrace;
+
+    // To sign and verify the tokens with keys that survive a restart and rotate
+    @Bean
+    SigningKeyRing signingKeyRing() {
+        if (keyRingGrace.toMillis() <= TokenJwtConfig.TOKEN_EXPIRATION_MILLIS) {
+            throw new IllegalStateException("The grace window of the signing keys must be longer than the life of a token");
+        }
+        Path path = keyRingPath.isBlank() ? null : Path.of(keyRingPath);
+        if (path == null) {
+            logger.warn("The signing keys of the tokens are not saved, the tokens are invalid after a restart");
+        } else if (keyRingPassword.isBlank()) {
+            throw new IllegalStateException("The password of the signing keys is missing (JWT_KEY_RING_PASSWORD)");
+        }
+        return new SigningKeyRing(path, keyRingPassword, keyRingRotation, keyRingGrace, Clock.systemUTC());
+    }
+
+    // To write the roles of the tokens as a bitmask (the bit of each role is its id)
+    @Bean
+    RoleBits roleBits() {
+        return new RoleBits(roleRepository::findAll);
+    }
+
+    // To reject the tokens of the disabled and deleted users (and the tokens created before a change of
+    // the credentials or roles of a user) before they expire. The state is read from the db now,
+    // so the first requests are already checked.
+    @Bean
+    TokenRevocations tokenRevocations() {
+        TokenRevocations revocations = new TokenRevocations(userRepository);
+        revocations.rebuild();
+        return revocations;
+    }
+
+    // To create the access tokens (in the login and with the refresh tokens)
+    @Bean
+    AccessTokenIssuer accessTokenIssuer() {
+        return new AccessTokenIssuer(signingKeyRing(), roleBits());
+    }
+
+    // To keep the tokens already verified, so they are not verified on each request
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    VerifiedTokenCache verifiedTokenCache() {
+        return new VerifiedTokenCache(VerifiedTokenCache.DEFAULT_MAX_SIZE);
     }
 
     // To use the login
@@ -34,12 +151,16 @@ public class SpringSecurityConfig {
     }
 
     // Method to config the security rules
+    // (the service of the refresh tokens is a parameter because it uses the beans of this class)
     @Bean
-    SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    SecurityFilterChain filterChain(HttpSecurity http, RefreshTokenService refreshTokenService) throws Exception {
         return http.authorizeHttpRequests((authz) -> authz
 
+            // The async dispatch of a streamed response (the request was already authorized)
+            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
             // Endpoint public
             .requestMatchers(HttpMethod.POST, "/api/users/register").permitAll()
+            .requestMatchers(HttpMethod.POST, "/api/users/token/refresh").permitAll()
             // Endpoints for super admin role
             .requestMatchers("/api/super-admins/**").hasRole("SUPER_ADMIN")
             // Endpoints for admin role
@@ -49,8 +170,9 @@ public class SpringSecurityConfig {
             
             // .requestMatchers( "/api/users/**").permitAll()
             .anyRequest().authenticated())
-            .addFilter(new JwtAuthenticationFilter(authenticationManager())) // login
-            .addFilter(new JwtValidationFilter(authenticationManager())) // to validate the token
+            .addFilter(new JwtAuthenticationFilter(authenticationManager(), accessTokenIssuer(), refreshTokenService)) // login
+            .addFilter(new JwtValidationFilter(authenticationManager(), verifiedTokenCache(), signingKeyRing(), roleBits(),
+                tokenRevocations())) // to validate the token
             .csrf(config -> config.disable())
             .sessionManagement(management -> management.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .build();
@@ -1,16 +1,33 @@
 package com.alejandro.gestordenotas.security;
 
-import javax.crypto.SecretKey;
-
-import io.jsonwebtoken.Jwts;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 // This class contain many constant variables
 // These variables are used in many files
 public class TokenJwtConfig {
 
-    public static final SecretKey SECRET_KEY = Jwts.SIG.HS256.key().build();
     public static final String PREFIX_TOKEN = "Bearer ";
     public static final String HEADER_AUTHORIZATION = "Authorization";
     public static final String CONTENT_TYPE = "application/json";
+
+    // The claim with the roles of the user as a bitmask (see 'RoleBits')
+    public static final String ROLES_CLAIM = "roles";
+
+    // The claim with the names of the roles of the user (a list of strings).
+    // Only the tokens created before the bitmask have it, so it is only read.
+    public static final String AUTHORITIES_CLAIM = "authorities";
+
+    // The claim with the id of the user
+    public static final String USER_ID_CLAIM = "userId";
+
+    // The claim with the token epoch of the user (see 'TokenRevocations'), it is not in the token when it is 0
+    public static final String TOKEN_EPOCH_CLAIM = "epoch";
+
+    // The life of an access token (the grace window of an old signing key must be longer, see 'SigningKeyRing').
+    // It is short because the clients get a new one with their refresh token, without the password.
+    public static final long TOKEN_EXPIRATION_MILLIS = 900000;
+
+    // The mapper is thread-safe, so it is created once and shared by all of the requests
+    public static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     
 }
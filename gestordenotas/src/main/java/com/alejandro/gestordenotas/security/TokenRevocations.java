@@ -0,0 +1,174 @@
+package com.alejandro.gestordenotas.security;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.events.UserChangeEvent;
+import com.alejandro.gestordenotas.events.UsersChangeEvent;
+import com.alejandro.gestordenotas.repositories.UserRepository;
+
+// The users whose tokens can not be used anymore, so a token is rejected before it expires:
+// - the ids of the disabled and deleted users are in a set of primitive longs (see 'LongSet'),
+// - the users that changed their credentials or roles have a token epoch greater than 0 and
+//   their tokens with a lower epoch are rejected.
+// The check of a request only reads memory (a lookup in an array and an entry of a map). The state is read from
+// the db when the application starts and every 'security.jwt.revocations.rebuild-interval'
+// (to know the changes of other instances), and it is updated after each change of a user.
+public class TokenRevocations {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocations.class);
+
+    // To read the state of the users
+    private final UserRepository repository;
+
+    // The users deleted by this instance and when they were deleted (they are not in the db, so they
+    // are kept until their last token expires)
+    private final Map<Long, Long> deleted = new HashMap<>();
+
+    // The ids of the revoked users (it is only used to create the set of a change)
+    private final Set<Long> revokedIds = new HashSet<>();
+
+    private volatile State state = new State(LongSet.EMPTY, new ConcurrentHashMap<>());
+
+    public TokenRevocations(UserRepository repository) {
+        this.repository = repository;
+    }
+
+    // To know if a token of a user can not be used (the epoch is the one in the claims of the token)
+    public boolean isRevoked(Long userId, long tokenEpoch) {
+        State current = state;
+        if (current.revoked.contains(userId)) {
+            return true;
+        }
+        Long epoch = current.epochs.get(userId);
+        return epoch != null && tokenEpoch < epoch;
+    }
+
+    // To save the state of a user (its tokens are rejected if it is disabled or if they have a previous epoch)
+    public synchronized void update(Long userId, boolean enabled, long tokenEpoch) {
+        deleted.remove(userId);
+        if (setRevoked(userId, !enabled)) {
+            state = new State(LongSet.of(revokedIds), state.epochs);
+        }
+        if (tokenEpoch > 0) {
+            state.epochs.put(userId, tokenEpoch);
+        } else {
+            state.epochs.remove(userId);
+        }
+    }
+
+    // To save the state of some users, creating the set once.
+    // Each row is the id, the enabled flag and the token epoch of a user (see 'getRevocationStates').
+    public synchronized void updateAll(List<Object[]> states) {
+        boolean changed = false;
+        for (Object[] row : states) {
+            deleted.remove((Long) row[0]);
+            changed |= setRevoked((Long) row[0], !(Boolean) row[1]);
+        }
+        if (changed) {
+            state = new State(LongSet.of(revokedIds), state.epochs);
+        }
+        for (Object[] row : states) {
+            if ((Long) row[2] > 0) {
+                state.epochs.put((Long) row[0], (Long) row[2]);
+            } else {
+                state.epochs.remove((Long) row[0]);
+            }
+        }
+    }
+
+    // To reject all of the tokens of a deleted user
+    public synchronized void delete(Long userId) {
+        deleted.put(userId, System.currentTimeMillis());
+        if (setRevoked(userId, true)) {
+            state = new State(LongSet.of(revokedIds), state.epochs);
+        }
+        state.epochs.remove(userId);
+    }
+
+    // To read the state of all of the users from the db.
+    // The changes are synchronized with the read, so a change saved during the read is not lost.
+    @Scheduled(fixedDelayString = "${security.jwt.revocations.rebuild-interval:5m}",
+            initialDelayString = "${security.jwt.revocations.rebuild-interval:5m}")
+    public synchronized void rebuild() {
+        revokedIds.clear();
+        ConcurrentHashMap<Long, Long> epochs = new ConcurrentHashMap<>();
+
+        revokedIds.addAll(repository.getAllIdsOfDisabledUsers());
+        for (Object[] row : repository.getAllTokenEpochs()) {
+            epochs.put((Long) row[0], (Long) row[1]);
+        }
+
+        // A deleted user is forgotten when its last token expired or when its id exists again
+        long expired = System.currentTimeMillis() - TokenJwtConfig.TOKEN_EXPIRATION_MILLIS;
+        deleted.values().removeIf(deletedAt -> deletedAt < expired);
+        if (!deleted.isEmpty()) {
+            deleted.keySet().removeAll(repository.getExistingIds(List.copyOf(deleted.keySet())));
+        }
+        revokedIds.addAll(deleted.keySet());
+
+        state = new State(LongSet.of(revokedIds), epochs);
+        logger.debug("Token revocations read from the db: {} users revoked, {} token epochs",
+                revokedIds.size(), epochs.size());
+    }
+
+    // To update the state of a user after its change is committed
+    @TransactionalEventListener
+    public void onUserChange(UserChangeEvent event) {
+        if (event.getUserId() == null) {
+            return;
+        }
+
+        Optional<User> user = repository.findById(event.getUserId());
+        if (user.isPresent()) {
+            update(event.getUserId(), user.get().isEnabled(), user.get().getTokenEpoch());
+        } else {
+            delete(event.getUserId());
+        }
+    }
+
+    // To update the state of some users after their change is committed. Only the columns of the state
+    // are read with one query, so no user is loaded in the persistence context of the change.
+    @TransactionalEventListener
+    public void onUsersChange(UsersChangeEvent event) {
+        if (event.getUserIds().isEmpty()) {
+            return;
+        }
+
+        updateAll(repository.getRevocationStates(event.getUserIds()));
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // To add or remove a revoked user, it returns if the set changed
+    private boolean setRevoked(Long userId, boolean value) {
+        return value ? revokedIds.add(userId) : revokedIds.remove(userId);
+    }
+
+    // The revoked users at a moment. The set is never changed after it is published
+    // (a change creates a new set), so it is read without locks.
+    private static class State {
+
+        private final LongSet revoked;
+
+        private final ConcurrentHashMap<Long, Long> epochs;
+
+        private State(LongSet revoked, ConcurrentHashMap<Long, Long> epochs) {
+            this.revoked = revoked;
+            this.epochs = epochs;
+        }
+
+    }
+
+}
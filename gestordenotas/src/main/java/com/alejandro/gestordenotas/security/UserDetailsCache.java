@@ -0,0 +1,135 @@
+package com.alejandro.gestordenotas.security;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import com.alejandro.gestordenotas.dto.UserDetailsCacheStatsDto;
+
+// Cache of the users read in the login, so a login does not read the user and its roles from the db each time.
+// - The number of users is limited: the least recently used user is removed when it is full.
+// - A user is read again from the db after some time (in case it was changed outside of the services).
+// - A user is removed as soon as a service changes it (see 'invalidate' and 'invalidateAccess').
+// The users are kept as immutable values and each 'get' returns a new 'UserDetails', because
+// spring security erases the password of the returned user after the authentication.
+@Component
+public class UserDetailsCache {
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final Clock clock;
+
+    // Ordered from the least to the most recently used user
+    private final LinkedHashMap<String, Entry> entries;
+
+    // It changes each time the access of a user changes, so a user read from the db before
+    // the change is not kept after the change
+    private long generation;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    @Autowired
+    public UserDetailsCache(@Value("${security.user-details-cache.max-size:1000}") int maxSize,
+            @Value("${security.user-details-cache.ttl:10m}") Duration ttl) {
+        this(maxSize, ttl, Clock.systemUTC());
+    }
+
+    // With a size of 0 the users are never kept (each login reads the db)
+    public UserDetailsCache(int maxSize, Duration ttl, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserDetailsCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+
+        };
+    }
+
+    // To get a user read before (null if it is not in the cache or it is too old)
+    public synchronized JpaUserDetails get(String username) {
+        Entry entry = entries.get(username);
+
+        if (entry != null && clock.millis() - entry.loadedAt() >= ttlMillis) {
+            entries.remove(username);
+            evictions++;
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return new JpaUserDetails(entry.id(), username, entry.password(), entry.enabled(), entry.tokenEpoch(),
+            entry.authorities());
+    }
+
+    // To know the generation before reading a user from the db (see 'put')
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    // To keep a user read from the db. The user is not kept if the access of a user changed
+    // since the generation read before the query (the user read could be outdated).
+    public synchronized void put(JpaUserDetails user, long readGeneration) {
+        if (maxSize <= 0 || readGeneration != generation) {
+            return;
+        }
+
+        entries.put(user.getUsername(), new Entry(user.getId(), user.getPassword(), user.isEnabled(),
+            user.getTokenEpoch(), Set.copyOf(user.getAuthorities()), clock.millis()));
+    }
+
+    // To remove a user whose change doesn't change its access (for example a new hash of the same password),
+    // the other users are kept and a copy read before the change can still be kept
+    public synchronized void invalidate(String username) {
+        entries.remove(username);
+    }
+
+    // To remove a user whose password, roles or state changed (or that was deleted).
+    // No user read from the db before the change is kept, it could be a copy of this user.
+    public synchronized void invalidateAccess(String username) {
+        generation++;
+        entries.remove(username);
+    }
+
+    // To remove some users (by their ids) that were changed at once
+    public synchronized void invalidateIds(Collection<Long> userIds) {
+        generation++;
+        Set<Long> ids = new HashSet<>(userIds);
+        entries.values().removeIf(entry -> ids.contains(entry.id()));
+    }
+
+    public synchronized UserDetailsCacheStatsDto getStats() {
+        return new UserDetailsCacheStatsDto(hits, misses, evictions, entries.size());
+    }
+
+    private record Entry(Long id, String password, boolean enabled, long tokenEpoch, Set<GrantedAuthority> authorities,
+            long loadedAt) {
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.alejandro.gestordenotas.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+// Cache of the tokens already verified and the principal and the authorities read from each of them,
+// so a client that sends the same token in many requests only pays for the verification 
+// of the signature and the reading of the claims in the first request.
+// - Only the immutable parts are kept: each request gets its own authentication, because an
+//   authentication is mutable (its details and its authenticated flag) and the requests are concurrent.
+// - The tokens are not kept: the key is the SHA-256 hash of the token.
+// - An entry is valid until the expiration of its token.
+// - The number of entries is limited: when it is full, the expired entries are removed and
+//   if it is still full then some entries are removed (they are verified again if they come back).
+public class VerifiedTokenCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    private final Clock clock;
+
+    public VerifiedTokenCache(int maxSize) {
+        this(maxSize, Clock.systemUTC());
+    }
+
+    // With a size of 0 the tokens are never kept (each request verifies its token)
+    public VerifiedTokenCache(int maxSize, Clock clock) {
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    // To get a new authentication of a token verified before (null if it is not in the cache or it expired)
+    public UsernamePasswordAuthenticationToken get(String token) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+
+        Key key = keyOf(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (clock.millis() >= entry.expiresAt) {
+            entries.remove(key, entry);
+            return null;
+        }
+
+        return new UsernamePasswordAuthenticationToken(entry.principal, null, entry.authorities);
+    }
+
+    // To keep the principal and the authorities of a verified token until the token expires
+    // (the principal and the set of authorities must not be changed after they are kept)
+    public void put(String token, Object principal, Set<GrantedAuthority> authorities, long expiresAt) {
+        if (maxSize <= 0 || expiresAt <= clock.millis()) {
+            return;
+        }
+
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+
+        entries.put(keyOf(token), new Entry(principal, authorities, expiresAt));
+    }
+
+    // To forget all of the tokens
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // To make room: first the expired entries and then the first entries found 
+    // until a tenth of the cache is free (so the next tokens do not evict again)
+    private void evict() {
+        long now = clock.millis();
+        entries.values().removeIf(entry -> now >= entry.expiresAt);
+
+        Iterator<Key> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxSize - maxSize / 10 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static Key keyOf(String token) {
+        return new Key(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // The hash of a token (the arrays are compared by their content)
+    private record Key(byte[] hash) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && Arrays.equals(hash, key.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            // The bytes of a hash are already random
+            return (hash[0] & 0xFF) << 24 | (hash[1] & 0xFF) << 16 | (hash[2] & 0xFF) << 8 | (hash[3] & 0xFF);
+        }
+
+    }
+
+    // The principal and the authorities of a token and the moment (in milliseconds) when the token expires
+    private record Entry(Object principal, Set<GrantedAuthority> authorities, long expiresAt) {
+    }
+
+}
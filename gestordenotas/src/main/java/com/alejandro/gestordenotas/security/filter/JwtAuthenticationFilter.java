@@ -3,26 +3,26 @@ package com.alejandro.gestordenotas.security.filter;
 import static com.alejandro.gestordenotas.security.TokenJwtConfig.*;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
 import com.alejandro.gestordenotas.entities.User;
-import com.fasterxml.jackson.core.exc.StreamReadException;
-import com.fasterxml.jackson.databind.DatabindException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.alejandro.gestordenotas.exceptions.PasswordHashingBusyException;
+import com.alejandro.gestordenotas.security.AccessTokenIssuer;
+import com.alejandro.gestordenotas.security.JpaUserDetails;
+import com.alejandro.gestordenotas.services.RefreshTokenService;
+import com.fasterxml.jackson.databind.ObjectReader;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -30,10 +30,22 @@ import jakarta.servlet.http.HttpServletResponse;
 
 public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
+    // To read the credentials of the login
+    private static final ObjectReader USER_READER = OBJECT_MAPPER.readerFor(User.class);
+
     private AuthenticationManager authenticationManager;
 
-    public JwtAuthenticationFilter(AuthenticationManager authenticationManager) {
+    // To create the access tokens
+    private final AccessTokenIssuer accessTokenIssuer;
+
+    // To create the refresh tokens (so the client gets new access tokens without the password)
+    private final RefreshTokenService refreshTokenService;
+
+    public JwtAuthenticationFilter(AuthenticationManager authenticationManager, AccessTokenIssuer accessTokenIssuer,
+            RefreshTokenService refreshTokenService) {
         this.authenticationManager = authenticationManager;
+        this.accessTokenIssuer = accessTokenIssuer;
+        this.refreshTokenService = refreshTokenService;
 
         // To specific the path of endpoint 'login'
         setRequiresAuthenticationRequestMatcher(new AntPathRequestMatcher("/api/users/login", "POST"));
@@ -49,15 +61,14 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
 
         // take the json object and try cast this object to object user
         try {
-            user = new ObjectMapper().readValue(request.getInputStream(), User.class);
+            user = USER_READER.readValue(request.getInputStream());
             username = user.getUsername();
             password = user.getPassword();
-        } catch (StreamReadException e) {
-            e.printStackTrace();
-        } catch (DatabindException e) {
-            e.printStackTrace();
         } catch (IOException e) {
-            e.printStackTrace();
+            // The body is not a valid user, so the credentials are not checked
+            logger.debug("The body of the login could not be read", e);
+            writeBadRequest(response);
+            return null;
         }
 
         // create the token of authentication based on the credentials of user
@@ -65,7 +76,12 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
                 password);
 
         // Check if the credentials are correct
-        return authenticationManager.authenticate(authenticationToken);
+        try {
+            return authenticationManager.authenticate(authenticationToken);
+        } catch (PasswordHashingBusyException e) {
+            // There are too many logins at this moment (see 'unsuccessfulAuthentication')
+            throw new AuthenticationServiceException(e.getMessage(), e);
+        }
     }
 
     // When the process of authentication is correct this method is executed
@@ -77,22 +93,15 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         org.springframework.security.core.userdetails.User user = (org.springframework.security.core.userdetails.User) authResult
                 .getPrincipal();
         String username = user.getUsername();
-        Collection<? extends GrantedAuthority> roles = authResult.getAuthorities();
-
-        // Creation of claims (these information will be in the token)
-        Claims claims = Jwts.claims()
-                .add("authorities", new ObjectMapper().writeValueAsString(roles))
-                .add("username", username)
-                .build();
-
-        // Creation of token
-        String token = Jwts.builder()
-                .subject(username)
-                .claims(claims)
-                .expiration(new Date(System.currentTimeMillis() + 3600000))
-                .issuedAt(new Date())
-                .signWith(SECRET_KEY)
-                .compact();
+
+        // The id of the user is in the claims, so the owner of a resource is known without reading the db
+        // (and the token epoch, so the token is rejected after a change of the credentials or roles)
+        Long userId = user instanceof JpaUserDetails userDetails ? userDetails.getId() : null;
+        long tokenEpoch = user instanceof JpaUserDetails userDetails ? userDetails.getTokenEpoch() : 0;
+
+        // Creation of the access token (it is short-lived) and of the refresh token
+        String token = accessTokenIssuer.issue(userId, username, tokenEpoch, authResult.getAuthorities());
+        String refreshToken = userId != null ? refreshTokenService.create(userId) : null;
 
         // Add the token to header of response
         response.addHeader(HEADER_AUTHORIZATION, PREFIX_TOKEN + token);
@@ -100,23 +109,53 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         // Creation of response body
         Map<String, String> body = new HashMap<>();
         body.put("token", token);
+        body.put("refreshToken", refreshToken);
         body.put("username", username);
         body.put("message", String.format("Hola %s has iniciado sesion con exito!", username));
 
-        response.getWriter().write(new ObjectMapper().writeValueAsString(body));
+        response.getWriter().write(OBJECT_MAPPER.writeValueAsString(body));
         response.setContentType(CONTENT_TYPE);
         response.setStatus(200);
     }
 
+    // To answer a login whose body could not be read (returning null from 'attemptAuthentication'
+    // ends the request without the success or failure methods)
+    private void writeBadRequest(HttpServletResponse response) {
+        Map<String, String> body = new HashMap<>();
+        body.put("message", "El cuerpo de la peticion no tiene un formato valido!");
+
+        try {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType(CONTENT_TYPE);
+            response.getWriter().write(OBJECT_MAPPER.writeValueAsString(body));
+        } catch (IOException e) {
+            throw new AuthenticationServiceException("The response of the login could not be written", e);
+        }
+    }
+
     // When the process of authentication is NOT correct this method is executed
     @Override
     protected void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response, AuthenticationException failed) throws IOException, ServletException {
+        // If the password could not be verified because there are too many logins at this moment
+        // then the client must try again later
+        if (failed.getCause() instanceof PasswordHashingBusyException busy) {
+            Map<String, String> body = new HashMap<>();
+            body.put("message", "Demasiados inicios de sesion, intente de nuevo mas tarde!");
+            body.put("error", busy.getMessage());
+
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(busy.getRetryAfterSeconds()));
+            response.setContentType(CONTENT_TYPE);
+            response.getWriter().write(OBJECT_MAPPER.writeValueAsString(body));
+            return;
+        }
+
         // Creation of response body
         Map<String, String> body = new HashMap<>();
         body.put("message", "Error en la autenticacion username o password incorrectos!");
         body.put("error", failed.getMessage());
 
-        response.getWriter().write(new ObjectMapper().writeValueAsString(body));
+        response.getWriter().write(OBJECT_MAPPER.writeValueAsString(body));
         response.setStatus(401);
         response.setContentType(CONTENT_TYPE);
     }
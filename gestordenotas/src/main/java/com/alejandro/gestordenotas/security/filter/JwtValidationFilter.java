@@ -1,25 +1,27 @@
 package com.alejandro.gestordenotas.security.filter;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
-import com.alejandro.gestordenotas.security.SimpleGrantedAuthorityJsonCreator;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.alejandro.gestordenotas.security.AuthenticatedUser;
+import com.alejandro.gestordenotas.security.GrantedAuthorities;
+import com.alejandro.gestordenotas.security.RoleBits;
+import com.alejandro.gestordenotas.security.SigningKeyRing;
+import com.alejandro.gestordenotas.security.TokenRevocations;
+import com.alejandro.gestordenotas.security.VerifiedTokenCache;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.Jwts;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -30,8 +32,25 @@ import static com.alejandro.gestordenotas.security.TokenJwtConfig.*;
 // This filter is executed before Spring allows access to protected resources.
 public class JwtValidationFilter extends BasicAuthenticationFilter {
 
-    public JwtValidationFilter(AuthenticationManager authenticationManager) {
+    // The tokens already verified
+    private final VerifiedTokenCache tokenCache;
+
+    // The keys that verify the tokens
+    private final SigningKeyRing keyRing;
+
+    // The bits of the roles
+    private final RoleBits roleBits;
+
+    // The users whose tokens are rejected before they expire
+    private final TokenRevocations revocations;
+
+    public JwtValidationFilter(AuthenticationManager authenticationManager, VerifiedTokenCache tokenCache,
+            SigningKeyRing keyRing, RoleBits roleBits, TokenRevocations revocations) {
         super(authenticationManager);
+        this.tokenCache = tokenCache;
+        this.keyRing = keyRing;
+        this.roleBits = roleBits;
+        this.revocations = revocations;
     }
 
     @Override
@@ -49,34 +68,68 @@ public class JwtValidationFilter extends BasicAuthenticationFilter {
         
         // Extract the token without the prefix
         String token = header.replace(PREFIX_TOKEN, "");
-        try {
-            // Valid the token and get the subject and roles
-            // If the token is invalid or expired it will be fired an exception
-            Claims claims = Jwts.parser().verifyWith(SECRET_KEY).build().parseSignedClaims(token).getPayload();
-            String usename = claims.getSubject();
-            Object authoritiesClaims = claims.get("authorities");
-
-            // The roles are deserialized into a collection of 'SimpleGrantedAuthority' objects
-            Collection<? extends GrantedAuthority> authorities = Arrays.asList(
-                new ObjectMapper()
-                .addMixIn(SimpleGrantedAuthority.class, SimpleGrantedAuthorityJsonCreator.class)
-                .readValue(authoritiesClaims.toString().getBytes(), SimpleGrantedAuthority[].class)
-            );
-
-            // Authenticate the request 
-            // (This allows access to protected resources)
-            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(usename, null, authorities);
-            SecurityContextHolder .getContext().setAuthentication(authenticationToken);
-            chain.doFilter(request, response); // continue with the other filters
-        } catch (JwtException e) {
-            // Creation of body response
-            Map<String, String> body = new HashMap<>();
-            body.put("error", e.getMessage());
-            body.put("message", "El token JWT es invalido!");
-
-            response.getWriter().write(new ObjectMapper().writeValueAsString(body));
-            response.setStatus(HttpStatus.UNAUTHORIZED.value());
-            response.setContentType(CONTENT_TYPE);
+
+        // If the token was verified before (and it has not expired) then its principal and authorities are reused
+        UsernamePasswordAuthenticationToken authenticationToken = tokenCache.get(token);
+
+        if (authenticationToken == null) {
+            try {
+                // Valid the token and get the subject and roles
+                // If the token is invalid or expired it will be fired an exception
+                // (the key is chosen by the id in the header of the token)
+                Claims claims = keyRing.getParser().parseSignedClaims(token).getPayload();
+                String usename = claims.getSubject();
+                Long userId = claims.get(USER_ID_CLAIM, Long.class);
+                Long tokenEpoch = claims.get(TOKEN_EPOCH_CLAIM, Long.class);
+
+                // The principal keeps the id of the user and the epoch of the token (if the token has them)
+                Object principal = userId != null
+                    ? new AuthenticatedUser(userId, usename, tokenEpoch != null ? tokenEpoch : 0)
+                    : usename;
+
+                // The mask of the roles is turned into the shared set of authorities of those roles
+                // (the tokens created before the mask have a list of role names)
+                Long roles = claims.get(ROLES_CLAIM, Long.class);
+                Set<GrantedAuthority> authorities = roles != null ? roleBits.authoritiesOf(roles)
+                    : GrantedAuthorities.of(claims.get(AUTHORITIES_CLAIM, List.class));
+
+                authenticationToken = new UsernamePasswordAuthenticationToken(principal, null, authorities);
+
+                // The token is valid until its expiration
+                if (claims.getExpiration() != null) {
+                    tokenCache.put(token, principal, authorities, claims.getExpiration().getTime());
+                }
+            } catch (JwtException e) {
+                unauthorized(response, e.getMessage(), "El token JWT es invalido!");
+                return;
+            }
         }
+
+        // The token of a disabled or deleted user (or created before the last change of its credentials or roles)
+        // is rejected, even if it was verified before (the check only reads memory)
+        if (authenticationToken.getPrincipal() instanceof AuthenticatedUser user
+                && revocations.isRevoked(user.getId(), user.getTokenEpoch())) {
+            unauthorized(response, "The access of the user was revoked", "El token JWT fue revocado!");
+            return;
+        }
+
+        // Authenticate the request 
+        // (This allows access to protected resources)
+        SecurityContextHolder .getContext().setAuthentication(authenticationToken);
+        chain.doFilter(request, response); // continue with the other filters
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // To answer with the error of the token
+    private void unauthorized(HttpServletResponse response, String error, String message) throws IOException {
+        // Creation of body response
+        Map<String, String> body = new HashMap<>();
+        body.put("error", error);
+        body.put("message", message);
+
+        response.getWriter().write(OBJECT_MAPPER.writeValueAsString(body));
+        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        response.setContentType(CONTENT_TYPE);
     }
 }
@@ -4,6 +4,8 @@ import java.util.List;
 import java.util.Optional;
 
 import com.alejandro.gestordenotas.dto.AdminDto;
+import com.alejandro.gestordenotas.dto.UserFilterDto;
+import com.alejandro.gestordenotas.dto.UserPageDto;
 import com.alejandro.gestordenotas.entities.User;
 
 public interface AdminService {
@@ -14,14 +16,12 @@ public interface AdminService {
     // Methods for the admin role
     // -----------------------------
  
-    List<AdminDto> getAllUsersWithUserRole();
+    UserPageDto<AdminDto> getAllUsersWithUserRole(UserFilterDto filter);
 
     Optional<AdminDto> getUserWithUserRole(Long id);
 
-    Optional<User> disableEnableUser(Long userId);
+    Optional<User> disableEnableUser(Long userId, int maxRoleLevel);
 
-    // Methods aux
-    
-    List<Long> getAllIdsWithAdminAndSuperAdminRole();
+    int disableEnableUsers(List<Long> userIds, boolean enabled, int maxRoleLevel);
 
 }
@@ -4,12 +4,19 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.alejandro.gestordenotas.dto.AdminDto;
+import com.alejandro.gestordenotas.dto.UserFilterDto;
+import com.alejandro.gestordenotas.dto.UserPageDto;
+import com.alejandro.gestordenotas.entities.RoleLevel;
 import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.events.UserChangeEvent;
+import com.alejandro.gestordenotas.events.UsersChangeEvent;
 import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.repositories.UserSpecifications;
 
 
 @Service
@@ -19,15 +26,20 @@ public class AdminServiceImp implements AdminService {
     @Autowired
     private UserRepository repository;
 
+    // To let other components know that the state of a user changed
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // -----------------------------
     // Methods for the admin role
     // -----------------------------
     
-    // To get all of the users with the role 'user'
+    // To get a page of the users with the role 'user' (with the filters and the order of the request)
     @Override
     @Transactional(readOnly = true)
-    public List<AdminDto> getAllUsersWithUserRole() {
-        return repository.getAllUsersWithUserRole();
+    public UserPageDto<AdminDto> getAllUsersWithUserRole(UserFilterDto filter) {
+        return UserPages.find(repository, UserSpecifications.hasRoleLevel(RoleLevel.USER), filter,
+            user -> new AdminDto(user.getId(), user.getUsername(), user.isEnabled()));
     }
 
     // To get a specific user with the user role based on their user ID
@@ -37,16 +49,19 @@ public class AdminServiceImp implements AdminService {
         return repository.getUserWithUserRole(id);
     }
 
-    // To enable or disable a certain user
+    // To enable or disable a certain user whose level of roles is not higher than a level.
+    // The level is checked in the row read from the db (not in a copy kept in memory), so a
+    // user promoted by other instance of the application is protected too.
+    // If the user doesn't exist or its level is higher then an empty optional is returned.
     @Override
     @Transactional
-    public Optional<User> disableEnableUser(Long userId) {
+    public Optional<User> disableEnableUser(Long userId, int maxRoleLevel) {
 
         // Search for a specific user
         Optional<User> optionalUser = repository.findById(userId);
 
-        // If it's present then...
-        if (optionalUser.isPresent()) {
+        // If it's present and it is not protected by its roles then...
+        if (optionalUser.isPresent() && optionalUser.get().getRoleLevel() <= maxRoleLevel) {
 
             User userDb = optionalUser.get();
             
@@ -57,19 +72,27 @@ public class AdminServiceImp implements AdminService {
                 userDb.setEnabled(true);
             }
 
+            eventPublisher.publishEvent(new UserChangeEvent(userDb.getId(), userDb.getUsername(), true));
             return Optional.of(repository.save(userDb));
         }
 
-        return optionalUser;
+        return Optional.empty();
     }
 
-    // Methods aux ----------------------------------
-    
-    // To get all of the id's of users with role 'admin' and 'super admin'
+    // To enable or disable a chunk of users of a bulk change with one statement.
+    // The users whose level of roles is higher than the level are not changed.
+    // The users to change are locked before, so the event only has the ids of the changed users.
     @Override
-    @Transactional(readOnly = true)
-    public List<Long> getAllIdsWithAdminAndSuperAdminRole() {
-        return repository.getAllIdsWithAdminAndSuperAdminRole();
+    @Transactional
+    public int disableEnableUsers(List<Long> userIds, boolean enabled, int maxRoleLevel) {
+        List<Long> changedIds = repository.lockIdsToUpdateEnabled(userIds, enabled, maxRoleLevel);
+        if (changedIds.isEmpty()) {
+            return 0;
+        }
+
+        int updated = repository.updateEnabled(changedIds, enabled, maxRoleLevel);
+        eventPublisher.publishEvent(new UsersChangeEvent(changedIds, false));
+        return updated;
     }
 
 }
@@ -5,30 +5,54 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.events.UserChangeEvent;
+import com.alejandro.gestordenotas.events.UsersChangeEvent;
 import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.security.JpaUserDetails;
+import com.alejandro.gestordenotas.security.UserDetailsCache;
 
 
 @Service
-public class JpaUserDetailsService implements UserDetailsService {
+public class JpaUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     // To inject the repository dependency.
     @Autowired
     private UserRepository repository;
 
+    // To keep the users already read
+    @Autowired
+    private UserDetailsCache cache;
+
+    // To let the cache know that the password of a user changed
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // To load information of an user
     @Transactional(readOnly = true)
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
+        // If the user was read before then it is not read again
+        JpaUserDetails cachedUser = cache.get(username);
+        if (cachedUser != null) {
+            return cachedUser;
+        }
+
+        // The generation is read before the query (see 'UserDetailsCache.put')
+        long generation = cache.getGeneration();
+
         // Search for an user
         Optional<User> userOptional = repository.findByUsername(username);
 
@@ -44,14 +68,61 @@ public class JpaUserDetailsService implements UserDetailsService {
                 .collect(Collectors.toList());
 
         // and return an object user of spring security with the information about 
-        // unsername, password, state and roles.
-        return new org.springframework.security.core.userdetails.User(user.getUsername(),
+        // id, unsername, password, state, token epoch and roles.
+        JpaUserDetails userDetails = new JpaUserDetails(user.getId(),
+                user.getUsername(),
                 user.getPassword(),
                 user.isEnabled(),
-                true,
-                true,
-                true,
+                user.getTokenEpoch(),
                 authorities);
+
+        // Keep the user for the next logins
+        cache.put(userDetails, generation);
+        return userDetails;
+    }
+
+    // To save the new hash of the password of a user.
+    // Spring security calls this method after a successful login when the hash of the user is outdated
+    // (another encoder or a lower cost of BCrypt), with the password of the login hashed again.
+    // If the password was changed after the login, the new password is kept and the user is returned as it is.
+    @Transactional
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+
+        // The hash is replaced only if the password was not changed since the login
+        int updated = userDetails.getPassword() == null ? 0
+                : repository.updatePassword(userDetails.getUsername(), userDetails.getPassword(), newPassword);
+        if (updated == 0) {
+            return userDetails;
+        }
+
+        // The new hash is of the same password, so the access of the user doesn't change
+        Long userId = userDetails instanceof JpaUserDetails jpaUserDetails ? jpaUserDetails.getId() : null;
+        eventPublisher.publishEvent(new UserChangeEvent(userId, userDetails.getUsername()));
+
+        // Return the same user with the new hash
+        if (userDetails instanceof JpaUserDetails jpaUserDetails) {
+            return new JpaUserDetails(jpaUserDetails.getId(), userDetails.getUsername(), newPassword,
+                    userDetails.isEnabled(), jpaUserDetails.getTokenEpoch(), userDetails.getAuthorities());
+        }
+        return new JpaUserDetails(null, userDetails.getUsername(), newPassword, userDetails.isEnabled(),
+                userDetails.getAuthorities());
+    }
+
+    // To forget a user when it is changed or deleted (after the change is committed)
+    @TransactionalEventListener
+    public void onUserChange(UserChangeEvent event) {
+        if (event.isAccessChanged()) {
+            cache.invalidateAccess(event.getUsername());
+        } else {
+            cache.invalidate(event.getUsername());
+        }
+    }
+
+    // To forget some users when they are changed at once (after the change is committed)
+    @TransactionalEventListener
+    public void onUsersChange(UsersChangeEvent event) {
+        cache.invalidateIds(event.getUserIds());
     }
 
 }
@@ -0,0 +1,15 @@
+package com.alejandro.gestordenotas.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.alejandro.gestordenotas.dto.NoteImportResultDto;
+
+
+public interface NoteImportService {
+
+    // Declaration of methods to use in 'serviceImp' file
+
+    NoteImportResultDto importNotesByUser(Long userId, InputStream inputStream, boolean csv) throws IOException;
+
+}
@@ -0,0 +1,357 @@
+package com.alejandro.gestordenotas.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.alejandro.gestordenotas.dto.NoteImportErrorDto;
+import com.alejandro.gestordenotas.dto.NoteImportResultDto;
+import com.alejandro.gestordenotas.entities.Note;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+
+@Service
+public class NoteImportServiceImp implements NoteImportService {
+
+    // Number of notes saved in each transaction (several JDBC batches)
+    public static final int CHUNK_SIZE = NoteServiceImp.BATCH_SIZE * 10;
+
+    // Maximum number of characters of a NDJSON line, the longer lines are rejected without being kept
+    public static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+    // Maximum number of characters of the contents of a chunk, a chunk with big notes is saved before it is full
+    public static final int MAX_CHUNK_LENGTH = MAX_LINE_LENGTH * 8;
+
+    // Maximum number of errors sent in the result, the rest of them are only counted
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    // To read the csv files: the header is read as an array of names and then each record with
+    // a schema of those columns, so a wrong record doesn't stop the parser of the next ones
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+        .findAndAddModules()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
+
+    private static final ObjectReader CSV_HEADER_READER = CSV_MAPPER.readerFor(String[].class);
+
+    // To save each chunk of notes in its own transaction
+    @Autowired
+    private NoteService noteService;
+
+    // To read the json lines with the same configuration as the endpoints
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // To apply the same rules of validation as the endpoints
+    @Autowired
+    private Validator validator;
+
+    // To import the notes of a certain user from a NDJSON or CSV stream.
+    // The stream is parsed record by record and the valid notes are saved in chunks,
+    // so the memory used does not depend on the size of the file.
+    // A rejected record does not stop the import, it is reported in the result.
+    @Override
+    public NoteImportResultDto importNotesByUser(Long userId, InputStream inputStream, boolean csv) throws IOException {
+
+        long start = System.nanoTime();
+        Import currentImport = new Import(userId);
+
+        Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        if (csv) {
+            readCsv(reader, currentImport);
+        } else {
+            readNdjson(reader, currentImport);
+        }
+        currentImport.saveChunk();
+
+        NoteImportResultDto result = currentImport.result;
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        result.setDurationMillis(elapsedNanos / 1_000_000);
+        result.setRowsPerSecond((result.getImported() + result.getRejected()) * 1_000_000_000L / elapsedNanos);
+
+        return result;
+    }
+
+    // To read a note from each line (the empty lines are skipped).
+    // A line is kept only up to 'MAX_LINE_LENGTH' characters, so a file without new lines
+    // is not loaded all at once: the rest of a longer line is skipped and the line is rejected.
+    private void readNdjson(Reader reader, Import currentImport) throws IOException {
+
+        ObjectReader noteReader = objectMapper.readerFor(Note.class);
+        LineReader lines = new LineReader(reader, false);
+        long lineNumber = 0;
+
+        while (lines.next()) {
+            lineNumber++;
+
+            if (lines.isTooLong()) {
+                currentImport.reject(lineNumber, "El registro supera el tamaño máximo de " + MAX_LINE_LENGTH + " caracteres");
+                continue;
+            }
+
+            String line = lines.getLine();
+            if (line.isBlank()) {
+                continue;
+            }
+
+            try {
+                currentImport.add(lineNumber, noteReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                currentImport.reject(lineNumber, "El registro no tiene un formato válido");
+            }
+        }
+    }
+
+    // To read a note from each record after the header, the first record must have the names of the columns.
+    // The records are split before being parsed (a quoted value with many lines counts as one), and each one
+    // is kept only up to 'MAX_LINE_LENGTH' characters, so a wrong or longer record is rejected and the next
+    // one is read. A quote that is never closed takes the rest of the file.
+    private void readCsv(Reader reader, Import currentImport) throws IOException {
+
+        LineReader records = new LineReader(reader, true);
+        if (!records.next()) {
+            return;
+        }
+
+        // Without the names of the columns no record can be read
+        String[] columns = null;
+        if (!records.isTooLong()) {
+            try {
+                columns = CSV_HEADER_READER.readValue(records.getLine());
+            } catch (JsonProcessingException e) {
+                // (the header is rejected below)
+            }
+        }
+        if (columns == null || columns.length == 0) {
+            currentImport.reject(1, "La cabecera no tiene un formato válido");
+            return;
+        }
+        ObjectReader noteReader = CSV_MAPPER.readerFor(Note.class)
+            .with(CsvSchema.builder().addColumns(List.of(columns), CsvSchema.ColumnType.STRING).build());
+
+        long lineNumber = 1;
+        while (records.next()) {
+            lineNumber++;
+
+            if (records.isTooLong()) {
+                currentImport.reject(lineNumber, "El registro supera el tamaño máximo de " + MAX_LINE_LENGTH + " caracteres");
+                continue;
+            }
+
+            String record = records.getLine();
+            if (record.isBlank()) {
+                continue;
+            }
+
+            try {
+                currentImport.add(lineNumber, noteReader.readValue(record));
+            } catch (JsonProcessingException e) {
+                currentImport.reject(lineNumber, "El registro no tiene un formato válido");
+            }
+        }
+    }
+
+    // To keep the state of an import: the notes waiting to be saved and the result
+    private class Import {
+
+        private final Long userId;
+
+        private final NoteImportResultDto result;
+
+        private List<Note> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        private List<Long> chunkLines = new ArrayList<>(CHUNK_SIZE);
+
+        private long chunkLength;
+
+        Import(Long userId) {
+            this.userId = userId;
+            this.result = new NoteImportResultDto(userId);
+        }
+
+        // To validate a note and add it to the current chunk
+        void add(long line, Note note) {
+
+            if (note == null) {
+                reject(line, "El registro no tiene un formato válido");
+                return;
+            }
+
+            Set<ConstraintViolation<Note>> violations = validator.validate(note);
+            if (!violations.isEmpty()) {
+                reject(line, violations.stream()
+                    .map(v -> "El campo " + v.getPropertyPath() + " " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+                return;
+            }
+
+            chunk.add(note);
+            chunkLines.add(line);
+            chunkLength += note.getContent().length();
+
+            if (chunk.size() == CHUNK_SIZE || chunkLength >= MAX_CHUNK_LENGTH) {
+                saveChunk();
+            }
+        }
+
+        // To save the current chunk in its own transaction.
+        // If the chunk fails then its notes are saved one by one to know which of them are wrong
+        // (a flush can also fail with an exception of the persistence provider that Spring doesn't translate).
+        void saveChunk() {
+
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            try {
+                save(chunk, chunkLines);
+            } catch (DataAccessException | PersistenceException e) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    try {
+                        save(List.of(chunk.get(i)), List.of(chunkLines.get(i)));
+                    } catch (DataAccessException | PersistenceException noteException) {
+                        reject(chunkLines.get(i), "No se pudo guardar la nota");
+                    }
+                }
+            }
+
+            // The saved notes are released (the list that was saved is not modified)
+            chunk = new ArrayList<>(CHUNK_SIZE);
+            chunkLines = new ArrayList<>(CHUNK_SIZE);
+            chunkLength = 0;
+        }
+
+        // To save some notes (they are rejected if the user doesn't exist anymore)
+        private void save(List<Note> notes, List<Long> lines) {
+            Optional<Integer> saved = noteService.saveNotesByUser(userId, notes);
+
+            if (saved.isPresent()) {
+                result.setImported(result.getImported() + saved.get());
+            } else {
+                lines.forEach(line -> reject(line, "El usuario no existe"));
+            }
+        }
+
+        // To count a rejected record and report it if there is room for it
+        void reject(long line, String message) {
+            result.setRejected(result.getRejected() + 1);
+
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new NoteImportErrorDto(line, message));
+            }
+        }
+
+    }
+
+    // To read the lines of a reader keeping at most 'MAX_LINE_LENGTH' characters of each one
+    // ('BufferedReader.readLine' keeps the whole line, whatever its length).
+    // The characters are read in blocks and each block is scanned for the end of the line.
+    // For a csv file a line is a record: a new line between quotes is part of the value.
+    private static class LineReader {
+
+        private final Reader reader;
+
+        private final boolean csv;
+
+        private final char[] buffer = new char[8192];
+
+        // The next character to scan and the end of the characters read in the buffer
+        private int position;
+
+        private int limit;
+
+        private final StringBuilder line = new StringBuilder();
+
+        private boolean tooLong;
+
+        LineReader(Reader reader, boolean csv) {
+            this.reader = reader;
+            this.csv = csv;
+        }
+
+        // To read the next line (false at the end of the reader)
+        boolean next() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean read = false;
+            boolean quoted = false;
+
+            while (true) {
+                if (position >= limit) {
+                    limit = Math.max(0, reader.read(buffer));
+                    position = 0;
+                    if (limit == 0) {
+                        break;
+                    }
+                }
+                read = true;
+
+                int end = position;
+                while (end < limit && (quoted || buffer[end] != '\n')) {
+                    // (an escaped quote is read as two quotes)
+                    if (csv && buffer[end] == '"') {
+                        quoted = !quoted;
+                    }
+                    end++;
+                }
+
+                if (!tooLong) {
+                    if (line.length() + end - position > MAX_LINE_LENGTH + 1) {
+                        // The rest of the line is skipped
+                        tooLong = true;
+                        line.setLength(0);
+                    } else {
+                        line.append(buffer, position, end - position);
+                    }
+                }
+
+                if (end < limit) {
+                    position = end + 1;
+                    break;
+                }
+                position = end;
+            }
+
+            // (a '\r' after the last character is the end of the line)
+            if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+            if (line.length() > MAX_LINE_LENGTH) {
+                tooLong = true;
+                line.setLength(0);
+            }
+            return read;
+        }
+
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        String getLine() {
+            return line.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.alejandro.gestordenotas.services;
+
+import java.util.List;
+
+import com.alejandro.gestordenotas.dto.NoteSearchHitDto;
+import com.alejandro.gestordenotas.events.NoteChangeEvent;
+
+
+public interface NoteSearchService {
+
+    // Declaration of methods to use in 'serviceImp' file
+
+    List<NoteSearchHitDto> searchNotesByUser(Long userId, String query, int limit);
+
+    void onNoteChange(NoteChangeEvent event);
+
+}
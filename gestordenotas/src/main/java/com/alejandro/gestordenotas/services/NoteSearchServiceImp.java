@@ -0,0 +1,195 @@
+package com.alejandro.gestordenotas.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.alejandro.gestordenotas.dto.NoteSearchHitDto;
+import com.alejandro.gestordenotas.entities.Note;
+import com.alejandro.gestordenotas.events.NoteChangeEvent;
+import com.alejandro.gestordenotas.repositories.NoteRepository;
+import com.alejandro.gestordenotas.repositories.NoteRepository.NoteContent;
+import com.alejandro.gestordenotas.search.NoteIndex;
+
+
+@Service
+public class NoteSearchServiceImp implements NoteSearchService {
+
+    // Maximum number of notes that can be requested in a single search
+    public static final int MAX_RESULTS = 100;
+
+    // The indexes of the notes of the users who searched recently.
+    // An index is built from the db the first time the user searches (for example after a restart)
+    // and then it is kept up to date with the changes of the notes.
+    // - The number of indexes is limited: the index of the least recently used user is removed when it is full.
+    // - An index is built again from the db after some time (in case the notes were changed by another instance).
+    // Ordered from the least to the most recently used index
+    private final LinkedHashMap<Long, UserIndex> indexes = new LinkedHashMap<>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, UserIndex> eldest) {
+            return size() > maxUsers;
+        }
+
+    };
+
+    @Value("${notes.search.max-users:1000}")
+    private int maxUsers = 1000;
+
+    @Value("${notes.search.max-age:30m}")
+    private Duration maxAge = Duration.ofMinutes(30);
+
+    // To inject the repository dependency.
+    @Autowired
+    private NoteRepository repository;
+
+    // To get the best notes of a certain user for a query.
+    // Only the notes found in the index are read from the db.
+    @Override
+    @Transactional(readOnly = true)
+    public List<NoteSearchHitDto> searchNotesByUser(Long userId, String query, int limit) {
+
+        int size = Math.max(1, Math.min(limit, MAX_RESULTS));
+        List<NoteIndex.Hit> hits = getIndex(userId).search(query, size);
+
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Note> notes = new HashMap<>();
+        repository.findAllById(hits.stream().map(NoteIndex.Hit::getNoteId).toList())
+            .forEach(note -> notes.put(note.getId(), note));
+
+        // Keep the order of the index (a note could be deleted after it was found)
+        List<NoteSearchHitDto> results = new ArrayList<>(hits.size());
+        hits.forEach(hit -> {
+            Note note = notes.get(hit.getNoteId());
+            if (note != null && userId.equals(note.getUserId())) {
+                results.add(new NoteSearchHitDto(note, hit.getScore()));
+            }
+        });
+
+        return results;
+    }
+
+    // To update the index of a user after the changes of its notes are committed.
+    // If the index of the user does not exist then the change is ignored, because the index will read the note
+    // from the db. If the index is being built then the change is queued and applied after the build,
+    // so the writer does not wait for the build and the change is not overwritten.
+    @Override
+    @TransactionalEventListener
+    public void onNoteChange(NoteChangeEvent event) {
+
+        if (event.isUserDeleted()) {
+            synchronized (indexes) {
+                indexes.remove(event.getUserId());
+            }
+            return;
+        }
+
+        UserIndex userIndex;
+        synchronized (indexes) {
+            userIndex = indexes.get(event.getUserId());
+        }
+
+        if (userIndex != null) {
+            userIndex.pending.add(event);
+            if (userIndex.built) {
+                userIndex.applyPending();
+            }
+        }
+    }
+
+    // To remove the indexes that are too old, so the memory of the users who don't search anymore is released
+    @Scheduled(fixedDelayString = "${notes.search.max-age:30m}", initialDelayString = "${notes.search.max-age:30m}")
+    public void removeOldIndexes() {
+        long now = System.currentTimeMillis();
+        synchronized (indexes) {
+            indexes.values().removeIf(userIndex -> userIndex.isOld(now, maxAge));
+        }
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // To get the index of a user, it is built from the db if it does not exist or it is too old
+    private NoteIndex getIndex(Long userId) {
+        UserIndex userIndex = getUserIndex(userId);
+
+        if (!userIndex.built) {
+            synchronized (userIndex) {
+                if (!userIndex.built) {
+                    try (Stream<NoteContent> notes = repository.streamContentByUserId(userId)) {
+                        notes.forEach(note -> userIndex.index.put(note.getId(), note.getContent()));
+                    } catch (RuntimeException e) {
+                        // The next search starts again with an empty index
+                        synchronized (indexes) {
+                            indexes.remove(userId, userIndex);
+                        }
+                        throw e;
+                    }
+                    userIndex.builtAt = System.currentTimeMillis();
+                    userIndex.built = true;
+                    // The changes committed during the build (the note read could be older than the change)
+                    userIndex.applyPending();
+                }
+            }
+        }
+
+        return userIndex.index;
+    }
+
+    // To get the index of a user from the cache, a new (empty) index is saved if it does not exist or it is too old
+    private UserIndex getUserIndex(Long userId) {
+        synchronized (indexes) {
+            UserIndex userIndex = indexes.get(userId);
+            if (userIndex == null || userIndex.isOld(System.currentTimeMillis(), maxAge)) {
+                userIndex = new UserIndex();
+                indexes.put(userId, userIndex);
+            }
+            return userIndex;
+        }
+    }
+
+    // The index of a user, if it was already read from the db and the changes received during the build
+    private static class UserIndex {
+
+        private final NoteIndex index = new NoteIndex();
+
+        private final Queue<NoteChangeEvent> pending = new ConcurrentLinkedQueue<>();
+
+        private volatile boolean built;
+
+        private volatile long builtAt;
+
+        // To apply the queued changes in the order they were received.
+        // It only waits for another thread applying changes, never for the build.
+        private void applyPending() {
+            synchronized (pending) {
+                NoteChangeEvent event;
+                while ((event = pending.poll()) != null) {
+                    event.getUpserted().forEach(index::put);
+                    event.getDeleted().forEach(index::remove);
+                }
+            }
+        }
+
+        private boolean isOld(long now, Duration maxAge) {
+            return built && now - builtAt >= maxAge.toMillis();
+        }
+
+    }
+
+}
@@ -1,9 +1,13 @@
 package com.alejandro.gestordenotas.services;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Optional;
 
+import com.alejandro.gestordenotas.dto.NoteChangesDto;
+import com.alejandro.gestordenotas.dto.NotePageDto;
 import com.alejandro.gestordenotas.entities.Note;
-import com.alejandro.gestordenotas.entities.User;
 
 
 public interface NoteService {
@@ -15,11 +19,23 @@ public interface NoteService {
     // -----------------------------
 
     Optional<Note> findById(Long id);
+
+    Optional<Note> getNoteByUser(Long userId, Long noteId);
+
+    NotePageDto getNotesByUser(Long userId, String after, int limit);
+
+    NoteChangesDto getNoteChangesByUser(Long userId, String since, int limit);
     
-    Optional<User> saveNoteByUser(Long clientId, Note newNote);
+    boolean saveNoteByUser(Long clientId, Note newNote);
+
+    Optional<Integer> saveNotesByUser(Long clientId, List<Note> newNotes);
+
+    void exportNotesByUser(Long clientId, OutputStream outputStream) throws IOException;
     
-    Optional<User> editNoteByUser(Long clientId, Long noteId, Note editNote);
+    boolean editNoteByUser(Long clientId, Long noteId, Note editNote, Long expectedVersion);
     
-    Optional<User> deleteNoteByUser(Long clientId, Long noteId);
+    boolean deleteNoteByUser(Long clientId, Long noteId, Long expectedVersion);
+
+    int deleteSettledChanges();
 
 }
\ No newline at end of file
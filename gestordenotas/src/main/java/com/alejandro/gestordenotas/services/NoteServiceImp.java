@@ -1,21 +1,73 @@
 package com.alejandro.gestordenotas.services;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.transaction.annotation.Transactional;
 
 import org.springframework.stereotype.Service;
 
+import com.alejandro.gestordenotas.dto.NoteChangesDto;
+import com.alejandro.gestordenotas.dto.NotePageDto;
 import com.alejandro.gestordenotas.entities.Note;
-import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.entities.NoteChange;
+import com.alejandro.gestordenotas.entities.NoteTombstone;
+import com.alejandro.gestordenotas.events.NoteChangeEvent;
+import com.alejandro.gestordenotas.exceptions.InvalidCursorException;
+import com.alejandro.gestordenotas.exceptions.NoteVersionConflictException;
+import com.alejandro.gestordenotas.repositories.NoteChangeRepository;
 import com.alejandro.gestordenotas.repositories.NoteRepository;
+import com.alejandro.gestordenotas.repositories.NoteTombstoneRepository;
 import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.utils.UtilCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 
 @Service
 public class NoteServiceImp implements NoteService {
 
+    // Maximum number of notes that can be requested in a single page
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Number of notes sent to the db in each JDBC batch 
+    // (it must be the same value of the 'hibernate.jdbc.batch_size' property)
+    public static final int BATCH_SIZE = 50;
+
+    // Kinds of change in a sync token (the notes are sent before the deletions of the same version)
+    private static final long CHANGE_UPSERT = 0;
+    private static final long CHANGE_DELETE = 1;
+
+    // Number of exported notes after which the persistence context is cleared
+    public static final int EXPORT_CLEAR_INTERVAL = 500;
+
+    // The time after which a change of the notes is committed: the sync only reads the changes older than it.
+    // It must be longer than the writes done after a new version is taken (a chunk of an import is the longest).
+    @Value("${notes.sync.settle-time:5s}")
+    private Duration settleTime = Duration.ofSeconds(5);
+
+    // To use the persistence context directly when many notes are saved or exported
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // To serialize the exported notes with the same configuration as the endpoints
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // To inject the repository dependency.
     @Autowired
     private NoteRepository repository;
@@ -24,6 +76,18 @@ public class NoteServiceImp implements NoteService {
     @Autowired
     private UserRepository userRepository;
 
+    // To inject the repository dependency.
+    @Autowired
+    private NoteTombstoneRepository tombstoneRepository;
+
+    // To get the versions of the changes of the notes
+    @Autowired
+    private NoteChangeRepository changeRepository;
+
+    // To let other components know about the changes of the notes (for example the search index)
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // -----------------------------
     // Methods for note entity
     // -----------------------------
@@ -35,93 +99,256 @@ public class NoteServiceImp implements NoteService {
         return repository.findById(id);
     }
 
-    // To save a new note of a certain user in the db
+    // To get a specific note only if it belongs to the user
     @Override
-    @Transactional
-    public Optional<User> saveNoteByUser(Long userId, Note newNote) {
+    @Transactional(readOnly = true)
+    public Optional<Note> getNoteByUser(Long userId, Long noteId) {
+        return repository.findByIdAndUserId(noteId, userId);
+    }
+
+    // To get a page of the notes of a certain user.
+    // The page starts after the note referenced by the cursor, so the cost of
+    // the query does not depend on how many notes the user has.
+    @Override
+    @Transactional(readOnly = true)
+    public NotePageDto getNotesByUser(Long userId, String after, int limit) {
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Long afterId = after == null ? 0L : UtilCursor.decodeId(after);
+
+        // Ask for one more note than the page size to know if there is a next page
+        List<Note> notes = repository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, afterId, Limit.of(pageSize + 1));
+
+        // If there are more notes then remove the extra note and create the cursor of the next page
+        if (notes.size() > pageSize) {
+            List<Note> page = new ArrayList<>(notes.subList(0, pageSize));
+            return new NotePageDto(page, UtilCursor.encodeId(page.get(pageSize - 1).getId()));
+        }
+
+        return new NotePageDto(notes, null);
+    }
+
+    // To get the notes of a certain user created, updated or deleted after the sync token.
+    // The token is the position of the last change sent: the version of the notes of the user
+    // (see 'nextNotesVersion'), its kind and its id.
+    // Both the notes and the tombstones are read with an index from that position, so the 
+    // cost of the query depends on the number of changes and not on the number of notes.
+    @Override
+    @Transactional(readOnly = true)
+    public NoteChangesDto getNoteChangesByUser(Long userId, String since, int limit) {
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // Only the changes up to the settled version are read: the versions are given before the commits,
+        // so a later version can be committed before an earlier one and the token would skip the earlier one.
+        // (the notes and the tombstones read by the two queries are the same changes)
+        long settledVersion = changeRepository.getSettledVersion(settleTime.toSeconds()).orElse(0L);
+
+        // Without a token the sync starts from the beginning.
+        // A token after the last version is not a token of this application (or it is a token with
+        // the moment of a change, the format of the previous versions of the application)
+        long[] position = since == null ? new long[] { 0, CHANGE_UPSERT, 0 } : UtilCursor.decodeKeys(since, 3);
+        if ((position[1] != CHANGE_UPSERT && position[1] != CHANGE_DELETE)
+                || (position[0] > settledVersion && position[0] > changeRepository.getLastVersion().orElse(0L))) {
+            throw new InvalidCursorException(since);
+        }
+
+        // If the position is a deletion then all of the notes changed in that version were already sent
+        long noteAfterId = position[1] == CHANGE_UPSERT ? position[2] : Long.MAX_VALUE;
+        long tombstoneAfterId = position[1] == CHANGE_UPSERT ? 0 : position[2];
+
+        // Ask for one more change of each kind than the page size to know if there are more changes
+        List<Note> notes = repository.findChangedAfter(userId, position[0], noteAfterId, settledVersion, Limit.of(pageSize + 1));
+        List<NoteTombstone> tombstones = tombstoneRepository.findDeletedAfter(userId, position[0], tombstoneAfterId, settledVersion, Limit.of(pageSize + 1));
+
+        List<Note> upserted = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        int noteIndex = 0;
+        int tombstoneIndex = 0;
+
+        // Take the oldest changes of both lists until the page is complete
+        while (upserted.size() + deleted.size() < pageSize
+                && (noteIndex < notes.size() || tombstoneIndex < tombstones.size())) {
+
+            boolean isNoteOlder = tombstoneIndex == tombstones.size() || (noteIndex < notes.size()
+                && notes.get(noteIndex).getNotesVersion() <= tombstones.get(tombstoneIndex).getNotesVersion());
+
+            if (isNoteOlder) {
+                Note note = notes.get(noteIndex++);
+                upserted.add(note);
+                position = new long[] { note.getNotesVersion(), CHANGE_UPSERT, note.getId() };
+            } else {
+                NoteTombstone tombstone = tombstones.get(tombstoneIndex++);
+                deleted.add(tombstone.getNoteId());
+                position = new long[] { tombstone.getNotesVersion(), CHANGE_DELETE, tombstone.getId() };
+            }
+        }
+
+        boolean hasMore = noteIndex < notes.size() || tombstoneIndex < tombstones.size();
+
+        return new NoteChangesDto(upserted, deleted, UtilCursor.encodeKeys(position), hasMore);
+    }
 
-        // Search for a specific user
-        Optional<User> optionalUser = userRepository.findById(userId);
+    // To save a new note of a certain user in the db.
+    // Only the note is inserted, so neither the other notes of the user are loaded 
+    // nor the user is saved again.
+    @Override
+    @Transactional
+    public boolean saveNoteByUser(Long userId, Note newNote) {
 
-        // if it exists then save the note and return the new data (new user)
-        if ( optionalUser.isPresent() ) {
-            User userDb = optionalUser.get();
+        // Check if the user exists (without loading it).
+        // The user is not locked: the foreign key of the note rejects a user deleted meanwhile.
+        if ( userRepository.existsById(userId) ) {
+            newNote.setId(null);
+            newNote.setUserId(userId);
+            newNote.setNotesVersion(nextNotesVersion(userId));
 
-            userDb.getNotes().add(newNote);
+            Note savedNote = repository.save(newNote);
+            eventPublisher.publishEvent(NoteChangeEvent.saved(userId, List.of(savedNote)));
     
-            return Optional.of(userRepository.save(userDb));
+            return true;
         }
 
-        // Else, return an empty optional
-        return optionalUser;
+        // Else, the note is not saved
+        return false;
     }
 
-    // To update the information about the note
+    // To save many notes of a certain user in the db.
+    // The notes are inserted in JDBC batches and the persistence context is cleared after 
+    // each batch (and after the last one, even if it is not complete), so neither the user is
+    // loaded nor the memory grows with the number of notes: no note stays managed after the call.
+    // If the user doesn't exist then nothing is saved and an empty optional is returned.
     @Override
     @Transactional
-    public Optional<User> editNoteByUser(Long userId, Long noteId, Note editNote) {
+    public Optional<Integer> saveNotesByUser(Long userId, List<Note> newNotes) {
+
+        // Check if the user exists (without loading it)
+        if ( !userRepository.existsById(userId) ) {
+            return Optional.empty();
+        }
+
+        long notesVersion = nextNotesVersion(userId);
+        for (int i = 0; i < newNotes.size(); i++) {
+            Note newNote = newNotes.get(i);
+            newNote.setId(null);
+            newNote.setUserId(userId);
+            newNote.setNotesVersion(notesVersion);
+
+            entityManager.persist(newNote);
 
-        // Search for a specific user and specific note
-        Optional<User> optionalUser = userRepository.findById(userId);
-        Optional<Note> optionalNote = repository.findById(noteId);
+            // When a batch is complete then send it to the db
+            if ((i + 1) % BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        // Send the last batch and forget it
+        if (newNotes.size() % BATCH_SIZE != 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+
+        eventPublisher.publishEvent(NoteChangeEvent.saved(userId, newNotes));
+
+        return Optional.of(newNotes.size());
+    }
+
+    // To write all of the notes of a certain user as newline-delimited JSON.
+    // The notes are read from a stream and the persistence context is cleared
+    // periodically, so the memory used does not depend on the number of notes.
+    @Override
+    @Transactional(readOnly = true)
+    public void exportNotesByUser(Long userId, OutputStream outputStream) throws IOException {
 
-        // If the user and note are present then ...
-        if ( optionalUser.isPresent() && optionalNote.isPresent() ) {
-        
-            // Check if the note belongs to this user.
-            User userDb = optionalUser.get();
-            Optional<Note> optionalBelongingNote = userDb.getNotes().stream().filter(many -> many.getId().equals(noteId)).findFirst();
+        ObjectWriter writer = objectMapper.writerFor(Note.class);
 
-            // If this note is present it means the user is owner of note
-            if (optionalBelongingNote.isPresent()) {
-                // Update all of object attributes 
-                Note noteDb = optionalBelongingNote.get();
+        try (Stream<Note> notes = repository.streamByUserId(userId)) {
+            Iterator<Note> iterator = notes.iterator();
+            int count = 0;
 
-                noteDb.setContent(editNote.getContent());
+            while (iterator.hasNext()) {
+                outputStream.write(writer.writeValueAsBytes(iterator.next()));
+                outputStream.write('\n');
 
-                // and save the information in the db
-                return Optional.of(userRepository.save(userDb));
+                // Forget the notes already written and send them to the client
+                if (++count % EXPORT_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                    outputStream.flush();
+                }
             }
+        }
 
-            // Else, return an empty optional
-            return Optional.empty();
+        outputStream.flush();
+    }
+
+    // To update the information about the note.
+    // The note is updated with a single statement that also checks the owner and the version
+    // expected by the client (if any), so neither the user nor its notes are loaded.
+    // Only an updated note gets a new version of the notes of the user.
+    // If the note exists but it has other version then it was changed by other request.
+    @Override
+    @Transactional
+    public boolean editNoteByUser(Long userId, Long noteId, Note editNote, Long expectedVersion) {
+        boolean updated = repository.updateContentByIdAndUserId(noteId, userId, editNote.getContent(), Note.now(), expectedVersion) > 0;
+
+        if (updated) {
+            repository.updateNotesVersion(noteId, nextNotesVersion(userId));
+            eventPublisher.publishEvent(NoteChangeEvent.updated(userId, noteId, editNote.getContent()));
+        } else {
+            checkVersionConflict(userId, noteId, expectedVersion);
         }
-        
-        // Else, return an empty optional
-        return Optional.empty();
+
+        return updated;
     }
 
-    // To delete a certain note in the db
+    // To delete a certain note in the db only if it belongs to the user and it has the 
+    // version expected by the client (if any).
+    // A tombstone with a new version of the notes of the user is saved, so the clients
+    // that sync the notes know that the note was deleted
     @Override
     @Transactional
-    public Optional<User> deleteNoteByUser(Long userId, Long noteId) {
-
-        // Search for a specific user and specific note
-        Optional<User> optionalUser = userRepository.findById(userId);
-        Optional<Note> optionalNote = repository.findById(noteId);
-
-        // If the user and note are present then ...
-        if ( optionalUser.isPresent() && optionalNote.isPresent() ) {
-        
-            // Search for the note that will be deleted
-            User userDb = optionalUser.get();
-            Optional<Note> optionalBelongingNote = userDb.getNotes().stream().filter(many -> many.getId().equals(noteId)).findFirst();
-
-            // If this note is present it means the user is owner of note
-            if (optionalBelongingNote.isPresent()) {
-                // Delete the note
-                userDb.getNotes().remove(optionalBelongingNote.get());
-
-                // and save the information in the db
-                return Optional.of(userRepository.save(userDb));
-            }
+    public boolean deleteNoteByUser(Long userId, Long noteId, Long expectedVersion) {
+        boolean deleted = repository.deleteByIdAndUserId(noteId, userId, expectedVersion) > 0;
 
-            // Else, return an empty optional
-            return Optional.empty();
+        if (deleted) {
+            tombstoneRepository.save(new NoteTombstone(noteId, userId, Note.now(), nextNotesVersion(userId)));
+            eventPublisher.publishEvent(NoteChangeEvent.deleted(userId, noteId));
+        } else {
+            checkVersionConflict(userId, noteId, expectedVersion);
         }
-        
-        // Else, return an empty optional
-        return Optional.empty();
+
+        return deleted;
+    }
+
+    // To delete the changes of the notes before the settled version, only their ids are needed
+    // (to give the next versions and to know the settled version, so the settled one is kept)
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${notes.sync.cleanup-interval:1h}")
+    public int deleteSettledChanges() {
+        return changeRepository.getSettledVersion(settleTime.toSeconds())
+            .map(changeRepository::deleteBefore)
+            .orElse(0);
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // To know why a note was not changed: if the note of the user exists then the
+    // version expected by the client is old (else the note does not exist)
+    private void checkVersionConflict(Long userId, Long noteId, Long expectedVersion) {
+        if (expectedVersion != null && repository.existsByIdAndUserId(noteId, userId)) {
+            throw new NoteVersionConflictException(noteId);
+        }
+    }
+
+    // To get a new version of the notes of a user: the id of a new change (see 'NoteChange').
+    // The id is given by the auto increment of the db, which is not locked until the end of the
+    // transaction, so the changes of the notes of the same user (or of other users) don't wait
+    // for each other. The updates and the deletions only call it after their statement changed a note,
+    // so the change is inserted close to the commit (see 'settleTime').
+    private long nextNotesVersion(Long userId) {
+        return changeRepository.save(new NoteChange(userId)).getId();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package com.alejandro.gestordenotas.services;
+
+import com.alejandro.gestordenotas.entities.Note;
+
+
+public interface NoteVersionService {
+
+    // Declaration of methods to use in 'serviceImp' file
+
+    String getNotesEtag(Long userId, String after, int limit);
+
+    String getNoteEtag(Note note);
+
+    Long getExpectedVersion(Long noteId, String ifMatch);
+
+}
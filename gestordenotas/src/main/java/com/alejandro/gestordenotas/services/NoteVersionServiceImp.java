@@ -0,0 +1,73 @@
+package com.alejandro.gestordenotas.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.alejandro.gestordenotas.entities.Note;
+import com.alejandro.gestordenotas.repositories.NoteRepository;
+import com.alejandro.gestordenotas.repositories.NoteTombstoneRepository;
+import com.alejandro.gestordenotas.utils.UtilCursor;
+
+
+@Service
+public class NoteVersionServiceImp implements NoteVersionService {
+
+    // To read the last version of the notes of the users
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteTombstoneRepository tombstoneRepository;
+
+    // To get the etag of a page of the notes of a certain user from the last version of its notes
+    // (the last version saved in its notes or in its tombstones, see 'NoteChange'), so the etag is
+    // the same in all of the instances of the application and after a restart, and only changes
+    // when a note is saved, updated or deleted. Both versions are read with the index of the versions.
+    // The page is part of the etag (the id of the cursor and the size of the page, as they are used
+    // by the query), so the etag of a page never matches another page of the same notes.
+    // It must be read before the notes: if the notes change in between, the old etag
+    // is sent with the new notes and the next request only gets the same notes again.
+    @Override
+    @Transactional(readOnly = true)
+    public String getNotesEtag(Long userId, String after, int limit) {
+        long afterId = after == null ? 0L : UtilCursor.decodeId(after);
+        int pageSize = Math.max(1, Math.min(limit, NoteServiceImp.MAX_PAGE_SIZE));
+        long notesVersion = Math.max(noteRepository.getLastNotesVersion(userId), tombstoneRepository.getLastNotesVersion(userId));
+
+        return "\"" + notesVersion + "-" + afterId + "-" + pageSize + "\"";
+    }
+
+    // To get the etag of a note: its id and its version
+    @Override
+    public String getNoteEtag(Note note) {
+        return "\"" + note.getId() + "-" + note.getVersion() + "\"";
+    }
+
+    // To get the version of a note expected by the client from the value of the 'If-Match' header.
+    // It returns null if any version is valid (without the header or with '*') and -1 if none
+    // of the etags is an etag of the note (so the note is not changed).
+    // The weak etags are never valid, because the version must be exactly the same.
+    @Override
+    public Long getExpectedVersion(Long noteId, String ifMatch) {
+
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String prefix = "\"" + noteId + "-";
+        for (String etag : ifMatch.split(",")) {
+            etag = etag.trim();
+            if (etag.startsWith(prefix) && etag.endsWith("\"") && etag.length() > prefix.length() + 1) {
+                try {
+                    return Long.parseLong(etag.substring(prefix.length(), etag.length() - 1));
+                } catch (NumberFormatException e) {
+                    // It is not an etag of this service, check the next one
+                }
+            }
+        }
+
+        return -1L;
+    }
+
+}
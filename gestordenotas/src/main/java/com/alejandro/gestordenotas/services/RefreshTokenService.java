@@ -0,0 +1,19 @@
+package com.alejandro.gestordenotas.services;
+
+import com.alejandro.gestordenotas.dto.LoginResponseDto;
+
+public interface RefreshTokenService {
+
+    // Declaration of methods to use in 'serviceImp' file
+
+    // -----------------------------
+    // Methods for the refresh tokens
+    // -----------------------------
+
+    String create(Long userId);
+
+    LoginResponseDto refresh(String refreshToken);
+
+    int deleteExpired();
+
+}
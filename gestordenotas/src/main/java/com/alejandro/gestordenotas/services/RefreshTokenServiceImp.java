@@ -0,0 +1,136 @@
+package com.alejandro.gestordenotas.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.alejandro.gestordenotas.dto.LoginResponseDto;
+import com.alejandro.gestordenotas.entities.RefreshToken;
+import com.alejandro.gestordenotas.entities.Role;
+import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.exceptions.InvalidRefreshTokenException;
+import com.alejandro.gestordenotas.repositories.RefreshTokenRepository;
+import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.security.AccessTokenIssuer;
+import com.alejandro.gestordenotas.security.GrantedAuthorities;
+
+
+@Service
+public class RefreshTokenServiceImp implements RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // To inject the repository dependency.
+    @Autowired
+    private RefreshTokenRepository repository;
+
+    // To inject the repository dependency.
+    @Autowired
+    private UserRepository userRepository;
+
+    // To create the new access tokens
+    @Autowired
+    private AccessTokenIssuer accessTokenIssuer;
+
+    // The time that a refresh token can be used
+    @Value("${security.jwt.refresh-token.ttl:30d}")
+    private Duration ttl;
+
+    // -----------------------------
+    // Methods for the refresh tokens
+    // -----------------------------
+
+    // To create the first refresh token of a login (a new family)
+    @Override
+    @Transactional
+    public String create(Long userId) {
+        return create(userId, UUID.randomUUID().toString());
+    }
+
+    // To exchange a refresh token for a new access token and a new refresh token of the same family.
+    // The password is not checked again, so it only costs a lookup of the token and of the user.
+    // If a token is used twice (e.g. it was stolen) all of the tokens of its family are revoked,
+    // so the revocation must not be rolled back by the exception.
+    @Override
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public LoginResponseDto refresh(String refreshToken) {
+        RefreshToken token = repository.findByTokenHash(hash(refreshToken))
+            .orElseThrow(() -> new InvalidRefreshTokenException("El refresh token no existe!"));
+
+        Instant now = Instant.now();
+        if (token.isRevoked()) {
+            throw new InvalidRefreshTokenException("El refresh token fue revocado!");
+        }
+        if (!token.getExpiresAt().isAfter(now)) {
+            throw new InvalidRefreshTokenException("El refresh token expiro!");
+        }
+
+        // A token is used only once
+        if (repository.markUsed(token.getId(), now) == 0) {
+            repository.revokeFamily(token.getFamily());
+            throw new InvalidRefreshTokenException("El refresh token ya fue usado, la sesion fue cerrada!");
+        }
+
+        // The roles and the state are read again, so the changes of the user are in the new token
+        User user = userRepository.findById(token.getUserId())
+            .filter(User::isEnabled)
+            .orElse(null);
+        if (user == null) {
+            repository.revokeFamily(token.getFamily());
+            throw new InvalidRefreshTokenException("El usuario no existe o no tiene acceso a la aplicacion!");
+        }
+
+        List<String> roles = user.getRoles().stream().map(Role::getName).toList();
+
+        LoginResponseDto response = new LoginResponseDto();
+        response.setUsername(user.getUsername());
+        response.setToken(accessTokenIssuer.issue(user.getId(), user.getUsername(), user.getTokenEpoch(),
+            GrantedAuthorities.of(roles)));
+        response.setRefreshToken(create(user.getId(), token.getFamily()));
+        return response;
+    }
+
+    // To delete the tokens that expired
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${security.jwt.refresh-token.cleanup-interval:1h}")
+    public int deleteExpired() {
+        return repository.deleteExpired(Instant.now());
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // The token is random and only its hash is saved
+    private String create(Long userId, String family) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        repository.save(new RefreshToken(hash(refreshToken), userId, family, Instant.now().plus(ttl)));
+        return refreshToken;
+    }
+
+    // The tokens are random, so a hash without salt is enough to look for them
+    private String hash(String refreshToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
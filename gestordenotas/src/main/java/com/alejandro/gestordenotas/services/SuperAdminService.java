@@ -3,7 +3,11 @@ package com.alejandro.gestordenotas.services;
 import java.util.List;
 import java.util.Optional;
 
+import com.alejandro.gestordenotas.dto.PasswordHashingStatsDto;
 import com.alejandro.gestordenotas.dto.SuperAdminDto;
+import com.alejandro.gestordenotas.dto.UserFilterDto;
+import com.alejandro.gestordenotas.dto.UserPageDto;
+import com.alejandro.gestordenotas.dto.UserDetailsCacheStatsDto;
 import com.alejandro.gestordenotas.entities.User;
 
 
@@ -15,14 +19,16 @@ public interface SuperAdminService {
     // Methods for the super admin role
     // -----------------------------
     
-    List<SuperAdminDto> getAllUsersWithUserAndAdminRole();
+    UserPageDto<SuperAdminDto> getAllUsersWithUserAndAdminRole(UserFilterDto filter);
 
     Optional<SuperAdminDto> getUserWithUserAndAdminRole(Long id);
     
     Optional<User> addRemoveAdminRoleFromUser(Long id);
 
-    // Methods aux
+    int addRemoveAdminRoleFromUsers(List<Long> userIds, boolean admin);
 
-    boolean isSuperAdmin(Long id);
+    UserDetailsCacheStatsDto getUserDetailsCacheStats();
+
+    PasswordHashingStatsDto getPasswordHashingStats();
 
 }
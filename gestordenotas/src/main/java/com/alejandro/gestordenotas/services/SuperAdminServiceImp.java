@@ -4,37 +4,73 @@ package com.alejandro.gestordenotas.services;
 import java.util.List;
 import java.util.Optional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.alejandro.gestordenotas.dto.PasswordHashingStatsDto;
 import com.alejandro.gestordenotas.dto.SuperAdminDto;
+import com.alejandro.gestordenotas.dto.UserFilterDto;
+import com.alejandro.gestordenotas.dto.UserPageDto;
+import com.alejandro.gestordenotas.dto.UserDetailsCacheStatsDto;
 import com.alejandro.gestordenotas.entities.Role;
+import com.alejandro.gestordenotas.entities.RoleLevel;
 import com.alejandro.gestordenotas.entities.User;
-import com.alejandro.gestordenotas.repositories.RoleRepository;
+import com.alejandro.gestordenotas.events.UserChangeEvent;
+import com.alejandro.gestordenotas.events.UsersChangeEvent;
+import com.alejandro.gestordenotas.repositories.RoleRegistry;
 import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.repositories.UserSpecifications;
+import com.alejandro.gestordenotas.security.BoundedPasswordEncoder;
+import com.alejandro.gestordenotas.security.UserDetailsCache;
 
 
 @Service
 public class SuperAdminServiceImp implements SuperAdminService {
 
+    private static final Logger logger = LoggerFactory.getLogger(SuperAdminServiceImp.class);
+
     // To inject the repository dependency.
     @Autowired
     private UserRepository repository;
 
-    // To inject the repository dependency.
+    // To get the roles without reading the db
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    // To let other components know that the roles of a user changed
     @Autowired
-    private RoleRepository roleRepository;
+    private ApplicationEventPublisher eventPublisher;
+
+    // To know the counters of the cache of the users
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    // To know the state of the threads that hash the passwords
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
 
     // -----------------------------
     // Methods for the super admin role
     // -----------------------------
 
-    // To get all of the users with the role 'user' and 'admin'
+    // To get a page of the users with the role 'user' and 'admin' (with the filters and the order of the request).
+    // The filter of the admins is a condition of the level of the roles, so it uses the index of that column.
     @Override
     @Transactional(readOnly = true)
-    public List<SuperAdminDto> getAllUsersWithUserAndAdminRole() {
-        return repository.getAllUsersWithUserAndAdminRole();
+    public UserPageDto<SuperAdminDto> getAllUsersWithUserAndAdminRole(UserFilterDto filter) {
+        Specification<User> roles = filter.getAdmin() == null
+            ? UserSpecifications.hasRoleLevelBelow(RoleLevel.SUPER_ADMIN)
+            : UserSpecifications.hasRoleLevel(filter.getAdmin() ? RoleLevel.ADMIN : RoleLevel.USER);
+
+        return UserPages.find(repository, roles, filter,
+            user -> new SuperAdminDto(user.getId(), user.getUsername(), user.isEnabled(), user.isAdmin()));
     }
 
     // To get a specific user with the user role based on their user ID
@@ -44,7 +80,9 @@ public class SuperAdminServiceImp implements SuperAdminService {
         return repository.getUserWithUserAndAdminRole(id);
     }
 
-    // To convert a specific user into an admin user
+    // To convert a specific user into an admin user (or an admin into a user).
+    // The super admins are not changed: their level is checked in the row read from the db,
+    // so an empty optional is returned for them as for a user that doesn't exist.
     @Override
     @Transactional
     public Optional<User> addRemoveAdminRoleFromUser(Long id) {
@@ -52,21 +90,21 @@ public class SuperAdminServiceImp implements SuperAdminService {
         // Search for a specific user
         Optional<User> optionalUser = repository.findById(id);
 
-        if ( optionalUser.isPresent() ) {
+        if ( optionalUser.isPresent() && optionalUser.get().getRoleLevel() < RoleLevel.SUPER_ADMIN ) {
             
-            // Find the specific role
-            Optional<Role> optionalRole = roleRepository.findByName("ROLE_ADMIN");
+            // Get the specific role (the roles are read when the application starts)
+            Optional<Role> optionalRole = roleRegistry.findByName("ROLE_ADMIN");
             User userDb = optionalUser.get();
 
             // If the role is present then...
             if (optionalRole.isPresent()) {
 
-                boolean hasRole = userDb.getRoles().stream().filter(role -> "ROLE_ADMIN".equals(role.getName())).findFirst()
-                        .isPresent();
+                // The roles are compared by their ids (the role is a reference, its name is not read)
+                Long adminRoleId = optionalRole.get().getId();
+                boolean hasRole = userDb.getRoles().removeIf(role -> adminRoleId.equals(role.getId()));
 
                 if (hasRole) {
-                    // remove this role to this user and set with value false the attribute admin
-                    userDb.getRoles().remove(optionalRole.get());
+                    // the role was removed from this user, so set with value false the attribute admin
                     userDb.setAdmin(false);
                 } else {
                     // add this role to this user and set with value true the attribute admin
@@ -74,29 +112,75 @@ public class SuperAdminServiceImp implements SuperAdminService {
                     userDb.setAdmin(true);
                 }
 
+                // The level of the roles is a copy of the roles (it is used by the queries of the users)
+                userDb.setRoleLevel(roleRegistry.levelOf(userDb.getRoles()));
+
+                // The tokens with the previous roles are rejected
+                userDb.setTokenEpoch(userDb.getTokenEpoch() + 1);
+
+                eventPublisher.publishEvent(new UserChangeEvent(userDb.getId(), userDb.getUsername(), true));
                 return Optional.of(repository.save(userDb));
             }
 
             return Optional.empty();
         }
 
-        return optionalUser;
+        return Optional.empty();
     }
 
-    // Methods aux ----------------------------------
-
-    // To know if the user ID is the same as the super admin ID
+    // To add the admin role to (or remove it from) a chunk of users of a bulk change with set-based statements.
+    // Only the users with the user role get the admin role and only the admins (not the super admins) lose it.
     @Override
-    @Transactional(readOnly = true)
-    public boolean isSuperAdmin(Long id) {
+    @Transactional
+    public int addRemoveAdminRoleFromUsers(List<Long> userIds, boolean admin) {
+        Optional<Role> optionalRole = roleRegistry.findByName("ROLE_ADMIN");
+        if (optionalRole.isEmpty()) {
+            return 0;
+        }
 
-        boolean result = false;
+        // The users to change are locked before, so the event only has the ids of the changed users
+        List<Long> changedIds = repository.lockIdsWithRoleLevel(userIds, admin ? RoleLevel.USER : RoleLevel.ADMIN);
+        if (changedIds.isEmpty()) {
+            return 0;
+        }
 
-        if (id == repository.getIdOfSuperAdmin()) {
-            result = true;
+        // The roles are changed before the level, because the statements of the roles read the previous level
+        Long adminRoleId = optionalRole.get().getId();
+        int updated;
+        if (admin) {
+            repository.insertRole(changedIds, adminRoleId);
+            updated = repository.updateRoleLevel(changedIds, true, RoleLevel.ADMIN, RoleLevel.USER);
+        } else {
+            repository.deleteRole(changedIds, adminRoleId);
+            updated = repository.updateRoleLevel(changedIds, false, RoleLevel.USER, RoleLevel.ADMIN);
         }
 
-        return result;
+        eventPublisher.publishEvent(new UsersChangeEvent(changedIds, true));
+        return updated;
+    }
+
+    // To get the counters of the cache of the users used in the login
+    @Override
+    public UserDetailsCacheStatsDto getUserDetailsCacheStats() {
+        return userDetailsCache.getStats();
+    }
+
+    // To get the state of the threads and the queue of the passwords to hash
+    @Override
+    public PasswordHashingStatsDto getPasswordHashingStats() {
+        return passwordEncoder.getStats();
+    }
+
+    // To set the level of the roles of the users saved before the column 'role_level' existed.
+    // It is executed when the application starts and it only changes the users with an outdated level.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void syncRoleLevels() {
+        int admins = repository.raiseRoleLevel("ROLE_ADMIN", RoleLevel.ADMIN);
+        int superAdmins = repository.raiseRoleLevel("ROLE_SUPER_ADMIN", RoleLevel.SUPER_ADMIN);
+        if (admins + superAdmins > 0) {
+            logger.info("Role level of the users updated: {} admins and {} super admins", admins, superAdmins);
+        }
     }
 
 }
@@ -0,0 +1,15 @@
+package com.alejandro.gestordenotas.services;
+
+import com.alejandro.gestordenotas.dto.UserBulkDto;
+import com.alejandro.gestordenotas.dto.UserBulkResultDto;
+
+
+public interface UserBulkService {
+
+    // Declaration of methods to use in 'serviceImp' file
+
+    UserBulkResultDto disableEnableUsers(UserBulkDto bulk, boolean enabled, int maxRoleLevel);
+
+    UserBulkResultDto addRemoveAdminRoleFromUsers(UserBulkDto bulk, boolean admin);
+
+}
@@ -0,0 +1,160 @@
+package com.alejandro.gestordenotas.services;
+
+import static com.alejandro.gestordenotas.repositories.UserSpecifications.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import com.alejandro.gestordenotas.dto.UserBulkDto;
+import com.alejandro.gestordenotas.dto.UserBulkResultDto;
+import com.alejandro.gestordenotas.entities.RoleLevel;
+import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.repositories.UserRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+
+
+@Service
+public class UserBulkServiceImp implements UserBulkService {
+
+    // Number of users changed in each transaction (the ids of a chunk are the list of the statements)
+    public static final int CHUNK_SIZE = 500;
+
+    // To change each chunk of users in its own transaction
+    @Autowired
+    private AdminService adminService;
+
+    // To change each chunk of users in its own transaction
+    @Autowired
+    private SuperAdminService superAdminService;
+
+    // To count the guarded users of each chunk
+    @Autowired
+    private UserRepository repository;
+
+    // To read only the ids of the users of the filters
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // To enable or disable the users of a list or of the filters whose level of roles is not higher than a level
+    // (the level of the user role for the admins and the level of the admin role for the super admin).
+    @Override
+    public UserBulkResultDto disableEnableUsers(UserBulkDto bulk, boolean enabled, int maxRoleLevel) {
+        Specification<User> roles = hasRoleLevelBelow(maxRoleLevel + 1);
+
+        return change(bulk, maxRoleLevel, roles, chunk -> adminService.disableEnableUsers(chunk, enabled, maxRoleLevel));
+    }
+
+    // To add the admin role to the users with the user role (or to remove it from the admins)
+    // of a list or of the filters. The super admins are never changed.
+    @Override
+    public UserBulkResultDto addRemoveAdminRoleFromUsers(UserBulkDto bulk, boolean admin) {
+        Specification<User> roles = hasRoleLevel(admin ? RoleLevel.USER : RoleLevel.ADMIN);
+
+        return change(bulk, RoleLevel.ADMIN, roles,
+            chunk -> superAdminService.addRemoveAdminRoleFromUsers(chunk, admin));
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // To change the users in chunks, each chunk with its own transaction, so a change of many users
+    // neither locks all of them at once nor keeps them in memory.
+    // - With a list, the repeated ids are removed and the users of each chunk above 'maxRoleLevel' are counted
+    //   as guarded with one query (the statements don't change them, their conditions check the level of the roles).
+    // - With the filters, the ids are read chunk by chunk (after the last id of the previous chunk),
+    //   the filters have the condition of the roles so no user is guarded.
+    private UserBulkResultDto change(UserBulkDto bulk, int maxRoleLevel, Specification<User> roles,
+            ToIntFunction<List<Long>> changeChunk) {
+
+        long start = System.nanoTime();
+        UserBulkResultDto result = new UserBulkResultDto();
+
+        if (bulk.hasIds()) {
+            TreeSet<Long> ids = new TreeSet<>(bulk.getIds());
+            result.setRequested(ids.size());
+
+            List<Long> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (Long id : ids) {
+                chunk.add(id);
+                if (chunk.size() == CHUNK_SIZE) {
+                    changeGuardedChunk(result, chunk, maxRoleLevel, changeChunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            changeGuardedChunk(result, chunk, maxRoleLevel, changeChunk);
+        } else {
+            Specification<User> filters = roles
+                .and(isAdmin(bulk.getAdmin()))
+                .and(isEnabled(bulk.getEnabled()))
+                .and(usernameStartsWith(bulk.getUsername()));
+
+            List<Long> chunk = findIds(filters, CHUNK_SIZE);
+            while (!chunk.isEmpty()) {
+                result.setRequested(result.getRequested() + chunk.size());
+                changeChunk(result, chunk, changeChunk);
+
+                if (chunk.size() < CHUNK_SIZE) {
+                    break;
+                }
+                chunk = findIds(filters.and(idAfter(chunk.get(chunk.size() - 1))), CHUNK_SIZE);
+            }
+        }
+
+        result.setUnchanged(result.getRequested() - result.getGuarded() - result.getUpdated());
+        result.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    // To filter the admins (or the users without the admin role) by the level of their roles
+    private static Specification<User> isAdmin(Boolean admin) {
+        if (admin == null) {
+            return null;
+        }
+        return admin ? hasRoleLevel(RoleLevel.ADMIN) : hasRoleLevel(RoleLevel.USER);
+    }
+
+    // To count the guarded users of a chunk of a list and change the chunk (a chunk of guarded users is not sent)
+    private void changeGuardedChunk(UserBulkResultDto result, List<Long> chunk, int maxRoleLevel,
+            ToIntFunction<List<Long>> changeChunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        long guarded = repository.countIdsWithRoleLevelAbove(chunk, maxRoleLevel);
+        result.setGuarded(result.getGuarded() + guarded);
+        if (guarded < chunk.size()) {
+            changeChunk(result, chunk, changeChunk);
+        }
+    }
+
+    private static void changeChunk(UserBulkResultDto result, List<Long> chunk, ToIntFunction<List<Long>> changeChunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        result.setUpdated(result.getUpdated() + changeChunk.applyAsInt(chunk));
+        result.setChunks(result.getChunks() + 1);
+    }
+
+    // To get the ids (and only the ids) of the first users of the filters, ordered by id
+    private List<Long> findIds(Specification<User> filters, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+
+        query.select(root.get("id"))
+            .where(filters.toPredicate(root, query, cb))
+            .orderBy(cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query).setMaxResults(size).getResultList();
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.alejandro.gestordenotas.services;
+
+import static com.alejandro.gestordenotas.repositories.UserSpecifications.*;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.alejandro.gestordenotas.dto.UserDto;
+import com.alejandro.gestordenotas.dto.UserFilterDto;
+import com.alejandro.gestordenotas.dto.UserPageDto;
+import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.utils.UtilCursor;
+
+// To get the pages of the lists of users of the admins and the super admins
+final class UserPages {
+
+    // The max number of users of a page
+    static final int MAX_PAGE_SIZE = 100;
+
+    private UserPages() {
+    }
+
+    // To get the page of the users of some roles with the filters, the order and the cursor of the request.
+    // The page starts after the user referenced by the cursor, so the cost of
+    // a page does not depend on the number of the previous pages.
+    static <T extends UserDto> UserPageDto<T> find(UserRepository repository, Specification<User> roles,
+            UserFilterDto filter, Function<User, T> mapper) {
+
+        int pageSize = Math.max(1, Math.min(filter.getLimit(), MAX_PAGE_SIZE));
+        boolean byUsername = "username".equals(filter.getSort());
+
+        Specification<User> specification = roles
+            .and(isEnabled(filter.getEnabled()))
+            .and(usernameStartsWith(filter.getUsername()));
+        if (filter.getAfter() != null) {
+            specification = specification.and(byUsername
+                ? usernameAfter(UtilCursor.decode(filter.getAfter()))
+                : idAfter(UtilCursor.decodeId(filter.getAfter())));
+        }
+
+        // Ask for one more user than the page size to know if there is a next page
+        List<User> users = repository.findPage(specification, byUsername ? "username" : "id", pageSize + 1);
+
+        // If there are more users then remove the extra user and create the cursor of the next page
+        String nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            User last = users.get(pageSize - 1);
+            nextCursor = byUsername ? UtilCursor.encode(last.getUsername()) : UtilCursor.encodeId(last.getId());
+        }
+
+        return new UserPageDto<>(users.stream().map(mapper).toList(), nextCursor);
+    }
+
+}
@@ -8,13 +8,20 @@ import java.util.Set;
 import org.springframework.stereotype.Service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.alejandro.gestordenotas.entities.Role;
 import com.alejandro.gestordenotas.entities.User;
-import com.alejandro.gestordenotas.repositories.RoleRepository;
+import com.alejandro.gestordenotas.events.NoteChangeEvent;
+import com.alejandro.gestordenotas.events.UserChangeEvent;
+import com.alejandro.gestordenotas.repositories.NoteTombstoneRepository;
+import com.alejandro.gestordenotas.repositories.RefreshTokenRepository;
+import com.alejandro.gestordenotas.repositories.RoleRegistry;
 import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.security.AuthenticatedUser;
 
 @Service
 public class UserServiceImp implements UserService {
@@ -23,9 +30,21 @@ public class UserServiceImp implements UserService {
     @Autowired
     private UserRepository repository;
 
+    // To get the roles without reading the db
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    // To inject the repository dependency.
+    @Autowired
+    private NoteTombstoneRepository tombstoneRepository;
+
     // To inject the repository dependency.
     @Autowired
-    private RoleRepository roleRepository;
+    private RefreshTokenRepository refreshTokenRepository;
+
+    // To let other components know that a user or the notes of a user changed
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     // To be able to encrypt passwords
     @Autowired
@@ -47,25 +66,26 @@ public class UserServiceImp implements UserService {
     @Override
     @Transactional
     public User save(User user) {
-        // Search for the rol called 'role_user' in the table 'role'
+        // Get the rol called 'role_user' of the table 'role' (the roles are read when the application starts)
         // (All of the users register must have at least this role) *******
         Set<Role> roles = new HashSet<>();
-        Optional<Role> optionalRoleUser = roleRepository.findByName("ROLE_USER");
+        Optional<Role> optionalRoleUser = roleRegistry.findByName("ROLE_USER");
 
         // If this role is present then add the role to list of roles
         optionalRoleUser.ifPresent(roles::add);
 
         // But only if the new user must be admin then add this role to list of roles
         if (user.isAdmin()) {
-            Optional<Role> optionalRoleAdmin = roleRepository.findByName("ROLE_ADMIN");
+            Optional<Role> optionalRoleAdmin = roleRegistry.findByName("ROLE_ADMIN");
             optionalRoleAdmin.ifPresent(roles::add);
         }
 
-        // Add all of the roles to new user
+        // Add all of the roles to new user (and the level of its roles)
         user.setRoles(roles);
+        user.setRoleLevel(roleRegistry.levelOf(roles));
         // Encrypt the password of the user and save the user in the db
+        // (no event is published: a new user is not in any cache yet)
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-
         return repository.save(user);
     }
 
@@ -81,9 +101,17 @@ public class UserServiceImp implements UserService {
             // update that record and return an optional value
             User userDb = optionalUser.get();
 
+            // The user is forgotten with its previous username
+            eventPublisher.publishEvent(new UserChangeEvent(id, userDb.getUsername(), true));
+
             userDb.setUsername(user.getUsername());
             userDb.setPassword(passwordEncoder.encode(user.getPassword()));
 
+            // The sessions opened with the previous credentials are closed
+            // (its refresh tokens are revoked and its access tokens are rejected)
+            refreshTokenRepository.revokeByUserId(id);
+            userDb.setTokenEpoch(userDb.getTokenEpoch() + 1);
+
             return Optional.of(repository.save(userDb));
         }
 
@@ -97,9 +125,13 @@ public class UserServiceImp implements UserService {
         // Search for a specific user
         Optional<User> optionalUser = repository.findById(id);
 
-        // If the user is present then delete that user
+        // If the user is present then delete that user (and the tombstones of its notes and its refresh tokens)
         optionalUser.ifPresent(userDb -> {
+            tombstoneRepository.deleteByUserId(id);
+            refreshTokenRepository.deleteByUserId(id);
             repository.deleteById(id);
+            eventPublisher.publishEvent(NoteChangeEvent.userDeleted(id));
+            eventPublisher.publishEvent(new UserChangeEvent(id, userDb.getUsername(), true));
         });
 
         return optionalUser;
@@ -111,6 +143,12 @@ public class UserServiceImp implements UserService {
     @Override
     @Transactional(readOnly = true)
     public boolean isOwner(Long id, Principal principal) {
+        // The id of the authenticated user is in its token, so the db is not read
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getId().equals(id);
+        }
+
         boolean result = false;
 
         // Get the username of the authenticated user
@@ -0,0 +1,72 @@
+package com.alejandro.gestordenotas.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.alejandro.gestordenotas.exceptions.InvalidCursorException;
+
+// This class is used to create the opaque cursors of the paginated endpoints
+public final class UtilCursor {
+
+    private UtilCursor() {
+    }
+
+    // To encode the last seen key of a page into an opaque value
+    public static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // To get the last seen key of a page from the cursor sent by the client
+    public static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    // To encode a cursor whose key is an id
+    public static String encodeId(Long id) {
+        return encode(String.valueOf(id));
+    }
+
+    // To decode a cursor whose key is an id
+    public static Long decodeId(String cursor) {
+        try {
+            return Long.valueOf(decode(cursor));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    // To encode a cursor whose key has many numeric parts
+    public static String encodeKeys(long... keys) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                value.append(':');
+            }
+            value.append(keys[i]);
+        }
+        return encode(value.toString());
+    }
+
+    // To decode a cursor whose key has a certain number of numeric parts
+    public static long[] decodeKeys(String cursor, int count) {
+        String[] parts = decode(cursor).split(":");
+        if (parts.length != count) {
+            throw new InvalidCursorException(cursor);
+        }
+
+        try {
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = Long.parseLong(parts[i]);
+            }
+            return keys;
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+}
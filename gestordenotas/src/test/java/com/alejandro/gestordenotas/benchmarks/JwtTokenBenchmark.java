@@ -0,0 +1,111 @@
+package com.alejandro.gestordenotas.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import com.alejandro.gestordenotas.security.AccessTokenIssuer;
+import com.alejandro.gestordenotas.security.RoleBits;
+import com.alejandro.gestordenotas.security.SigningKeyRing;
+import com.alejandro.gestordenotas.security.TokenJwtConfig;
+import com.alejandro.gestordenotas.security.TokenRevocations;
+import com.alejandro.gestordenotas.security.VerifiedTokenCache;
+import com.alejandro.gestordenotas.security.filter.JwtAuthenticationFilter;
+import com.alejandro.gestordenotas.security.filter.JwtValidationFilter;
+import com.alejandro.gestordenotas.utils.JwtTokenUtil;
+
+// Benchmark of the authentication filters: the creation of a token in the login
+// and the validation of a token in a request (without the cache of the verified tokens).
+// The password is not checked (that is the cost of BCrypt and it is measured apart),
+// so the numbers are the cost of the filters: reading the body, the claims, the signature and the response.
+// To run it: mvn test-compile and then run the main method with the test classpath.
+// Use '-prof gc' to also know the allocated bytes of each operation.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtTokenBenchmark {
+
+    private static final byte[] LOGIN_BODY = "{\"username\":\"rayas\",\"password\":\"rayas123\"}"
+        .getBytes(StandardCharsets.UTF_8);
+
+    private JwtAuthenticationFilter authenticationFilter;
+
+    private JwtValidationFilter validationFilter;
+
+    private String header;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // The credentials are always correct
+        Authentication authenticated = new UsernamePasswordAuthenticationToken(
+            new User("rayas", "", List.of(new SimpleGrantedAuthority("ROLE_USER"))), null,
+            List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        // The principal doesn't have an id, so a refresh token is not saved (that is a lookup in the db)
+        JwtTokenUtil jwtTokenUtil = new JwtTokenUtil();
+        SigningKeyRing keyRing = jwtTokenUtil.getKeyRing();
+        RoleBits roleBits = jwtTokenUtil.getRoleBits();
+        authenticationFilter = new JwtAuthenticationFilter(authentication -> authenticated,
+            new AccessTokenIssuer(keyRing, roleBits), null);
+        validationFilter = new JwtValidationFilter(authentication -> authentication, new VerifiedTokenCache(0), keyRing, roleBits,
+            new TokenRevocations(null));
+
+        header = issueToken().getHeader(TokenJwtConfig.HEADER_AUTHORIZATION);
+    }
+
+    // To measure a login: the credentials are read and a new token is created and written in the response
+    @Benchmark
+    public MockHttpServletResponse issueToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users/login");
+        request.setServletPath("/api/users/login");
+        request.setContent(LOGIN_BODY);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        authenticationFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    // To measure a request with a token: its signature is verified and its claims are read
+    @Benchmark
+    public Object validateToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/5/notes");
+        request.addHeader(TokenJwtConfig.HEADER_AUTHORIZATION, header);
+
+        validationFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtTokenBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.alejandro.gestordenotas.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.alejandro.gestordenotas.data.UserData;
+import com.alejandro.gestordenotas.security.TokenJwtConfig;
+import com.alejandro.gestordenotas.security.TokenRevocations;
+import com.alejandro.gestordenotas.security.VerifiedTokenCache;
+import com.alejandro.gestordenotas.security.filter.JwtValidationFilter;
+import com.alejandro.gestordenotas.utils.JwtTokenUtil;
+
+// Benchmark of the validation of the token of a request: with the cache of the verified tokens
+// and without it (a size of 0, each request verifies the signature and reads the claims).
+// To run it: mvn test-compile and then run the main method with the test classpath.
+// Use '-prof gc' to also know the allocated bytes of each request.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtValidationFilterBenchmark {
+
+    @Param({ "0", "10000" })
+    private int cacheSize;
+
+    private JwtValidationFilter filter;
+
+    private MockHttpServletRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JwtTokenUtil jwtTokenUtil = new JwtTokenUtil();
+        filter = new JwtValidationFilter(authentication -> authentication, new VerifiedTokenCache(cacheSize),
+            jwtTokenUtil.getKeyRing(), jwtTokenUtil.getRoleBits(), new TokenRevocations(null));
+
+        request = new MockHttpServletRequest("GET", "/api/users/5/notes");
+        request.addHeader(TokenJwtConfig.HEADER_AUTHORIZATION,
+            TokenJwtConfig.PREFIX_TOKEN + jwtTokenUtil.createToken(UserData.createUser005()));
+    }
+
+    // To measure the filter with the same token of a client in many requests
+    @Benchmark
+    public Object validateToken() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtValidationFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
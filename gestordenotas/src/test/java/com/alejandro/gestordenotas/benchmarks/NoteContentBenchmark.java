@@ -0,0 +1,132 @@
+package com.alejandro.gestordenotas.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.alejandro.gestordenotas.entities.NoteContentConverter;
+
+// Benchmark of the storage of the content of the notes: the time to convert a content to 
+// the value saved in the db and back, compressed and without compression (the plain values 
+// are the cost without the compression). The size saved of each content is printed at the start.
+// To run it: mvn test-compile and then run the main method with the test classpath.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NoteContentBenchmark {
+
+    // Words of the generated text, the first ones are more frequent (like in a real text)
+    private static final String[] WORDS = ("de la que el en y a los se del las un por con no una su para es al lo como "
+        + "más pero sus le ya o este sí porque esta entre cuando muy sin sobre también me hasta hay donde quien "
+        + "desde todo nos durante todos uno les ni contra otros ese eso ante ellos e esto mí antes algunos qué "
+        + "proyecto reunión equipo cliente tarea revisar enviar correo informe presupuesto semana lunes martes "
+        + "fecha entrega versión cambios documento pendiente llamar confirmar proveedor factura pago pedido "
+        + "servidor base datos error prueba usuario acceso contraseña configuración despliegue producción "
+        + "objetivo resultado análisis propuesta mejora problema solución riesgo plan calendario responsable "
+        + "comprar leche pan huevos fruta verduras receta horno minutos azúcar harina mantequilla sal "
+        + "viaje hotel vuelo maleta pasaporte reserva museo playa montaña tren estación mapa ciudad").split(" ");
+
+    @Param({ "512", "4096", "65536", "1048576" })
+    private int size;
+
+    private String content;
+
+    private byte[] compressed;
+
+    private byte[] plain;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        content = text(size, new Random(42));
+        compressed = NoteContentConverter.encode(content, NoteContentConverter.DEFAULT_THRESHOLD);
+        plain = NoteContentConverter.encode(content, Integer.MAX_VALUE);
+
+        int bytes = content.getBytes(StandardCharsets.UTF_8).length;
+        System.out.printf("%n%d bytes of text -> %d bytes saved (%.1f%%)%n", bytes, compressed.length,
+            100.0 * compressed.length / bytes);
+    }
+
+    // To measure the conversion of a content to the value saved (with the default threshold)
+    @Benchmark
+    public byte[] write() {
+        return NoteContentConverter.encode(content, NoteContentConverter.DEFAULT_THRESHOLD);
+    }
+
+    // To measure the conversion of a content to the value saved without compression
+    @Benchmark
+    public byte[] writePlain() {
+        return NoteContentConverter.encode(content, Integer.MAX_VALUE);
+    }
+
+    // To measure the conversion of a saved value (with the default threshold) to the content
+    @Benchmark
+    public String read() {
+        return NoteContentConverter.decode(compressed);
+    }
+
+    // To measure the conversion of a saved value without compression to the content
+    @Benchmark
+    public String readPlain() {
+        return NoteContentConverter.decode(plain);
+    }
+
+    // To generate a text with sentences, paragraphs and lists like the notes of the users
+    private static String text(int size, Random random) {
+        StringBuilder text = new StringBuilder(size + 100);
+
+        while (text.length() < size) {
+            int sentences = 2 + random.nextInt(5);
+            boolean list = random.nextInt(4) == 0;
+
+            for (int s = 0; s < sentences; s++) {
+                if (list) {
+                    text.append("- ");
+                }
+
+                int words = 4 + random.nextInt(14);
+                for (int w = 0; w < words; w++) {
+                    // Skewed choice of the words: the lower indexes are chosen more often
+                    String word = WORDS[(int) (WORDS.length * Math.pow(random.nextDouble(), 3))];
+                    if (w == 0) {
+                        word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                    }
+                    text.append(word);
+                    if (random.nextInt(12) == 0) {
+                        text.append(' ').append(1 + random.nextInt(2030));
+                    }
+                    text.append(w == words - 1 ? "" : random.nextInt(10) == 0 ? ", " : " ");
+                }
+
+                text.append(list ? ".\n" : ". ");
+            }
+
+            text.append("\n\n");
+        }
+
+        return text.substring(0, size);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NoteContentBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
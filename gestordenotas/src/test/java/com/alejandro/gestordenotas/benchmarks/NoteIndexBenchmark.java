@@ -0,0 +1,100 @@
+package com.alejandro.gestordenotas.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.alejandro.gestordenotas.search.NoteIndex;
+
+// Benchmark of the search index of the notes: the time to build the index of a user
+// and the time of a query over that index.
+// To run it: mvn test-compile and then run the main method with the test classpath.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NoteIndexBenchmark {
+
+    // Words of the generated notes, the first ones are more frequent (like in a real text)
+    private static final String[] WORDS = ("comprar leche pan reunion equipo llamar medico cancion tarea proyecto "
+        + "revisar correo cliente factura viaje hotel vuelo regalo cumpleanos receta pastel libro pelicula "
+        + "gimnasio rutina banco pago tarjeta coche taller cita dentista escuela examen notas idea blog").split(" ");
+
+    @Param({ "100000", "1000000" })
+    private int notes;
+
+    private String[] contents;
+
+    private NoteIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        contents = new String[notes];
+
+        for (int i = 0; i < notes; i++) {
+            StringBuilder content = new StringBuilder();
+            int length = 5 + random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                // Skewed choice of the words: the lower indexes are chosen more often
+                int word = (int) (WORDS.length * Math.pow(random.nextDouble(), 2));
+                content.append(WORDS[word]).append(' ');
+            }
+            contents[i] = content.toString();
+        }
+
+        index = build();
+    }
+
+    // To measure the time to read all of the notes of a user into a new index
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public NoteIndex buildIndex() {
+        return build();
+    }
+
+    // To measure a query with a common term and a rare term
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object searchCommonAndRareTerms() {
+        return index.search("leche blog", 20);
+    }
+
+    // To measure a query with only rare terms
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object searchRareTerms() {
+        return index.search("dentista examen", 20);
+    }
+
+    private NoteIndex build() {
+        NoteIndex newIndex = new NoteIndex();
+        for (int i = 0; i < contents.length; i++) {
+            newIndex.put(i + 1, contents[i]);
+        }
+        return newIndex;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NoteIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.alejandro.gestordenotas.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Benchmark of the queries of the users of a role: the previous queries (a 'NOT IN' subquery with the join
+// of the roles and 'DISTINCT') against the queries of the column 'role_level' and its index.
+// The sql is the sql generated by hibernate for the queries of 'UserRepository'. The tables are in H2 with
+// 1% of admins and one super admin, and the plans of the queries are printed before the measurements.
+// To run it: mvn test-compile and then run the main method with the test classpath.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserRoleQueryBenchmark {
+
+    private static final String OLD_USERS_WITH_USER_ROLE = """
+        SELECT DISTINCT u.id_user, u.username, u.enabled FROM tbl_user u
+        WHERE u.id_user NOT IN (SELECT DISTINCT u2.id_user FROM tbl_user u2
+            JOIN users_roles ur ON u2.id_user = ur.id_user WHERE ur.id_role = 2 OR ur.id_role = 3)
+        """;
+
+    private static final String NEW_USERS_WITH_USER_ROLE = """
+        SELECT u.id_user, u.username, u.enabled FROM tbl_user u WHERE u.role_level = 0 ORDER BY u.id_user
+        """;
+
+    private static final String OLD_PRIVILEGED_IDS = """
+        SELECT u.id_user FROM tbl_user u
+        WHERE u.id_user IN (SELECT DISTINCT u2.id_user FROM tbl_user u2
+            JOIN users_roles ur ON u2.id_user = ur.id_user WHERE ur.id_role = 2 OR ur.id_role = 3)
+        """;
+
+    private static final String NEW_PRIVILEGED_IDS = """
+        SELECT u.id_user FROM tbl_user u WHERE u.role_level > 0 ORDER BY u.id_user
+        """;
+
+    private static final String OLD_USER_WITH_USER_ROLE = """
+        SELECT DISTINCT u.id_user, u.username, u.enabled FROM tbl_user u
+        WHERE u.id_user NOT IN (SELECT DISTINCT u2.id_user FROM tbl_user u2
+            JOIN users_roles ur ON u2.id_user = ur.id_user WHERE ur.id_role = 2 OR ur.id_role = 3)
+        AND u.id_user = ?
+        """;
+
+    private static final String NEW_USER_WITH_USER_ROLE = """
+        SELECT u.id_user, u.username, u.enabled FROM tbl_user u WHERE u.id_user = ? AND u.role_level = 0
+        """;
+
+    @Param({ "1000000" })
+    private int users;
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:users" + users + ";DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0");
+
+        try (Statement statement = connection.createStatement()) {
+            // The tables and indexes created by hibernate
+            statement.execute("""
+                CREATE TABLE role (id_role BIGINT PRIMARY KEY, name VARCHAR(255))
+                """);
+            statement.execute("""
+                CREATE TABLE tbl_user (id_user BIGINT PRIMARY KEY, username VARCHAR(255) UNIQUE, password VARCHAR(255),
+                    admin BOOLEAN NOT NULL, enabled BOOLEAN NOT NULL, role_level INTEGER DEFAULT 0 NOT NULL,
+                    token_epoch BIGINT DEFAULT 0 NOT NULL)
+                """);
+            statement.execute("CREATE INDEX idx_user_role_level ON tbl_user (role_level, id_user)");
+            statement.execute("""
+                CREATE TABLE users_roles (id_user BIGINT NOT NULL REFERENCES tbl_user, id_role BIGINT NOT NULL REFERENCES role,
+                    PRIMARY KEY (id_user, id_role))
+                """);
+
+            statement.execute("INSERT INTO role VALUES (1, 'ROLE_USER'), (2, 'ROLE_ADMIN'), (3, 'ROLE_SUPER_ADMIN')");
+            statement.execute("""
+                INSERT INTO tbl_user (id_user, username, password, admin, enabled, role_level)
+                SELECT X, 'user' || X, 'password', MOD(X, 100) = 0, TRUE,
+                    CASE WHEN X = 1 THEN 2 WHEN MOD(X, 100) = 0 THEN 1 ELSE 0 END
+                FROM SYSTEM_RANGE(1, %d)
+                """.formatted(users));
+            statement.execute("INSERT INTO users_roles SELECT X, 1 FROM SYSTEM_RANGE(1, %d)".formatted(users));
+            statement.execute("""
+                INSERT INTO users_roles SELECT X, 2 FROM SYSTEM_RANGE(1, %d) WHERE X = 1 OR MOD(X, 100) = 0
+                """.formatted(users));
+            statement.execute("INSERT INTO users_roles VALUES (1, 3)");
+            statement.execute("ANALYZE");
+
+            printPlan(statement, "old users with user role", OLD_USERS_WITH_USER_ROLE);
+            printPlan(statement, "new users with user role", NEW_USERS_WITH_USER_ROLE);
+            printPlan(statement, "old privileged ids", OLD_PRIVILEGED_IDS);
+            printPlan(statement, "new privileged ids", NEW_PRIVILEGED_IDS);
+            printPlan(statement, "old user with user role", OLD_USER_WITH_USER_ROLE.replace("?", "500"));
+            printPlan(statement, "new user with user role", NEW_USER_WITH_USER_ROLE.replace("?", "500"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    // To measure the list of the users that are not admins (the list of the admins)
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int oldUsersWithUserRole() throws SQLException {
+        return count(OLD_USERS_WITH_USER_ROLE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int newUsersWithUserRole() throws SQLException {
+        return count(NEW_USERS_WITH_USER_ROLE);
+    }
+
+    // To measure the ids of the admins and super admins (the check before an admin disables a user)
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int oldPrivilegedIds() throws SQLException {
+        return count(OLD_PRIVILEGED_IDS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int newPrivilegedIds() throws SQLException {
+        return count(NEW_PRIVILEGED_IDS);
+    }
+
+    // To measure a user that is not an admin, by its id
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int oldUserWithUserRole() throws SQLException {
+        return count(OLD_USER_WITH_USER_ROLE, 500);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int newUserWithUserRole() throws SQLException {
+        return count(NEW_USER_WITH_USER_ROLE, 500);
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    private int count(String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            int rows = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows++;
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static void printPlan(Statement statement, String name, String sql) throws SQLException {
+        try (ResultSet plan = statement.executeQuery("EXPLAIN " + sql)) {
+            plan.next();
+            System.out.println("Plan of the " + name + ":\n" + plan.getString(1) + "\n");
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UserRoleQueryBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -9,6 +9,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -27,9 +28,15 @@ import com.alejandro.gestordenotas.TestConfig;
 import com.alejandro.gestordenotas.data.CustomCondition;
 import com.alejandro.gestordenotas.data.UserData;
 import com.alejandro.gestordenotas.dto.AdminDto;
+import com.alejandro.gestordenotas.dto.UserBulkDto;
+import com.alejandro.gestordenotas.dto.UserBulkResultDto;
 import com.alejandro.gestordenotas.dto.UserDto;
+import com.alejandro.gestordenotas.dto.UserFilterDto;
+import com.alejandro.gestordenotas.dto.UserPageDto;
+import com.alejandro.gestordenotas.entities.RoleLevel;
 import com.alejandro.gestordenotas.entities.User;
 import com.alejandro.gestordenotas.services.AdminService;
+import com.alejandro.gestordenotas.services.UserBulkService;
 import com.alejandro.gestordenotas.services.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -51,10 +58,49 @@ class AdminControllerTest {
     @MockitoBean
     private AdminService service; 
 
+    // To inject the dependency that represents the service to mock
+    @MockitoBean
+    private UserBulkService bulkService; 
+
     @Autowired
     private ObjectMapper objectMapper;
 
     
+    // To test the 'getAllUsersWithUserRole' endpoint: the query parameters are the filters and the page
+    @Test
+    void getAllUsersWithUserRoleTest() throws Exception {
+
+        // Given
+        AdminDto adminDto = new AdminDto(UserData.createUser005().getId(), UserData.createUser005().getUsername(), true);
+        when(service.getAllUsersWithUserRole(any(UserFilterDto.class))).thenReturn(new UserPageDto<>(List.of(adminDto), "cursor"));
+
+        // When
+        mockMvc.perform(get("/api/admins/users?enabled=true&username=ra&sort=username&limit=1&after=abc"))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.users[0].id").value(5L))
+            .andExpect(jsonPath("$.users[0].username").value("rayas"))
+            .andExpect(jsonPath("$.nextCursor").value("cursor"));
+
+        verify(service).getAllUsersWithUserRole(argThat(filter -> filter.getEnabled() && "ra".equals(filter.getUsername())
+            && "username".equals(filter.getSort()) && filter.getLimit() == 1 && "abc".equals(filter.getAfter())));
+    }
+
+    // To test the 'getAllUsersWithUserRole' endpoint with an order that doesn't exist
+    @Test
+    void getAllUsersWithUserRoleInvalidSortTest() throws Exception {
+
+        // When
+        mockMvc.perform(get("/api/admins/users?sort=password"))
+
+        // Then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.sort").exists());
+
+        verify(service, never()).getAllUsersWithUserRole(any(UserFilterDto.class));
+    }
+
     // To test the 'getUserWithUserRole' endpoint with an existing user ID
     @Test
     void getUserWithUserRoleExistingIdTest() throws Exception {
@@ -167,8 +213,7 @@ class AdminControllerTest {
 
         // Given
         Long idToSearch = 6L;
-        when(service.getAllIdsWithAdminAndSuperAdminRole()).thenReturn(UserData.userIdsWithAdminOrSuperAdminRole);
-        when(service.disableEnableUser(anyLong())).thenReturn(Optional.of(UserData.createUser006()));
+        when(service.disableEnableUser(anyLong(), anyInt())).thenReturn(Optional.of(UserData.createUser006()));
 
         // When
         MvcResult result = mockMvc.perform(patch("/api/admins/user/" + idToSearch)) 
@@ -192,8 +237,7 @@ class AdminControllerTest {
         assertEquals("pancha", user.getUsername());
         assertFalse(user.isEnabled());
         
-        verify(service).getAllIdsWithAdminAndSuperAdminRole();
-        verify(service).disableEnableUser(anyLong());
+        verify(service).disableEnableUser(idToSearch, RoleLevel.USER);
     }
 
     // To test the 'disableEnableUser' method when the user was not disabled or enabled because the 'disableEnableUser' method 
@@ -203,8 +247,7 @@ class AdminControllerTest {
 
         // Given
         Long idToSearch = 6L;
-        when(service.getAllIdsWithAdminAndSuperAdminRole()).thenReturn(UserData.userIdsWithAdminOrSuperAdminRole);
-        when(service.disableEnableUser(anyLong())).thenReturn(Optional.empty());
+        when(service.disableEnableUser(anyLong(), anyInt())).thenReturn(Optional.empty());
 
         // When
         mockMvc.perform(patch("/api/admins/user/" + idToSearch)) 
@@ -214,19 +257,17 @@ class AdminControllerTest {
             .andExpect(content().string(""))
         ;
         
-        verify(service).getAllIdsWithAdminAndSuperAdminRole();
-        verify(service).disableEnableUser(anyLong());
+        verify(service).disableEnableUser(idToSearch, RoleLevel.USER);
     }
 
     // To test the 'disableEnableUser' method when the user was not disabled or enabled because the user id belongs to an user with
-    // the admin or super admin role
+    // the admin or super admin role (the service checks the role: only the users with the user role are changed)
     @Test
     void disableEnableUserUnsuccessIdsTest() throws Exception {
 
         // Given
         Long idToSearch = 1L;
-        when(service.getAllIdsWithAdminAndSuperAdminRole()).thenReturn(UserData.userIdsWithAdminOrSuperAdminRole);
-        when(service.disableEnableUser(anyLong())).thenReturn(Optional.empty());
+        when(service.disableEnableUser(anyLong(), anyInt())).thenReturn(Optional.empty());
 
         // When
         mockMvc.perform(patch("/api/admins/user/" + idToSearch)) 
@@ -236,8 +277,48 @@ class AdminControllerTest {
             .andExpect(content().string(""))
         ;
         
-        verify(service).getAllIdsWithAdminAndSuperAdminRole();
-        verify(service, never()).disableEnableUser(anyLong());
+        verify(service).disableEnableUser(idToSearch, RoleLevel.USER);
+    }
+
+    // To test the 'disableUsers' endpoint with a list of ids: the response is the report of the change
+    @Test
+    void disableUsersTest() throws Exception {
+
+        // Given
+        when(bulkService.disableEnableUsers(any(UserBulkDto.class), eq(false), eq(RoleLevel.USER)))
+            .thenReturn(new UserBulkResultDto(3, 1, 1, 1, 1, 5));
+
+        // When
+        mockMvc.perform(patch("/api/admins/users/disable")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new UserBulkDto(List.of(11L, 13L, 15L), null, null, null))))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.requested").value(3))
+            .andExpect(jsonPath("$.updated").value(1))
+            .andExpect(jsonPath("$.guarded").value(1))
+            .andExpect(jsonPath("$.unchanged").value(1))
+            .andExpect(jsonPath("$.chunks").value(1));
+
+        verify(bulkService).disableEnableUsers(argThat(bulk -> bulk.getIds().equals(List.of(11L, 13L, 15L))),
+            eq(false), eq(RoleLevel.USER));
+    }
+
+    // To test the 'enableUsers' endpoint with a list of ids and filters at once
+    @Test
+    void enableUsersInvalidTest() throws Exception {
+
+        // When
+        mockMvc.perform(patch("/api/admins/users/enable")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new UserBulkDto(List.of(13L), false, null, null))))
+
+        // Then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.idsOrFilters").exists());
+
+        verify(bulkService, never()).disableEnableUsers(any(UserBulkDto.class), anyBoolean(), anyInt());
     }
 
 }
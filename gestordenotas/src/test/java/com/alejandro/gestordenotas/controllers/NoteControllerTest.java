@@ -2,14 +2,22 @@ package com.alejandro.gestordenotas.controllers;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,12 +33,23 @@ import org.springframework.test.web.servlet.MvcResult;
 
 import com.alejandro.gestordenotas.TestConfig;
 import com.alejandro.gestordenotas.data.UserData;
+import com.alejandro.gestordenotas.dto.NoteBatchDto;
+import com.alejandro.gestordenotas.dto.NoteChangesDto;
+import com.alejandro.gestordenotas.dto.NoteImportErrorDto;
+import com.alejandro.gestordenotas.dto.NoteImportResultDto;
+import com.alejandro.gestordenotas.dto.NotePageDto;
+import com.alejandro.gestordenotas.dto.NoteSearchHitDto;
 import com.alejandro.gestordenotas.dto.UserDto;
 import com.alejandro.gestordenotas.data.CustomCondition;
 import com.alejandro.gestordenotas.data.NoteData;
 import com.alejandro.gestordenotas.entities.Note;
 import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.exceptions.InvalidCursorException;
+import com.alejandro.gestordenotas.exceptions.NoteVersionConflictException;
+import com.alejandro.gestordenotas.services.NoteImportService;
+import com.alejandro.gestordenotas.services.NoteSearchService;
 import com.alejandro.gestordenotas.services.NoteService;
+import com.alejandro.gestordenotas.services.NoteVersionService;
 import com.alejandro.gestordenotas.services.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -52,11 +71,23 @@ class NoteControllerTest {
     @MockitoBean
     private UserService userService;
 
+    // To inject the dependency that represents the service to mock
+    @MockitoBean
+    private NoteImportService importService;
+
+    // To inject the dependency that represents the service to mock
+    @MockitoBean
+    private NoteSearchService searchService;
+
+    // To inject the dependency that represents the service to mock
+    @MockitoBean
+    private NoteVersionService versionService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
 
-    // To test the 'getNotesByUser' endpoint with an existing idUser
+    // To test the 'getNotesByUser' endpoint when the user has more notes than the page size
     @Test
     void getNotesByUserExistingIdTest() throws Exception {
 
@@ -64,55 +95,167 @@ class NoteControllerTest {
         Long idUserToSearch = 2L;
         String username = "rayas";
         Principal principal = () -> username;
-        when(userService.findById(anyLong())).thenReturn(Optional.of(UserData.createUser002()));
+        when(service.getNotesByUser(anyLong(), any(), anyInt())).thenReturn(new NotePageDto(NoteData.createNotes002(), "NA"));
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(versionService.getNotesEtag(anyLong(), any(), anyInt())).thenReturn("\"abc-3\"");
 
         // When
         MvcResult result = mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes").principal(principal)) 
 
         // Then
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$").isNotEmpty())
-            .andExpect(jsonPath("$").isArray())
-            .andExpect(jsonPath("$[0].id").value(2L))
-            .andExpect(jsonPath("$[0].content").value("This is the note No. 2"))
+            .andExpect(header().string("ETag", "\"abc-3\""))
+            .andExpect(header().string("Cache-Control", "no-cache, private"))
+            .andExpect(jsonPath("$.notes").isNotEmpty())
+            .andExpect(jsonPath("$.notes").isArray())
+            .andExpect(jsonPath("$.notes[0].id").value(2L))
+            .andExpect(jsonPath("$.notes[0].content").value("This is the note No. 2"))
+            .andExpect(jsonPath("$.nextCursor").value("NA"))
             .andReturn()
         ;
 
-        // Convert the response to an array of objects
+        // Convert the response to an object
         String jsonString = result.getResponse().getContentAsString();
-        List<Note> notes = Arrays.asList( objectMapper.readValue(jsonString, Note[].class));
+        NotePageDto page = objectMapper.readValue(jsonString, NotePageDto.class);
+        List<Note> notes = page.getNotes();
 
         assertNotNull(notes);
         assertEquals(3, notes.size());
         assertEquals(2L, notes.get(0).getId());
         assertEquals("This is the note No. 2", notes.get(0).getContent());
 
-        verify(userService).findById(argThat(new CustomCondition(UserData.idsValid, true)));
+        verify(service).getNotesByUser(argThat(new CustomCondition(UserData.idsValid, true)), isNull(), eq(20));
+        verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
+    }
+
+    // To test the 'getNotesByUser' endpoint when the notes have not changed since the etag of the client
+    @Test
+    void getNotesByUserNotModifiedTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 2L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(versionService.getNotesEtag(anyLong(), any(), anyInt())).thenReturn("\"abc-3\"");
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes").principal(principal)
+                .header("If-None-Match", "\"abc-3\""))
+
+        // Then
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"abc-3\""))
+            .andExpect(content().string(""))
+        ;
+
+        // The notes are not read
+        verify(service, never()).getNotesByUser(anyLong(), any(), anyInt());
+        verify(versionService).getNotesEtag(argThat(new CustomCondition(UserData.idsValid, true)), isNull(), eq(20));
+    }
+
+    // To test the 'getNotesByUser' endpoint with the etag of another page: both pages are returned
+    @Test
+    void getNotesByUserOtherPageEtagTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 2L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(service.getNotesByUser(anyLong(), any(), anyInt())).thenReturn(new NotePageDto(NoteData.createNotes002(), null));
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(versionService.getNotesEtag(anyLong(), isNull(), eq(20))).thenReturn("\"abc-3-0-20\"");
+        when(versionService.getNotesEtag(anyLong(), eq("Mw"), eq(20))).thenReturn("\"abc-3-3-20\"");
+        when(versionService.getNotesEtag(anyLong(), isNull(), eq(10))).thenReturn("\"abc-3-0-10\"");
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes?after=Mw").principal(principal)
+                .header("If-None-Match", "\"abc-3-0-20\""))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"abc-3-3-20\""));
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes?limit=10").principal(principal)
+                .header("If-None-Match", "\"abc-3-0-20\""))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"abc-3-0-10\""));
+
+        verify(service, times(2)).getNotesByUser(anyLong(), any(), anyInt());
+    }
+
+    // To test the 'getNotesByUser' endpoint when the notes changed after the etag of the client
+    @Test
+    void getNotesByUserModifiedTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 2L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(service.getNotesByUser(anyLong(), any(), anyInt())).thenReturn(new NotePageDto(NoteData.createNotes002(), null));
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(versionService.getNotesEtag(anyLong(), any(), anyInt())).thenReturn("\"abc-4\"");
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes").principal(principal)
+                .header("If-None-Match", "\"abc-3\""))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"abc-4\""))
+            .andExpect(jsonPath("$.notes.length()").value(3))
+        ;
+
+        verify(service).getNotesByUser(argThat(new CustomCondition(UserData.idsValid, true)), isNull(), eq(20));
+    }
+
+    // To test the 'getNotesByUser' endpoint when the client sends the cursor of the last page
+    @Test
+    void getNotesByUserLastPageTest() throws Exception {
+        
+        // Given
+        Long idUserToSearch = 2L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(service.getNotesByUser(anyLong(), any(), anyInt())).thenReturn(new NotePageDto(NoteData.createNotes001(), null));
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes?after=NA&limit=2").principal(principal)) 
+        
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.notes.length()").value(1))
+            .andExpect(jsonPath("$.nextCursor").doesNotExist())
+        ;
+
+        verify(service).getNotesByUser(argThat(new CustomCondition(UserData.idsValid, true)), eq("NA"), eq(2));
         verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
     }
 
-    // To test the 'getNotesByUser' endpoint with an inexisting idUser
+    // To test the 'getNotesByUser' endpoint when the client sends an invalid cursor
     @Test
-    void getNotesByUserInexistingIdTest() throws Exception {
+    void getNotesByUserInvalidCursorTest() throws Exception {
         
         // Given
-        Long idUserToSearch = 999999L;
+        Long idUserToSearch = 2L;
         String username = "rayas";
         Principal principal = () -> username;
-        when(userService.findById(anyLong())).thenReturn(Optional.empty());
+        when(service.getNotesByUser(anyLong(), any(), anyInt())).thenThrow(new InvalidCursorException("$$$"));
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
         
         // When
-        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes").principal(principal)) 
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes?after=$$$").principal(principal)) 
         
         // Then
-            .andExpect(status().isNotFound())
-            .andExpect(content().string(""))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.status").value(400))
         ;
 
-        verify(userService).findById(argThat(new CustomCondition(UserData.idsValid, false)));
-        verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, false)), any(Principal.class));
+        verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
     }
 
     // To test the 'getNotesByUser' endpoint when the user is not the owner
@@ -123,7 +266,6 @@ class NoteControllerTest {
         Long idUserToSearch = 999999L;
         String username = "rayas";
         Principal principal = () -> username;
-        when(userService.findById(anyLong())).thenReturn(Optional.empty());
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(false);
         
         // When
@@ -134,10 +276,106 @@ class NoteControllerTest {
             .andExpect(content().string(""))
         ;
 
-        verify(userService, never()).findById(argThat(new CustomCondition(UserData.idsValid, false)));
+        verify(service, never()).getNotesByUser(anyLong(), any(), anyInt());
         verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, false)), any(Principal.class));
     }
 
+    // To test the 'getNoteByUserId' endpoint when the note belongs to the user
+    @Test
+    void getNoteByUserIdOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 2L;
+        Long idNoteToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        Note note = NoteData.createNote005();
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(service.getNoteByUser(anyLong(), anyLong())).thenReturn(Optional.of(note));
+        when(versionService.getNoteEtag(any(Note.class))).thenReturn("\"5-100\"");
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/" + idNoteToSearch).principal(principal))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"5-100\""))
+            .andExpect(jsonPath("$.id").value(5L))
+            .andExpect(jsonPath("$.content").value("This is the note No. 5"))
+        ;
+
+        verify(service).getNoteByUser(argThat(new CustomCondition(UserData.idsValid, true)), eq(idNoteToSearch));
+        verify(versionService).getNoteEtag(note);
+    }
+
+    // To test the 'getNoteByUserId' endpoint when the note has not changed since the etag of the client
+    @Test
+    void getNoteByUserIdNotModifiedTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 2L;
+        Long idNoteToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(service.getNoteByUser(anyLong(), anyLong())).thenReturn(Optional.of(NoteData.createNote005()));
+        when(versionService.getNoteEtag(any(Note.class))).thenReturn("\"5-100\"");
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/" + idNoteToSearch).principal(principal)
+                .header("If-None-Match", "\"5-100\""))
+
+        // Then
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""))
+        ;
+    }
+
+    // To test the 'getNoteByUserId' endpoint when the note does not belong to the user
+    @Test
+    void getNoteByUserIdInexistingNoteTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 2L;
+        Long idNoteToSearch = 99999L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(service.getNoteByUser(anyLong(), anyLong())).thenReturn(Optional.empty());
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/" + idNoteToSearch).principal(principal))
+
+        // Then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+        ;
+
+        verify(versionService, never()).getNoteEtag(any(Note.class));
+    }
+
+    // To test the 'getNoteByUserId' endpoint when the user is not the owner
+    @Test
+    void getNoteByUserIdNoOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 999999L;
+        Long idNoteToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(false);
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/" + idNoteToSearch).principal(principal))
+
+        // Then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+        ;
+
+        verify(service, never()).getNoteByUser(anyLong(), anyLong());
+    }
+
     // To test the 'saveNewNoteByUserId' endpoint when the note was saved
     @Test
     void postSaveNewNoteByUserIdExistingIdTest() throws Exception {
@@ -147,7 +385,7 @@ class NoteControllerTest {
         Note noteToInsert = new Note(null, "This is a new note");
         String username = "rayas";
         Principal principal = () -> username;
-        when(service.saveNoteByUser(anyLong(), any(Note.class))).thenReturn(Optional.of(UserData.createUser005()));
+        when(service.saveNoteByUser(anyLong(), any(Note.class))).thenReturn(true);
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
         
         // When
@@ -176,8 +414,7 @@ class NoteControllerTest {
         verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
     }
 
-    // To test the 'saveNewNoteByUserId' endpoint when the note was not saved because the 'saveNoteByUser' method returned an
-    // empty optional
+    // To test the 'saveNewNoteByUserId' endpoint when the note was not saved because the 'saveNoteByUser' method returned false
     @Test
     void postSaveNewNoteByUserIdInexistingIdTest() throws Exception {
 
@@ -186,7 +423,7 @@ class NoteControllerTest {
         Note noteToInsert = new Note(null, "This is a new note");
         String username = "rayas";
         Principal principal = () -> username;
-        when(service.saveNoteByUser(anyLong(), any(Note.class))).thenReturn(Optional.empty());
+        when(service.saveNoteByUser(anyLong(), any(Note.class))).thenReturn(false);
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
         
         // When
@@ -213,7 +450,7 @@ class NoteControllerTest {
         Note noteToInsert = new Note(null, "This is a new note");
         String username = "rayas";
         Principal principal = () -> username;
-        when(service.saveNoteByUser(anyLong(), any(Note.class))).thenReturn(Optional.of(UserData.createUser005()));
+        when(service.saveNoteByUser(anyLong(), any(Note.class))).thenReturn(true);
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(false);
         
         // When
@@ -231,6 +468,371 @@ class NoteControllerTest {
         verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
     }
 
+    // To test the 'saveNewNotesByUserId' endpoint when the notes were saved
+    @Test
+    void postSaveNewNotesByUserIdOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        NoteBatchDto batch = new NoteBatchDto(List.of(new Note(null, "This is a new note"), new Note(null, "This is another note")));
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(service.saveNotesByUser(anyLong(), anyList())).thenReturn(Optional.of(2));
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        
+        // When
+        mockMvc.perform(post("/api/users/" + idUserToSearch + "/notes/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(batch))
+            .principal(principal))
+
+        // Then
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.userId").value(5L))
+            .andExpect(jsonPath("$.created").value(2))
+        ;
+
+        verify(service).saveNotesByUser(argThat(new CustomCondition(UserData.idsValid, true)), anyList());
+        verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
+    }
+
+    // To test the 'saveNewNotesByUserId' endpoint when the user was deleted after the token was created
+    @Test
+    void postSaveNewNotesByUserIdInexistingUserTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        NoteBatchDto batch = new NoteBatchDto(List.of(new Note(null, "This is a new note")));
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(service.saveNotesByUser(anyLong(), anyList())).thenReturn(Optional.empty());
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        
+        // When
+        mockMvc.perform(post("/api/users/" + idUserToSearch + "/notes/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(batch))
+            .principal(principal))
+
+        // Then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+        ;
+
+        verify(service).saveNotesByUser(argThat(new CustomCondition(UserData.idsValid, true)), anyList());
+    }
+
+    // To test the 'saveNewNotesByUserId' endpoint when the user is not the owner
+    @Test
+    void postSaveNewNotesByUserIdNoOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        NoteBatchDto batch = new NoteBatchDto(List.of(new Note(null, "This is a new note")));
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(false);
+        
+        // When
+        mockMvc.perform(post("/api/users/" + idUserToSearch + "/notes/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(batch))
+            .principal(principal))
+
+        // Then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+        ;
+
+        verify(service, never()).saveNotesByUser(anyLong(), anyList());
+        verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
+    }
+
+    // To test the 'saveNewNotesByUserId' endpoint when one of the notes is blank
+    @Test
+    void postSaveNewNotesByUserIdValidationTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        NoteBatchDto batch = new NoteBatchDto(List.of(new Note(null, "This is a new note"), new Note(null, " ")));
+        String username = "rayas";
+        Principal principal = () -> username;
+        
+        // When
+        mockMvc.perform(post("/api/users/" + idUserToSearch + "/notes/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(batch))
+            .principal(principal))
+
+        // Then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$['notes[1].content']").value("El campo notes[1].content must not be blank"))
+        ;
+
+        verify(service, never()).saveNotesByUser(anyLong(), anyList());
+        verify(userService, never()).isOwner(anyLong(), any(Principal.class));
+    }
+
+    // To test the 'searchNotesByUserId' endpoint when the user is the owner
+    @Test
+    void getSearchNotesByUserIdOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(searchService.searchNotesByUser(anyLong(), anyString(), anyInt()))
+            .thenReturn(List.of(new NoteSearchHitDto(NoteData.createNote001(), 1.5)));
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/search")
+            .param("q", "note")
+            .param("limit", "5")
+            .principal(principal))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].note.id").value(NoteData.createNote001().getId()))
+            .andExpect(jsonPath("$[0].score").value(1.5))
+        ;
+
+        verify(searchService).searchNotesByUser(argThat(new CustomCondition(UserData.idsValid, true)), eq("note"), eq(5));
+        verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
+    }
+
+    // To test the 'searchNotesByUserId' endpoint when the user is not the owner
+    @Test
+    void getSearchNotesByUserIdNoOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(false);
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/search").param("q", "note").principal(principal))
+
+        // Then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+        ;
+
+        verify(searchService, never()).searchNotesByUser(anyLong(), anyString(), anyInt());
+    }
+
+    // To test the 'searchNotesByUserId' endpoint when the query is blank
+    @Test
+    void getSearchNotesByUserIdBlankQueryTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/search").param("q", " ").principal(principal))
+
+        // Then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.q").value("El campo q no debe estar vacio"))
+        ;
+
+        verify(searchService, never()).searchNotesByUser(anyLong(), anyString(), anyInt());
+        verify(userService, never()).isOwner(anyLong(), any(Principal.class));
+    }
+
+    // To test the 'getNoteChangesByUserId' endpoint when the user is the owner
+    @Test
+    void getNoteChangesByUserIdOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(service.getNoteChangesByUser(anyLong(), any(), anyInt()))
+            .thenReturn(new NoteChangesDto(NoteData.createNotes001(), List.of(9L), "token", false));
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/changes")
+            .param("since", "previous")
+            .param("limit", "50")
+            .principal(principal))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.upserted").isArray())
+            .andExpect(jsonPath("$.upserted.length()").value(1))
+            .andExpect(jsonPath("$.deleted[0]").value(9))
+            .andExpect(jsonPath("$.nextToken").value("token"))
+            .andExpect(jsonPath("$.hasMore").value(false))
+        ;
+
+        verify(service).getNoteChangesByUser(argThat(new CustomCondition(UserData.idsValid, true)), eq("previous"), eq(50));
+        verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
+    }
+
+    // To test the 'getNoteChangesByUserId' endpoint when the user is not the owner
+    @Test
+    void getNoteChangesByUserIdNoOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(false);
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/changes").principal(principal))
+
+        // Then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+        ;
+
+        verify(service, never()).getNoteChangesByUser(anyLong(), any(), anyInt());
+    }
+
+    // To test the 'importNotesByUserId' endpoint with a NDJSON file
+    @Test
+    void postImportNotesByUserIdNdjsonTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        NoteImportResultDto importResult = new NoteImportResultDto(idUserToSearch);
+        importResult.setImported(1);
+        importResult.setRejected(1);
+        importResult.getErrors().add(new NoteImportErrorDto(2, "El campo content must not be blank"));
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(importService.importNotesByUser(anyLong(), any(InputStream.class), eq(false))).thenReturn(importResult);
+
+        // When
+        mockMvc.perform(post("/api/users/" + idUserToSearch + "/notes/import")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content("{\"content\":\"note\"}\n{\"content\":\"\"}\n")
+            .principal(principal))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.userId").value(5L))
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.rejected").value(1))
+            .andExpect(jsonPath("$.errors[0].line").value(2))
+            .andExpect(jsonPath("$.errors[0].message").value("El campo content must not be blank"))
+        ;
+
+        verify(importService).importNotesByUser(argThat(new CustomCondition(UserData.idsValid, true)), any(InputStream.class), eq(false));
+        verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
+    }
+
+    // To test the 'importNotesByUserId' endpoint with a CSV file
+    @Test
+    void postImportNotesByUserIdCsvTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        when(importService.importNotesByUser(anyLong(), any(InputStream.class), eq(true))).thenReturn(new NoteImportResultDto(idUserToSearch));
+
+        // When
+        mockMvc.perform(post("/api/users/" + idUserToSearch + "/notes/import")
+            .contentType("text/csv; charset=UTF-8")
+            .content("content\nnote\n")
+            .principal(principal))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.userId").value(5L))
+        ;
+
+        verify(importService).importNotesByUser(anyLong(), any(InputStream.class), eq(true));
+    }
+
+    // To test the 'importNotesByUserId' endpoint when the user is not the owner
+    @Test
+    void postImportNotesByUserIdNoOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(false);
+
+        // When
+        mockMvc.perform(post("/api/users/" + idUserToSearch + "/notes/import")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content("{\"content\":\"note\"}\n")
+            .principal(principal))
+
+        // Then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+        ;
+
+        verify(importService, never()).importNotesByUser(anyLong(), any(InputStream.class), anyBoolean());
+    }
+
+    // To test the 'exportNotesByUserId' endpoint when the user is the owner
+    @Test
+    void getExportNotesByUserIdOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("{\"id\":1,\"content\":\"note\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(service).exportNotesByUser(anyLong(), any(OutputStream.class));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/export").principal(principal))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"notes-5.ndjson\""))
+            .andExpect(content().string("{\"id\":1,\"content\":\"note\"}\n"))
+        ;
+
+        verify(service).exportNotesByUser(argThat(new CustomCondition(UserData.idsValid, true)), any(OutputStream.class));
+        verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
+    }
+
+    // To test the 'exportNotesByUserId' endpoint when the user is not the owner
+    @Test
+    void getExportNotesByUserIdNoOwnerTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 5L;
+        String username = "rayas";
+        Principal principal = () -> username;
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(false);
+
+        // When
+        mockMvc.perform(get("/api/users/" + idUserToSearch + "/notes/export").principal(principal))
+
+        // Then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+        ;
+
+        verify(service, never()).exportNotesByUser(anyLong(), any(OutputStream.class));
+        verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
+    }
+
     // To test the 'editNoteByUserId' endpoint when the note can be updated
     @Test
     void patchEditNoteByUserIdSuccessUpdateTest() throws Exception {
@@ -241,7 +843,7 @@ class NoteControllerTest {
         Note noteToUpdate = new Note(null, "This is a note to update");
         String username = "celia";
         Principal principal = () -> username;
-        when(service.editNoteByUser(anyLong(), anyLong(), any(Note.class))).thenReturn(Optional.of(UserData.createUser003()));
+        when(service.editNoteByUser(anyLong(), anyLong(), any(Note.class), any())).thenReturn(true);
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
 
         // When
@@ -266,12 +868,42 @@ class NoteControllerTest {
         assertEquals(3L, user.getId());
         assertEquals("celia", user.getUsername());
 
-        verify(service).editNoteByUser(argThat(new CustomCondition(UserData.idsValid, true)), argThat(new CustomCondition(NoteData.idsValid, true)), any(Note.class));
+        verify(service).editNoteByUser(argThat(new CustomCondition(UserData.idsValid, true)), argThat(new CustomCondition(NoteData.idsValid, true)), any(Note.class), any());
         verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
     }
 
-    // To test the 'editNoteByUserId' endpoint when the note can not be updated because the 'editNoteByUser' method returned an 
-    // empty optional
+    // To test the 'editNoteByUserId' endpoint when the note changed after the etag sent by the client
+    @Test
+    void patchEditNoteByUserIdVersionConflictTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 3L;
+        Long idNoteToSearch = 3L;
+        Note noteToUpdate = new Note(null, "This is a note to update");
+        String username = "celia";
+        Principal principal = () -> username;
+        when(versionService.getExpectedVersion(anyLong(), anyString())).thenReturn(2L);
+        when(service.editNoteByUser(anyLong(), anyLong(), any(Note.class), any())).thenThrow(new NoteVersionConflictException(idNoteToSearch));
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+
+        // When
+        mockMvc.perform(patch("/api/users/" + idUserToSearch + "/notes/" + idNoteToSearch)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(noteToUpdate))
+            .header("If-Match", "\"3-2\"")
+            .principal(principal))
+
+        // Then
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(jsonPath("$.status").value(412))
+        ;
+
+        verify(versionService).getExpectedVersion(idNoteToSearch, "\"3-2\"");
+        verify(service).editNoteByUser(argThat(new CustomCondition(UserData.idsValid, true)), eq(idNoteToSearch), any(Note.class), eq(2L));
+    }
+
+    // To test the 'editNoteByUserId' endpoint when the note can not be updated because the 'editNoteByUser' method returned 
+    // false
     @Test
     void patchEditNoteByUserIdUnsuccessUpdateTest() throws Exception {
 
@@ -281,7 +913,7 @@ class NoteControllerTest {
         Note noteToUpdate = new Note(null, "This is a note to update");
         String username = "celia";
         Principal principal = () -> username;
-        when(service.editNoteByUser(anyLong(), anyLong(), any(Note.class))).thenReturn(Optional.empty());
+        when(service.editNoteByUser(anyLong(), anyLong(), any(Note.class), any())).thenReturn(false);
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
         
         // When
@@ -295,7 +927,7 @@ class NoteControllerTest {
             .andExpect(content().string(""))
         ;
 
-        verify(service).editNoteByUser(argThat(new CustomCondition(UserData.idsValid, false)), argThat(new CustomCondition(NoteData.idsValid, false)), any(Note.class));
+        verify(service).editNoteByUser(argThat(new CustomCondition(UserData.idsValid, false)), argThat(new CustomCondition(NoteData.idsValid, false)), any(Note.class), any());
         verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, false)), any(Principal.class));
     }
 
@@ -309,7 +941,7 @@ class NoteControllerTest {
         Note noteToUpdate = new Note(null, "This is a note to update");
         String username = "celia";
         Principal principal = () -> username;
-        when(service.editNoteByUser(anyLong(), anyLong(), any(Note.class))).thenReturn(Optional.of(UserData.createUser003()));
+        when(service.editNoteByUser(anyLong(), anyLong(), any(Note.class), any())).thenReturn(true);
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(false);
         
         // When
@@ -323,7 +955,7 @@ class NoteControllerTest {
             .andExpect(content().string(""))
         ;
 
-        verify(service, never()).editNoteByUser(argThat(new CustomCondition(UserData.idsValid, false)), argThat(new CustomCondition(NoteData.idsValid, false)), any(Note.class));
+        verify(service, never()).editNoteByUser(argThat(new CustomCondition(UserData.idsValid, false)), argThat(new CustomCondition(NoteData.idsValid, false)), any(Note.class), any());
         verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, false)), any(Principal.class));
     }
 
@@ -336,7 +968,7 @@ class NoteControllerTest {
         Long idNoteToSearch = 3L;
         String username = "celia";
         Principal principal = () -> username;
-        when(service.deleteNoteByUser(anyLong(), anyLong())).thenReturn(Optional.of(UserData.createUser003()));
+        when(service.deleteNoteByUser(anyLong(), anyLong(), any())).thenReturn(true);
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
 
         // When
@@ -360,12 +992,37 @@ class NoteControllerTest {
         assertEquals("celia", user.getUsername());
 
         verify(service).deleteNoteByUser(argThat(new CustomCondition(UserData.idsValid, true)),
-                                        argThat(new CustomCondition(NoteData.idsValid, true)));
+                                        argThat(new CustomCondition(NoteData.idsValid, true)), any());
         verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, true)), any(Principal.class));
     }
 
+    // To test the 'deleteNoteByUser' endpoint when the note changed after the etag sent by the client
+    @Test
+    void deleteNoteByUserIdVersionConflictTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 3L;
+        Long idNoteToSearch = 3L;
+        String username = "celia";
+        Principal principal = () -> username;
+        when(versionService.getExpectedVersion(anyLong(), anyString())).thenReturn(2L);
+        when(service.deleteNoteByUser(anyLong(), anyLong(), any())).thenThrow(new NoteVersionConflictException(idNoteToSearch));
+        when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
+
+        // When
+        mockMvc.perform(delete("/api/users/" + idUserToSearch + "/notes/" + idNoteToSearch)
+                .header("If-Match", "\"3-2\"")
+                .principal(principal))
+
+            // Then
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(jsonPath("$.status").value(412));
+
+        verify(service).deleteNoteByUser(argThat(new CustomCondition(UserData.idsValid, true)), eq(idNoteToSearch), eq(2L));
+    }
+
     // To test the 'deleteNoteByUser' endpoint when the note can not be deleted because the 'deleteNoteByUser' method returned 
-    // an empty optional
+    // false
     @Test
     void deleteNoteByUserIdNoteNotFoundTest() throws Exception {
 
@@ -374,7 +1031,7 @@ class NoteControllerTest {
         Long idNoteToSearch = 999999L;
         String username = "celia";
         Principal principal = () -> username;
-        when(service.deleteNoteByUser(anyLong(), anyLong())).thenReturn(Optional.empty());
+        when(service.deleteNoteByUser(anyLong(), anyLong(), any())).thenReturn(false);
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
 
         // When
@@ -386,7 +1043,7 @@ class NoteControllerTest {
             .andExpect(content().string(""));
         
         verify(service).deleteNoteByUser(argThat(new CustomCondition(UserData.idsValid, false)),
-                                        argThat(new CustomCondition(NoteData.idsValid, false)));
+                                        argThat(new CustomCondition(NoteData.idsValid, false)), any());
         verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, false)), any(Principal.class));
     }
 
@@ -410,7 +1067,7 @@ class NoteControllerTest {
             .andExpect(content().string(""));
 
         // No se debe invocar el método deleteNoteByUser
-        verify(service, never()).deleteNoteByUser(anyLong(), anyLong());
+        verify(service, never()).deleteNoteByUser(anyLong(), anyLong(), any());
         verify(userService).isOwner(argThat(new CustomCondition(UserData.idsValid, false)), any(Principal.class));
     }
 
@@ -423,7 +1080,7 @@ class NoteControllerTest {
         Note noteToInsert = new Note(null, "");
         String username = "rayas";
         Principal principal = () -> username;
-        when(service.saveNoteByUser(anyLong(), any(Note.class))).thenReturn(Optional.of(UserData.createUser005()));
+        when(service.saveNoteByUser(anyLong(), any(Note.class))).thenReturn(true);
         when(userService.isOwner(anyLong(), any(Principal.class))).thenReturn(true);
         
         // When
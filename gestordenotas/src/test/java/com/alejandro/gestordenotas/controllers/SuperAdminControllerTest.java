@@ -1,15 +1,18 @@
 package com.alejandro.gestordenotas.controllers;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
@@ -22,9 +25,17 @@ import org.junit.jupiter.api.Test;
 import com.alejandro.gestordenotas.TestConfig;
 import com.alejandro.gestordenotas.data.CustomCondition;
 import com.alejandro.gestordenotas.data.UserData;
+import com.alejandro.gestordenotas.dto.PasswordHashingStatsDto;
 import com.alejandro.gestordenotas.dto.SuperAdminDto;
+import com.alejandro.gestordenotas.dto.UserBulkDto;
+import com.alejandro.gestordenotas.dto.UserBulkResultDto;
+import com.alejandro.gestordenotas.dto.UserDetailsCacheStatsDto;
+import com.alejandro.gestordenotas.dto.UserFilterDto;
+import com.alejandro.gestordenotas.dto.UserPageDto;
+import com.alejandro.gestordenotas.entities.RoleLevel;
 import com.alejandro.gestordenotas.services.AdminService;
 import com.alejandro.gestordenotas.services.SuperAdminService;
+import com.alejandro.gestordenotas.services.UserBulkService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 
@@ -45,11 +56,36 @@ class SuperAdminControllerTest {
     @MockitoBean
     private SuperAdminService service; 
 
+    // To inject the dependency that represents the service to mock
+    @MockitoBean
+    private UserBulkService bulkService; 
+
     @Autowired
     private ObjectMapper objectMapper;
     
 
 
+    // To test the 'getAllUsersWithUserAndAdminRole' endpoint with the filter of the admins
+    @Test
+    void getAllUsersWithUserAndAdminRoleTest() throws Exception {
+
+        // Given
+        SuperAdminDto superAdminDto = new SuperAdminDto(UserData.createUser002().getId(), UserData.createUser002().getUsername(), true, true);
+        when(service.getAllUsersWithUserAndAdminRole(any(UserFilterDto.class))).thenReturn(new UserPageDto<>(List.of(superAdminDto), null));
+
+        // When
+        mockMvc.perform(get("/api/super-admins/users-and-admins?admin=true"))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.users[0].id").value(superAdminDto.getId()))
+            .andExpect(jsonPath("$.users[0].admin").value(true))
+            .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(service).getAllUsersWithUserAndAdminRole(argThat(filter -> filter.getAdmin() && filter.getEnabled() == null
+            && "id".equals(filter.getSort()) && filter.getLimit() == 20));
+    }
+
     // To test the 'getUserWithUserAndAdminRole' endpoint with an existing user ID
     @Test
     void getUserWithUserAndAdminRoleExistingIdTest() throws Exception {
@@ -110,7 +146,6 @@ class SuperAdminControllerTest {
 
         // Given
         Long idToSearch = 6L;
-        when(service.isSuperAdmin(anyLong())).thenReturn(false);
         when(service.addRemoveAdminRoleFromUser(anyLong())).thenReturn(Optional.of(UserData.createUser006()));
 
         // When
@@ -137,7 +172,6 @@ class SuperAdminControllerTest {
         assertFalse(user.isEnabled());
         assertFalse(user.isAdmin());
         
-        verify(service).isSuperAdmin(anyLong());
         verify(service).addRemoveAdminRoleFromUser(argThat(new CustomCondition(UserData.idsValid, true)));
     }
 
@@ -148,7 +182,6 @@ class SuperAdminControllerTest {
 
         // Given
         Long idToSearch = 999999L;
-        when(service.isSuperAdmin(anyLong())).thenReturn(false);
         when(service.addRemoveAdminRoleFromUser(anyLong())).thenReturn(Optional.empty());
 
         // When
@@ -159,19 +192,17 @@ class SuperAdminControllerTest {
             .andExpect(content().string(""))
         ;
         
-        verify(service).isSuperAdmin(anyLong());
         verify(service).addRemoveAdminRoleFromUser(argThat(new CustomCondition(UserData.idsValid, false)));
     }
 
     // To test the 'addRemoveAdminRoleFromUser' method when the user was not disabled or enabled because the 
-    // user id belongs to an user with the super admin role
+    // user id belongs to an user with the super admin role (the service checks the role)
     @Test
     void addRemoveAdminRoleFromUserUnsuccessIdTest() throws Exception {
 
         // Given
         Long idToSearch = 1L;
-        when(service.isSuperAdmin(anyLong())).thenReturn(true);
-        when(service.addRemoveAdminRoleFromUser(anyLong())).thenReturn(Optional.of(UserData.createUser001()));
+        when(service.addRemoveAdminRoleFromUser(anyLong())).thenReturn(Optional.empty());
 
         // When
         mockMvc.perform(patch("/api/super-admins/convert-user-into-admin/" + idToSearch))
@@ -181,8 +212,7 @@ class SuperAdminControllerTest {
             .andExpect(content().string(""))
         ;
         
-        verify(service).isSuperAdmin(anyLong());
-        verify(service, never()).addRemoveAdminRoleFromUser(argThat(new CustomCondition(UserData.idsValid, true)));
+        verify(service).addRemoveAdminRoleFromUser(idToSearch);
     }
 
     // To test the 'disableEnableUser' method when the user was disabled or enabled
@@ -191,8 +221,7 @@ class SuperAdminControllerTest {
 
         // Given
         Long idToSearch = 6L;
-        when(service.isSuperAdmin(anyLong())).thenReturn(false);
-        when(adminService.disableEnableUser(anyLong())).thenReturn(Optional.of(UserData.createUser006()));
+        when(adminService.disableEnableUser(anyLong(), anyInt())).thenReturn(Optional.of(UserData.createUser006()));
 
         // When
         MvcResult result = mockMvc.perform(patch("/api/super-admins/disable-enable-user/" + idToSearch)) 
@@ -218,8 +247,7 @@ class SuperAdminControllerTest {
         assertFalse(user.isEnabled());
         assertFalse(user.isAdmin());
         
-        verify(service).isSuperAdmin(anyLong());
-        verify(adminService).disableEnableUser(argThat(new CustomCondition(UserData.idsValid, true)));
+        verify(adminService).disableEnableUser(argThat(new CustomCondition(UserData.idsValid, true)), eq(RoleLevel.ADMIN));
     }
 
     // To test the 'disableEnableUser' method when the user was not disabled or enabled because the 'disableEnableUser' method 
@@ -229,8 +257,7 @@ class SuperAdminControllerTest {
 
         // Given
         Long idToSearch = 999999L;
-        when(service.isSuperAdmin(anyLong())).thenReturn(false);
-        when(adminService.disableEnableUser(anyLong())).thenReturn(Optional.empty());
+        when(adminService.disableEnableUser(anyLong(), anyInt())).thenReturn(Optional.empty());
 
         // When
         mockMvc.perform(patch("/api/super-admins/disable-enable-user/" + idToSearch)) 
@@ -240,19 +267,17 @@ class SuperAdminControllerTest {
             .andExpect(content().string(""))
         ;
         
-        verify(service).isSuperAdmin(anyLong());
-        verify(adminService).disableEnableUser(argThat(new CustomCondition(UserData.idsValid, false)));
+        verify(adminService).disableEnableUser(argThat(new CustomCondition(UserData.idsValid, false)), eq(RoleLevel.ADMIN));
     }
 
     // To test the 'disableEnableUser' method when the user was not disabled or enabled because the user id belongs to an user with
-    // the super admin role
+    // the super admin role (the service checks the role: only the users and the admins are changed)
     @Test
     void disableEnableUserUnsuccessIdTest() throws Exception {
 
         // Given
         Long idToSearch = 1L;
-        when(service.isSuperAdmin(anyLong())).thenReturn(true);
-        when(adminService.disableEnableUser(anyLong())).thenReturn(Optional.of(UserData.createUser001()));
+        when(adminService.disableEnableUser(anyLong(), anyInt())).thenReturn(Optional.empty());
 
         // When
         mockMvc.perform(patch("/api/super-admins/disable-enable-user/" + idToSearch)) 
@@ -262,8 +287,115 @@ class SuperAdminControllerTest {
             .andExpect(content().string(""))
         ;
         
-        verify(service).isSuperAdmin(anyLong());
-        verify(adminService, never()).disableEnableUser(argThat(new CustomCondition(UserData.idsValid, true)));
+        verify(adminService).disableEnableUser(idToSearch, RoleLevel.ADMIN);
+    }
+
+    // To test the 'getUserDetailsCacheStats' endpoint
+    @Test
+    void getUserDetailsCacheStatsTest() throws Exception {
+
+        // Given
+        when(service.getUserDetailsCacheStats()).thenReturn(new UserDetailsCacheStatsDto(3, 2, 1, 1));
+
+        // When
+        mockMvc.perform(get("/api/super-admins/user-details-cache"))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.hits").value(3))
+            .andExpect(jsonPath("$.misses").value(2))
+            .andExpect(jsonPath("$.evictions").value(1))
+            .andExpect(jsonPath("$.size").value(1))
+        ;
+
+        verify(service).getUserDetailsCacheStats();
+    }
+
+    // To test the 'getPasswordHashingStats' endpoint
+    @Test
+    void getPasswordHashingStatsTest() throws Exception {
+
+        // Given
+        when(service.getPasswordHashingStats()).thenReturn(new PasswordHashingStatsDto(4, 1, 3, 64, 100, 2));
+
+        // When
+        mockMvc.perform(get("/api/super-admins/password-hashing"))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.threads").value(4))
+            .andExpect(jsonPath("$.queueDepth").value(3))
+            .andExpect(jsonPath("$.queueCapacity").value(64))
+            .andExpect(jsonPath("$.rejected").value(2))
+        ;
+
+        verify(service).getPasswordHashingStats();
+    }
+
+    // To test the 'enableUsers' endpoint with filters: the super admin changes the users and the admins
+    @Test
+    void enableUsersTest() throws Exception {
+
+        // Given
+        when(bulkService.disableEnableUsers(any(UserBulkDto.class), eq(true), eq(RoleLevel.ADMIN)))
+            .thenReturn(new UserBulkResultDto(1, 1, 0, 0, 1, 2));
+
+        // When
+        mockMvc.perform(patch("/api/super-admins/users/enable")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new UserBulkDto(null, false, null, "pa"))))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.updated").value(1));
+
+        verify(bulkService).disableEnableUsers(argThat(bulk -> !bulk.getEnabled() && "pa".equals(bulk.getUsername())),
+            eq(true), eq(RoleLevel.ADMIN));
+    }
+
+    // To test the 'promoteUsers' and 'demoteUsers' endpoints
+    @Test
+    void promoteDemoteUsersTest() throws Exception {
+
+        // Given
+        when(bulkService.addRemoveAdminRoleFromUsers(any(UserBulkDto.class), anyBoolean()))
+            .thenReturn(new UserBulkResultDto(2, 2, 0, 0, 1, 3));
+
+        // When
+        mockMvc.perform(patch("/api/super-admins/users/promote")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new UserBulkDto(List.of(13L, 14L), null, null, null))))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.updated").value(2));
+
+        // When
+        mockMvc.perform(patch("/api/super-admins/users/demote")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new UserBulkDto(null, null, null, "ce"))))
+
+        // Then
+            .andExpect(status().isOk());
+
+        verify(bulkService).addRemoveAdminRoleFromUsers(any(UserBulkDto.class), eq(true));
+        verify(bulkService).addRemoveAdminRoleFromUsers(any(UserBulkDto.class), eq(false));
+    }
+
+    // To test the 'promoteUsers' endpoint without ids and filters
+    @Test
+    void promoteUsersInvalidTest() throws Exception {
+
+        // When
+        mockMvc.perform(patch("/api/super-admins/users/promote")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{}"))
+
+        // Then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.idsOrFilters").exists());
+
+        verify(bulkService, never()).addRemoveAdminRoleFromUsers(any(UserBulkDto.class), anyBoolean());
     }
 
 }
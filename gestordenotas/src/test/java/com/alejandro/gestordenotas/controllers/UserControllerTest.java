@@ -3,6 +3,7 @@ package com.alejandro.gestordenotas.controllers;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -26,8 +27,13 @@ import org.junit.jupiter.api.Test;
 import com.alejandro.gestordenotas.TestConfig;
 import com.alejandro.gestordenotas.data.CustomCondition;
 import com.alejandro.gestordenotas.data.UserData;
+import com.alejandro.gestordenotas.dto.LoginResponseDto;
+import com.alejandro.gestordenotas.dto.RefreshTokenDto;
 import com.alejandro.gestordenotas.dto.UserDto;
 import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.exceptions.InvalidRefreshTokenException;
+import com.alejandro.gestordenotas.exceptions.PasswordHashingBusyException;
+import com.alejandro.gestordenotas.services.RefreshTokenService;
 import com.alejandro.gestordenotas.services.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -45,6 +51,10 @@ class UserControllerTest {
     @MockitoBean
     private UserService service; 
 
+    // To create a mock of the service of the refresh tokens
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -159,6 +169,92 @@ class UserControllerTest {
         verify(service).save(any(User.class));
     }
 
+    // To test the 'save' endpoint when there are too many passwords to hash at this moment
+    @Test
+    void postSavePasswordHashingBusyTest() throws Exception {
+
+        // Given
+        Map<String, Object> userInsert = new HashMap<>();
+        userInsert.put("username", "ben");
+        userInsert.put("password", "ben123");
+        when(service.save(any(User.class))).thenThrow(new PasswordHashingBusyException(2));
+
+        // when
+        mockMvc.perform(post("/api/users/register")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(userInsert)))
+
+        // then
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "2"))
+            .andExpect(jsonPath("$.status").value(503))
+        ;
+
+        verify(service).save(any(User.class));
+    }
+
+    // To test the 'refreshToken' endpoint: the client gets a new access token and a new refresh token
+    @Test
+    void postRefreshTokenTest() throws Exception {
+
+        // Given
+        LoginResponseDto tokens = new LoginResponseDto();
+        tokens.setUsername("rayas");
+        tokens.setToken("nuevoAccessToken");
+        tokens.setRefreshToken("nuevoRefreshToken");
+        when(refreshTokenService.refresh("refreshToken")).thenReturn(tokens);
+
+        // when
+        mockMvc.perform(post("/api/users/token/refresh")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new RefreshTokenDto("refreshToken"))))
+
+        // then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.username").value("rayas"))
+            .andExpect(jsonPath("$.token").value("nuevoAccessToken"))
+            .andExpect(jsonPath("$.refreshToken").value("nuevoRefreshToken"))
+            .andExpect(jsonPath("$.message").value("Hola rayas tu sesion fue renovada con exito!"))
+        ;
+
+        verify(refreshTokenService).refresh("refreshToken");
+    }
+
+    // To test the 'refreshToken' endpoint when the refresh token is not valid
+    @Test
+    void postRefreshTokenInvalidTest() throws Exception {
+
+        // Given
+        when(refreshTokenService.refresh(anyString())).thenThrow(new InvalidRefreshTokenException("El refresh token expiro!"));
+
+        // when
+        mockMvc.perform(post("/api/users/token/refresh")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new RefreshTokenDto("refreshToken"))))
+
+        // then
+            .andExpect(status().isUnauthorized())
+            .andExpect(jsonPath("$.status").value(401))
+            .andExpect(jsonPath("$.message").value("El refresh token expiro!"))
+        ;
+    }
+
+    // To test the 'refreshToken' endpoint without a refresh token
+    @Test
+    void postRefreshTokenValidationTest() throws Exception {
+
+        // when
+        mockMvc.perform(post("/api/users/token/refresh")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new RefreshTokenDto(" "))))
+
+        // then
+            .andExpect(status().isBadRequest())
+        ;
+
+        verify(refreshTokenService, never()).refresh(anyString());
+    }
+
     // To test the 'update' endpoint when we use an existing id 
     @Test
     void putUpdateExistingIdTest() throws Exception {
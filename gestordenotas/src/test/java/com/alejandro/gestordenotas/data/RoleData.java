@@ -17,11 +17,11 @@ public class RoleData {
     }
 
     public static Role createRole002() {
-        return new Role(idsValid.get(0), "ROLE_ADMIN");
+        return new Role(idsValid.get(1), "ROLE_ADMIN");
     }
 
     public static Role createRole003() {
-        return new Role(idsValid.get(0), "ROLE_SUPER_ADMIN");
+        return new Role(idsValid.get(2), "ROLE_SUPER_ADMIN");
     }
 
     public static Set<Role> createRoles001() {
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import com.alejandro.gestordenotas.entities.RoleLevel;
 import com.alejandro.gestordenotas.entities.User;
 
 // The class that contains the data to be mocked in the service and controller methods
@@ -11,18 +12,22 @@ public class UserData {
     
     public static final List<Long> idsValid = Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L);
 
-    public static final List<Long> userIdsWithAdminOrSuperAdminRole = Arrays.asList(idsValid.get(0), idsValid.get(1), idsValid.get(2));
-
     public static User createUser001() {
-        return new User(idsValid.get(0), "alejandro", "ale123", true, true, NoteData.createNotes001(), RoleData.createRoles003());
+        User user = new User(idsValid.get(0), "alejandro", "ale123", true, true, NoteData.createNotes001(), RoleData.createRoles003());
+        user.setRoleLevel(RoleLevel.SUPER_ADMIN);
+        return user;
     }
 
     public static User createUser002() {
-        return new User(idsValid.get(1), "fernando", "fer123", true, true, NoteData.createNotes002(), RoleData.createRoles002());
+        User user = new User(idsValid.get(1), "fernando", "fer123", true, true, NoteData.createNotes002(), RoleData.createRoles002());
+        user.setRoleLevel(RoleLevel.ADMIN);
+        return user;
     }
 
     public static User createUser003() {
-        return new User(idsValid.get(2), "celia", "celia123", true, true, NoteData.createNotes003(), RoleData.createRoles002());
+        User user = new User(idsValid.get(2), "celia", "celia123", true, true, NoteData.createNotes003(), RoleData.createRoles002());
+        user.setRoleLevel(RoleLevel.ADMIN);
+        return user;
     }
 
     public static User createUser004() {
@@ -0,0 +1,95 @@
+package com.alejandro.gestordenotas.entities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class NoteContentConverterTest {
+
+    // The converter with a small threshold to compress the contents of the tests
+    NoteContentConverter converter = new NoteContentConverter(64);
+
+
+    // To test the 'convertToDatabaseColumn' method when the content is smaller than the threshold
+    @Test
+    void convertSmallContentTest() {
+
+        // Given
+        String content = "Comprar leche y pan";
+
+        // When
+        byte[] value = converter.convertToDatabaseColumn(content);
+
+        // Then
+        assertEquals(NoteContentConverter.PLAIN, value[0]);
+        assertEquals(content, new String(value, 1, value.length - 1, StandardCharsets.UTF_8));
+        assertEquals(content, converter.convertToEntityAttribute(value));
+    }
+
+    // To test the 'convertToDatabaseColumn' method when the content is bigger than the threshold
+    @Test
+    void convertBigContentTest() {
+
+        // Given
+        String content = "Reunión con el equipo del proyecto para revisar las tareas pendientes. ".repeat(100);
+
+        // When
+        byte[] value = converter.convertToDatabaseColumn(content);
+
+        // Then
+        assertEquals(NoteContentConverter.DEFLATE, value[0]);
+        assertTrue(value.length < content.getBytes(StandardCharsets.UTF_8).length / 10);
+        assertEquals(content, converter.convertToEntityAttribute(value));
+    }
+
+    // To test the 'convertToDatabaseColumn' method when the compressed content is not smaller
+    @Test
+    void convertIncompressibleContentTest() {
+
+        // Given: a converter that compresses all of the contents
+        NoteContentConverter compressAll = new NoteContentConverter(0);
+
+        // When
+        byte[] value = compressAll.convertToDatabaseColumn("Hola");
+
+        // Then
+        assertEquals(NoteContentConverter.PLAIN, value[0]);
+        assertEquals(5, value.length);
+        assertEquals("Hola", compressAll.convertToEntityAttribute(value));
+    }
+
+    // To test the 'convertToEntityAttribute' method with a note saved before the converter (without marker)
+    @Test
+    void convertLegacyContentTest() {
+
+        // Given
+        byte[] value = "This is the note No. 1".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        String content = converter.convertToEntityAttribute(value);
+
+        // Then
+        assertEquals("This is the note No. 1", content);
+        assertEquals("", converter.convertToEntityAttribute(new byte[0]));
+        assertNull(converter.convertToEntityAttribute(null));
+        assertNull(converter.convertToDatabaseColumn(null));
+    }
+
+    // To test the 'convertToEntityAttribute' method with a compressed value that is incomplete
+    @Test
+    void convertCorruptedContentTest() {
+
+        // Given
+        byte[] value = converter.convertToDatabaseColumn("Comprar leche, pan y huevos. ".repeat(50));
+        byte[] truncated = Arrays.copyOf(value, value.length / 2);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> {
+            converter.convertToEntityAttribute(truncated);
+        });
+    }
+
+}
@@ -2,25 +2,30 @@ package com.alejandro.gestordenotas.integrations;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
 import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.security.TokenRevocations;
 import com.alejandro.gestordenotas.utils.JwtTokenUtil;
 import com.alejandro.gestordenotas.data.UserData;
 import com.alejandro.gestordenotas.dto.AdminDto;
+import com.alejandro.gestordenotas.dto.UserBulkDto;
+import com.alejandro.gestordenotas.dto.UserBulkResultDto;
+import com.alejandro.gestordenotas.dto.UserPageDto;
 
 
 // To load/insert the data on the file 'insert.sql'  
@@ -38,6 +43,16 @@ class AdminIntegrationTest {
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    // To forget the users changed by the previous tests
+    @Autowired
+    private TokenRevocations tokenRevocations;
+
+    @BeforeEach
+    void setUp() {
+        // The users are read again from the db (the data of 'insert.sql')
+        tokenRevocations.rebuild();
+    }
+
     
     // getAllUsersWithUserRole ----------------------------------------------------
 
@@ -58,13 +73,13 @@ class AdminIntegrationTest {
         HttpEntity<Void> entity = new HttpEntity<>(headers);
 
         // When
-        ResponseEntity<AdminDto[]> response = client.exchange(
+        ResponseEntity<UserPageDto<AdminDto>> response = client.exchange(
                 "/api/admins/users",
                 HttpMethod.GET,
                 entity,
-                AdminDto[].class
+                new ParameterizedTypeReference<UserPageDto<AdminDto>>() {}
         );
-        List<AdminDto> users = Arrays.asList(response.getBody());  
+        List<AdminDto> users = response.getBody().getUsers();
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -92,13 +107,13 @@ class AdminIntegrationTest {
         HttpEntity<Void> entity = new HttpEntity<>(headers);
 
         // When
-        ResponseEntity<AdminDto[]> response = client.exchange(
+        ResponseEntity<UserPageDto<AdminDto>> response = client.exchange(
                 "/api/admins/users",
                 HttpMethod.GET,
                 entity,
-                AdminDto[].class
+                new ParameterizedTypeReference<UserPageDto<AdminDto>>() {}
         );
-        List<AdminDto> users = Arrays.asList(response.getBody());  
+        List<AdminDto> users = response.getBody().getUsers();
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -138,6 +153,80 @@ class AdminIntegrationTest {
         assertNull(response.getBody());
     }
 
+    // To test the 'getAllUsersWithUserRole' endpoint with pages of one user ordered by username
+    @Test
+    void getAllUsersWithUserRolePagesIntegrationTest() {
+
+        // Given
+        User admin = UserData.createUser002();
+        admin.setId(11L); // Change the user id for the user id in the insert.sql file
+
+        // Generate a valid token for this user
+        String token = jwtTokenUtil.createToken(admin);
+
+        // Prepares the headers with the token
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token); 
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        // When
+        UserPageDto<AdminDto> firstPage = client.exchange(
+                "/api/admins/users?sort=username&limit=2",
+                HttpMethod.GET,
+                entity,
+                new ParameterizedTypeReference<UserPageDto<AdminDto>>() {}
+        ).getBody();
+        UserPageDto<AdminDto> secondPage = client.exchange(
+                "/api/admins/users?sort=username&limit=2&after=" + firstPage.getNextCursor(),
+                HttpMethod.GET,
+                entity,
+                new ParameterizedTypeReference<UserPageDto<AdminDto>>() {}
+        ).getBody();
+
+        // Then
+        assertEquals(List.of("jorge", "pancha"), firstPage.getUsers().stream().map(AdminDto::getUsername).toList());
+        assertNotNull(firstPage.getNextCursor());
+        assertEquals(List.of("rayas"), secondPage.getUsers().stream().map(AdminDto::getUsername).toList());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    // To test the 'getAllUsersWithUserRole' endpoint with the filters of the state and the username
+    @Test
+    void getAllUsersWithUserRoleFiltersIntegrationTest() {
+
+        // Given
+        User admin = UserData.createUser002();
+        admin.setId(11L); // Change the user id for the user id in the insert.sql file
+
+        // Generate a valid token for this user
+        String token = jwtTokenUtil.createToken(admin);
+
+        // Prepares the headers with the token
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token); 
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        // When
+        ResponseEntity<UserPageDto<AdminDto>> response = client.exchange(
+                "/api/admins/users?enabled=false",
+                HttpMethod.GET,
+                entity,
+                new ParameterizedTypeReference<UserPageDto<AdminDto>>() {}
+        );
+        ResponseEntity<UserPageDto<AdminDto>> responseUsername = client.exchange(
+                "/api/admins/users?username=ra",
+                HttpMethod.GET,
+                entity,
+                new ParameterizedTypeReference<UserPageDto<AdminDto>>() {}
+        );
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(15L), response.getBody().getUsers().stream().map(AdminDto::getId).toList());
+        assertFalse(response.getBody().getUsers().get(0).isEnabled());
+        assertEquals(List.of(14L), responseUsername.getBody().getUsers().stream().map(AdminDto::getId).toList());
+    }
+
     // getUserWithUserRole ----------------------------------------------------
     
     // To test the 'getUserWithUserRole' endpoint when is called by user with the super admin role
@@ -449,8 +538,9 @@ class AdminIntegrationTest {
     void disableEnableUserUserIntegrationTest() {
 
         // Given
-        User admin = UserData.createUser005();
-        admin.setId(15L); // ID que existe en insert.sql
+        // (the token of a disabled user is rejected before its roles are checked, so the user is enabled)
+        User admin = UserData.createUser004();
+        admin.setId(13L); // ID que existe en insert.sql
         Long idToSearch = 15L;
 
         // Generate a valid token for this user (admin)
@@ -474,6 +564,43 @@ class AdminIntegrationTest {
         assertNull(response.getBody());
     }
 
+    //  Disable a user: its token is rejected at once and it is valid again when the user is enabled
+    @Test
+    void disableEnableUserTokenRevokedIntegrationTest() {
+
+        // Given
+        User admin = UserData.createUser002();
+        admin.setId(11L); // ID que existe en insert.sql
+        User user = UserData.createUser005();
+        user.setId(14L); // ID que existe en insert.sql
+
+        HttpHeaders adminHeaders = new HttpHeaders();
+        adminHeaders.setBearerAuth(jwtTokenUtil.createToken(admin));
+        HttpHeaders userHeaders = new HttpHeaders();
+        userHeaders.setBearerAuth(jwtTokenUtil.createToken(user));
+        HttpEntity<Void> adminEntity = new HttpEntity<>(adminHeaders);
+        HttpEntity<Void> userEntity = new HttpEntity<>(userHeaders);
+
+        // The token of the user is valid (and it is kept by the filter)
+        assertEquals(HttpStatus.OK, client.exchange("/api/users/14", HttpMethod.GET, userEntity, String.class).getStatusCode());
+
+        // When
+        ResponseEntity<AdminDto> disabled = client.exchange("/api/admins/user/14", HttpMethod.PATCH, adminEntity, AdminDto.class);
+        ResponseEntity<String> rejected = client.exchange("/api/users/14", HttpMethod.GET, userEntity, String.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, disabled.getStatusCode());
+        assertFalse(disabled.getBody().isEnabled());
+        assertEquals(HttpStatus.UNAUTHORIZED, rejected.getStatusCode());
+        assertTrue(rejected.getBody().contains("El token JWT fue revocado!"));
+
+        // When
+        client.exchange("/api/admins/user/14", HttpMethod.PATCH, adminEntity, AdminDto.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, client.exchange("/api/users/14", HttpMethod.GET, userEntity, String.class).getStatusCode());
+    }
+
     //  Disable or enable a user when this endpoint is called by a user with the admin role
     // but the searched user doesnt exist
     @Test
@@ -505,4 +632,90 @@ class AdminIntegrationTest {
         assertNull(response.getBody());
     }
 
+    // disableUsers / enableUsers ----------------------------------------------------
+
+    //  Disable many users by their ids: the admins are not disabled and the tokens of the disabled users are rejected
+    @Test
+    void disableUsersIntegrationTest() {
+
+        // Given
+        User admin = UserData.createUser002();
+        admin.setId(11L); // ID que existe en insert.sql
+        User user = UserData.createUser005();
+        user.setId(14L); // ID que existe en insert.sql
+
+        HttpHeaders adminHeaders = new HttpHeaders();
+        adminHeaders.setBearerAuth(jwtTokenUtil.createToken(admin));
+        HttpHeaders userHeaders = new HttpHeaders();
+        userHeaders.setBearerAuth(jwtTokenUtil.createToken(user));
+        HttpEntity<UserBulkDto> bulkEntity = new HttpEntity<>(new UserBulkDto(List.of(12L, 13L, 14L, 15L, 14L), null, null, null),
+            adminHeaders);
+
+        // When
+        ResponseEntity<UserBulkResultDto> response = client.exchange("/api/admins/users/disable", HttpMethod.PATCH,
+            bulkEntity, UserBulkResultDto.class);
+        ResponseEntity<String> rejected = client.exchange("/api/users/14", HttpMethod.GET,
+            new HttpEntity<>(userHeaders), String.class);
+        ResponseEntity<AdminDto> disabled = client.exchange("/api/admins/user/13", HttpMethod.GET,
+            new HttpEntity<>(adminHeaders), AdminDto.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        UserBulkResultDto result = response.getBody();
+        assertEquals(4, result.getRequested());
+        assertEquals(1, result.getGuarded());
+        assertEquals(2, result.getUpdated());
+        // The user was already disabled
+        assertEquals(1, result.getUnchanged());
+        assertEquals(1, result.getChunks());
+
+        assertEquals(HttpStatus.UNAUTHORIZED, rejected.getStatusCode());
+        assertFalse(disabled.getBody().isEnabled());
+    }
+
+    //  Enable many users by the filters: only the disabled users with the user role are enabled
+    @Test
+    void enableUsersByFiltersIntegrationTest() {
+
+        // Given
+        User admin = UserData.createUser002();
+        admin.setId(11L); // ID que existe en insert.sql
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(jwtTokenUtil.createToken(admin));
+        HttpEntity<UserBulkDto> entity = new HttpEntity<>(new UserBulkDto(null, false, null, null), headers);
+
+        // When
+        ResponseEntity<UserBulkResultDto> response = client.exchange("/api/admins/users/enable", HttpMethod.PATCH,
+            entity, UserBulkResultDto.class);
+        ResponseEntity<AdminDto> enabled = client.exchange("/api/admins/user/15", HttpMethod.GET,
+            new HttpEntity<>(headers), AdminDto.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getRequested());
+        assertEquals(1, response.getBody().getUpdated());
+        assertTrue(enabled.getBody().isEnabled());
+    }
+
+    //  Disable many users without ids and filters
+    @Test
+    void disableUsersInvalidIntegrationTest() {
+
+        // Given
+        User admin = UserData.createUser002();
+        admin.setId(11L); // ID que existe en insert.sql
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(jwtTokenUtil.createToken(admin));
+        HttpEntity<UserBulkDto> entity = new HttpEntity<>(new UserBulkDto(), headers);
+
+        // When
+        ResponseEntity<String> response = client.exchange("/api/admins/users/disable", HttpMethod.PATCH, entity, String.class);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertTrue(response.getBody().contains("idsOrFilters"));
+    }
+
 }
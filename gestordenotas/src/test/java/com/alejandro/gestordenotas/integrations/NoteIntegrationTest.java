@@ -2,9 +2,17 @@ package com.alejandro.gestordenotas.integrations;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -12,15 +20,30 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.alejandro.gestordenotas.entities.Note;
+import com.alejandro.gestordenotas.entities.NoteContentConverter;
 import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.security.TokenRevocations;
+import com.alejandro.gestordenotas.services.NoteService;
+import com.alejandro.gestordenotas.services.NoteServiceImp;
 import com.alejandro.gestordenotas.utils.JwtTokenUtil;
 import com.alejandro.gestordenotas.data.UserData;
+import com.alejandro.gestordenotas.dto.NoteBatchDto;
+import com.alejandro.gestordenotas.dto.NoteBatchResultDto;
+import com.alejandro.gestordenotas.dto.NoteChangesDto;
+import com.alejandro.gestordenotas.dto.NoteImportResultDto;
+import com.alejandro.gestordenotas.dto.NotePageDto;
+import com.alejandro.gestordenotas.dto.NoteSearchHitDto;
 import com.alejandro.gestordenotas.dto.UserDto;
 
+import jakarta.persistence.EntityManager;
+
 
 // To load/insert the data on the file 'insert.sql'  
 // To use the configurations on application-test.properties
@@ -37,6 +60,30 @@ class NoteIntegrationTest {
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    // To forget the users changed by the previous tests
+    @Autowired
+    private TokenRevocations tokenRevocations;
+
+    // To read the values saved in the db
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // To call the service in a transaction of the test
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        // The users are read again from the db (the data of 'insert.sql')
+        tokenRevocations.rebuild();
+    }
+
 
     // To test the endpoint getNotesByUser with an existing idUser and the user is the owner of resource
     @Test
@@ -56,13 +103,13 @@ class NoteIntegrationTest {
         HttpEntity<Void> entity = new HttpEntity<>(headers);
 
         // When
-        ResponseEntity<Note[]> response = client.exchange(
+        ResponseEntity<NotePageDto> response = client.exchange(
                 "/api/users/" + idUserToSearch + "/notes",
                 HttpMethod.GET,
                 entity,
-                Note[].class
+                NotePageDto.class
         );
-        List<Note> notes = Arrays.asList(response.getBody());  
+        List<Note> notes = response.getBody().getNotes();
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -70,6 +117,150 @@ class NoteIntegrationTest {
         assertEquals(3, notes.size());
         assertEquals(21, notes.get(0).getId());
         assertEquals("This is the note No. 2", notes.get(0).getContent());
+        assertNull(response.getBody().getNextCursor());
+    }
+
+    // To test the endpoint getNotesByUser when the notes are requested page by page
+    @Test
+    void getNotesByUserPaginatedIntegrationTest() {
+
+        // Given
+        User userToSearch = UserData.createUser002();
+        Long idUserToSearch = 11L;
+        userToSearch.setId(11L); // Change the user id for the user id in the insert.sql file
+
+        // Generate a valid token for this user
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        // Prepares the headers with the token
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token); 
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        // When: get the first page
+        ResponseEntity<NotePageDto> response = client.exchange(
+                "/api/users/" + idUserToSearch + "/notes?limit=2",
+                HttpMethod.GET,
+                entity,
+                NotePageDto.class
+        );
+        NotePageDto firstPage = response.getBody();
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, firstPage.getNotes().size());
+        assertEquals(21, firstPage.getNotes().get(0).getId());
+        assertEquals(31, firstPage.getNotes().get(1).getId());
+        assertNotNull(firstPage.getNextCursor());
+
+        // When: get the second page with the cursor of the first page
+        ResponseEntity<NotePageDto> response2 = client.exchange(
+                "/api/users/" + idUserToSearch + "/notes?limit=2&after=" + firstPage.getNextCursor(),
+                HttpMethod.GET,
+                entity,
+                NotePageDto.class
+        );
+        NotePageDto secondPage = response2.getBody();
+
+        // Then
+        assertEquals(HttpStatus.OK, response2.getStatusCode());
+        assertEquals(1, secondPage.getNotes().size());
+        assertEquals(41, secondPage.getNotes().get(0).getId());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    // To test the endpoint getNotesByUser with the etag of a previous response:
+    // 304 while the notes do not change and 200 with a new etag after a change
+    @Test
+    void getNotesByUserConditionalIntegrationTest() {
+
+        // Given
+        User userToSearch = UserData.createUser002();
+        Long idUserToSearch = 11L;
+        userToSearch.setId(11L); // Change the user id for the user id in the insert.sql file
+
+        // Generate a valid token for this user
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        // Prepares the headers with the token
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token); 
+
+        // When: get the notes for the first time
+        ResponseEntity<NotePageDto> response = client.exchange("/api/users/" + idUserToSearch + "/notes",
+                HttpMethod.GET, new HttpEntity<>(headers), NotePageDto.class);
+        String etag = response.getHeaders().getETag();
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(etag);
+
+        // When: get the notes again with the etag
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<NotePageDto> response2 = client.exchange("/api/users/" + idUserToSearch + "/notes",
+                HttpMethod.GET, new HttpEntity<>(headers), NotePageDto.class);
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, response2.getStatusCode());
+        assertEquals(etag, response2.getHeaders().getETag());
+        assertNull(response2.getBody());
+
+        // When: update a note and get the notes again with the etag
+        HttpHeaders editHeaders = new HttpHeaders();
+        editHeaders.setBearerAuth(token);
+        editHeaders.setContentType(MediaType.APPLICATION_JSON);
+        client.exchange("/api/users/" + idUserToSearch + "/notes/21", HttpMethod.PATCH,
+                new HttpEntity<>(new Note(null, "This is an update note"), editHeaders), UserDto.class);
+
+        ResponseEntity<NotePageDto> response3 = client.exchange("/api/users/" + idUserToSearch + "/notes",
+                HttpMethod.GET, new HttpEntity<>(headers), NotePageDto.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response3.getStatusCode());
+        assertNotEquals(etag, response3.getHeaders().getETag());
+        assertEquals("This is an update note", response3.getBody().getNotes().get(0).getContent());
+    }
+
+    // To test the endpoint getNoteByUser with the etag of a previous response
+    @Test
+    void getNoteByUserConditionalIntegrationTest() {
+
+        // Given
+        User userToSearch = UserData.createUser002();
+        Long idUserToSearch = 11L;
+        userToSearch.setId(11L); // Change the user id for the user id in the insert.sql file
+
+        // Generate a valid token for this user
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        // Prepares the headers with the token
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token); 
+
+        // When: get the note for the first time
+        ResponseEntity<Note> response = client.exchange("/api/users/" + idUserToSearch + "/notes/31",
+                HttpMethod.GET, new HttpEntity<>(headers), Note.class);
+        String etag = response.getHeaders().getETag();
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(31L, response.getBody().getId());
+        assertNotNull(etag);
+
+        // When: get the note again with the etag
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<Note> response2 = client.exchange("/api/users/" + idUserToSearch + "/notes/31",
+                HttpMethod.GET, new HttpEntity<>(headers), Note.class);
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, response2.getStatusCode());
+
+        // When: get a note of other user
+        ResponseEntity<Note> response3 = client.exchange("/api/users/" + idUserToSearch + "/notes/51",
+                HttpMethod.GET, new HttpEntity<>(headers), Note.class);
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response3.getStatusCode());
     }
 
     // To test the endpoint getNotesByUser with an existing idUser and the user is not the owner of resource
@@ -155,6 +346,42 @@ class NoteIntegrationTest {
         assertEquals("rayas", response.getBody().getUsername());
     }
 
+    // To test the 'saveNewNoteByUserId' endpoint with a big note: it is saved compressed 
+    // and it is read with the same content
+    @Test
+    void postSaveNewNoteByUserIdBigContentIntegrationTest() {
+
+        // Given
+        Long idUserToSearch = 14L;
+        String content = "Reunión con el equipo del proyecto para revisar las tareas pendientes.\n".repeat(200);
+        User userToUpdate = UserData.createUser005();
+        userToUpdate.setId(14L);
+
+        // Generate a valid token for this user
+        String token = jwtTokenUtil.createToken(userToUpdate);
+
+        // Prepares the headers with the token
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        // When
+        ResponseEntity<UserDto> response = client.exchange("/api/users/" + idUserToSearch + "/notes", HttpMethod.POST,
+                new HttpEntity<>(new Note(null, content), headers), UserDto.class);
+        ResponseEntity<NotePageDto> notes = client.exchange("/api/users/" + idUserToSearch + "/notes", HttpMethod.GET,
+                new HttpEntity<>(headers), NotePageDto.class);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(1, notes.getBody().getNotes().size());
+        assertEquals(content, notes.getBody().getNotes().get(0).getContent());
+
+        // The db has the compressed content
+        byte[] saved = jdbcTemplate.queryForObject("SELECT content FROM note WHERE id_user = ?", byte[].class, idUserToSearch);
+        assertEquals(NoteContentConverter.DEFLATE, saved[0]);
+        assertTrue(saved.length < content.getBytes(StandardCharsets.UTF_8).length / 10);
+    }
+
     // To test the 'saveNewNoteByUserId' endpoint when the idUser exists and the use is not the owner of resource
     @Test
     void postSaveNewNoteByUserIdExistingIdNoOwnerIntegrationTest() {
@@ -206,6 +433,491 @@ class NoteIntegrationTest {
         assertNull(response.getBody());
     }
 
+    // To test the 'saveNewNotesByUserId' endpoint when the user is the owner of resource
+    @Test
+    void postSaveNewNotesByUserIdOwnerIntegrationTest() {
+
+        // Given
+        Long idUserToSearch = 14L;
+        List<Note> notesToInsert = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            notesToInsert.add(new Note(null, "This is the new note No. " + i));
+        }
+
+        User userToUpdate = UserData.createUser005();
+        userToUpdate.setId(14L);
+        String token = jwtTokenUtil.createToken(userToUpdate);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        // When
+        ResponseEntity<NoteBatchResultDto> response = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes/batch",
+            HttpMethod.POST,
+            new HttpEntity<>(new NoteBatchDto(notesToInsert), headers),
+            NoteBatchResultDto.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(idUserToSearch, response.getBody().getUserId());
+        assertEquals(120, response.getBody().getCreated());
+
+        // When: get the saved notes
+        ResponseEntity<NotePageDto> page = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes?limit=100",
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            NotePageDto.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.OK, page.getStatusCode());
+        assertEquals(100, page.getBody().getNotes().size());
+        assertEquals("This is the new note No. 0", page.getBody().getNotes().get(0).getContent());
+        assertNotNull(page.getBody().getNextCursor());
+    }
+
+    // To test the 'saveNotesByUser' method of the service in a transaction: no saved note stays in the
+    // persistence context, not even the notes of the last batch (it is not complete), so the chunks
+    // of an import don't keep their notes
+    @Test
+    void saveNotesByUserPersistenceContextIntegrationTest() {
+
+        // Given
+        Long idUserToSearch = 14L;
+        List<Note> notesToInsert = new ArrayList<>();
+        for (int i = 0; i < NoteServiceImp.BATCH_SIZE + 10; i++) {
+            notesToInsert.add(new Note(null, "This is the new note No. " + i));
+        }
+
+        // When
+        List<Boolean> managed = new TransactionTemplate(transactionManager).execute(status -> {
+            noteService.saveNotesByUser(idUserToSearch, notesToInsert);
+            return notesToInsert.stream().map(entityManager::contains).toList();
+        });
+
+        // Then
+        assertEquals(notesToInsert.size(), managed.size());
+        assertFalse(managed.contains(true));
+        notesToInsert.forEach(note -> assertNotNull(note.getId()));
+    }
+
+    // To test the 'saveNewNotesByUserId' endpoint when the user is not the owner of resource
+    @Test
+    void postSaveNewNotesByUserIdNoOwnerIntegrationTest() {
+
+        // Given
+        Long idUserToSearch = 15L;
+        User userToUpdate = UserData.createUser005();
+        userToUpdate.setId(14L);
+        String token = jwtTokenUtil.createToken(userToUpdate);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        // When
+        ResponseEntity<Void> response = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes/batch",
+            HttpMethod.POST,
+            new HttpEntity<>(new NoteBatchDto(List.of(new Note(null, "This is a new note"))), headers),
+            Void.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    // To test the 'saveNewNotesByUserId' endpoint when the user of the token doesn't exist anymore
+    @Test
+    void postSaveNewNotesByUserIdInexistingUserIntegrationTest() {
+
+        // Given
+        Long idUserToSearch = 99999L;
+        User deletedUser = UserData.createUser005();
+        deletedUser.setId(idUserToSearch);
+        String token = jwtTokenUtil.createToken(deletedUser);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        // When
+        ResponseEntity<Void> response = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes/batch",
+            HttpMethod.POST,
+            new HttpEntity<>(new NoteBatchDto(List.of(new Note(null, "This is a new note"))), headers),
+            Void.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    // To test the 'searchNotesByUserId' endpoint: the index is built from the db and then
+    // it is updated with the new, updated and deleted notes
+    @Test
+    void getSearchNotesByUserIdOwnerIntegrationTest() {
+
+        // Given
+        User userToSearch = UserData.createUser002();
+        Long idUserToSearch = 11L;
+        userToSearch.setId(11L); // Change the user id for the user id in the insert.sql file
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String url = "/api/users/" + idUserToSearch + "/notes/search?q=";
+
+        // When
+        ResponseEntity<NoteSearchHitDto[]> fromDb = client.exchange(url + "No. 3", HttpMethod.GET, new HttpEntity<>(headers), NoteSearchHitDto[].class);
+
+        client.exchange("/api/users/" + idUserToSearch + "/notes", HttpMethod.POST,
+            new HttpEntity<>(new Note(null, "Comprar leche de almendra"), headers), UserDto.class);
+        client.exchange("/api/users/" + idUserToSearch + "/notes/21", HttpMethod.PATCH,
+            new HttpEntity<>(new Note(null, "Llamar por la leche"), headers), UserDto.class);
+        client.exchange("/api/users/" + idUserToSearch + "/notes/41", HttpMethod.DELETE, new HttpEntity<>(headers), UserDto.class);
+
+        ResponseEntity<NoteSearchHitDto[]> milk = client.exchange(url + "LECHE almendra", HttpMethod.GET, new HttpEntity<>(headers), NoteSearchHitDto[].class);
+        ResponseEntity<NoteSearchHitDto[]> deleted = client.exchange(url + "4", HttpMethod.GET, new HttpEntity<>(headers), NoteSearchHitDto[].class);
+
+        // Then
+        assertEquals(HttpStatus.OK, fromDb.getStatusCode());
+        assertEquals(31L, fromDb.getBody()[0].getNote().getId());
+        assertEquals(3, fromDb.getBody().length);
+
+        assertEquals(2, milk.getBody().length);
+        assertEquals("Comprar leche de almendra", milk.getBody()[0].getNote().getContent());
+        assertEquals(21L, milk.getBody()[1].getNote().getId());
+        assertEquals(0, deleted.getBody().length);
+    }
+
+    // To test the 'searchNotesByUserId' endpoint when the user is not the owner of resource
+    @Test
+    void getSearchNotesByUserIdNoOwnerIntegrationTest() {
+
+        // Given
+        User userToSearch = UserData.createUser002();
+        Long idUserToSearch = 12L;
+        userToSearch.setId(11L); // Change the user id for the user id in the insert.sql file
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        // When
+        ResponseEntity<Void> response = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes/search?q=note",
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            Void.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    // To test the 'getNoteChangesByUserId' endpoint: first the notes are synced page by page
+    // and then only the updated and deleted notes are received
+    @Test
+    void getNoteChangesByUserIdOwnerIntegrationTest() {
+
+        // Given
+        User userToSearch = UserData.createUser002();
+        Long idUserToSearch = 11L;
+        userToSearch.setId(11L); // Change the user id for the user id in the insert.sql file
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String url = "/api/users/" + idUserToSearch + "/notes/changes";
+
+        // When
+        ResponseEntity<NoteChangesDto> firstPage = client.exchange(url + "?limit=2", HttpMethod.GET, new HttpEntity<>(headers), NoteChangesDto.class);
+        ResponseEntity<NoteChangesDto> secondPage = client.exchange(url + "?limit=2&since=" + firstPage.getBody().getNextToken(),
+            HttpMethod.GET, new HttpEntity<>(headers), NoteChangesDto.class);
+        ResponseEntity<NoteChangesDto> noChanges = client.exchange(url + "?since=" + secondPage.getBody().getNextToken(),
+            HttpMethod.GET, new HttpEntity<>(headers), NoteChangesDto.class);
+
+        client.exchange("/api/users/" + idUserToSearch + "/notes/21", HttpMethod.PATCH,
+            new HttpEntity<>(new Note(null, "This is an update note"), headers), UserDto.class);
+        client.exchange("/api/users/" + idUserToSearch + "/notes/31", HttpMethod.DELETE, new HttpEntity<>(headers), UserDto.class);
+
+        ResponseEntity<NoteChangesDto> changes = client.exchange(url + "?since=" + noChanges.getBody().getNextToken(),
+            HttpMethod.GET, new HttpEntity<>(headers), NoteChangesDto.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, firstPage.getStatusCode());
+        assertEquals(List.of(21L, 31L), firstPage.getBody().getUpserted().stream().map(Note::getId).toList());
+        assertTrue(firstPage.getBody().isHasMore());
+        assertEquals(List.of(41L), secondPage.getBody().getUpserted().stream().map(Note::getId).toList());
+        assertFalse(secondPage.getBody().isHasMore());
+        assertTrue(noChanges.getBody().getUpserted().isEmpty());
+        assertEquals(secondPage.getBody().getNextToken(), noChanges.getBody().getNextToken());
+
+        assertEquals(1, changes.getBody().getUpserted().size());
+        assertEquals(21L, changes.getBody().getUpserted().get(0).getId());
+        assertEquals("This is an update note", changes.getBody().getUpserted().get(0).getContent());
+        assertEquals(List.of(31L), changes.getBody().getDeleted());
+        assertFalse(changes.getBody().isHasMore());
+    }
+
+    // To test two edits of the notes of the same user at the same time: the second edit doesn't wait
+    // for the transaction of the first one (the user is not locked) and each edit gets its own version,
+    // in the order of the edits
+    @Test
+    void editNoteByUserConcurrentIntegrationTest() throws Exception {
+
+        // Given
+        Long idUserToSearch = 11L;
+        CountDownLatch firstEdited = new CountDownLatch(1);
+        CountDownLatch firstCommit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // When
+            Future<Boolean> first = executor.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+                boolean updated = noteService.editNoteByUser(idUserToSearch, 21L, new Note(null, "This is the first edit"), null);
+                firstEdited.countDown();
+                try {
+                    firstCommit.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return updated;
+            }));
+            assertTrue(firstEdited.await(5, TimeUnit.SECONDS));
+
+            boolean second = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> noteService.editNoteByUser(idUserToSearch, 31L, new Note(null, "This is the second edit"), null));
+            firstCommit.countDown();
+
+            // Then
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertTrue(second);
+        } finally {
+            firstCommit.countDown();
+            executor.shutdown();
+        }
+
+        Long firstVersion = jdbcTemplate.queryForObject("SELECT notes_version FROM note WHERE id_note = 21", Long.class);
+        Long secondVersion = jdbcTemplate.queryForObject("SELECT notes_version FROM note WHERE id_note = 31", Long.class);
+        assertTrue(firstVersion > 0);
+        assertTrue(firstVersion < secondVersion);
+    }
+
+    // To test the 'getNoteChangesByUserId' endpoint when the user is not the owner of resource
+    @Test
+    void getNoteChangesByUserIdNoOwnerIntegrationTest() {
+
+        // Given
+        User userToSearch = UserData.createUser002();
+        Long idUserToSearch = 12L;
+        userToSearch.setId(11L); // Change the user id for the user id in the insert.sql file
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        // When
+        ResponseEntity<Void> response = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes/changes",
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            Void.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    // To test the 'importNotesByUserId' endpoint with a NDJSON file and then the 
+    // imported notes are exported
+    @Test
+    void postImportNotesByUserIdOwnerIntegrationTest() {
+
+        // Given
+        Long idUserToSearch = 14L;
+        User userToSearch = UserData.createUser005();
+        userToSearch.setId(14L); // Change the user id for the user id in the insert.sql file
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1200; i++) {
+            body.append("{\"content\":\"This is the imported note No. ").append(i).append("\"}\n");
+        }
+        body.append("{\"content\":\" \"}\n");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+
+        // When
+        ResponseEntity<NoteImportResultDto> response = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes/import",
+            HttpMethod.POST,
+            new HttpEntity<>(body.toString(), headers),
+            NoteImportResultDto.class
+        );
+        ResponseEntity<String> export = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes/export",
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            String.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1200, response.getBody().getImported());
+        assertEquals(1, response.getBody().getRejected());
+        assertEquals(1201, response.getBody().getErrors().get(0).getLine());
+        assertEquals(1200, export.getBody().split("\n").length);
+    }
+
+    // To test the 'importNotesByUserId' endpoint with a CSV file
+    @Test
+    void postImportNotesByUserIdCsvIntegrationTest() {
+
+        // Given
+        Long idUserToSearch = 14L;
+        User userToSearch = UserData.createUser005();
+        userToSearch.setId(14L); // Change the user id for the user id in the insert.sql file
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.valueOf("text/csv"));
+
+        // When
+        ResponseEntity<NoteImportResultDto> response = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes/import",
+            HttpMethod.POST,
+            new HttpEntity<>("content\nThis is a csv note\n\"This is another, csv note\"\n", headers),
+            NoteImportResultDto.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().getImported());
+        assertEquals(0, response.getBody().getRejected());
+    }
+
+    // To test the 'exportNotesByUserId' endpoint when the user is the owner of resource
+    @Test
+    void getExportNotesByUserIdOwnerIntegrationTest() {
+
+        // Given
+        User userToSearch = UserData.createUser002();
+        Long idUserToSearch = 11L;
+        userToSearch.setId(11L); // Change the user id for the user id in the insert.sql file
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        // When
+        ResponseEntity<String> response = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes/export",
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            String.class
+        );
+        String[] lines = response.getBody().split("\n");
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(MediaType.APPLICATION_NDJSON.isCompatibleWith(response.getHeaders().getContentType()));
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":21,\"content\":\"This is the note No. 2\""));
+    }
+
+    // To test the 'exportNotesByUserId' endpoint when the user is not the owner of resource
+    @Test
+    void getExportNotesByUserIdNoOwnerIntegrationTest() {
+
+        // Given
+        User userToSearch = UserData.createUser002();
+        Long idUserToSearch = 12L;
+        userToSearch.setId(11L); // Change the user id for the user id in the insert.sql file
+        String token = jwtTokenUtil.createToken(userToSearch);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        // When
+        ResponseEntity<Void> response = client.exchange(
+            "/api/users/" + idUserToSearch + "/notes/export",
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            Void.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    // To test the 'editNoteByUserId' and 'deleteNoteByUserId' endpoints with the etag of the note:
+    // a change with an old etag is rejected instead of overwriting the newest content
+    @Test
+    void patchAndDeleteNoteByUserIdIfMatchIntegrationTest() {
+
+        // Given
+        Long idUserToSearch = 12L;
+        User userToUpdate = UserData.createUser003();
+        userToUpdate.setId(12L);
+        Long idNoteToSearch = 61L;
+        String url = "/api/users/" + idUserToSearch + "/notes/" + idNoteToSearch;
+
+        // Generate a valid token for this user
+        String token = jwtTokenUtil.createToken(userToUpdate);
+
+        // Prepares the headers with the token
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        // Get the etag of the note
+        String etag = client.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), Note.class).getHeaders().getETag();
+
+        // When: update the note with its etag (the first device)
+        headers.setIfMatch(etag);
+        ResponseEntity<UserDto> response = client.exchange(url, HttpMethod.PATCH,
+                new HttpEntity<>(new Note(null, "The first change"), headers), UserDto.class);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+
+        // When: update the note with the same etag (the second device did not see the first change)
+        ResponseEntity<String> response2 = client.exchange(url, HttpMethod.PATCH,
+                new HttpEntity<>(new Note(null, "The second change"), headers), String.class);
+        ResponseEntity<String> response3 = client.exchange(url, HttpMethod.DELETE, new HttpEntity<>(headers), String.class);
+
+        // Then
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response2.getStatusCode());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response3.getStatusCode());
+
+        ResponseEntity<Note> note = client.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), Note.class);
+        assertEquals("The first change", note.getBody().getContent());
+        assertNotEquals(etag, note.getHeaders().getETag());
+
+        // When: delete the note with the new etag
+        headers.setIfMatch(note.getHeaders().getETag());
+        ResponseEntity<UserDto> response4 = client.exchange(url, HttpMethod.DELETE, new HttpEntity<>(headers), UserDto.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response4.getStatusCode());
+    }
+
     // To test the 'editNoteByUserId' endpoint when the idUser and idNote exist, the user is the owner of 
     // token and the note was updated (because the note belogs to the user)
     @Test
@@ -2,23 +2,33 @@ package com.alejandro.gestordenotas.integrations;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
 import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.security.TokenRevocations;
 import com.alejandro.gestordenotas.utils.JwtTokenUtil;
 import com.alejandro.gestordenotas.data.UserData;
+import com.alejandro.gestordenotas.dto.LoginErrorResponseDto;
+import com.alejandro.gestordenotas.dto.LoginResponseDto;
 import com.alejandro.gestordenotas.dto.SuperAdminDto;
+import com.alejandro.gestordenotas.dto.UserBulkDto;
+import com.alejandro.gestordenotas.dto.UserBulkResultDto;
+import com.alejandro.gestordenotas.dto.UserPageDto;
+import com.alejandro.gestordenotas.dto.UserDetailsCacheStatsDto;
 
 
 // To load/insert the data on the file 'insert.sql'  
@@ -36,6 +46,16 @@ class SuperAdminIntegrationTest {
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    // To forget the users changed by the previous tests
+    @Autowired
+    private TokenRevocations tokenRevocations;
+
+    @BeforeEach
+    void setUp() {
+        // The users are read again from the db (the data of 'insert.sql')
+        tokenRevocations.rebuild();
+    }
+
 
     // getAllUsersWithUserAndAdminRole ----------------------------------------------------
 
@@ -56,13 +76,13 @@ class SuperAdminIntegrationTest {
         HttpEntity<Void> entity = new HttpEntity<>(headers);
 
         // When
-        ResponseEntity<SuperAdminDto[]> response = client.exchange(
+        ResponseEntity<UserPageDto<SuperAdminDto>> response = client.exchange(
                 "/api/super-admins/users-and-admins",
                 HttpMethod.GET,
                 entity,
-                SuperAdminDto[].class
+                new ParameterizedTypeReference<UserPageDto<SuperAdminDto>>() {}
         );
-        List<SuperAdminDto> users = Arrays.asList(response.getBody());  
+        List<SuperAdminDto> users = response.getBody().getUsers();
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -144,6 +164,47 @@ class SuperAdminIntegrationTest {
         assertNull(response.getBody());
     }
 
+    // To test the 'getAllUsersWithUserAndAdminRole' endpoint with the filter of the admins
+    @Test
+    void getAllUsersWithUserAndAdminRoleAdminFilterIntegrationTest() {
+
+        // Given
+        User admin = UserData.createUser001();
+        admin.setId(10L); // Change the user id for the user id in the insert.sql file
+
+        // Generate a valid token for this user
+        String token = jwtTokenUtil.createToken(admin);
+
+        // Prepares the headers with the token
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token); 
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        // When
+        ResponseEntity<UserPageDto<SuperAdminDto>> response = client.exchange(
+                "/api/super-admins/users-and-admins?admin=true&sort=username",
+                HttpMethod.GET,
+                entity,
+                new ParameterizedTypeReference<UserPageDto<SuperAdminDto>>() {}
+        );
+        ResponseEntity<UserPageDto<SuperAdminDto>> responseUsers = client.exchange(
+                "/api/super-admins/users-and-admins?admin=false&limit=1",
+                HttpMethod.GET,
+                entity,
+                new ParameterizedTypeReference<UserPageDto<SuperAdminDto>>() {}
+        );
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of("celia", "fernando"), response.getBody().getUsers().stream().map(SuperAdminDto::getUsername).toList());
+        assertTrue(response.getBody().getUsers().stream().allMatch(SuperAdminDto::isAdmin));
+        assertNull(response.getBody().getNextCursor());
+
+        assertEquals(List.of(13L), responseUsers.getBody().getUsers().stream().map(SuperAdminDto::getId).toList());
+        assertFalse(responseUsers.getBody().getUsers().get(0).isAdmin());
+        assertNotNull(responseUsers.getBody().getNextCursor());
+    }
+
     // getUserWithUserAndAdminRole ----------------------------------------------------
 
     // To test the 'getUserWithUserAndAdminRole' endpoint when is called by user with the super admin role
@@ -309,6 +370,41 @@ class SuperAdminIntegrationTest {
         assertTrue(user.isAdmin());
     }
 
+    // To test the 'addRemoveAdminRoleFromUser' endpoint: an admin can not disable the new admin,
+    // and it can disable it again when the admin role is removed
+    @Test
+    void addRemoveAdminRoleFromUserGuardIntegrationTest() {
+
+        // Given
+        User superAdmin = UserData.createUser001();
+        superAdmin.setId(10L); // Change the user id for the user id in the insert.sql file
+        User admin = UserData.createUser002();
+        admin.setId(11L); // Change the user id for the user id in the insert.sql file
+        Long userIdToSearch = 13L;
+
+        // Prepares the headers with the tokens
+        HttpHeaders superAdminHeaders = new HttpHeaders();
+        superAdminHeaders.setBearerAuth(jwtTokenUtil.createToken(superAdmin)); 
+        HttpEntity<Void> superAdminEntity = new HttpEntity<>(superAdminHeaders);
+        HttpHeaders adminHeaders = new HttpHeaders();
+        adminHeaders.setBearerAuth(jwtTokenUtil.createToken(admin)); 
+        HttpEntity<Void> adminEntity = new HttpEntity<>(adminHeaders);
+
+        // When
+        client.exchange("/api/super-admins/convert-user-into-admin/" + userIdToSearch, HttpMethod.PATCH,
+                superAdminEntity, SuperAdminDto.class);
+        ResponseEntity<String> responseAdmin = client.exchange("/api/admins/user/" + userIdToSearch, HttpMethod.PATCH,
+                adminEntity, String.class);
+        client.exchange("/api/super-admins/convert-user-into-admin/" + userIdToSearch, HttpMethod.PATCH,
+                superAdminEntity, SuperAdminDto.class);
+        ResponseEntity<String> responseUser = client.exchange("/api/admins/user/" + userIdToSearch, HttpMethod.PATCH,
+                adminEntity, String.class);
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, responseAdmin.getStatusCode());
+        assertEquals(HttpStatus.OK, responseUser.getStatusCode());
+    }
+
     // To test the 'addRemoveAdminRoleFromUser' endpoint when is called by user with the admin role
     @Test
     void addRemoveAdminRoleFromUserCalledByAdminIntegrationTest() {
@@ -464,6 +560,44 @@ class SuperAdminIntegrationTest {
         assertTrue(user.isEnabled()); 
     }
 
+    // To test the 'superAdminEnableUser' endpoint: the login of the user uses its new state
+    // (the user read in a previous login is not used after the change)
+    @Test
+    void disableEnableUserLoginIntegrationTest() {
+        // Given
+        User superAdmin = UserData.createUser001();
+        superAdmin.setId(10L);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(jwtTokenUtil.createToken(superAdmin));
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        Map<String, Object> credentials = new HashMap<>();
+        credentials.put("username", "rayas");
+        credentials.put("password", "rayas123.");
+
+        // (the first login hashes the password again, so the user is read again in the second one)
+        assertEquals(HttpStatus.OK, client.postForEntity("/api/users/login", credentials, LoginResponseDto.class).getStatusCode());
+        assertEquals(HttpStatus.OK, client.postForEntity("/api/users/login", credentials, LoginResponseDto.class).getStatusCode());
+        assertEquals(HttpStatus.OK, client.postForEntity("/api/users/login", credentials, LoginResponseDto.class).getStatusCode());
+
+        // When
+        client.exchange("/api/super-admins/disable-enable-user/14", HttpMethod.PATCH, entity, SuperAdminDto.class);
+        ResponseEntity<LoginErrorResponseDto> disabled = client.postForEntity("/api/users/login", credentials, LoginErrorResponseDto.class);
+
+        client.exchange("/api/super-admins/disable-enable-user/14", HttpMethod.PATCH, entity, SuperAdminDto.class);
+        ResponseEntity<LoginResponseDto> enabled = client.postForEntity("/api/users/login", credentials, LoginResponseDto.class);
+
+        // Then
+        assertEquals(HttpStatus.UNAUTHORIZED, disabled.getStatusCode());
+        assertEquals(HttpStatus.OK, enabled.getStatusCode());
+
+        ResponseEntity<UserDetailsCacheStatsDto> stats = client.exchange("/api/super-admins/user-details-cache",
+            HttpMethod.GET, entity, UserDetailsCacheStatsDto.class);
+        assertEquals(HttpStatus.OK, stats.getStatusCode());
+        assertTrue(stats.getBody().getHits() >= 1);
+    }
+
     // To test the 'superAdminEnableUser' endpoint when is called by user with the admin role
     @Test
     void disableEnableUserCalledByAdminIntegrationTest() {
@@ -574,4 +708,97 @@ class SuperAdminIntegrationTest {
         assertNull(response.getBody());
     }
 
+    // promoteUsers / demoteUsers / disableUsers ----------------------------------------------------
+
+    // To test the 'promoteUsers' endpoint with a filter: the users get the admin role, the previous tokens
+    // are rejected and an admin can not disable them anymore
+    @Test
+    void promoteUsersByFiltersIntegrationTest() {
+
+        // Given
+        User superAdmin = UserData.createUser001();
+        superAdmin.setId(10L); // Change the user id for the user id in the insert.sql file
+        User admin = UserData.createUser002();
+        admin.setId(11L); // Change the user id for the user id in the insert.sql file
+        User user = UserData.createUser004();
+        user.setId(13L); // Change the user id for the user id in the insert.sql file
+
+        HttpHeaders superAdminHeaders = new HttpHeaders();
+        superAdminHeaders.setBearerAuth(jwtTokenUtil.createToken(superAdmin));
+        HttpHeaders adminHeaders = new HttpHeaders();
+        adminHeaders.setBearerAuth(jwtTokenUtil.createToken(admin));
+        HttpHeaders userHeaders = new HttpHeaders();
+        userHeaders.setBearerAuth(jwtTokenUtil.createToken(user));
+
+        // When
+        ResponseEntity<UserBulkResultDto> response = client.exchange("/api/super-admins/users/promote", HttpMethod.PATCH,
+            new HttpEntity<>(new UserBulkDto(null, true, null, "j"), superAdminHeaders), UserBulkResultDto.class);
+        ResponseEntity<SuperAdminDto> promoted = client.exchange("/api/super-admins/user-and-admin/13", HttpMethod.GET,
+            new HttpEntity<>(superAdminHeaders), SuperAdminDto.class);
+        ResponseEntity<String> rejected = client.exchange("/api/users/13", HttpMethod.GET,
+            new HttpEntity<>(userHeaders), String.class);
+        ResponseEntity<String> guarded = client.exchange("/api/admins/user/13", HttpMethod.PATCH,
+            new HttpEntity<>(adminHeaders), String.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getRequested());
+        assertEquals(1, response.getBody().getUpdated());
+        assertTrue(promoted.getBody().isAdmin());
+        assertEquals(HttpStatus.UNAUTHORIZED, rejected.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, guarded.getStatusCode());
+    }
+
+    // To test the 'demoteUsers' endpoint with a list of ids: the super admin and the users without
+    // the admin role are not changed
+    @Test
+    void demoteUsersIntegrationTest() {
+
+        // Given
+        User superAdmin = UserData.createUser001();
+        superAdmin.setId(10L); // Change the user id for the user id in the insert.sql file
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(jwtTokenUtil.createToken(superAdmin));
+
+        // When
+        ResponseEntity<UserBulkResultDto> response = client.exchange("/api/super-admins/users/demote", HttpMethod.PATCH,
+            new HttpEntity<>(new UserBulkDto(List.of(10L, 11L, 12L, 13L), null, null, null), headers), UserBulkResultDto.class);
+        ResponseEntity<UserPageDto<SuperAdminDto>> admins = client.exchange("/api/super-admins/users-and-admins?admin=true",
+            HttpMethod.GET, new HttpEntity<>(headers), new ParameterizedTypeReference<UserPageDto<SuperAdminDto>>() {});
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        UserBulkResultDto result = response.getBody();
+        assertEquals(4, result.getRequested());
+        assertEquals(1, result.getGuarded());
+        assertEquals(2, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        assertTrue(admins.getBody().getUsers().isEmpty());
+    }
+
+    // To test the 'disableUsers' endpoint: the super admin disables the admins of a filter
+    @Test
+    void disableUsersByFiltersIntegrationTest() {
+
+        // Given
+        User superAdmin = UserData.createUser001();
+        superAdmin.setId(10L); // Change the user id for the user id in the insert.sql file
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(jwtTokenUtil.createToken(superAdmin));
+
+        // When
+        ResponseEntity<UserBulkResultDto> response = client.exchange("/api/super-admins/users/disable", HttpMethod.PATCH,
+            new HttpEntity<>(new UserBulkDto(null, null, true, null), headers), UserBulkResultDto.class);
+        ResponseEntity<UserPageDto<SuperAdminDto>> disabled = client.exchange("/api/super-admins/users-and-admins?enabled=false",
+            HttpMethod.GET, new HttpEntity<>(headers), new ParameterizedTypeReference<UserPageDto<SuperAdminDto>>() {});
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().getRequested());
+        assertEquals(2, response.getBody().getUpdated());
+        assertEquals(List.of(11L, 12L, 15L), disabled.getBody().getUsers().stream().map(SuperAdminDto::getId).toList());
+    }
+
 }
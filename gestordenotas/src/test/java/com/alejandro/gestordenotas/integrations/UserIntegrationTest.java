@@ -7,6 +7,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -14,14 +15,17 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
 import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.security.TokenRevocations;
 import com.alejandro.gestordenotas.utils.JwtTokenUtil;
 import com.alejandro.gestordenotas.data.UserData;
 import com.alejandro.gestordenotas.dto.LoginErrorResponseDto;
 import com.alejandro.gestordenotas.dto.LoginResponseDto;
+import com.alejandro.gestordenotas.dto.RefreshTokenDto;
 import com.alejandro.gestordenotas.dto.UserDto;
 import com.alejandro.gestordenotas.entities.ErrorMessage;
 
@@ -40,8 +44,22 @@ class UserIntegrationTest {
 
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
+
+    // To forget the users changed by the previous tests
+    @Autowired
+    private TokenRevocations tokenRevocations;
+
+    // To read the hash of the passwords saved in the db
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
      
 
+    @BeforeEach
+    void setUp() {
+        // The users are read again from the db (the data of 'insert.sql')
+        tokenRevocations.rebuild();
+    }
+
     // To test the 'login' endpoint when the credentials are correct.
     @Test
     void loginSuccessTest() {
@@ -61,6 +79,91 @@ class UserIntegrationTest {
         assertEquals("rayas", loginResponse.getUsername());
     }
 
+    // To test the token of the 'login' endpoint: it has the id of the user, 
+    // so the user is the owner of its resources but not of the others
+    @Test
+    void loginTokenOwnerIntegrationTest() {
+
+        // Given
+        Map<String, Object> userInsert = new HashMap<>();
+        userInsert.put("username", "rayas");
+        userInsert.put("password", "rayas123.");
+        String token = client.postForEntity("/api/users/login", userInsert, LoginResponseDto.class).getBody().getToken();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        // When
+        ResponseEntity<UserDto> owner = client.exchange("/api/users/14", HttpMethod.GET, entity, UserDto.class);
+        ResponseEntity<UserDto> noOwner = client.exchange("/api/users/13", HttpMethod.GET, entity, UserDto.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, owner.getStatusCode());
+        assertEquals("rayas", owner.getBody().getUsername());
+        assertEquals(HttpStatus.NOT_FOUND, noOwner.getStatusCode());
+    }
+
+    // To test the 'refreshToken' endpoint: the refresh token of the login is exchanged for a new access token
+    // and a new refresh token. If the old refresh token is used again, the session is closed.
+    @Test
+    void refreshTokenIntegrationTest() {
+
+        // Given
+        Map<String, Object> credentials = new HashMap<>();
+        credentials.put("username", "rayas");
+        credentials.put("password", "rayas123.");
+        String refreshToken = client.postForEntity("/api/users/login", credentials, LoginResponseDto.class).getBody().getRefreshToken();
+
+        // When
+        ResponseEntity<LoginResponseDto> refreshed = client.postForEntity("/api/users/token/refresh",
+            new RefreshTokenDto(refreshToken), LoginResponseDto.class);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(refreshed.getBody().getToken());
+        ResponseEntity<UserDto> user = client.exchange("/api/users/14", HttpMethod.GET, new HttpEntity<>(headers), UserDto.class);
+
+        ResponseEntity<String> reused = client.postForEntity("/api/users/token/refresh",
+            new RefreshTokenDto(refreshToken), String.class);
+        ResponseEntity<String> revoked = client.postForEntity("/api/users/token/refresh",
+            new RefreshTokenDto(refreshed.getBody().getRefreshToken()), String.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, refreshed.getStatusCode());
+        assertEquals("rayas", refreshed.getBody().getUsername());
+        assertNotEquals(refreshToken, refreshed.getBody().getRefreshToken());
+        assertEquals(HttpStatus.OK, user.getStatusCode());
+        assertEquals("rayas", user.getBody().getUsername());
+
+        assertEquals(HttpStatus.UNAUTHORIZED, reused.getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, revoked.getStatusCode());
+
+        // Only the hashes of the tokens are saved
+        Integer saved = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_token WHERE token_hash = ?", Integer.class, refreshToken);
+        assertEquals(0, saved);
+    }
+
+    // To test the 'login' endpoint when the hash of the password is outdated: it is hashed again 
+    // with the current encoder (the hashes of 'insert.sql' do not have the id of the encoder)
+    @Test
+    void loginRehashPasswordIntegrationTest() {
+
+        // Given
+        Map<String, Object> credentials = new HashMap<>();
+        credentials.put("username", "rayas");
+        credentials.put("password", "rayas123.");
+
+        // When
+        ResponseEntity<LoginResponseDto> first = client.postForEntity("/api/users/login", credentials, LoginResponseDto.class);
+        String hash = jdbcTemplate.queryForObject("SELECT password FROM tbl_user WHERE id_user = 14", String.class);
+        ResponseEntity<LoginResponseDto> second = client.postForEntity("/api/users/login", credentials, LoginResponseDto.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertTrue(hash.startsWith("{bcrypt}$2a$10$"));
+        assertEquals(HttpStatus.OK, second.getStatusCode());
+    }
+
     // To test the 'login' endpoint when the credentials are not correct.
     @Test
     void loginUnsuccessTest() {
@@ -211,6 +314,11 @@ class UserIntegrationTest {
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertEquals(14L, userUpdate.getId());
         assertEquals("newName", userUpdate.getUsername());
+
+        // The token created with the previous credentials is rejected
+        ResponseEntity<String> rejected = client.exchange("/api/users/" + idToUpdate, HttpMethod.GET,
+            new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.UNAUTHORIZED, rejected.getStatusCode());
     }
 
     // To test the endpoint update when we use an existing id and the user is not the owner of resource
@@ -0,0 +1,104 @@
+package com.alejandro.gestordenotas.repositories;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.gestordenotas.entities.Role;
+import com.alejandro.gestordenotas.entities.RoleLevel;
+
+import jakarta.persistence.Persistence;
+
+
+// To load the beans related to the persist layer (and the registry of the roles).
+// To load/insert the data on the file 'insert.sql'
+// To use the configurations on application-test.properties
+@DataJpaTest
+@Import(RoleRegistry.class)
+@ActiveProfiles("test")
+@Sql(scripts = "/insert.sql")
+class RoleRegistryTest {
+
+    @Autowired
+    RoleRegistry registry;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+
+    // To test the 'findByName' method: the role is a reference that is not read from the db
+    @Test
+    void findByNameTest() {
+
+        // When
+        Optional<Role> optionalRole = registry.findByName("ROLE_ADMIN");
+
+        // Then
+        assertTrue(optionalRole.isPresent());
+        assertEquals(2L, optionalRole.get().getId());
+        assertFalse(Persistence.getPersistenceUtil().isLoaded(optionalRole.get()));
+        assertTrue(registry.findByName("ROLE_UNKNOWN").isEmpty());
+        assertTrue(registry.findByName(null).isEmpty());
+    }
+
+    // To test the 'findById' method
+    @Test
+    void findByIdTest() {
+
+        // When
+        Optional<Role> optionalRole = registry.findById(3L);
+
+        // Then
+        assertTrue(optionalRole.isPresent());
+        assertEquals("ROLE_SUPER_ADMIN", optionalRole.get().getName());
+        assertTrue(registry.findById(99L).isEmpty());
+    }
+
+    // To test the 'levelOf' method with references: their names are not read from the db
+    @Test
+    void levelOfTest() {
+
+        // Given
+        Role user = registry.findByName("ROLE_USER").orElseThrow();
+        Role admin = registry.findByName("ROLE_ADMIN").orElseThrow();
+        Role superAdmin = registry.findByName("ROLE_SUPER_ADMIN").orElseThrow();
+
+        // When
+        int userLevel = registry.levelOf(List.of(user));
+        int adminLevel = registry.levelOf(List.of(user, admin));
+        int superAdminLevel = registry.levelOf(List.of(user, admin, superAdmin));
+
+        // Then
+        assertEquals(RoleLevel.USER, userLevel);
+        assertEquals(RoleLevel.ADMIN, adminLevel);
+        assertEquals(RoleLevel.SUPER_ADMIN, superAdminLevel);
+        assertFalse(Persistence.getPersistenceUtil().isLoaded(admin));
+    }
+
+    // To test a role created after the roles were read: it is found when it is requested
+    @Test
+    void findByNameNewRoleTest() {
+
+        // Given
+        registry.refresh();
+        entityManager.getEntityManager().createNativeQuery("INSERT INTO role (id_role, name) VALUES (4, 'ROLE_AUDITOR')")
+            .executeUpdate();
+
+        // When
+        Optional<Role> optionalRole = registry.findByName("ROLE_AUDITOR");
+
+        // Then
+        assertTrue(optionalRole.isPresent());
+        assertEquals(4L, optionalRole.get().getId());
+    }
+
+}
@@ -3,16 +3,24 @@ package com.alejandro.gestordenotas.repositories;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
+import static com.alejandro.gestordenotas.repositories.UserSpecifications.*;
+
 import com.alejandro.gestordenotas.dto.AdminDto;
 import com.alejandro.gestordenotas.dto.SuperAdminDto;
+import com.alejandro.gestordenotas.entities.RoleLevel;
+import com.alejandro.gestordenotas.entities.User;
 
 
 // To load the beans related to the persist layer.
@@ -26,25 +34,23 @@ class UserRepositoryTest {
     @Autowired
     UserRepository repository;
 
+    @Autowired
+    TestEntityManager entityManager;
+
     
-    // To test the 'getAllUsersWithUserRole' method 
+    // To test the 'findPage' method with the users with the user role: the users are ordered by id
+    // and only the requested number of users is read
     @Test
-    void getAllUsersWithUserRoleTest () {
+    void findPageUserRoleTest () {
 
         // When
-        List<AdminDto> users = repository.getAllUsersWithUserRole();
+        List<User> users = repository.findPage(hasRoleLevel(RoleLevel.USER), "id", 2);
+        List<User> nextUsers = repository.findPage(hasRoleLevel(RoleLevel.USER).and(idAfter(14L)), "id", 2);
 
         // Then
-        assertFalse(users.isEmpty());
-        assertEquals(3, users.size());
-
-        assertEquals(13L, users.get(0).getId());
+        assertEquals(List.of(13L, 14L), users.stream().map(User::getId).toList());
         assertEquals("jorge", users.get(0).getUsername());
-        assertTrue(users.get(0).isEnabled());
-
-        assertEquals(14L, users.get(1).getId());
-        assertEquals("rayas", users.get(1).getUsername());
-        assertTrue(users.get(1).isEnabled());
+        assertEquals(List.of(15L), nextUsers.stream().map(User::getId).toList());
     }
 
     // To test the 'getUserWithUserRole' method 
@@ -66,48 +72,53 @@ class UserRepositoryTest {
         assertFalse(user.isEnabled());
     }
 
-    // To test the 'getAllIdsWithAdminAndSuperAdminRole' method 
+    // To test the 'countIdsWithRoleLevelAbove' method: only the users of the list above the level are counted
     @Test
-    void getAllIdsWithAdminAndSuperAdminRoleTest () {
+    void countIdsWithRoleLevelAboveTest () {
 
         // When
-        List<Long> ids = repository.getAllIdsWithAdminAndSuperAdminRole();
+        long privileged = repository.countIdsWithRoleLevelAbove(List.of(10L, 11L, 12L, 13L, 99L), RoleLevel.USER);
+        long superAdmins = repository.countIdsWithRoleLevelAbove(List.of(10L, 11L, 12L, 13L, 99L), RoleLevel.ADMIN);
 
         // Then
-        assertFalse(ids.isEmpty());
-        assertEquals(3, ids.size());
+        assertEquals(3, privileged);
+        assertEquals(1, superAdmins);
+        assertEquals(Map.of(10L, RoleLevel.SUPER_ADMIN, 11L, RoleLevel.ADMIN, 12L, RoleLevel.ADMIN),
+            roleLevelsOfPrivilegedUsers());
+    }
+
+    // To test the 'getRevocationStates' method: only the state of the existing users of the list is read
+    @Test
+    void getRevocationStatesTest () {
+
+        // When
+        List<Object[]> states = repository.getRevocationStates(List.of(13L, 15L, 99L));
 
-        assertEquals(10L, ids.get(0));
-        assertEquals(11L, ids.get(1));
-        assertEquals(12L, ids.get(2));
+        // Then
+        Map<Long, List<Object>> statesById = states.stream()
+            .collect(Collectors.toMap(row -> (Long) row[0], row -> List.of(row[1], row[2])));
+        assertEquals(Map.of(13L, List.of(true, 0L), 15L, List.of(false, 0L)), statesById);
     }
 
-    // To test the 'getAllUsersWithUserAndAdminRole' method 
+    // To test the 'findPage' method with the filters of the users with the user and admin roles
     @Test
-    void getAllUsersWithUserAndAdminRoleTest () {
+    void findPageFiltersTest () {
 
         // When
-        List<SuperAdminDto> users = repository.getAllUsersWithUserAndAdminRole();
+        List<User> enabled = repository.findPage(hasRoleLevelBelow(RoleLevel.SUPER_ADMIN).and(isEnabled(true)),
+            "username", 10);
+        List<User> prefix = repository.findPage(hasRoleLevelBelow(RoleLevel.SUPER_ADMIN).and(usernameStartsWith(" f ")),
+            "username", 10);
+        List<User> afterUsername = repository.findPage(hasRoleLevel(RoleLevel.ADMIN).and(usernameAfter("celia")),
+            "username", 10);
+        List<User> wildcard = repository.findPage(hasRoleLevelBelow(RoleLevel.SUPER_ADMIN).and(usernameStartsWith("%")),
+            "username", 10);
 
         // Then
-        assertFalse(users.isEmpty());
-        assertEquals(5, users.size());
-
-        assertEquals(11L, users.get(0).getId());
-        assertEquals(12L, users.get(1).getId());
-        assertEquals(13L, users.get(2).getId());
-        assertEquals(14L, users.get(3).getId());
-        assertEquals(15L, users.get(4).getId());
-
-        assertEquals(13L, users.get(2).getId());
-        assertEquals("jorge", users.get(2).getUsername());
-        assertTrue(users.get(2).isEnabled());
-        assertFalse(users.get(2).isAdmin());
-
-        assertEquals(14L, users.get(3).getId());
-        assertEquals("rayas", users.get(3).getUsername());
-        assertTrue(users.get(3).isEnabled());
-        assertFalse(users.get(3).isAdmin());
+        assertEquals(List.of("celia", "fernando", "jorge", "rayas"), enabled.stream().map(User::getUsername).toList());
+        assertEquals(List.of("fernando"), prefix.stream().map(User::getUsername).toList());
+        assertEquals(List.of("fernando"), afterUsername.stream().map(User::getUsername).toList());
+        assertTrue(wildcard.isEmpty());
     }
 
     // To test the 'getUserWithUserAndAdminRole' method 
@@ -130,15 +141,123 @@ class UserRepositoryTest {
         assertFalse(user.isAdmin());
     }
 
-    // To test the 'getIdOfSuperAdmin' method 
+    // To test the 'raiseRoleLevel' method with the users saved before the column 'role_level' existed
+    @Test
+    void raiseRoleLevelTest () {
+
+        // Given
+        entityManager.getEntityManager().createNativeQuery("UPDATE tbl_user SET role_level = 0").executeUpdate();
+
+        // When
+        int admins = repository.raiseRoleLevel("ROLE_ADMIN", RoleLevel.ADMIN);
+        int superAdmins = repository.raiseRoleLevel("ROLE_SUPER_ADMIN", RoleLevel.SUPER_ADMIN);
+
+        // Then
+        assertEquals(3, admins);
+        assertEquals(1, superAdmins);
+        assertEquals(Map.of(10L, RoleLevel.SUPER_ADMIN, 11L, RoleLevel.ADMIN, 12L, RoleLevel.ADMIN),
+            roleLevelsOfPrivilegedUsers());
+
+        // The levels are already updated
+        assertEquals(0, repository.raiseRoleLevel("ROLE_ADMIN", RoleLevel.ADMIN));
+    }
+
+    // To test the 'updateEnabled' method: only the users of the level that don't have the state are changed
     @Test
-    void getIdOfSuperAdminTest () {
+    void updateEnabledTest () {
 
         // When
-        Long superAdminId = repository.getIdOfSuperAdmin();
+        int disabled = repository.updateEnabled(List.of(10L, 11L, 13L, 14L, 15L, 99L), false, RoleLevel.USER);
+        entityManager.clear();
 
         // Then
-        assertEquals(10L, superAdminId);
+        assertEquals(2, disabled);
+        assertFalse(repository.findById(13L).orElseThrow().isEnabled());
+        assertFalse(repository.findById(14L).orElseThrow().isEnabled());
+        assertTrue(repository.findById(11L).orElseThrow().isEnabled());
+        assertTrue(repository.findById(10L).orElseThrow().isEnabled());
     }
-    
+
+    // To test the 'lockIdsToUpdateEnabled' and 'lockIdsWithRoleLevel' methods: they get the users of the list
+    // that the statements change
+    @Test
+    void lockIdsTest () {
+
+        // When
+        List<Long> toDisable = repository.lockIdsToUpdateEnabled(List.of(10L, 11L, 13L, 14L, 15L, 99L), false, RoleLevel.USER);
+        List<Long> toEnable = repository.lockIdsToUpdateEnabled(List.of(10L, 11L, 13L, 14L, 15L, 99L), true, RoleLevel.ADMIN);
+        List<Long> users = repository.lockIdsWithRoleLevel(List.of(10L, 11L, 13L, 99L), RoleLevel.USER);
+        List<Long> admins = repository.lockIdsWithRoleLevel(List.of(10L, 11L, 13L, 99L), RoleLevel.ADMIN);
+
+        // Then
+        assertEquals(Set.of(13L, 14L), Set.copyOf(toDisable));
+        assertEquals(List.of(15L), toEnable);
+        assertEquals(List.of(13L), users);
+        assertEquals(List.of(11L), admins);
+    }
+
+    // To test the 'insertRole' and 'updateRoleLevel' methods: the admin role is added only to the users
+    // with the user role, and their tokens are rejected
+    @Test
+    void insertRoleTest () {
+
+        // When
+        int inserted = repository.insertRole(List.of(10L, 11L, 13L, 14L), 2L);
+        int updated = repository.updateRoleLevel(List.of(10L, 11L, 13L, 14L), true, RoleLevel.ADMIN, RoleLevel.USER);
+        entityManager.clear();
+
+        // Then
+        assertEquals(2, inserted);
+        assertEquals(2, updated);
+        assertEquals(Map.of(10L, RoleLevel.SUPER_ADMIN, 11L, RoleLevel.ADMIN, 12L, RoleLevel.ADMIN,
+            13L, RoleLevel.ADMIN, 14L, RoleLevel.ADMIN), roleLevelsOfPrivilegedUsers());
+        User user = repository.findById(13L).orElseThrow();
+        assertTrue(user.isAdmin());
+        assertEquals(1L, user.getTokenEpoch());
+        assertTrue(user.getRoles().stream().anyMatch(role -> "ROLE_ADMIN".equals(role.getName())));
+        assertEquals(0L, repository.findById(11L).orElseThrow().getTokenEpoch());
+    }
+
+    // To test the 'deleteRole' and 'updateRoleLevel' methods: the admin role is removed only from the admins
+    @Test
+    void deleteRoleTest () {
+
+        // When
+        int deleted = repository.deleteRole(List.of(10L, 11L, 13L), 2L);
+        int updated = repository.updateRoleLevel(List.of(10L, 11L, 13L), false, RoleLevel.USER, RoleLevel.ADMIN);
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, deleted);
+        assertEquals(1, updated);
+        assertEquals(Map.of(10L, RoleLevel.SUPER_ADMIN, 12L, RoleLevel.ADMIN), roleLevelsOfPrivilegedUsers());
+        User user = repository.findById(11L).orElseThrow();
+        assertFalse(user.isAdmin());
+        assertEquals(1, user.getRoles().size());
+        assertEquals(3, repository.findById(10L).orElseThrow().getRoles().size());
+    }
+
+    // To test the 'updatePassword' method: the hash is replaced only if it is the hash read before
+    @Test
+    void updatePasswordTest () {
+
+        // When
+        int changed = repository.updatePassword("jorge", "otro123", "{bcrypt}nuevo");
+        int updated = repository.updatePassword("jorge", "jorge123", "{bcrypt}nuevo");
+        entityManager.clear();
+
+        // Then
+        assertEquals(0, changed);
+        assertEquals(1, updated);
+        assertEquals("{bcrypt}nuevo", repository.findById(13L).orElseThrow().getPassword());
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // The level of the roles of the users with the admin or super admin role
+    private Map<Long, Integer> roleLevelsOfPrivilegedUsers() {
+        return repository.findAll((root, query, cb) -> cb.greaterThan(root.get("roleLevel"), RoleLevel.USER)).stream()
+            .collect(Collectors.toMap(User::getId, User::getRoleLevel));
+    }
+
 }
@@ -0,0 +1,43 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class BCryptCostCalibratorTest {
+
+    // To test the 'calibrate' method: the greatest cost within the budget is chosen
+    @Test
+    void calibrateTest() {
+
+        // Given (a server where the cost 10 takes 20 ms)
+        Duration budget = Duration.ofMillis(100);
+
+        // When
+        int cost = BCryptCostCalibrator.calibrate(budget, c -> 20L << (c - 10));
+
+        // Then (cost 12 takes 80 ms and cost 13 takes 160 ms)
+        assertEquals(12, cost);
+    }
+
+    // To test the 'calibrate' method when the minimum cost is already slower than the budget
+    @Test
+    void calibrateSlowServerTest() {
+        assertEquals(BCryptCostCalibrator.MIN_COST, BCryptCostCalibrator.calibrate(Duration.ofMillis(50), c -> 90L << (c - 10)));
+    }
+
+    // To test the 'calibrate' method when the server is very fast
+    @Test
+    void calibrateFastServerTest() {
+        assertEquals(BCryptCostCalibrator.MAX_COST, BCryptCostCalibrator.calibrate(Duration.ofSeconds(1), c -> 1L));
+    }
+
+    // To test the 'calibrate' method when the next cost takes longer than expected: it is not chosen
+    @Test
+    void calibrateNextCostOverBudgetTest() {
+        assertEquals(10, BCryptCostCalibrator.calibrate(Duration.ofMillis(100), c -> c == 10 ? 40L : 120L));
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.alejandro.gestordenotas.dto.PasswordHashingStatsDto;
+import com.alejandro.gestordenotas.exceptions.PasswordHashingBusyException;
+
+class BoundedPasswordEncoderTest {
+
+    // To block the hashing until the test allows it
+    CountDownLatch release = new CountDownLatch(1);
+
+    CountDownLatch started = new CountDownLatch(1);
+
+    // A fake encoder: the hash is the password in reverse order
+    PasswordEncoder slowEncoder = new PasswordEncoder() {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new StringBuilder(rawPassword).reverse().toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return new StringBuilder(rawPassword).reverse().toString().equals(encodedPassword);
+        }
+
+    };
+
+    // One thread and one password waiting
+    BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slowEncoder, 1, 1, 2);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.shutdown();
+    }
+
+
+    // To test the 'encode' and 'matches' methods: the result of the delegate is returned
+    @Test
+    void encodeAndMatchesTest() {
+
+        // Given
+        release.countDown();
+
+        // When
+        String hash = encoder.encode("rayas123");
+
+        // Then
+        assertEquals("321sayar", hash);
+        assertTrue(encoder.matches("rayas123", hash));
+        assertFalse(encoder.matches("otra", hash));
+    }
+
+    // To test the 'encode' method when the thread is busy and the queue is full: it is rejected at once
+    @Test
+    void encodeQueueFullTest() throws Exception {
+
+        // Given
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("uno"));
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> waiting = CompletableFuture.supplyAsync(() -> encoder.encode("dos"));
+        while (encoder.getStats().getQueueDepth() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // When
+        PasswordHashingBusyException e = assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("tres"));
+
+        // Then
+        assertEquals(2, e.getRetryAfterSeconds());
+
+        PasswordHashingStatsDto stats = encoder.getStats();
+        assertEquals(1, stats.getThreads());
+        assertEquals(1, stats.getActiveThreads());
+        assertEquals(1, stats.getQueueDepth());
+        assertEquals(1, stats.getQueueCapacity());
+        assertEquals(1, stats.getRejected());
+
+        // The others are hashed when the thread is free
+        release.countDown();
+        assertEquals("onu", running.get(5, TimeUnit.SECONDS));
+        assertEquals("sod", waiting.get(5, TimeUnit.SECONDS));
+    }
+
+}
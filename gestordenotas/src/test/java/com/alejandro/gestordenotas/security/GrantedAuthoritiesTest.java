@@ -0,0 +1,36 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+class GrantedAuthoritiesTest {
+
+    // To test the 'of' method: the same roles always get the same immutable set
+    @Test
+    void ofSameRolesTest() {
+
+        // When
+        Set<GrantedAuthority> first = GrantedAuthorities.of(new ArrayList<>(List.of("ROLE_USER", "ROLE_ADMIN")));
+        Set<GrantedAuthority> second = GrantedAuthorities.of(List.of("ROLE_USER", "ROLE_ADMIN"));
+
+        // Then
+        assertSame(first, second);
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN")), first);
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new SimpleGrantedAuthority("ROLE_SUPER_ADMIN")));
+    }
+
+    // To test the 'of' method when the token does not have roles
+    @Test
+    void ofWithoutRolesTest() {
+        assertTrue(GrantedAuthorities.of(null).isEmpty());
+        assertTrue(GrantedAuthorities.of(List.of()).isEmpty());
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.alejandro.gestordenotas.exceptions.PasswordHashingBusyException;
+import com.alejandro.gestordenotas.security.filter.JwtAuthenticationFilter;
+import com.alejandro.gestordenotas.utils.JwtTokenUtil;
+
+class JwtAuthenticationFilterTest {
+
+    // To test the login when the password can not be verified because there are too many logins:
+    // the client gets a 503 status code and when to try again
+    @Test
+    void loginPasswordHashingBusyTest() throws Exception {
+
+        // Given
+        JwtTokenUtil jwtTokenUtil = new JwtTokenUtil();
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(authentication -> {
+            throw new PasswordHashingBusyException(1);
+        }, new AccessTokenIssuer(jwtTokenUtil.getKeyRing(), jwtTokenUtil.getRoleBits()), null);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users/login");
+        request.setServletPath("/api/users/login");
+        request.setContent("{\"username\":\"rayas\",\"password\":\"rayas123.\"}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, new MockFilterChain());
+
+        // Then
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("Demasiados inicios de sesion"));
+    }
+
+    // To test the login with a body that is not a valid json: the client gets a 400 status code
+    // and the credentials are not checked
+    @Test
+    void loginMalformedBodyTest() throws Exception {
+
+        // Given
+        JwtTokenUtil jwtTokenUtil = new JwtTokenUtil();
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(authentication -> {
+            throw new IllegalStateException("The credentials must not be checked");
+        }, new AccessTokenIssuer(jwtTokenUtil.getKeyRing(), jwtTokenUtil.getRoleBits()), null);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users/login");
+        request.setServletPath("/api/users/login");
+        request.setContent("{\"username\":\"rayas\",".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, new MockFilterChain());
+
+        // Then
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getContentAsString().contains("no tiene un formato valido"));
+    }
+
+}
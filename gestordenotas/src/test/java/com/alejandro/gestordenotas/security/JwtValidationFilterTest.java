@@ -0,0 +1,196 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.alejandro.gestordenotas.data.UserData;
+import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.security.filter.JwtValidationFilter;
+import com.alejandro.gestordenotas.utils.JwtTokenUtil;
+
+import io.jsonwebtoken.Jwts;
+
+class JwtValidationFilterTest {
+
+    VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+    JwtTokenUtil jwtTokenUtil = new JwtTokenUtil();
+
+    // The state of the users is not read from the db in these tests
+    TokenRevocations revocations = new TokenRevocations(null);
+
+    // The authentication manager is not used to validate the tokens
+    JwtValidationFilter filter = new JwtValidationFilter(authentication -> authentication, cache, jwtTokenUtil.getKeyRing(),
+        jwtTokenUtil.getRoleBits(), revocations);
+
+    String token = jwtTokenUtil.createToken(UserData.createUser005());
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+
+    // To test the filter with a valid token: the request is authenticated and the token is kept
+    @Test
+    void validTokenTest() throws Exception {
+
+        // When
+        MockHttpServletResponse response = filter(token);
+
+        // Then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals(200, response.getStatus());
+        assertEquals("rayas", authentication.getName());
+        assertEquals(5L, ((AuthenticatedUser) authentication.getPrincipal()).getId());
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+        assertSame(authentication.getPrincipal(), cache.get(token).getPrincipal());
+    }
+
+    // To test the filter with a token verified before: the same principal and authorities are used
+    // in a new authentication
+    @Test
+    void cachedTokenTest() throws Exception {
+
+        // Given
+        filter(token);
+        Authentication first = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+
+        // When
+        MockHttpServletResponse response = filter(token);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        Authentication second = SecurityContextHolder.getContext().getAuthentication();
+        assertNotSame(first, second);
+        assertSame(first.getPrincipal(), second.getPrincipal());
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+        assertEquals(1, cache.size());
+    }
+
+    // To test the filter with a token created before the bitmask of the roles: its list of role names is read
+    @Test
+    void roleNamesTokenTest() throws Exception {
+
+        // Given
+        SigningKeyRing.SigningKey signingKey = jwtTokenUtil.getKeyRing().getSigningKey();
+        String oldToken = Jwts.builder()
+            .header().keyId(signingKey.getId()).and()
+            .subject("rayas")
+            .claim(TokenJwtConfig.AUTHORITIES_CLAIM, List.of("ROLE_USER", "ROLE_ADMIN"))
+            .claim(TokenJwtConfig.USER_ID_CLAIM, 5L)
+            .expiration(new Date(System.currentTimeMillis() + 60000))
+            .signWith(signingKey.getKey())
+            .compact();
+
+        // When
+        MockHttpServletResponse response = filter(oldToken);
+
+        // Then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals(200, response.getStatus());
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN")),
+            new HashSet<>(authentication.getAuthorities()));
+    }
+
+    // To test the filter with a token whose signature is not valid: the request is rejected and it is not kept
+    @Test
+    void invalidTokenTest() throws Exception {
+
+        // Given
+        String tampered = token.substring(0, token.length() - 4) + "AAAA";
+
+        // When
+        MockHttpServletResponse response = filter(tampered);
+
+        // Then
+        assertEquals(401, response.getStatus());
+        assertTrue(response.getContentAsString().contains("El token JWT es invalido!"));
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals(0, cache.size());
+    }
+
+    // To test the filter with a token signed by a key that is not in the ring (e.g. the key of another application)
+    @Test
+    void unknownKeyTokenTest() throws Exception {
+
+        // Given
+        String foreign = new JwtTokenUtil().createToken(UserData.createUser005());
+
+        // When
+        MockHttpServletResponse response = filter(foreign);
+
+        // Then
+        assertEquals(401, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    // To test the filter with a token of a user disabled after the token was verified: the request is rejected
+    @Test
+    void disabledUserTokenTest() throws Exception {
+
+        // Given
+        filter(token);
+        SecurityContextHolder.clearContext();
+        revocations.update(5L, false, 0);
+
+        // When
+        MockHttpServletResponse response = filter(token);
+
+        // Then
+        assertEquals(401, response.getStatus());
+        assertTrue(response.getContentAsString().contains("El token JWT fue revocado!"));
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+
+        // And when the user is enabled again its token can be used
+        revocations.update(5L, true, 0);
+        assertEquals(200, filter(token).getStatus());
+    }
+
+    // To test the filter with a token created before a change of the roles of its user: only the new tokens are valid
+    @Test
+    void previousEpochTokenTest() throws Exception {
+
+        // Given
+        revocations.update(5L, true, 1);
+        User user = UserData.createUser005();
+        user.setTokenEpoch(1);
+        String newToken = jwtTokenUtil.createToken(user);
+
+        // When
+        MockHttpServletResponse oldResponse = filter(token);
+        MockHttpServletResponse newResponse = filter(newToken);
+
+        // Then
+        assertEquals(401, oldResponse.getStatus());
+        assertEquals(200, newResponse.getStatus());
+        assertEquals(1, ((AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
+            .getTokenEpoch());
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    private MockHttpServletResponse filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/14/notes");
+        request.addHeader(TokenJwtConfig.HEADER_AUTHORIZATION, TokenJwtConfig.PREFIX_TOKEN + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+}
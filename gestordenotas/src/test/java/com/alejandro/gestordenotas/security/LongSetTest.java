@@ -0,0 +1,31 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+class LongSetTest {
+
+    // To test the set of longs with many ids, the id 0 and negative and large ids
+    @Test
+    void longSetTest() {
+
+        // Given
+        long[] ids = LongStream.rangeClosed(1, 1000).map(id -> id * 7).toArray();
+        LongSet set = new LongSet(LongStream.concat(LongStream.of(ids),
+            LongStream.of(0L, -3L, Long.MAX_VALUE, 7L)).toArray());
+
+        // Then
+        assertEquals(1003, set.size());
+        assertTrue(LongStream.of(ids).allMatch(set::contains));
+        assertTrue(set.contains(0L));
+        assertTrue(set.contains(-3L));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertFalse(set.contains(8L));
+        assertFalse(set.contains(Long.MIN_VALUE));
+        assertFalse(LongSet.EMPTY.contains(0L));
+    }
+
+}
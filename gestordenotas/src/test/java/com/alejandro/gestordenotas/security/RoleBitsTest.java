@@ -0,0 +1,97 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.alejandro.gestordenotas.entities.Role;
+
+class RoleBitsTest {
+
+    List<Role> roles = new ArrayList<>(List.of(new Role(1L, "ROLE_USER"), new Role(2L, "ROLE_ADMIN"),
+        new Role(3L, "ROLE_SUPER_ADMIN")));
+
+    // To know how many times the roles are read from the db
+    AtomicInteger loads = new AtomicInteger();
+
+    RoleBits roleBits = new RoleBits(() -> {
+        loads.incrementAndGet();
+        return List.copyOf(roles);
+    });
+
+
+    // To test the 'maskOf' method: the bit of each role is its id
+    @Test
+    void maskOfTest() {
+
+        // When
+        long mask = roleBits.maskOf(List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN")));
+
+        // Then
+        assertEquals(0b110, mask);
+        assertEquals(0, roleBits.maskOf(List.of()));
+    }
+
+    // To test the 'authoritiesOf' method: the same mask always gets the same shared set
+    @Test
+    void authoritiesOfTest() {
+
+        // When
+        Set<GrantedAuthority> first = roleBits.authoritiesOf(0b1110);
+        Set<GrantedAuthority> second = roleBits.authoritiesOf(0b1110);
+
+        // Then
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"),
+            new SimpleGrantedAuthority("ROLE_SUPER_ADMIN")), first);
+        assertSame(first, second);
+        assertTrue(roleBits.authoritiesOf(0).isEmpty());
+        assertEquals(1, loads.get());
+    }
+
+    // To test a mask and its authorities: the mask of the authorities of a mask is the same mask
+    @Test
+    void roundTripTest() {
+        for (long mask = 0; mask < 0b10000; mask += 0b10) {
+            assertEquals(mask, roleBits.maskOf(roleBits.authoritiesOf(mask)));
+        }
+    }
+
+    // To test a role created after the roles were read: they are read again
+    @Test
+    void newRoleTest() {
+
+        // Given
+        roleBits.authoritiesOf(0b10);
+        roles.add(new Role(4L, "ROLE_AUDITOR"));
+
+        // When
+        long mask = roleBits.maskOf(List.of(new SimpleGrantedAuthority("ROLE_AUDITOR")));
+        Set<GrantedAuthority> authorities = roleBits.authoritiesOf(0b10010);
+
+        // Then
+        assertEquals(0b10000, mask);
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_AUDITOR")), authorities);
+        assertEquals(2, loads.get());
+    }
+
+    // To test a role that doesn't exist: it is not in the mask and its bit is ignored
+    @Test
+    void unknownRoleTest() {
+
+        // When
+        long mask = roleBits.maskOf(List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_NADIE")));
+        Set<GrantedAuthority> authorities = roleBits.authoritiesOf(0b100010);
+
+        // Then
+        assertEquals(0b10, mask);
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_USER")), authorities);
+    }
+
+}
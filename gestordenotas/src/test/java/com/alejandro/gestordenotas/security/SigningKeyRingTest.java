@@ -0,0 +1,268 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+
+class SigningKeyRingTest {
+
+    private static final Duration ROTATION = Duration.ofHours(24);
+
+    private static final Duration GRACE = Duration.ofHours(2);
+
+    MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+
+    @TempDir
+    Path directory;
+
+
+    // To test a token signed with the ring: its header has the id of the key and the ring verifies it
+    @Test
+    void signAndVerifyTest() {
+
+        // Given
+        SigningKeyRing ring = new SigningKeyRing(null, null, ROTATION, GRACE, clock);
+
+        // When
+        String token = sign(ring, "rayas");
+
+        // Then
+        assertEquals(ring.getSigningKey().getId(), ring.getParser().parseSignedClaims(token).getHeader().getKeyId());
+        assertEquals("rayas", ring.getParser().parseSignedClaims(token).getPayload().getSubject());
+    }
+
+    // To test a token without the id of a key: it is rejected
+    @Test
+    void tokenWithoutKeyIdTest() {
+
+        // Given
+        SigningKeyRing ring = new SigningKeyRing(null, null, ROTATION, GRACE, clock);
+        String token = Jwts.builder().subject("rayas").signWith(ring.getSigningKey().getKey()).compact();
+
+        // When / Then
+        assertThrows(JwtException.class, () -> ring.getParser().parseSignedClaims(token));
+    }
+
+    // To test the rotation: a new key signs the new tokens and the old key still verifies
+    // its tokens until the grace window ends
+    @Test
+    void rotationTest() {
+
+        // Given
+        SigningKeyRing ring = new SigningKeyRing(null, null, ROTATION, GRACE, clock);
+        String oldKeyId = ring.getSigningKey().getId();
+        String oldToken = sign(ring, "rayas");
+
+        // When
+        clock.advance(ROTATION);
+        ring.refresh();
+
+        // Then
+        assertNotEquals(oldKeyId, ring.getSigningKey().getId());
+        assertEquals(2, ring.getKeyIds().size());
+        assertEquals("rayas", ring.getParser().parseSignedClaims(oldToken).getPayload().getSubject());
+
+        // When
+        clock.advance(GRACE);
+        ring.refresh();
+
+        // Then
+        assertEquals(1, ring.getKeyIds().size());
+        assertThrows(JwtException.class, () -> ring.getParser().parseSignedClaims(oldToken));
+    }
+
+    // To test a refresh before the rotation: the same key is used
+    @Test
+    void refreshBeforeRotationTest() {
+
+        // Given
+        SigningKeyRing ring = new SigningKeyRing(null, null, ROTATION, GRACE, clock);
+        String keyId = ring.getSigningKey().getId();
+
+        // When
+        clock.advance(ROTATION.minusMinutes(1));
+        ring.refresh();
+
+        // Then
+        assertEquals(keyId, ring.getSigningKey().getId());
+        assertEquals(1, ring.getKeyIds().size());
+    }
+
+    // To test the keys saved in a file: after a restart the tokens signed before are still valid
+    @Test
+    void restartTest() throws Exception {
+
+        // Given
+        Path path = directory.resolve("keys/jwt-keys.p12");
+        SigningKeyRing ring = new SigningKeyRing(path, "secreto", ROTATION, GRACE, clock);
+        String token = sign(ring, "rayas");
+
+        // When
+        SigningKeyRing restarted = new SigningKeyRing(path, "secreto", ROTATION, GRACE, clock);
+
+        // Then
+        assertTrue(Files.exists(path));
+        assertEquals(ring.getSigningKey().getId(), restarted.getSigningKey().getId());
+        assertEquals("rayas", restarted.getParser().parseSignedClaims(token).getPayload().getSubject());
+    }
+
+    // To test two nodes that share the file: the key created by a node in a rotation
+    // is used by the other one after its next refresh
+    @Test
+    void sharedFileRotationTest() {
+
+        // Given
+        Path path = directory.resolve("jwt-keys.p12");
+        SigningKeyRing first = new SigningKeyRing(path, "secreto", ROTATION, GRACE, clock);
+        SigningKeyRing second = new SigningKeyRing(path, "secreto", ROTATION, GRACE, clock);
+
+        // When
+        clock.advance(ROTATION);
+        first.refresh();
+        second.refresh();
+        String token = sign(first, "rayas");
+
+        // Then
+        assertEquals(first.getSigningKey().getId(), second.getSigningKey().getId());
+        assertEquals(first.getKeyIds(), second.getKeyIds());
+        assertEquals("rayas", second.getParser().parseSignedClaims(token).getPayload().getSubject());
+    }
+
+    // To test two nodes that share the file: a token signed with the key just created by a node
+    // is accepted by the other one before its next refresh (the file is read again for the unknown key)
+    @Test
+    void sharedFileUnknownKeyTest() {
+
+        // Given
+        Path path = directory.resolve("jwt-keys.p12");
+        SigningKeyRing first = new SigningKeyRing(path, "secreto", ROTATION, GRACE, clock);
+        SigningKeyRing second = new SigningKeyRing(path, "secreto", ROTATION, GRACE, clock);
+
+        // When
+        clock.advance(ROTATION);
+        first.refresh();
+        String token = sign(first, "rayas");
+
+        // Then
+        assertEquals("rayas", second.getParser().parseSignedClaims(token).getPayload().getSubject());
+        assertEquals(first.getKeyIds(), second.getKeyIds());
+    }
+
+    // To test the tokens with an unknown key: the file is read again at most once per interval
+    @Test
+    void unknownKeyReloadIntervalTest() {
+
+        // Given
+        Path path = directory.resolve("jwt-keys.p12");
+        // The first node creates a new key in each refresh
+        SigningKeyRing first = new SigningKeyRing(path, "secreto", Duration.ZERO, GRACE, clock);
+        SigningKeyRing second = new SigningKeyRing(path, "secreto", ROTATION, GRACE, clock);
+        String forged = Jwts.builder().header().keyId("0-unknown").and().subject("rayas")
+            .signWith(second.getSigningKey().getKey()).compact();
+
+        // When
+        clock.advance(SigningKeyRing.RELOAD_INTERVAL);
+        assertThrows(JwtException.class, () -> second.getParser().parseSignedClaims(forged));
+        first.refresh();
+        String token = sign(first, "rayas");
+
+        // Then
+        // The file was read for the forged token a moment ago
+        assertThrows(JwtException.class, () -> second.getParser().parseSignedClaims(token));
+
+        clock.advance(SigningKeyRing.RELOAD_INTERVAL);
+        assertEquals("rayas", second.getParser().parseSignedClaims(token).getPayload().getSubject());
+    }
+
+    // To test a read of the file for an unknown key that fails: the attempt is counted, so the file
+    // is not read again until the interval ends
+    @Test
+    void unknownKeyReloadFailsTest() throws Exception {
+
+        // Given
+        Path path = directory.resolve("jwt-keys.p12");
+        SigningKeyRing first = new SigningKeyRing(path, "secreto", Duration.ZERO, GRACE, clock);
+        SigningKeyRing second = new SigningKeyRing(path, "secreto", ROTATION, GRACE, clock);
+        clock.advance(SigningKeyRing.RELOAD_INTERVAL);
+        first.refresh();
+        String token = sign(first, "rayas");
+        byte[] file = Files.readAllBytes(path);
+
+        // When
+        Files.write(path, new byte[] { 1, 2, 3 });
+        assertThrows(JwtException.class, () -> second.getParser().parseSignedClaims(token));
+        Files.write(path, file);
+
+        // Then
+        assertThrows(JwtException.class, () -> second.getParser().parseSignedClaims(token));
+
+        clock.advance(SigningKeyRing.RELOAD_INTERVAL);
+        assertEquals("rayas", second.getParser().parseSignedClaims(token).getPayload().getSubject());
+    }
+
+    // To test a file with another password: the application does not start
+    @Test
+    void wrongPasswordTest() {
+
+        // Given
+        Path path = directory.resolve("jwt-keys.p12");
+        new SigningKeyRing(path, "secreto", ROTATION, GRACE, clock);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> new SigningKeyRing(path, "otro", ROTATION, GRACE, clock));
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    private String sign(SigningKeyRing ring, String username) {
+        SigningKeyRing.SigningKey signingKey = ring.getSigningKey();
+        return Jwts.builder()
+            .header().keyId(signingKey.getId()).and()
+            .subject(username)
+            .signWith(signingKey.getKey())
+            .compact();
+    }
+
+    // A clock whose time is changed by the test
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+    }
+
+}
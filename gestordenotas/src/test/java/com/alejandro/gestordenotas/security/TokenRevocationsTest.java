@@ -0,0 +1,168 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.alejandro.gestordenotas.data.UserData;
+import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.events.UserChangeEvent;
+import com.alejandro.gestordenotas.events.UsersChangeEvent;
+import com.alejandro.gestordenotas.repositories.UserRepository;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationsTest {
+
+    // To create a mock
+    @Mock
+    UserRepository repository;
+
+    TokenRevocations revocations;
+
+    @BeforeEach
+    void setUp() {
+        revocations = new TokenRevocations(repository);
+    }
+
+
+    // To test the 'update' method: the tokens of a disabled user are rejected until it is enabled again
+    @Test
+    void updateDisabledUserTest() {
+
+        // When
+        revocations.update(5L, false, 0);
+
+        // Then
+        assertTrue(revocations.isRevoked(5L, 0));
+        assertFalse(revocations.isRevoked(4L, 0));
+
+        // When
+        revocations.update(5L, true, 0);
+
+        // Then
+        assertFalse(revocations.isRevoked(5L, 0));
+    }
+
+    // To test the 'update' method with a new epoch: only the tokens with the new epoch are valid
+    @Test
+    void updateEpochTest() {
+
+        // When
+        revocations.update(5L, true, 2);
+
+        // Then
+        assertTrue(revocations.isRevoked(5L, 0));
+        assertTrue(revocations.isRevoked(5L, 1));
+        assertFalse(revocations.isRevoked(5L, 2));
+    }
+
+    // To test an id bigger than an int
+    @Test
+    void largeIdTest() {
+
+        // When
+        revocations.update(3_000_000_000L, false, 0);
+
+        // Then
+        assertTrue(revocations.isRevoked(3_000_000_000L, 0));
+        assertFalse(revocations.isRevoked(3_000_000_001L, 0));
+    }
+
+    // To test the 'rebuild' method: the disabled users and the epochs are read from the db
+    @Test
+    void rebuildTest() {
+
+        // Given
+        revocations.update(4L, false, 0);
+        when(repository.getAllIdsOfDisabledUsers()).thenReturn(List.of(6L));
+        when(repository.getAllTokenEpochs()).thenReturn(List.<Object[]>of(new Object[] { 5L, 1L }));
+
+        // When
+        revocations.rebuild();
+
+        // Then
+        assertTrue(revocations.isRevoked(6L, 0));
+        assertTrue(revocations.isRevoked(5L, 0));
+        assertFalse(revocations.isRevoked(5L, 1));
+        // The user was enabled in the db
+        assertFalse(revocations.isRevoked(4L, 0));
+        verify(repository, never()).getExistingIds(anyCollection());
+    }
+
+    // To test the 'rebuild' method with a deleted user: it is revoked until its id exists again
+    @Test
+    void rebuildDeletedUserTest() {
+
+        // Given
+        revocations.delete(7L);
+        when(repository.getAllIdsOfDisabledUsers()).thenReturn(List.of());
+        when(repository.getAllTokenEpochs()).thenReturn(List.of());
+        when(repository.getExistingIds(anyCollection())).thenReturn(List.of()).thenReturn(List.of(7L));
+
+        // When
+        revocations.rebuild();
+
+        // Then
+        assertTrue(revocations.isRevoked(7L, 0));
+
+        // When
+        revocations.rebuild();
+
+        // Then
+        assertFalse(revocations.isRevoked(7L, 0));
+    }
+
+    // To test the 'onUserChange' method: the state of the user is read after the change
+    @Test
+    void onUserChangeTest() {
+
+        // Given
+        User disabled = UserData.createUser006();
+        when(repository.findById(6L)).thenReturn(Optional.of(disabled));
+        when(repository.findById(1L)).thenReturn(Optional.empty());
+
+        // When
+        revocations.onUserChange(new UserChangeEvent(6L, "pancha"));
+        revocations.onUserChange(new UserChangeEvent(1L, "alejandro"));
+
+        // Then
+        assertTrue(revocations.isRevoked(6L, 0));
+        assertTrue(revocations.isRevoked(1L, 0));
+    }
+
+    // To test the 'onUsersChange' method: the state of the users of a bulk change is read with one query
+    // and without loading the users (a user that is not in the db anymore is not changed)
+    @Test
+    void onUsersChangeTest() {
+
+        // Given
+        revocations.update(6L, false, 0);
+        when(repository.getRevocationStates(List.of(4L, 5L, 6L, 7L))).thenReturn(List.of(
+            new Object[] { 4L, false, 0L },
+            new Object[] { 5L, true, 1L },
+            new Object[] { 6L, true, 0L }));
+
+        // When
+        revocations.onUsersChange(new UsersChangeEvent(List.of(4L, 5L, 6L, 7L), true));
+
+        // Then
+        assertTrue(revocations.isRevoked(4L, 0));
+        assertTrue(revocations.isRevoked(5L, 0));
+        assertFalse(revocations.isRevoked(5L, 1));
+        assertFalse(revocations.isRevoked(6L, 0));
+        assertFalse(revocations.isRevoked(7L, 0));
+        verify(repository, never()).findById(anyLong());
+        verify(repository, never()).findAllById(anyIterable());
+    }
+
+}
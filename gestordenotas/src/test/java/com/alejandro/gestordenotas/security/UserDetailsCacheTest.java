@@ -0,0 +1,205 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.alejandro.gestordenotas.dto.UserDetailsCacheStatsDto;
+
+class UserDetailsCacheTest {
+
+    MutableClock clock = new MutableClock(Instant.parse("2025-01-01T10:00:00Z"));
+
+    UserDetailsCache cache = new UserDetailsCache(2, Duration.ofMinutes(10), clock);
+
+
+    // To test the 'get' method: a new copy of the user is returned each time
+    @Test
+    void getCachedUserTest() {
+
+        // Given
+        cache.put(user(5L, "rayas"), cache.getGeneration());
+
+        // When
+        JpaUserDetails first = cache.get("rayas");
+        first.eraseCredentials();
+        JpaUserDetails second = cache.get("rayas");
+
+        // Then
+        assertNotSame(first, second);
+        assertEquals(5L, second.getId());
+        assertEquals("rayas123", second.getPassword());
+        assertTrue(second.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_USER")));
+        assertNull(cache.get("jorge"));
+        assertStats(2, 1, 0, 1);
+    }
+
+    // To test the 'get' method with a user whose credentials or roles changed: its token epoch is kept,
+    // so the tokens created with the cached user are not rejected
+    @Test
+    void getCachedUserTokenEpochTest() {
+
+        // Given
+        cache.put(new JpaUserDetails(5L, "rayas", "rayas123", true, 3,
+            List.of(new SimpleGrantedAuthority("ROLE_USER"))), cache.getGeneration());
+
+        // When
+        JpaUserDetails user = cache.get("rayas");
+
+        // Then
+        assertEquals(3, user.getTokenEpoch());
+    }
+
+    // To test the 'put' method: the least recently used user is removed when the cache is full
+    @Test
+    void putFullCacheTest() {
+
+        // Given
+        cache.put(user(4L, "jorge"), cache.getGeneration());
+        cache.put(user(5L, "rayas"), cache.getGeneration());
+        cache.get("jorge");
+
+        // When
+        cache.put(user(6L, "pancha"), cache.getGeneration());
+
+        // Then
+        assertNotNull(cache.get("jorge"));
+        assertNull(cache.get("rayas"));
+        assertNotNull(cache.get("pancha"));
+        assertStats(3, 1, 1, 2);
+    }
+
+    // To test the 'get' method when the user was read a long time ago
+    @Test
+    void getExpiredUserTest() {
+
+        // Given
+        cache.put(user(5L, "rayas"), cache.getGeneration());
+
+        // When
+        clock.now = clock.now.plus(Duration.ofMinutes(10));
+
+        // Then
+        assertNull(cache.get("rayas"));
+        assertStats(0, 1, 1, 0);
+    }
+
+    // To test the 'invalidate' method: only the user is removed, the users read before the change are still kept
+    @Test
+    void invalidateTest() {
+
+        // Given
+        cache.put(user(5L, "rayas"), cache.getGeneration());
+        long generationBeforeChange = cache.getGeneration();
+
+        // When
+        cache.invalidate("rayas");
+        cache.put(user(4L, "jorge"), generationBeforeChange);
+
+        // Then
+        assertNull(cache.get("rayas"));
+        assertNotNull(cache.get("jorge"));
+        assertEquals(generationBeforeChange, cache.getGeneration());
+    }
+
+    // To test the 'invalidateAccess' method: the user is removed and a user read before the change is not kept
+    @Test
+    void invalidateAccessTest() {
+
+        // Given
+        cache.put(user(5L, "rayas"), cache.getGeneration());
+        long generationBeforeChange = cache.getGeneration();
+
+        // When
+        cache.invalidateAccess("rayas");
+        cache.put(user(5L, "rayas"), generationBeforeChange);
+
+        // Then
+        assertNull(cache.get("rayas"));
+
+        cache.put(user(5L, "rayas"), cache.getGeneration());
+        assertNotNull(cache.get("rayas"));
+    }
+
+    // To test the 'invalidateIds' method: the users are removed by their ids
+    @Test
+    void invalidateIdsTest() {
+
+        // Given
+        cache.put(user(4L, "jorge"), cache.getGeneration());
+        cache.put(user(5L, "rayas"), cache.getGeneration());
+        long generationBeforeChange = cache.getGeneration();
+
+        // When
+        cache.invalidateIds(List.of(5L, 6L));
+        cache.put(user(6L, "pancha"), generationBeforeChange);
+
+        // Then
+        assertNull(cache.get("rayas"));
+        assertNull(cache.get("pancha"));
+        assertNotNull(cache.get("jorge"));
+    }
+
+    // To test the 'put' method when the cache is disabled (size 0)
+    @Test
+    void putDisabledCacheTest() {
+
+        // Given
+        UserDetailsCache disabled = new UserDetailsCache(0, Duration.ofMinutes(10), clock);
+
+        // When
+        disabled.put(user(5L, "rayas"), disabled.getGeneration());
+
+        // Then
+        assertNull(disabled.get("rayas"));
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    private JpaUserDetails user(Long id, String username) {
+        return new JpaUserDetails(id, username, username + "123", true, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    private void assertStats(long hits, long misses, long evictions, int size) {
+        UserDetailsCacheStatsDto stats = cache.getStats();
+        assertEquals(hits, stats.getHits());
+        assertEquals(misses, stats.getMisses());
+        assertEquals(evictions, stats.getEvictions());
+        assertEquals(size, stats.getSize());
+    }
+
+    // A clock whose moment can be changed by the test
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+    }
+
+}
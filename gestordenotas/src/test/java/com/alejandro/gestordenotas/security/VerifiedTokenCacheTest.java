@@ -0,0 +1,151 @@
+package com.alejandro.gestordenotas.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+class VerifiedTokenCacheTest {
+
+    // The moment of the tests
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    // The authorities of the tokens
+    private static final Set<GrantedAuthority> AUTHORITIES = Set.of(new SimpleGrantedAuthority("ROLE_USER"));
+
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, Clock.fixed(NOW, ZoneOffset.UTC));
+
+
+    // To test the 'get' method: a new authentication with the principal and the authorities
+    // of a token verified before is returned
+    @Test
+    void getVerifiedTokenTest() {
+
+        // Given
+        AuthenticatedUser principal = new AuthenticatedUser(5L, "rayas", 0);
+        cache.put("token-1", principal, AUTHORITIES, NOW.plusSeconds(60).toEpochMilli());
+
+        // When
+        UsernamePasswordAuthenticationToken cached = cache.get("token-1");
+
+        // Then
+        assertSame(principal, cached.getPrincipal());
+        assertEquals(AUTHORITIES, Set.copyOf(cached.getAuthorities()));
+        assertTrue(cached.isAuthenticated());
+        assertNull(cache.get("token-2"));
+    }
+
+    // To test the 'get' method: each request gets its own authentication, so a change of one of them
+    // (for example its details) is not seen by the other requests of the same token
+    @Test
+    void getNewAuthenticationTest() {
+
+        // Given
+        cache.put("token-1", "rayas", AUTHORITIES, NOW.plusSeconds(60).toEpochMilli());
+        UsernamePasswordAuthenticationToken first = cache.get("token-1");
+
+        // When
+        first.setDetails("details of the first request");
+        first.setAuthenticated(false);
+        UsernamePasswordAuthenticationToken second = cache.get("token-1");
+
+        // Then
+        assertNotSame(first, second);
+        assertNull(second.getDetails());
+        assertTrue(second.isAuthenticated());
+    }
+
+    // To test the 'put' method when the token has already expired
+    @Test
+    void putExpiredTokenTest() {
+
+        // When
+        cache.put("token-1", "rayas", AUTHORITIES, NOW.toEpochMilli());
+
+        // Then
+        assertNull(cache.get("token-1"));
+        assertEquals(0, cache.size());
+    }
+
+    // To test the 'get' method: an entry is removed when it is read after the expiration of its token
+    @Test
+    void getEntryAfterExpirationTest() {
+
+        // Given
+        MutableClock clock = new MutableClock(NOW);
+        VerifiedTokenCache cacheWithClock = new VerifiedTokenCache(10, clock);
+        cacheWithClock.put("token-1", "rayas", AUTHORITIES, NOW.plusSeconds(60).toEpochMilli());
+
+        // When
+        clock.now = NOW.plusSeconds(60);
+
+        // Then
+        assertNull(cacheWithClock.get("token-1"));
+        assertEquals(0, cacheWithClock.size());
+    }
+
+    // To test the 'put' method: the number of entries is limited
+    @Test
+    void putFullCacheTest() {
+
+        // When
+        for (int i = 0; i < 25; i++) {
+            cache.put("token-" + i, "rayas", AUTHORITIES, NOW.plusSeconds(60).toEpochMilli());
+        }
+
+        // Then
+        assertTrue(cache.size() <= 10);
+        assertNotNull(cache.get("token-24"));
+    }
+
+    // To test the 'put' method when the cache is disabled (size 0)
+    @Test
+    void putDisabledCacheTest() {
+
+        // Given
+        VerifiedTokenCache disabled = new VerifiedTokenCache(0, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        // When
+        disabled.put("token-1", "rayas", AUTHORITIES, NOW.plusSeconds(60).toEpochMilli());
+
+        // Then
+        assertNull(disabled.get("token-1"));
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // A clock whose moment can be changed by the test
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+    }
+
+}
@@ -7,6 +7,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
@@ -15,10 +16,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import com.alejandro.gestordenotas.data.UserData;
 import com.alejandro.gestordenotas.data.CustomCondition;
+import com.alejandro.gestordenotas.entities.RoleLevel;
 import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.events.UserChangeEvent;
+import com.alejandro.gestordenotas.events.UsersChangeEvent;
 import com.alejandro.gestordenotas.repositories.UserRepository;
 
 
@@ -29,6 +34,10 @@ class AdminServiceImpTest {
     @Mock
     UserRepository repository; 
 
+    // To create a mock
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
     // To create a service object with the injection of a mock
     @InjectMocks
     AdminServiceImp service;
@@ -44,7 +53,7 @@ class AdminServiceImpTest {
         when(repository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // when
-        Optional<User> optionalUser = service.disableEnableUser(userIdToSearch);
+        Optional<User> optionalUser = service.disableEnableUser(userIdToSearch, RoleLevel.USER);
 
         // then
         assertNotNull(optionalUser.get());
@@ -54,6 +63,7 @@ class AdminServiceImpTest {
         
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
         verify(repository).save(any(User.class));
+        verify(eventPublisher).publishEvent(any(UserChangeEvent.class));
     }
 
     // To test the 'disableEnableUser' method when the user was enabled
@@ -66,7 +76,7 @@ class AdminServiceImpTest {
         when(repository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // when
-        Optional<User> optionalUser = service.disableEnableUser(userIdToSearch);
+        Optional<User> optionalUser = service.disableEnableUser(userIdToSearch, RoleLevel.USER);
 
         // then
         assertNotNull(optionalUser.get());
@@ -76,8 +86,34 @@ class AdminServiceImpTest {
         
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
         verify(repository).save(any(User.class));
+        verify(eventPublisher).publishEvent(any(UserChangeEvent.class));
     }
     
+    // To test the 'disableEnableUser' method when the user has a role higher than the level: the admins 
+    // can not change an admin, the super admin can change an admin but not a super admin
+    @Test
+    void disableEnableUserGuardedTest() {
+
+        // Given
+        when(repository.findById(2L)).thenReturn(Optional.of(UserData.createUser002()));
+        when(repository.findById(1L)).thenReturn(Optional.of(UserData.createUser001()));
+        when(repository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        Optional<User> adminByAdmin = service.disableEnableUser(2L, RoleLevel.USER);
+        Optional<User> superAdminBySuperAdmin = service.disableEnableUser(1L, RoleLevel.ADMIN);
+        Optional<User> adminBySuperAdmin = service.disableEnableUser(2L, RoleLevel.ADMIN);
+
+        // then
+        assertTrue(adminByAdmin.isEmpty());
+        assertTrue(superAdminBySuperAdmin.isEmpty());
+        assertTrue(adminBySuperAdmin.isPresent());
+        assertFalse(adminBySuperAdmin.get().isEnabled());
+
+        verify(repository, times(1)).save(any(User.class));
+        verify(eventPublisher, times(1)).publishEvent(any(UserChangeEvent.class));
+    }
+
     // To test the 'disableEnableUser' method when we use an inexisting user id
     @Test
     void disableEnableUserInexistingIdTest() {
@@ -87,7 +123,7 @@ class AdminServiceImpTest {
         when(repository.findById(anyLong())).thenReturn(Optional.empty());
 
         // when
-        Optional<User> optionalUser2 = service.disableEnableUser(userIdToSearch);
+        Optional<User> optionalUser2 = service.disableEnableUser(userIdToSearch, RoleLevel.USER);
 
         // then
         assertFalse(optionalUser2.isPresent());
@@ -97,6 +133,30 @@ class AdminServiceImpTest {
 
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, false)));
         verify(repository, never()).save(any(User.class));
+        verify(eventPublisher, never()).publishEvent(any(UserChangeEvent.class));
+    }
+
+    // To test the 'disableEnableUsers' method: only the changed users are updated and notified,
+    // and the event is published only when a user changed
+    @Test
+    void disableEnableUsersTest() {
+
+        // Given
+        when(repository.lockIdsToUpdateEnabled(List.of(11L, 13L, 14L), false, RoleLevel.USER)).thenReturn(List.of(13L, 14L));
+        when(repository.updateEnabled(List.of(13L, 14L), false, RoleLevel.USER)).thenReturn(2);
+        when(repository.lockIdsToUpdateEnabled(List.of(15L), true, RoleLevel.USER)).thenReturn(List.of());
+
+        // when
+        int disabled = service.disableEnableUsers(List.of(11L, 13L, 14L), false, RoleLevel.USER);
+        int enabled = service.disableEnableUsers(List.of(15L), true, RoleLevel.USER);
+
+        // then
+        assertEquals(2, disabled);
+        assertEquals(0, enabled);
+        verify(repository, never()).updateEnabled(List.of(15L), true, RoleLevel.USER);
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof UsersChangeEvent usersEvent
+            && usersEvent.getUserIds().equals(List.of(13L, 14L)) && !usersEvent.isRoles()));
+        verifyNoMoreInteractions(eventPublisher);
     }
 
 }
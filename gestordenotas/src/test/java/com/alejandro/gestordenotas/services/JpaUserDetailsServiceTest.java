@@ -0,0 +1,119 @@
+package com.alejandro.gestordenotas.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import com.alejandro.gestordenotas.data.UserData;
+import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.events.UserChangeEvent;
+import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.security.JpaUserDetails;
+import com.alejandro.gestordenotas.security.UserDetailsCache;
+
+@ExtendWith(MockitoExtension.class)
+class JpaUserDetailsServiceTest {
+
+    // To create a mock
+    @Mock
+    UserRepository repository;
+
+    // To create a mock
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    // To use a real cache
+    @Spy
+    UserDetailsCache cache = new UserDetailsCache(10, Duration.ofMinutes(10));
+
+    // To create a service object with the injection of the mocks
+    @InjectMocks
+    JpaUserDetailsService service;
+
+
+    // To test the 'loadUserByUsername' method: the user is read from the db only in the first login
+    @Test
+    void loadUserByUsernameTest() {
+
+        // Given
+        when(repository.findByUsername("rayas")).thenReturn(Optional.of(UserData.createUser005()));
+
+        // When
+        UserDetails first = service.loadUserByUsername("rayas");
+        UserDetails second = service.loadUserByUsername("rayas");
+
+        // Then
+        assertEquals(5L, ((JpaUserDetails) first).getId());
+        assertEquals("rayas123", second.getPassword());
+        assertTrue(second.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_USER")));
+
+        verify(repository, times(1)).findByUsername(anyString());
+    }
+
+    // To test the 'loadUserByUsername' method when the user doesn't exist
+    @Test
+    void loadUserByUsernameInexistingTest() {
+
+        // Given
+        when(repository.findByUsername(anyString())).thenReturn(Optional.empty());
+
+        // When / Then
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("nadie"));
+    }
+
+    // To test the 'updatePassword' method: the new hash is saved and the user is forgotten by the cache
+    @Test
+    void updatePasswordTest() {
+
+        // Given
+        when(repository.updatePassword("rayas", "$2a$04$old", "{bcrypt}$2a$10$new")).thenReturn(1);
+        UserDetails userDetails = new JpaUserDetails(5L, "rayas", "$2a$04$old", true, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        // When
+        UserDetails updated = service.updatePassword(userDetails, "{bcrypt}$2a$10$new");
+
+        // Then
+        assertEquals("{bcrypt}$2a$10$new", updated.getPassword());
+        assertEquals(5L, ((JpaUserDetails) updated).getId());
+
+        verify(repository).updatePassword("rayas", "$2a$04$old", "{bcrypt}$2a$10$new");
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof UserChangeEvent userEvent
+            && "rayas".equals(userEvent.getUsername()) && !userEvent.isAccessChanged()));
+    }
+
+    // To test the 'updatePassword' method when the password was changed after the login:
+    // the new password is not overwritten and the cache is not changed
+    @Test
+    void updatePasswordChangedTest() {
+
+        // Given
+        when(repository.updatePassword("rayas", "$2a$04$old", "{bcrypt}$2a$10$new")).thenReturn(0);
+        UserDetails userDetails = new JpaUserDetails(5L, "rayas", "$2a$04$old", true, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        // When
+        UserDetails updated = service.updatePassword(userDetails, "{bcrypt}$2a$10$new");
+
+        // Then
+        assertSame(userDetails, updated);
+        verify(repository, never()).save(any(User.class));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+}
@@ -0,0 +1,379 @@
+package com.alejandro.gestordenotas.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.alejandro.gestordenotas.dto.NoteImportResultDto;
+import com.alejandro.gestordenotas.entities.Note;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+@ExtendWith(MockitoExtension.class)
+class NoteImportServiceImpTest {
+
+    // To create a mock
+    @Mock
+    NoteService noteService;
+
+    // To read the json lines with a real object
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    // To validate the notes with a real object
+    @Spy
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    // To create a service object with the injection of a mock
+    @InjectMocks
+    NoteImportServiceImp service;
+
+
+    // To test the 'importNotesByUser' method with a NDJSON stream that has some wrong lines
+    @Test
+    void importNotesByUserNdjsonTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String body = """
+            {"content":"this is the note 1"}
+            {"content":" "}
+
+            {"content":"this is the note 2"
+            {"content":"this is the note 3","id":999}
+            null
+            """;
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenAnswer(invocation -> Optional.of(((List<?>) invocation.getArgument(1)).size()));
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), false);
+
+        // Then
+        assertEquals(4L, result.getUserId());
+        assertEquals(2, result.getImported());
+        assertEquals(3, result.getRejected());
+        assertEquals(3, result.getErrors().size());
+        assertEquals(2, result.getErrors().get(0).getLine());
+        assertEquals("El campo content must not be blank", result.getErrors().get(0).getMessage());
+        assertEquals(4, result.getErrors().get(1).getLine());
+        assertEquals("El registro no tiene un formato válido", result.getErrors().get(1).getMessage());
+        assertEquals(6, result.getErrors().get(2).getLine());
+        assertTrue(result.getRowsPerSecond() > 0);
+
+        verify(noteService).saveNotesByUser(eq(idToSearch), argThat(notes -> notes.size() == 2
+            && notes.get(1).getContent().equals("this is the note 3")));
+    }
+
+    // To test the 'importNotesByUser' method with a CSV stream that has a value with many lines
+    @Test
+    void importNotesByUserCsvTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String body = """
+            content,tag
+            this is the note 1,a
+            "this is the note 2, with
+            two lines",b
+            ,c
+            """;
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenAnswer(invocation -> Optional.of(((List<?>) invocation.getArgument(1)).size()));
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), true);
+
+        // Then
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(4, result.getErrors().get(0).getLine());
+        assertEquals("El campo content must not be blank", result.getErrors().get(0).getMessage());
+
+        verify(noteService).saveNotesByUser(eq(idToSearch), argThat(notes -> notes.size() == 2
+            && notes.get(1).getContent().equals("this is the note 2, with\ntwo lines")));
+    }
+
+    // To test the 'importNotesByUser' method when the notes are saved in many chunks
+    // and only the errors allowed are reported
+    @Test
+    void importNotesByUserChunksTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        int validNotes = NoteImportServiceImp.CHUNK_SIZE * 2 + 1;
+        int invalidNotes = NoteImportServiceImp.MAX_REPORTED_ERRORS + 5;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < validNotes; i++) {
+            body.append("{\"content\":\"this is the note ").append(i).append("\"}\n");
+        }
+        for (int i = 0; i < invalidNotes; i++) {
+            body.append("{\"content\":\"\"}\n");
+        }
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenAnswer(invocation -> Optional.of(((List<?>) invocation.getArgument(1)).size()));
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body.toString()), false);
+
+        // Then
+        assertEquals(validNotes, result.getImported());
+        assertEquals(invalidNotes, result.getRejected());
+        assertEquals(NoteImportServiceImp.MAX_REPORTED_ERRORS, result.getErrors().size());
+
+        verify(noteService, times(3)).saveNotesByUser(eq(idToSearch), anyList());
+    }
+
+    // To test the 'importNotesByUser' method when a chunk cannot be saved,
+    // then its notes are saved one by one and only the wrong note is rejected
+    @Test
+    void importNotesByUserChunkFailsTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String body = """
+            {"content":"this is the note 1"}
+            {"content":"this is a note too long for the db"}
+            {"content":"this is the note 3"}
+            """;
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenAnswer(invocation -> {
+            List<Note> notes = invocation.getArgument(1);
+            if (notes.stream().anyMatch(note -> note.getContent().contains("too long"))) {
+                throw new DataIntegrityViolationException("Value too long");
+            }
+            return Optional.of(notes.size());
+        });
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), false);
+
+        // Then
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(2, result.getErrors().get(0).getLine());
+        assertEquals("No se pudo guardar la nota", result.getErrors().get(0).getMessage());
+
+        verify(noteService, times(4)).saveNotesByUser(eq(idToSearch), anyList());
+    }
+
+    // To test the 'importNotesByUser' method when a note of a chunk fails at the flush with an exception
+    // of the persistence provider (not translated by Spring): the chunk is also saved one by one
+    @Test
+    void importNotesByUserChunkFailsAtFlushTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String body = """
+            {"content":"this is the note 1"}
+            {"content":"this is the note 2"}
+            {"content":"this is a note that breaks a constraint"}
+            """;
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenAnswer(invocation -> {
+            List<Note> notes = invocation.getArgument(1);
+            if (notes.stream().anyMatch(note -> note.getContent().contains("constraint"))) {
+                throw new ConstraintViolationException("Constraint violated at flush", new SQLException(), "constraint");
+            }
+            return Optional.of(notes.size());
+        });
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), false);
+
+        // Then
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(3, result.getErrors().get(0).getLine());
+        assertEquals("No se pudo guardar la nota", result.getErrors().get(0).getMessage());
+
+        verify(noteService, times(4)).saveNotesByUser(eq(idToSearch), anyList());
+    }
+
+    // To test the 'importNotesByUser' method when the user doesn't exist anymore: the notes are rejected
+    @Test
+    void importNotesByUserInexistingUserTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String body = """
+            {"content":"this is the note 1"}
+            {"content":"this is the note 2"}
+            """;
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenReturn(Optional.empty());
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), false);
+
+        // Then
+        assertEquals(0, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals("El usuario no existe", result.getErrors().get(0).getMessage());
+        verify(noteService).saveNotesByUser(eq(idToSearch), anyList());
+    }
+
+    // To test the 'importNotesByUser' method with a NDJSON line longer than the maximum: it is rejected
+    // and the next lines are read
+    @Test
+    void importNotesByUserNdjsonTooLongLineTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String longContent = "x".repeat(NoteImportServiceImp.MAX_LINE_LENGTH);
+        String body = "{\"content\":\"this is the note 1\"}\r\n"
+            + "{\"content\":\"" + longContent + "\"}\r\n"
+            + "{\"content\":\"this is the note 3\"}";
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenAnswer(invocation -> Optional.of(((List<?>) invocation.getArgument(1)).size()));
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), false);
+
+        // Then
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(2, result.getErrors().get(0).getLine());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("El registro supera el tamaño máximo"));
+        verify(noteService).saveNotesByUser(eq(idToSearch), argThat(notes -> notes.size() == 2
+            && "this is the note 3".equals(notes.get(1).getContent())));
+    }
+
+    // To test the 'importNotesByUser' method with lines longer than the buffer of the reader: the lines of
+    // the maximum length are read and a longer line without a new line at the end is rejected
+    @Test
+    void importNotesByUserNdjsonMaxLengthTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String maxLine = "{\"content\":\"" + "x".repeat(NoteImportServiceImp.MAX_LINE_LENGTH - 14) + "\"}";
+        String longLine = "{\"content\":\"" + "x".repeat(NoteImportServiceImp.MAX_LINE_LENGTH - 13) + "\"}";
+        String body = maxLine + "\r\n" + maxLine + "\n" + longLine;
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenAnswer(invocation -> Optional.of(((List<?>) invocation.getArgument(1)).size()));
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), false);
+
+        // Then
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(3, result.getErrors().get(0).getLine());
+    }
+
+    // To test the 'importNotesByUser' method with a CSV value longer than the maximum: it is rejected
+    // and the next records are read
+    @Test
+    void importNotesByUserCsvTooLongValueTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String body = "content\n"
+            + "this is the note 1\n"
+            + "\"" + "x\ny".repeat(NoteImportServiceImp.MAX_LINE_LENGTH / 3 + 1) + "\"\n"
+            + "this is the note 3\n";
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenAnswer(invocation -> Optional.of(((List<?>) invocation.getArgument(1)).size()));
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), true);
+
+        // Then
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(3, result.getErrors().get(0).getLine());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("El registro supera el tamaño máximo"));
+        verify(noteService).saveNotesByUser(eq(idToSearch), argThat(notes -> notes.size() == 2
+            && "this is the note 3".equals(notes.get(1).getContent())));
+    }
+
+    // To test the 'importNotesByUser' method with malformed CSV records: they are rejected
+    // and the next records are read
+    @Test
+    void importNotesByUserCsvMalformedRecordTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String body = """
+            content,tag
+            this is the note 1,a
+            "this is a quoted"value,b
+            this is a note,with,too many values
+            "this is the note 4 with ""quotes""\",d
+            """;
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenAnswer(invocation -> Optional.of(((List<?>) invocation.getArgument(1)).size()));
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), true);
+
+        // Then
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals(3, result.getErrors().get(0).getLine());
+        assertEquals("El registro no tiene un formato válido", result.getErrors().get(0).getMessage());
+        assertEquals(4, result.getErrors().get(1).getLine());
+        verify(noteService).saveNotesByUser(eq(idToSearch), argThat(notes -> notes.size() == 2
+            && "this is the note 4 with \"quotes\"".equals(notes.get(1).getContent())));
+    }
+
+    // To test the 'importNotesByUser' method with a CSV header that cannot be read: nothing is imported
+    @Test
+    void importNotesByUserCsvWrongHeaderTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String body = """
+            "content"tag
+            this is the note 1,a
+            """;
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), true);
+
+        // Then
+        assertEquals(0, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(1, result.getErrors().get(0).getLine());
+        assertEquals("La cabecera no tiene un formato válido", result.getErrors().get(0).getMessage());
+        verify(noteService, never()).saveNotesByUser(anyLong(), anyList());
+    }
+
+    // To test the 'importNotesByUser' method with big notes: a chunk is saved before it is full
+    // when the length of its contents reaches the maximum
+    @Test
+    void importNotesByUserNdjsonBigNotesTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        String line = "{\"content\":\"" + "x".repeat(NoteImportServiceImp.MAX_LINE_LENGTH - 20) + "\"}\n";
+        String body = line.repeat(10);
+        when(noteService.saveNotesByUser(anyLong(), anyList())).thenAnswer(invocation -> Optional.of(((List<?>) invocation.getArgument(1)).size()));
+
+        // When
+        NoteImportResultDto result = service.importNotesByUser(idToSearch, stream(body), false);
+
+        // Then
+        assertEquals(10, result.getImported());
+        assertEquals(0, result.getRejected());
+        verify(noteService).saveNotesByUser(eq(idToSearch), argThat(notes -> notes.size() == 9));
+        verify(noteService).saveNotesByUser(eq(idToSearch), argThat(notes -> notes.size() == 1));
+    }
+
+    private InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
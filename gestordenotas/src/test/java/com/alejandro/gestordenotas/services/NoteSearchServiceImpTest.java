@@ -0,0 +1,247 @@
+package com.alejandro.gestordenotas.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.alejandro.gestordenotas.dto.NoteSearchHitDto;
+import com.alejandro.gestordenotas.entities.Note;
+import com.alejandro.gestordenotas.events.NoteChangeEvent;
+import com.alejandro.gestordenotas.repositories.NoteRepository;
+import com.alejandro.gestordenotas.repositories.NoteRepository.NoteContent;
+
+@ExtendWith(MockitoExtension.class)
+class NoteSearchServiceImpTest {
+
+    // To create a mock
+    @Mock
+    NoteRepository repository;
+
+    // To create a service object with the injection of a mock
+    @InjectMocks
+    NoteSearchServiceImp service;
+
+
+    // To test the 'searchNotesByUser' method: the notes are ranked by the frequency and
+    // the rarity of the terms, without case or accents
+    @Test
+    void searchNotesByUserRankingTest() {
+
+        // Given
+        Long idToSearch = 4L;
+        givenNotes(idToSearch,
+            note(idToSearch, 1L, "Comprar leche y pan"),
+            note(idToSearch, 2L, "La canción de la leche, leche y más leche"),
+            note(idToSearch, 3L, "Llamar al médico"),
+            note(idToSearch, 4L, "Reunión con el equipo"));
+
+        // When
+        List<NoteSearchHitDto> milk = service.searchNotesByUser(idToSearch, "LECHE", 20);
+        List<NoteSearchHitDto> song = service.searchNotesByUser(idToSearch, "cancion leche", 20);
+        List<NoteSearchHitDto> nothing = service.searchNotesByUser(idToSearch, "tarea", 20);
+
+        // Then
+        assertEquals(List.of(2L, 1L), ids(milk));
+        assertTrue(milk.get(0).getScore() > milk.get(1).getScore());
+        assertEquals(2L, song.get(0).getNote().getId());
+        assertTrue(nothing.isEmpty());
+
+        // The index is read from the db only once
+        verify(repository, times(1)).streamContentByUserId(idToSearch);
+    }
+
+    // To test the 'searchNotesByUser' method when the results are more than the limit
+    @Test
+    void searchNotesByUserLimitTest() {
+
+        // Given
+        Long idToSearch = 4L;
+        Note[] notes = new Note[10];
+        for (int i = 0; i < notes.length; i++) {
+            notes[i] = note(idToSearch, i + 1L, "nota " + "importante ".repeat(i + 1));
+        }
+        givenNotes(idToSearch, notes);
+
+        // When
+        List<NoteSearchHitDto> hits = service.searchNotesByUser(idToSearch, "importante", 3);
+
+        // Then
+        assertEquals(List.of(10L, 9L, 8L), ids(hits));
+    }
+
+    // To test the 'onNoteChange' method: the index is updated with the saved, updated and deleted notes
+    @Test
+    void onNoteChangeTest() {
+
+        // Given
+        Long idToSearch = 4L;
+        Note first = note(idToSearch, 1L, "Comprar leche");
+        Note second = note(idToSearch, 2L, "Comprar pan");
+        givenNotes(idToSearch, first, second);
+        service.searchNotesByUser(idToSearch, "comprar", 20);
+
+        // When
+        Note third = note(idToSearch, 3L, "Leche de almendra");
+        service.onNoteChange(NoteChangeEvent.saved(idToSearch, List.of(third)));
+        service.onNoteChange(NoteChangeEvent.updated(idToSearch, 2L, "Comprar queso"));
+        service.onNoteChange(NoteChangeEvent.deleted(idToSearch, 1L));
+        givenNotes(idToSearch, second, third);
+
+        // Then
+        assertEquals(List.of(3L), ids(service.searchNotesByUser(idToSearch, "leche", 20)));
+        assertEquals(List.of(2L), ids(service.searchNotesByUser(idToSearch, "queso", 20)));
+        assertTrue(service.searchNotesByUser(idToSearch, "pan", 20).isEmpty());
+        verify(repository, times(1)).streamContentByUserId(idToSearch);
+    }
+
+    // To test the 'onNoteChange' method when the index of the user was not built,
+    // then the change is ignored and the index is read from the db later
+    @Test
+    void onNoteChangeIndexNotBuiltTest() {
+
+        // Given
+        Long idToSearch = 4L;
+
+        // When
+        service.onNoteChange(NoteChangeEvent.updated(idToSearch, 2L, "Comprar queso"));
+        service.onNoteChange(NoteChangeEvent.userDeleted(idToSearch));
+
+        // Then
+        verify(repository, never()).streamContentByUserId(anyLong());
+        verify(repository, never()).findAllById(anyIterable());
+    }
+
+    // To test the 'onNoteChange' method when the user is deleted, then its index is forgotten
+    @Test
+    void onNoteChangeUserDeletedTest() {
+
+        // Given
+        Long idToSearch = 4L;
+        givenNotes(idToSearch, note(idToSearch, 1L, "Comprar leche"));
+        service.searchNotesByUser(idToSearch, "leche", 20);
+
+        // When
+        service.onNoteChange(NoteChangeEvent.userDeleted(idToSearch));
+        when(repository.streamContentByUserId(anyLong())).thenReturn(Stream.empty());
+
+        // Then
+        assertTrue(service.searchNotesByUser(idToSearch, "leche", 20).isEmpty());
+        verify(repository, times(2)).streamContentByUserId(idToSearch);
+    }
+
+    // To test the 'onNoteChange' method when the index is being built: the change is applied after the build,
+    // so the note read before the change is not kept
+    @Test
+    void onNoteChangeDuringBuildTest() {
+
+        // Given
+        Long idToSearch = 4L;
+        Note first = note(idToSearch, 1L, "Comprar leche");
+        givenNotes(idToSearch, first);
+        when(repository.streamContentByUserId(idToSearch)).thenAnswer(invocation -> Stream.of(first).map(note -> {
+            // The change is committed while the notes are read
+            service.onNoteChange(NoteChangeEvent.updated(idToSearch, 1L, "Comprar queso"));
+            return content(note);
+        }));
+
+        // When
+        List<NoteSearchHitDto> milk = service.searchNotesByUser(idToSearch, "leche", 20);
+        List<NoteSearchHitDto> cheese = service.searchNotesByUser(idToSearch, "queso", 20);
+
+        // Then
+        assertTrue(milk.isEmpty());
+        assertEquals(List.of(1L), ids(cheese));
+    }
+
+    // To test the 'searchNotesByUser' method when there are more users than the limit:
+    // the index of the least recently used user is removed and read again from the db
+    @Test
+    void searchNotesByUserMaxUsersTest() {
+
+        // Given
+        ReflectionTestUtils.setField(service, "maxUsers", 1);
+        givenNotes(4L, note(4L, 1L, "Comprar leche"));
+        givenNotes(5L, note(5L, 2L, "Comprar pan"));
+
+        // When
+        service.searchNotesByUser(4L, "leche", 20);
+        service.searchNotesByUser(5L, "pan", 20);
+        service.searchNotesByUser(5L, "pan", 20);
+        service.searchNotesByUser(4L, "leche", 20);
+
+        // Then
+        verify(repository, times(2)).streamContentByUserId(4L);
+        verify(repository, times(1)).streamContentByUserId(5L);
+    }
+
+    // To test the 'searchNotesByUser' and 'removeOldIndexes' methods: an old index is read again from the db
+    @Test
+    void searchNotesByUserMaxAgeTest() {
+
+        // Given
+        Long idToSearch = 4L;
+        givenNotes(idToSearch, note(idToSearch, 1L, "Comprar leche"));
+        service.searchNotesByUser(idToSearch, "leche", 20);
+
+        // When
+        ReflectionTestUtils.setField(service, "maxAge", Duration.ZERO);
+        service.searchNotesByUser(idToSearch, "leche", 20);
+        service.removeOldIndexes();
+        service.onNoteChange(NoteChangeEvent.updated(idToSearch, 1L, "Comprar queso"));
+
+        // Then
+        verify(repository, times(2)).streamContentByUserId(idToSearch);
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    // To prepare the notes read from the db (the content read to build the index and the found notes)
+    private void givenNotes(Long userId, Note... notes) {
+        lenient().when(repository.streamContentByUserId(userId)).thenAnswer(invocation -> Stream.of(notes).map(this::content));
+        lenient().when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>();
+            invocation.<Iterable<Long>>getArgument(0).forEach(ids::add);
+            return Stream.of(notes).filter(note -> ids.contains(note.getId())).toList();
+        });
+    }
+
+    private Note note(Long userId, Long id, String content) {
+        Note note = new Note(id, content);
+        note.setUserId(userId);
+        return note;
+    }
+
+    private NoteContent content(Note note) {
+        return new NoteContent() {
+
+            @Override
+            public Long getId() {
+                return note.getId();
+            }
+
+            @Override
+            public String getContent() {
+                return note.getContent();
+            }
+
+        };
+    }
+
+    private List<Long> ids(List<NoteSearchHitDto> hits) {
+        return hits.stream().map(hit -> hit.getNote().getId()).toList();
+    }
+
+}
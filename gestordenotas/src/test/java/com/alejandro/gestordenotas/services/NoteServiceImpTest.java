@@ -3,26 +3,52 @@ package com.alejandro.gestordenotas.services;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
 import com.alejandro.gestordenotas.data.NoteData;
 import com.alejandro.gestordenotas.data.UserData;
 import com.alejandro.gestordenotas.data.CustomCondition;
+import com.alejandro.gestordenotas.dto.NoteChangesDto;
+import com.alejandro.gestordenotas.dto.NotePageDto;
 import com.alejandro.gestordenotas.entities.User;
 import com.alejandro.gestordenotas.entities.Note;
+import com.alejandro.gestordenotas.entities.NoteChange;
+import com.alejandro.gestordenotas.entities.NoteTombstone;
 import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.events.NoteChangeEvent;
+import com.alejandro.gestordenotas.exceptions.InvalidCursorException;
+import com.alejandro.gestordenotas.exceptions.NoteVersionConflictException;
+import com.alejandro.gestordenotas.repositories.NoteChangeRepository;
 import com.alejandro.gestordenotas.repositories.NoteRepository;
+import com.alejandro.gestordenotas.repositories.NoteTombstoneRepository;
+import com.alejandro.gestordenotas.utils.UtilCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
 
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +62,26 @@ class NoteServiceImpTest {
     @Mock
     UserRepository userRepository; 
 
+    // To create a mock
+    @Mock
+    NoteTombstoneRepository tombstoneRepository; 
+
+    // To create a mock
+    @Mock
+    NoteChangeRepository changeRepository;
+
+    // To create a mock
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    // To create a mock
+    @Mock
+    EntityManager entityManager;
+
+    // To serialize the exported notes with a real object
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     // To create a service object with the injection of a mock
     @InjectMocks
     NoteServiceImp service;
@@ -84,34 +130,229 @@ class NoteServiceImpTest {
         verify(repository).findById(argThat(new CustomCondition(NoteData.idsValid, false)));
     }
 
-    // To test the 'saveNoteByUser' method when an existent user ID is used
+    // To test the 'getNoteByUser' method when the note belongs to the user
+    @Test
+    void getNoteByUserOwnerTest() {
+
+        // Given
+        Long idUserToSearch = 4L;
+        Long idNoteToSearch = 5L;
+        when(repository.findByIdAndUserId(anyLong(), anyLong())).thenReturn(Optional.of(NoteData.createNote005()));
+
+        // when
+        Optional<Note> optionalNote = service.getNoteByUser(idUserToSearch, idNoteToSearch);
+
+        // then
+        assertTrue(optionalNote.isPresent());
+        assertEquals(5L, optionalNote.get().getId());
+        assertEquals("This is the note No. 5", optionalNote.get().getContent());
+
+        verify(repository).findByIdAndUserId(idNoteToSearch, idUserToSearch);
+    }
+
+    // To test the 'getNoteByUser' method when the note does not belong to the user
+    @Test
+    void getNoteByUserNoOwnerTest() {
+
+        // Given
+        Long idUserToSearch = 4L;
+        Long idNoteToSearch = 99999L;
+        when(repository.findByIdAndUserId(anyLong(), anyLong())).thenReturn(Optional.empty());
+
+        // when
+        Optional<Note> optionalNote = service.getNoteByUser(idUserToSearch, idNoteToSearch);
+
+        // then
+        assertFalse(optionalNote.isPresent());
+
+        verify(repository).findByIdAndUserId(idNoteToSearch, idUserToSearch);
+    }
+
+    // To test the 'getNotesByUser' method when the user has more notes than the page size
+    @Test
+    void getNotesByUserFirstPageTest() {
+
+        // Given
+        Long idToSearch = 2L;
+        when(repository.findByUserIdAndIdGreaterThanOrderByIdAsc(anyLong(), anyLong(), any(Limit.class)))
+            .thenReturn(NoteData.createNotes002());
+
+        // when
+        NotePageDto page = service.getNotesByUser(idToSearch, null, 2);
+
+        // then
+        assertEquals(2, page.getNotes().size());
+        assertEquals(2L, page.getNotes().get(0).getId());
+        assertEquals(3L, page.getNotes().get(1).getId());
+        assertEquals(3L, UtilCursor.decodeId(page.getNextCursor()));
+
+        verify(repository).findByUserIdAndIdGreaterThanOrderByIdAsc(idToSearch, 0L, Limit.of(3));
+    }
+
+    // To test the 'getNotesByUser' method when the requested page is the last one
+    @Test
+    void getNotesByUserLastPageTest() {
+
+        // Given
+        Long idToSearch = 2L;
+        when(repository.findByUserIdAndIdGreaterThanOrderByIdAsc(anyLong(), anyLong(), any(Limit.class)))
+            .thenReturn(NoteData.createNotes001());
+
+        // when
+        NotePageDto page = service.getNotesByUser(idToSearch, UtilCursor.encodeId(3L), 2);
+
+        // then
+        assertEquals(1, page.getNotes().size());
+        assertNull(page.getNextCursor());
+
+        verify(repository).findByUserIdAndIdGreaterThanOrderByIdAsc(idToSearch, 3L, Limit.of(3));
+    }
+
+    // To test the 'getNoteChangesByUser' method when there are notes and tombstones changed 
+    // in the same version, then the notes are sent first and the page is cut by the limit
+    @Test
+    void getNoteChangesByUserFirstPageTest() {
+
+        // Given
+        Long idToSearch = 2L;
+        List<Note> notes = List.of(note(5L, 3L), note(3L, 4L));
+        List<NoteTombstone> tombstones = List.of(tombstone(1L, 9L, 4L), tombstone(2L, 8L, 5L));
+        when(changeRepository.getSettledVersion(anyLong())).thenReturn(Optional.of(6L));
+        when(repository.findChangedAfter(anyLong(), anyLong(), anyLong(), anyLong(), any(Limit.class))).thenReturn(notes);
+        when(tombstoneRepository.findDeletedAfter(anyLong(), anyLong(), anyLong(), anyLong(), any(Limit.class))).thenReturn(tombstones);
+
+        // When
+        NoteChangesDto changes = service.getNoteChangesByUser(idToSearch, null, 3);
+
+        // Then
+        assertEquals(List.of(5L, 3L), changes.getUpserted().stream().map(Note::getId).toList());
+        assertEquals(List.of(9L), changes.getDeleted());
+        assertTrue(changes.isHasMore());
+        long[] position = UtilCursor.decodeKeys(changes.getNextToken(), 3);
+        assertEquals(4L, position[0]);
+        assertEquals(1L, position[1]);
+        assertEquals(1L, position[2]);
+
+        verify(repository).findChangedAfter(idToSearch, 0L, 0L, 6L, Limit.of(4));
+        verify(tombstoneRepository).findDeletedAfter(idToSearch, 0L, 0L, 6L, Limit.of(4));
+    }
+
+    // To test the 'getNoteChangesByUser' method when the token is the position of a deletion, 
+    // then the notes of the same version are not sent again
+    @Test
+    void getNoteChangesByUserAfterDeletionTest() {
+
+        // Given
+        Long idToSearch = 2L;
+        String since = UtilCursor.encodeKeys(4, 1, 7);
+        when(changeRepository.getSettledVersion(anyLong())).thenReturn(Optional.of(4L));
+        when(repository.findChangedAfter(anyLong(), anyLong(), anyLong(), anyLong(), any(Limit.class))).thenReturn(List.of());
+        when(tombstoneRepository.findDeletedAfter(anyLong(), anyLong(), anyLong(), anyLong(), any(Limit.class))).thenReturn(List.of());
+
+        // When
+        NoteChangesDto changes = service.getNoteChangesByUser(idToSearch, since, 1000);
+
+        // Then
+        assertTrue(changes.getUpserted().isEmpty());
+        assertTrue(changes.getDeleted().isEmpty());
+        assertFalse(changes.isHasMore());
+        assertEquals(since, changes.getNextToken());
+
+        verify(repository).findChangedAfter(idToSearch, 4L, Long.MAX_VALUE, 4L, Limit.of(NoteServiceImp.MAX_PAGE_SIZE + 1));
+        verify(tombstoneRepository).findDeletedAfter(idToSearch, 4L, 7L, 4L, Limit.of(NoteServiceImp.MAX_PAGE_SIZE + 1));
+    }
+
+    // To test the 'getNoteChangesByUser' method when the token is after the settled version (a change of
+    // other user that was read before), then no change is read after the settled version
+    @Test
+    void getNoteChangesByUserUnsettledTokenTest() {
+
+        // Given
+        Long idToSearch = 2L;
+        String since = UtilCursor.encodeKeys(6, 0, 5);
+        when(changeRepository.getSettledVersion(anyLong())).thenReturn(Optional.of(4L));
+        when(changeRepository.getLastVersion()).thenReturn(Optional.of(6L));
+        when(repository.findChangedAfter(anyLong(), anyLong(), anyLong(), anyLong(), any(Limit.class))).thenReturn(List.of());
+        when(tombstoneRepository.findDeletedAfter(anyLong(), anyLong(), anyLong(), anyLong(), any(Limit.class))).thenReturn(List.of());
+
+        // When
+        NoteChangesDto changes = service.getNoteChangesByUser(idToSearch, since, 10);
+
+        // Then
+        assertTrue(changes.getUpserted().isEmpty());
+        assertTrue(changes.getDeleted().isEmpty());
+        assertEquals(since, changes.getNextToken());
+
+        verify(repository).findChangedAfter(idToSearch, 6L, 5L, 4L, Limit.of(11));
+        verify(tombstoneRepository).findDeletedAfter(idToSearch, 6L, 0L, 4L, Limit.of(11));
+    }
+
+    // To test the 'getNoteChangesByUser' method when the token can not be decoded or it is after
+    // the last version of the notes (for example a token with the moment of a change)
+    @Test
+    void getNoteChangesByUserInvalidTokenTest() {
+
+        // Given
+        when(changeRepository.getSettledVersion(anyLong())).thenReturn(Optional.of(5L));
+        when(changeRepository.getLastVersion()).thenReturn(Optional.of(6L));
+
+        // When / Then
+        assertThrows(InvalidCursorException.class, () -> {
+            service.getNoteChangesByUser(2L, UtilCursor.encode("1:2"), 2);
+        });
+        assertThrows(InvalidCursorException.class, () -> {
+            service.getNoteChangesByUser(2L, UtilCursor.encodeKeys(1, 5, 2), 2);
+        });
+        assertThrows(InvalidCursorException.class, () -> {
+            service.getNoteChangesByUser(2L, UtilCursor.encodeKeys(1735898400000000L, 0, 2), 2);
+        });
+
+        verify(repository, never()).findChangedAfter(anyLong(), anyLong(), anyLong(), anyLong(), any(Limit.class));
+    }
+
+    // To test the 'getNotesByUser' method when the cursor can not be decoded
+    @Test
+    void getNotesByUserInvalidCursorTest() {
+
+        // When / Then
+        assertThrows(InvalidCursorException.class, () -> {
+            service.getNotesByUser(2L, UtilCursor.encode("abc"), 2);
+        });
+
+        verify(repository, never()).findByUserIdAndIdGreaterThanOrderByIdAsc(anyLong(), anyLong(), any(Limit.class));
+    }
+
+    // To test the 'saveNoteByUser' method when an existent user ID is used:
+    // only the note is saved (the user and its other notes are not saved again)
     @Test
     void saveNoteByUserExistingIdTest() {
     
         // Given
         Long idToSearch = 4L;
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser004()));
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        Note noteInsert = new Note(null, "this is a new note");
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        givenNextNotesVersion(7L);
+        when(repository.save(any(Note.class))).thenAnswer(invocation -> {
+            Note note = invocation.getArgument(0);
+            note.setId(10L);
+            return note;
+        });
+        Note noteInsert = new Note(99L, "this is a new note");
         
         // when
-        Optional<User> optionalNewUser = service.saveNoteByUser(idToSearch, noteInsert);
+        boolean result = service.saveNoteByUser(idToSearch, noteInsert);
         
         // then
-        User newUser = optionalNewUser.get();
-        int size = newUser.getNotes().size();
-        List<Note> notes = newUser.getNotes();
+        assertTrue(result);
 
-        assertNotNull(newUser);
-        assertEquals(4L, newUser.getId());
-        assertEquals("jorge", newUser.getUsername());
+        verify(repository).save(argThat(note -> idToSearch.equals(note.getUserId()) && "this is a new note".equals(note.getContent())
+            && note.getNotesVersion() == 7L));
+        verify(eventPublisher).publishEvent(argThat((NoteChangeEvent event) -> event.getUserId().equals(idToSearch)
+            && "this is a new note".equals(event.getUpserted().get(10L))));
 
-        assertNotNull(notes);
-        assertEquals(3, size);
-        assertEquals("this is a new note", notes.get(size - 1).getContent());
-
-        verify(userRepository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).existsById(argThat(new CustomCondition(UserData.idsValid, true)));
+        verify(changeRepository).save(argThat(change -> idToSearch.equals(change.getUserId())));
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).save(any(User.class));
     }
 
     // To test the 'saveNoteByUser' method a non-existent user ID is used
@@ -121,72 +362,119 @@ class NoteServiceImpTest {
         // Given
         Long idToSearch = 99999L;
         Note noteInsert = new Note(null, "this is a new note");
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
         
         // when
-        Optional<User> optionalNewUser = service.saveNoteByUser(idToSearch, noteInsert);
+        boolean result = service.saveNoteByUser(idToSearch, noteInsert);
         
         // Then
-        assertFalse(optionalNewUser.isPresent());
-        assertThrows(NoSuchElementException.class, () -> {
-            optionalNewUser.orElseThrow();
-        });
+        assertFalse(result);
 
-        verify(userRepository).findById(argThat(new CustomCondition(UserData.idsValid, false)));
+        verify(userRepository).existsById(argThat(new CustomCondition(UserData.idsValid, false)));
         verify(userRepository, never()).save(any(User.class));
+        verify(repository, never()).save(any(Note.class));
+        verify(changeRepository, never()).save(any(NoteChange.class));
     }
 
-    // Test the 'editNoteByUser' method when a non-existent user ID is used
+    // To test the 'saveNotesByUser' method
     @Test
-    void editNoteByUserNoneExistingUserIdTest() {
-        
+    void saveNotesByUserTest() {
+
         // Given
-        Long idToSearch = 9999L;
-        Long noteIdToSearch = 10L;
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
-        when(repository.findById(anyLong())).thenReturn(Optional.of(NoteData.createNote001()));
-        Note noteToUpdate = new Note(null, "this is a updated note");
-        
+        Long idToSearch = 4L;
+        List<Note> newNotes = new ArrayList<>();
+        for (int i = 0; i < NoteServiceImp.BATCH_SIZE * 2 + 1; i++) {
+            newNotes.add(new Note(999L, "this is the new note " + i));
+        }
+        when(userRepository.existsById(idToSearch)).thenReturn(true);
+        givenNextNotesVersion(7L);
+
         // When
-        Optional<User> optionalUser = service.editNoteByUser(idToSearch, noteIdToSearch, noteToUpdate);
+        Optional<Integer> created = service.saveNotesByUser(idToSearch, newNotes);
 
         // Then
-        assertFalse(optionalUser.isPresent());
-        assertThrows(NoSuchElementException.class, () -> {
-            optionalUser.orElseThrow();
+        assertEquals(Optional.of(newNotes.size()), created);
+        newNotes.forEach(note -> {
+            assertNull(note.getId());
+            assertEquals(idToSearch, note.getUserId());
+            assertEquals(7L, note.getNotesVersion());
         });
 
-        verify(userRepository).findById(argThat(new CustomCondition(UserData.idsValid, false)));
-        verify(repository).findById(argThat(new CustomCondition(NoteData.idsValid, true)));
+        // All of the notes have the same version
+        verify(changeRepository, times(1)).save(any(NoteChange.class));
+        verify(entityManager, times(newNotes.size())).persist(any(Note.class));
+        // Two complete batches and the last one
+        verify(entityManager, times(3)).flush();
+        verify(entityManager, times(3)).clear();
+        verify(eventPublisher).publishEvent(argThat((NoteChangeEvent event) -> event.getUserId().equals(idToSearch)));
+        verify(userRepository, never()).findById(anyLong());
         verify(userRepository, never()).save(any(User.class));
     }
 
-    // Test the 'editNoteByUser' method when a non-existent note ID is used
+    // To test the 'saveNotesByUser' method when the user doesn't exist: nothing is saved
     @Test
-    void editNoteByUserNoneExistingNoteIdTest() {
-        
+    void saveNotesByUserInexistingIdTest() {
+
         // Given
-        Long idToSearch = 1L;
-        Long noteIdToSearch = 9999L;
-        Note noteToUpdate = new Note(null, "this is a updated note");
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser001()));
-        when(repository.findById(anyLong())).thenReturn(Optional.empty());
-        
+        Long idToSearch = 99999L;
+        when(userRepository.existsById(anyLong())).thenReturn(false);
+
         // When
-        Optional<User> optionalUser = service.editNoteByUser(idToSearch, noteIdToSearch, noteToUpdate);
+        Optional<Integer> created = service.saveNotesByUser(idToSearch, List.of(new Note(null, "this is a new note")));
 
         // Then
-        assertFalse(optionalUser.isPresent());
-        assertThrows(NoSuchElementException.class, () -> {
-            optionalUser.orElseThrow();
-        });
+        assertTrue(created.isEmpty());
 
-        verify(userRepository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(NoteData.idsValid, false)));
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository).existsById(argThat(new CustomCondition(UserData.idsValid, false)));
+        verify(changeRepository, never()).save(any(NoteChange.class));
+        verify(entityManager, never()).persist(any(Note.class));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    // To test the 'exportNotesByUser' method
+    @Test
+    void exportNotesByUserTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        int total = NoteServiceImp.EXPORT_CLEAR_INTERVAL + 1;
+        List<Note> notes = IntStream.rangeClosed(1, total)
+            .mapToObj(i -> new Note((long) i, "this is the note " + i))
+            .toList();
+        when(repository.streamByUserId(anyLong())).thenReturn(notes.stream());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        service.exportNotesByUser(idToSearch, outputStream);
+
+        // Then
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(total, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,\"content\":\"this is the note 1\""));
+        assertTrue(lines[total - 1].contains("\"content\":\"this is the note " + total + "\""));
+
+        verify(repository).streamByUserId(argThat(new CustomCondition(UserData.idsValid, true)));
+        verify(entityManager, times(1)).clear();
+    }
+
+    // To test the 'exportNotesByUser' method when the user does not have notes
+    @Test
+    void exportNotesByUserEmptyTest() throws IOException {
+
+        // Given
+        Long idToSearch = 4L;
+        when(repository.streamByUserId(anyLong())).thenReturn(Stream.empty());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        service.exportNotesByUser(idToSearch, outputStream);
+
+        // Then
+        assertEquals(0, outputStream.size());
+        verify(entityManager, never()).clear();
     }
 
-    // Test the 'editNoteByUser' method when the existing note ID and user ID are used but the user is not an owner
+    // Test the 'editNoteByUser' method when the note does not exist or it does not belong to the user
     @Test
     void editNoteByUserNoOwnerTest() {
         
@@ -194,24 +482,23 @@ class NoteServiceImpTest {
         Long idToSearch = 1L;
         Long noteIdToSearch = 8L;
         Note noteToUpdate = new Note(null, "this is a updated note");
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser001()));
-        when(repository.findById(anyLong())).thenReturn(Optional.of(NoteData.createNote008()));
+        when(repository.updateContentByIdAndUserId(anyLong(), anyLong(), anyString(), any(Instant.class), isNull())).thenReturn(0);
         
         // When
-        Optional<User> optionalUser = service.editNoteByUser(idToSearch, noteIdToSearch, noteToUpdate);
+        boolean result = service.editNoteByUser(idToSearch, noteIdToSearch, noteToUpdate, null);
 
         // Then
-        assertFalse(optionalUser.isPresent());
-        assertThrows(NoSuchElementException.class, () -> {
-            optionalUser.orElseThrow();
-        });
+        assertFalse(result);
 
-        verify(userRepository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(NoteData.idsValid, true)));
+        verify(repository).updateContentByIdAndUserId(eq(noteIdToSearch), eq(idToSearch), eq("this is a updated note"), any(Instant.class), isNull());
+        verify(repository, never()).updateNotesVersion(anyLong(), anyLong());
+        verify(changeRepository, never()).save(any(NoteChange.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        verify(userRepository, never()).findById(anyLong());
         verify(userRepository, never()).save(any(User.class));
     }
 
-    // To test the 'editNoteByUser' method when the existing note ID and user ID are used but the user is an owner
+    // To test the 'editNoteByUser' method when the note belongs to the user
     @Test
     void editNoteByUserExistingIdTest() {
         
@@ -219,136 +506,194 @@ class NoteServiceImpTest {
         Long idToSearch = 4L;
         Long noteIdToSearch = 8L;
         Note noteToUpdate = new Note(null, "this is a updated note");
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser004()));
-        when(repository.findById(anyLong())).thenReturn(Optional.of(NoteData.createNote008()));
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        givenNextNotesVersion(7L);
+        when(repository.updateContentByIdAndUserId(anyLong(), anyLong(), anyString(), any(Instant.class), isNull())).thenReturn(1);
 
         // When
-        Optional<User> optionalUser = service.editNoteByUser(idToSearch, noteIdToSearch, noteToUpdate);
+        boolean result = service.editNoteByUser(idToSearch, noteIdToSearch, noteToUpdate, null);
 
         // then
-        User newUserDb = optionalUser.get();
+        assertTrue(result);
+
+        verify(repository).updateContentByIdAndUserId(eq(noteIdToSearch), eq(idToSearch), eq("this is a updated note"), any(Instant.class), isNull());
+        verify(repository).updateNotesVersion(noteIdToSearch, 7L);
+        verify(eventPublisher).publishEvent(argThat((NoteChangeEvent event) -> "this is a updated note".equals(event.getUpserted().get(noteIdToSearch))));
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    // To test the 'editNoteByUser' method when the note has the version expected by the client
+    @Test
+    void editNoteByUserExpectedVersionTest() {
 
-        assertNotNull(newUserDb);
-        assertEquals(4L, newUserDb.getId());
-        assertEquals("jorge", newUserDb.getUsername());
+        // Given
+        Long idToSearch = 4L;
+        Long noteIdToSearch = 8L;
+        Note noteToUpdate = new Note(null, "this is a updated note");
+        givenNextNotesVersion(7L);
+        when(repository.updateContentByIdAndUserId(anyLong(), anyLong(), anyString(), any(Instant.class), anyLong())).thenReturn(1);
 
-        Note noteUpdated = newUserDb.getNotes().get(1);
+        // When
+        boolean result = service.editNoteByUser(idToSearch, noteIdToSearch, noteToUpdate, 3L);
 
-        assertEquals("this is a updated note", noteUpdated.getContent());
+        // then
+        assertTrue(result);
 
-        verify(userRepository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(NoteData.idsValid, true)));
-        verify(userRepository).save(any(User.class));
+        verify(repository).updateContentByIdAndUserId(eq(noteIdToSearch), eq(idToSearch), eq("this is a updated note"), any(Instant.class), eq(3L));
+        verify(repository).updateNotesVersion(noteIdToSearch, 7L);
+        verify(repository, never()).existsByIdAndUserId(anyLong(), anyLong());
     }
 
-    // Test the 'deleteNoteByUser' method when a non-existent user ID is used
+    // To test the 'editNoteByUser' method when the note was changed after the version expected by the client
     @Test
-    void deleteNoteByUserNoneExistingUserIdTest() {
-        
+    void editNoteByUserVersionConflictTest() {
+
         // Given
-        Long idToSearch = 9999L;
-        Long noteIdToSearch = 1L;
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
-        when(repository.findById(anyLong())).thenReturn(Optional.of(NoteData.createNote001()));
-        
-        // When
-        Optional<User> optionalUser = service.deleteNoteByUser(idToSearch, noteIdToSearch);
+        Long idToSearch = 4L;
+        Long noteIdToSearch = 8L;
+        Note noteToUpdate = new Note(null, "this is a updated note");
+        when(repository.updateContentByIdAndUserId(anyLong(), anyLong(), anyString(), any(Instant.class), anyLong())).thenReturn(0);
+        when(repository.existsByIdAndUserId(anyLong(), anyLong())).thenReturn(true);
 
-        // Then
-        assertFalse(optionalUser.isPresent());
-        assertThrows(NoSuchElementException.class, () -> {
-            optionalUser.orElseThrow();
+        // When
+        assertThrows(NoteVersionConflictException.class, () -> {
+            service.editNoteByUser(idToSearch, noteIdToSearch, noteToUpdate, 3L);
         });
 
-        verify(userRepository).findById(argThat(new CustomCondition(UserData.idsValid, false)));
-        verify(repository).findById(argThat(new CustomCondition(NoteData.idsValid, true)));
-        verify(userRepository, never()).save(any(User.class));
+        // then
+        verify(repository).existsByIdAndUserId(noteIdToSearch, idToSearch);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        verify(changeRepository, never()).save(any(NoteChange.class));
     }
 
-    // Test the 'deleteNoteByUser' method when a non-existent note ID is used
+    // To test the 'editNoteByUser' method with an expected version when the note does not exist
     @Test
-    void deleteNoteByUserNoneExistingNoteIdTest() {
-        
+    void editNoteByUserVersionNoOwnerTest() {
+
         // Given
-        Long idToSearch = 1L;
-        Long noteIdToSearch = 9999L;
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser001()));
-        when(repository.findById(anyLong())).thenReturn(Optional.empty());
-        
-        // When
-        Optional<User> optionalUser = service.deleteNoteByUser(idToSearch, noteIdToSearch);
+        Long idToSearch = 4L;
+        Long noteIdToSearch = 8L;
+        Note noteToUpdate = new Note(null, "this is a updated note");
+        when(repository.updateContentByIdAndUserId(anyLong(), anyLong(), anyString(), any(Instant.class), anyLong())).thenReturn(0);
+        when(repository.existsByIdAndUserId(anyLong(), anyLong())).thenReturn(false);
 
-        // Then
-        assertFalse(optionalUser.isPresent());
-        assertThrows(NoSuchElementException.class, () -> {
-            optionalUser.orElseThrow();
-        });
+        // When
+        boolean result = service.editNoteByUser(idToSearch, noteIdToSearch, noteToUpdate, 3L);
 
-        verify(userRepository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(NoteData.idsValid, false)));
-        verify(userRepository, never()).save(any(User.class));
+        // then
+        assertFalse(result);
+        verify(repository).existsByIdAndUserId(noteIdToSearch, idToSearch);
+        verify(changeRepository, never()).save(any(NoteChange.class));
     }
 
-    // Test the 'deleteNoteByUser' method when the existing note ID and user ID are used but the user is not an owner
+    // Test the 'deleteNoteByUser' method when the note does not exist or it does not belong to the user
     @Test
     void deleteNoteByUserNoOwnerTest() {
         
         // Given
         Long idToSearch = 1L;
         Long noteIdToSearch = 8L;
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser001()));
-        when(repository.findById(anyLong())).thenReturn(Optional.of(NoteData.createNote008()));
+        when(repository.deleteByIdAndUserId(anyLong(), anyLong(), isNull())).thenReturn(0);
         
         // When
-        Optional<User> optionalUser = service.deleteNoteByUser(idToSearch, noteIdToSearch);
+        boolean result = service.deleteNoteByUser(idToSearch, noteIdToSearch, null);
 
         // Then
-        assertFalse(optionalUser.isPresent());
-        assertThrows(NoSuchElementException.class, () -> {
-            optionalUser.orElseThrow();
-        });
+        assertFalse(result);
 
-        verify(userRepository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(NoteData.idsValid, true)));
+        verify(repository).deleteByIdAndUserId(noteIdToSearch, idToSearch, null);
+        verify(tombstoneRepository, never()).save(any(NoteTombstone.class));
+        verify(changeRepository, never()).save(any(NoteChange.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        verify(userRepository, never()).findById(anyLong());
         verify(userRepository, never()).save(any(User.class));
     }
 
-    // Test the 'deleteNoteByUser' method when the existing note ID and user ID are used and the user is an owner
+    // Test the 'deleteNoteByUser' method when the note belongs to the user
     @Test
     void deleteNoteByUserOwnerTest() {
         
         // Given
         Long idToSearch = 4L;
         Long noteIdToSearch = 8L;
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser004()));
-        when(repository.findById(anyLong())).thenReturn(Optional.of(NoteData.createNote008()));
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        givenNextNotesVersion(7L);
+        when(repository.deleteByIdAndUserId(anyLong(), anyLong(), isNull())).thenReturn(1);
+
+        // When
+        boolean result = service.deleteNoteByUser(idToSearch, noteIdToSearch, null);
+
+        // then
+        assertTrue(result);
+
+        verify(repository).deleteByIdAndUserId(noteIdToSearch, idToSearch, null);
+        verify(tombstoneRepository).save(argThat(tombstone -> tombstone.getNoteId().equals(noteIdToSearch)
+            && tombstone.getUserId().equals(idToSearch) && tombstone.getDeletedAt() != null && tombstone.getNotesVersion() == 7L));
+        verify(eventPublisher).publishEvent(argThat((NoteChangeEvent event) -> event.getDeleted().equals(List.of(noteIdToSearch))));
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    // Test the 'deleteNoteByUser' method when the note was changed after the version expected by the client
+    @Test
+    void deleteNoteByUserVersionConflictTest() {
+
+        // Given
+        Long idToSearch = 4L;
+        Long noteIdToSearch = 8L;
+        when(repository.deleteByIdAndUserId(anyLong(), anyLong(), anyLong())).thenReturn(0);
+        when(repository.existsByIdAndUserId(anyLong(), anyLong())).thenReturn(true);
+
+        // When
+        assertThrows(NoteVersionConflictException.class, () -> {
+            service.deleteNoteByUser(idToSearch, noteIdToSearch, 3L);
+        });
 
-        // when: get notes (first time)
-        List<Note> notes = userRepository.findById(idToSearch).get().getNotes();
+        // Then
+        verify(repository).deleteByIdAndUserId(noteIdToSearch, idToSearch, 3L);
+        verify(tombstoneRepository, never()).save(any(NoteTombstone.class));
+        verify(changeRepository, never()).save(any(NoteChange.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
 
-        // then (first time)
-        assertNotNull(notes);
-        assertEquals(2, notes.size());
+    // To test the 'deleteSettledChanges' method: the changes before the settled version are deleted
+    @Test
+    void deleteSettledChangesTest() {
 
-        // when: Delete a note and get notes (second time)
-        Optional<User> optionalUser2 = service.deleteNoteByUser(idToSearch, noteIdToSearch);
-        List<Note> notes2 = userRepository.findById(idToSearch).get().getNotes();
+        // Given
+        when(changeRepository.getSettledVersion(anyLong())).thenReturn(Optional.of(6L)).thenReturn(Optional.empty());
+        when(changeRepository.deleteBefore(anyLong())).thenReturn(3);
 
-        // then
-        assertNotNull(notes2);
-        assertEquals(1, notes2.size());
+        // When
+        int deleted = service.deleteSettledChanges();
+        int none = service.deleteSettledChanges();
+
+        // Then
+        assertEquals(3, deleted);
+        assertEquals(0, none);
+        verify(changeRepository).deleteBefore(6L);
+    }
 
-        User newUserDb = optionalUser2.get();
+    // Aux Methods ---------------------------------------------
 
-        assertNotNull(newUserDb);
-        assertEquals(4L, newUserDb.getId());
-        assertEquals("jorge", newUserDb.getUsername());
+    // To give a version to the next change of the notes
+    private void givenNextNotesVersion(long notesVersion) {
+        when(changeRepository.save(any(NoteChange.class))).thenAnswer(invocation -> {
+            NoteChange change = invocation.getArgument(0);
+            change.setId(notesVersion);
+            return change;
+        });
+    }
 
-        verify(userRepository, times(3)).findById(argThat(new CustomCondition(UserData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(NoteData.idsValid, true)));
-        verify(userRepository).save(any(User.class));
+    private Note note(Long id, long notesVersion) {
+        Note note = new Note(id, "this is the note " + id);
+        note.setNotesVersion(notesVersion);
+        return note;
+    }
+
+    private NoteTombstone tombstone(Long id, Long noteId, long notesVersion) {
+        NoteTombstone tombstone = new NoteTombstone(noteId, 2L, Instant.now(), notesVersion);
+        tombstone.setId(id);
+        return tombstone;
     }
 
-}
\ No newline at end of file
+}
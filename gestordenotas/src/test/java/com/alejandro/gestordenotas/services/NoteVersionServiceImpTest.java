@@ -0,0 +1,137 @@
+package com.alejandro.gestordenotas.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.alejandro.gestordenotas.entities.Note;
+import com.alejandro.gestordenotas.exceptions.InvalidCursorException;
+import com.alejandro.gestordenotas.repositories.NoteRepository;
+import com.alejandro.gestordenotas.repositories.NoteTombstoneRepository;
+import com.alejandro.gestordenotas.utils.UtilCursor;
+
+@ExtendWith(MockitoExtension.class)
+class NoteVersionServiceImpTest {
+
+    // To create a mock
+    @Mock
+    NoteRepository noteRepository;
+
+    // To create a mock
+    @Mock
+    NoteTombstoneRepository tombstoneRepository;
+
+    // To create a service object with the injection of a mock
+    @InjectMocks
+    NoteVersionServiceImp service;
+
+
+    // To test the 'getNotesEtag' method: the etag changes when the last version of the notes of the user
+    // changes, also when it is the version of a deleted note (the versions are read from the db,
+    // so it is the same in all of the instances)
+    @Test
+    void getNotesEtagChangesTest() {
+
+        // Given
+        Long idToSearch = 4L;
+        when(noteRepository.getLastNotesVersion(anyLong())).thenReturn(3L);
+        when(tombstoneRepository.getLastNotesVersion(anyLong())).thenReturn(2L).thenReturn(2L).thenReturn(4L);
+
+        // When
+        String initial = service.getNotesEtag(idToSearch, null, 20);
+        String unchanged = service.getNotesEtag(idToSearch, null, 20);
+        String deleted = service.getNotesEtag(idToSearch, null, 20);
+
+        // Then
+        assertEquals("\"3-0-20\"", initial);
+        assertEquals(initial, unchanged);
+        assertEquals("\"4-0-20\"", deleted);
+
+        verify(noteRepository, times(3)).getLastNotesVersion(idToSearch);
+        verify(tombstoneRepository, times(3)).getLastNotesVersion(idToSearch);
+    }
+
+    // To test the 'getNotesEtag' method: each page has its own etag, and the sizes that give
+    // the same page give the same etag
+    @Test
+    void getNotesEtagPagesTest() {
+
+        // Given
+        Long idToSearch = 4L;
+        when(noteRepository.getLastNotesVersion(anyLong())).thenReturn(3L);
+
+        // When
+        String firstPage = service.getNotesEtag(idToSearch, null, 20);
+        String secondPage = service.getNotesEtag(idToSearch, UtilCursor.encodeId(20L), 20);
+        String biggerPage = service.getNotesEtag(idToSearch, null, 50);
+
+        // Then
+        assertNotEquals(firstPage, secondPage);
+        assertNotEquals(firstPage, biggerPage);
+        assertEquals(service.getNotesEtag(idToSearch, null, 500), service.getNotesEtag(idToSearch, null, NoteServiceImp.MAX_PAGE_SIZE));
+        assertEquals(service.getNotesEtag(idToSearch, null, 0), service.getNotesEtag(idToSearch, null, 1));
+        assertThrows(InvalidCursorException.class, () -> service.getNotesEtag(idToSearch, "%%%", 20));
+    }
+
+    // To test the 'getNotesEtag' method when the user doesn't exist
+    @Test
+    void getNotesEtagInexistingUserTest() {
+
+        // Given
+        when(noteRepository.getLastNotesVersion(anyLong())).thenReturn(0L);
+        when(tombstoneRepository.getLastNotesVersion(anyLong())).thenReturn(0L);
+
+        // When / Then
+        assertEquals("\"0-0-20\"", service.getNotesEtag(99999L, null, 20));
+    }
+
+    // To test the 'getNoteEtag' method: the etag changes when the version of the note changes
+    @Test
+    void getNoteEtagTest() {
+
+        // Given
+        Note note = new Note(5L, "Comprar leche");
+        note.setVersion(2);
+
+        // When
+        String etag = service.getNoteEtag(note);
+        note.setVersion(3);
+
+        // Then
+        assertEquals("\"5-2\"", etag);
+        assertNotEquals(etag, service.getNoteEtag(note));
+    }
+
+    // To test the 'getExpectedVersion' method: the version of the etag of the note
+    @Test
+    void getExpectedVersionTest() {
+
+        assertEquals(2L, service.getExpectedVersion(5L, "\"5-2\""));
+        assertEquals(7L, service.getExpectedVersion(5L, "\"abc-3\", \"5-7\""));
+    }
+
+    // To test the 'getExpectedVersion' method when any version is valid
+    @Test
+    void getExpectedVersionAnyTest() {
+
+        assertNull(service.getExpectedVersion(5L, null));
+        assertNull(service.getExpectedVersion(5L, "*"));
+    }
+
+    // To test the 'getExpectedVersion' method when no etag is of the note (weak, of other note or wrong)
+    @Test
+    void getExpectedVersionInvalidTest() {
+
+        assertEquals(-1L, service.getExpectedVersion(5L, "W/\"5-2\""));
+        assertEquals(-1L, service.getExpectedVersion(5L, "\"6-2\""));
+        assertEquals(-1L, service.getExpectedVersion(5L, "\"5-abc\""));
+        assertEquals(-1L, service.getExpectedVersion(5L, "\"5-\""));
+    }
+
+}
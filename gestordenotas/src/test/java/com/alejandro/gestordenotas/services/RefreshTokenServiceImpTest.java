@@ -0,0 +1,172 @@
+package com.alejandro.gestordenotas.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.alejandro.gestordenotas.data.UserData;
+import com.alejandro.gestordenotas.dto.LoginResponseDto;
+import com.alejandro.gestordenotas.entities.RefreshToken;
+import com.alejandro.gestordenotas.entities.User;
+import com.alejandro.gestordenotas.exceptions.InvalidRefreshTokenException;
+import com.alejandro.gestordenotas.repositories.RefreshTokenRepository;
+import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.security.AccessTokenIssuer;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceImpTest {
+
+    // To create a mock
+    @Mock
+    RefreshTokenRepository repository;
+
+    // To create a mock
+    @Mock
+    UserRepository userRepository;
+
+    // To create a mock
+    @Mock
+    AccessTokenIssuer accessTokenIssuer;
+
+    // To create a service object with the injection of the mocks
+    @InjectMocks
+    RefreshTokenServiceImp service;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "ttl", Duration.ofDays(30));
+    }
+
+
+    // To test the 'create' method: only the hash of the token is saved
+    @Test
+    void createTest() {
+
+        // Given
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+
+        // When
+        String refreshToken = service.create(5L);
+
+        // Then
+        verify(repository).save(saved.capture());
+        assertEquals(5L, saved.getValue().getUserId());
+        assertEquals(64, saved.getValue().getTokenHash().length());
+        assertNotEquals(refreshToken, saved.getValue().getTokenHash());
+        assertNotNull(saved.getValue().getFamily());
+        assertTrue(saved.getValue().getExpiresAt().isAfter(Instant.now().plus(Duration.ofDays(29))));
+    }
+
+    // To test the 'refresh' method: the token is used and a new token of the same family is created
+    @Test
+    void refreshTest() {
+
+        // Given
+        RefreshToken token = saveToken(5L);
+        when(repository.markUsed(eq(token.getId()), any(Instant.class))).thenReturn(1);
+        when(userRepository.findById(5L)).thenReturn(Optional.of(UserData.createUser005()));
+        when(accessTokenIssuer.issue(eq(5L), eq("rayas"), anyLong(), any())).thenReturn("accessToken");
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+
+        // When
+        LoginResponseDto response = service.refresh("refreshToken");
+
+        // Then
+        assertEquals("rayas", response.getUsername());
+        assertEquals("accessToken", response.getToken());
+        assertNotEquals("refreshToken", response.getRefreshToken());
+
+        verify(repository).save(saved.capture());
+        assertEquals(token.getFamily(), saved.getValue().getFamily());
+        verify(repository, never()).revokeFamily(anyString());
+    }
+
+    // To test the 'refresh' method with a token that was already used: all of the tokens of its family are revoked
+    @Test
+    void refreshReusedTokenTest() {
+
+        // Given
+        RefreshToken token = saveToken(5L);
+        when(repository.markUsed(eq(token.getId()), any(Instant.class))).thenReturn(0);
+
+        // When
+        assertThrows(InvalidRefreshTokenException.class, () -> service.refresh("refreshToken"));
+
+        // Then
+        verify(repository).revokeFamily(token.getFamily());
+        verify(userRepository, never()).findById(anyLong());
+        verify(repository, never()).save(any(RefreshToken.class));
+    }
+
+    // To test the 'refresh' method with an expired token
+    @Test
+    void refreshExpiredTokenTest() {
+
+        // Given
+        RefreshToken token = saveToken(5L);
+        token.setExpiresAt(Instant.now().minusSeconds(1));
+
+        // When
+        assertThrows(InvalidRefreshTokenException.class, () -> service.refresh("refreshToken"));
+
+        // Then
+        verify(repository, never()).markUsed(anyLong(), any(Instant.class));
+        verify(repository, never()).save(any(RefreshToken.class));
+    }
+
+    // To test the 'refresh' method with a token that doesn't exist
+    @Test
+    void refreshInexistingTokenTest() {
+
+        // Given
+        when(repository.findByTokenHash(anyString())).thenReturn(Optional.empty());
+
+        // When / Then
+        assertThrows(InvalidRefreshTokenException.class, () -> service.refresh("refreshToken"));
+        verify(repository, never()).save(any(RefreshToken.class));
+    }
+
+    // To test the 'refresh' method when the user was disabled: the session is closed
+    @Test
+    void refreshDisabledUserTest() {
+
+        // Given
+        RefreshToken token = saveToken(6L);
+        when(repository.markUsed(eq(token.getId()), any(Instant.class))).thenReturn(1);
+        User disabled = UserData.createUser006();
+        when(userRepository.findById(6L)).thenReturn(Optional.of(disabled));
+
+        // When
+        assertThrows(InvalidRefreshTokenException.class, () -> service.refresh("refreshToken"));
+
+        // Then
+        verify(repository).revokeFamily(token.getFamily());
+        verify(accessTokenIssuer, never()).issue(anyLong(), anyString(), anyLong(), any());
+    }
+
+    // Aux Methods ---------------------------------------------
+
+    private RefreshToken saveToken(Long userId) {
+        RefreshToken token = new RefreshToken("hash", userId, "familia", Instant.now().plus(Duration.ofDays(1)));
+        token.setId(1L);
+        when(repository.findByTokenHash(anyString())).thenReturn(Optional.of(token));
+        return token;
+    }
+
+}
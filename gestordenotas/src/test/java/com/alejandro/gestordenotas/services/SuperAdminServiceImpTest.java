@@ -3,26 +3,40 @@ package com.alejandro.gestordenotas.services;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import com.alejandro.gestordenotas.data.UserData;
 import com.alejandro.gestordenotas.data.CustomCondition;
 import com.alejandro.gestordenotas.data.RoleData;
+import com.alejandro.gestordenotas.dto.PasswordHashingStatsDto;
+import com.alejandro.gestordenotas.dto.UserDetailsCacheStatsDto;
+import com.alejandro.gestordenotas.entities.Role;
+import com.alejandro.gestordenotas.entities.RoleLevel;
 import com.alejandro.gestordenotas.entities.User;
-import com.alejandro.gestordenotas.repositories.RoleRepository;
+import com.alejandro.gestordenotas.events.UserChangeEvent;
+import com.alejandro.gestordenotas.events.UsersChangeEvent;
+import com.alejandro.gestordenotas.repositories.RoleRegistry;
 import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.security.BoundedPasswordEncoder;
+import com.alejandro.gestordenotas.security.UserDetailsCache;
 
 
 @ExtendWith(MockitoExtension.class)
@@ -38,42 +52,20 @@ class SuperAdminServiceImpTest {
 
     // To create a mock
     @Mock
-    RoleRepository roleRepository; 
+    RoleRegistry roleRegistry; 
 
+    // To create a mock
+    @Mock
+    ApplicationEventPublisher eventPublisher;
 
-    // To test the 'isSuperAdmin' method when the user has the super admin role
-    @Test
-    void isSuperAdminHasSuperAdminRoleTest() {
-
-        // Given
-        Long userIdToSearch = 1L;
-        when(repository.getIdOfSuperAdmin()).thenReturn(userIdToSearch);
-
-        // when
-        boolean result = service.isSuperAdmin(userIdToSearch);
-
-        // Then
-        assertTrue(result);
-
-        verify(repository).getIdOfSuperAdmin();
-    }
-
-    // To test the 'isSuperAdmin' method when the user has no the super admin role
-    @Test
-    void isSuperAdminHasNoSuperAdminRoleTest() {
-
-        // Given
-        Long userIdToSearch = 1L;
-        when(repository.getIdOfSuperAdmin()).thenReturn(19L);
-
-        // when
-        boolean result = service.isSuperAdmin(userIdToSearch);
+    // To create a mock
+    @Mock
+    UserDetailsCache userDetailsCache;
 
-        // Then
-        assertFalse(result);
+    // To create a mock
+    @Mock
+    BoundedPasswordEncoder passwordEncoder;
 
-        verify(repository).getIdOfSuperAdmin();
-    }
 
     // To test the 'addRemoveAdminRoleFromUser' method when we use an inexisting user id
     @Test
@@ -93,7 +85,7 @@ class SuperAdminServiceImpTest {
         });
 
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, false)));
-        verify(roleRepository, never()).findByName(anyString());
+        verify(roleRegistry, never()).findByName(anyString());
         verify(repository, never()).save(any(User.class));
     }
 
@@ -102,9 +94,9 @@ class SuperAdminServiceImpTest {
     void addRemoveAdminRoleFromUserInexistingAdminRoleTest() {
 
         // Given
-        Long userIdToSearch = 1L;
-        when(repository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser001()));
-        when(roleRepository.findByName(anyString())).thenReturn(Optional.empty());
+        Long userIdToSearch = 2L;
+        when(repository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser002()));
+        when(roleRegistry.findByName(anyString())).thenReturn(Optional.empty());
 
         // when
         Optional<User> optionalUser = service.addRemoveAdminRoleFromUser(userIdToSearch);
@@ -116,7 +108,7 @@ class SuperAdminServiceImpTest {
         });
 
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
-        verify(roleRepository).findByName(anyString());
+        verify(roleRegistry).findByName(anyString());
         verify(repository, never()).save(any(User.class));
     }
 
@@ -125,9 +117,10 @@ class SuperAdminServiceImpTest {
     void addRemoveAdminRoleFromUserRemoveAdminRoleTest() {
 
         // Given
-        Long userIdToSearch = 1L;
-        when(repository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser001()));
-        when(roleRepository.findByName(anyString())).thenReturn(Optional.of(RoleData.createRole002()));
+        Long userIdToSearch = 2L;
+        when(repository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser002()));
+        when(roleRegistry.findByName(anyString())).thenReturn(Optional.of(RoleData.createRole002()));
+        when(roleRegistry.levelOf(anyCollection())).thenAnswer(invocation -> RoleLevel.of(invocation.getArgument(0)));
         when(repository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // when
@@ -135,13 +128,41 @@ class SuperAdminServiceImpTest {
 
         // then
         assertTrue(optionalUser.isPresent());
-        assertEquals(1L, optionalUser.get().getId());
-        assertEquals("alejandro", optionalUser.get().getUsername());
+        assertEquals(2L, optionalUser.get().getId());
+        // Only the admin role was removed
+        assertEquals(Set.of("ROLE_USER"),
+            optionalUser.get().getRoles().stream().map(Role::getName).collect(Collectors.toSet()));
+        assertEquals("fernando", optionalUser.get().getUsername());
         assertFalse(optionalUser.get().isAdmin());
+        assertEquals(RoleLevel.USER, optionalUser.get().getRoleLevel());
+        // The tokens with the previous roles are rejected
+        assertEquals(1, optionalUser.get().getTokenEpoch());
 
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
-        verify(roleRepository).findByName(anyString());
+        verify(roleRegistry).findByName(anyString());
         verify(repository).save(any(User.class));
+        verify(eventPublisher).publishEvent(any(UserChangeEvent.class));
+    }
+
+    // To test the 'addRemoveAdminRoleFromUser' method when the user has the super admin role:
+    // the role is checked in the row read from the db and the user is not changed
+    @Test
+    void addRemoveAdminRoleFromUserSuperAdminTest() {
+
+        // Given
+        Long userIdToSearch = 1L;
+        when(repository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser001()));
+
+        // when
+        Optional<User> optionalUser = service.addRemoveAdminRoleFromUser(userIdToSearch);
+
+        // then
+        assertTrue(optionalUser.isEmpty());
+
+        verify(repository).findById(userIdToSearch);
+        verify(roleRegistry, never()).findByName(anyString());
+        verify(repository, never()).save(any(User.class));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     // To test the 'addRemoveAdminRoleFromUser' method when the admin role was added to the user
@@ -151,7 +172,8 @@ class SuperAdminServiceImpTest {
         // Given
         Long userIdToSearch = 6L;
         when(repository.findById(anyLong())).thenReturn(Optional.of(UserData.createUser006()));
-        when(roleRepository.findByName(anyString())).thenReturn(Optional.of(RoleData.createRole002()));
+        when(roleRegistry.findByName(anyString())).thenReturn(Optional.of(RoleData.createRole002()));
+        when(roleRegistry.levelOf(anyCollection())).thenAnswer(invocation -> RoleLevel.of(invocation.getArgument(0)));
         when(repository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // when
@@ -160,12 +182,94 @@ class SuperAdminServiceImpTest {
         // then
         assertTrue(optionalUser.isPresent());
         assertEquals(6L, optionalUser.get().getId());
+        assertEquals(2, optionalUser.get().getRoles().size());
         assertEquals("pancha", optionalUser.get().getUsername());
         assertTrue(optionalUser.get().isAdmin());
+        assertEquals(RoleLevel.ADMIN, optionalUser.get().getRoleLevel());
+        assertEquals(1, optionalUser.get().getTokenEpoch());
 
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
-        verify(roleRepository).findByName(anyString());
+        verify(roleRegistry).findByName(anyString());
         verify(repository).save(any(User.class));
+        verify(eventPublisher).publishEvent(any(UserChangeEvent.class));
+    }
+
+    // To test the 'addRemoveAdminRoleFromUsers' method when the admin role is added:
+    // the roles are changed before the level of the roles, and only the changed users are notified
+    @Test
+    void addRemoveAdminRoleFromUsersAddTest() {
+
+        // Given
+        List<Long> userIds = List.of(11L, 13L, 14L);
+        List<Long> changedIds = List.of(13L, 14L);
+        when(roleRegistry.findByName("ROLE_ADMIN")).thenReturn(Optional.of(new Role(2L, "ROLE_ADMIN")));
+        when(repository.lockIdsWithRoleLevel(userIds, RoleLevel.USER)).thenReturn(changedIds);
+        when(repository.updateRoleLevel(changedIds, true, RoleLevel.ADMIN, RoleLevel.USER)).thenReturn(2);
+
+        // when
+        int updated = service.addRemoveAdminRoleFromUsers(userIds, true);
+
+        // then
+        assertEquals(2, updated);
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).lockIdsWithRoleLevel(userIds, RoleLevel.USER);
+        inOrder.verify(repository).insertRole(changedIds, 2L);
+        inOrder.verify(repository).updateRoleLevel(changedIds, true, RoleLevel.ADMIN, RoleLevel.USER);
+        verify(repository, never()).deleteRole(anyCollection(), anyLong());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof UsersChangeEvent usersEvent
+            && usersEvent.getUserIds().equals(changedIds) && usersEvent.isRoles()));
+    }
+
+    // To test the 'addRemoveAdminRoleFromUsers' method when the admin role is removed from users that are not admins
+    @Test
+    void addRemoveAdminRoleFromUsersRemoveTest() {
+
+        // Given
+        List<Long> userIds = List.of(13L);
+        when(roleRegistry.findByName("ROLE_ADMIN")).thenReturn(Optional.of(new Role(2L, "ROLE_ADMIN")));
+        when(repository.lockIdsWithRoleLevel(userIds, RoleLevel.ADMIN)).thenReturn(List.of());
+
+        // when
+        int updated = service.addRemoveAdminRoleFromUsers(userIds, false);
+
+        // then
+        assertEquals(0, updated);
+        verify(repository, never()).deleteRole(anyCollection(), anyLong());
+        verify(repository, never()).updateRoleLevel(anyCollection(), anyBoolean(), anyInt(), anyInt());
+        verify(eventPublisher, never()).publishEvent(any(UsersChangeEvent.class));
+    }
+
+    // To test the 'getUserDetailsCacheStats' method
+    @Test
+    void getUserDetailsCacheStatsTest() {
+
+        // Given
+        when(userDetailsCache.getStats()).thenReturn(new UserDetailsCacheStatsDto(3, 2, 1, 1));
+
+        // when
+        UserDetailsCacheStatsDto stats = service.getUserDetailsCacheStats();
+
+        // then
+        assertEquals(3, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(1, stats.getSize());
+    }
+
+    // To test the 'getPasswordHashingStats' method
+    @Test
+    void getPasswordHashingStatsTest() {
+
+        // Given
+        when(passwordEncoder.getStats()).thenReturn(new PasswordHashingStatsDto(4, 1, 3, 64, 100, 2));
+
+        // when
+        PasswordHashingStatsDto stats = service.getPasswordHashingStats();
+
+        // then
+        assertEquals(4, stats.getThreads());
+        assertEquals(3, stats.getQueueDepth());
+        assertEquals(2, stats.getRejected());
     }
 
 }
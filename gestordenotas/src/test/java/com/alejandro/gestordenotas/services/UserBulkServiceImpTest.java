@@ -0,0 +1,118 @@
+package com.alejandro.gestordenotas.services;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.alejandro.gestordenotas.dto.UserBulkDto;
+import com.alejandro.gestordenotas.dto.UserBulkResultDto;
+import com.alejandro.gestordenotas.entities.RoleLevel;
+import com.alejandro.gestordenotas.repositories.UserRepository;
+
+
+@ExtendWith(MockitoExtension.class)
+class UserBulkServiceImpTest {
+
+    // To create a mock
+    @Mock
+    AdminService adminService;
+
+    // To create a mock
+    @Mock
+    SuperAdminService superAdminService;
+
+    // To create a mock
+    @Mock
+    UserRepository repository;
+
+    // To create a service object with the injection of a mock
+    @InjectMocks
+    UserBulkServiceImp service;
+
+
+    // To test the 'disableEnableUsers' method with a list of ids: the repeated ids are removed,
+    // the ids are sent in chunks and the admins of each chunk are counted as guarded
+    @Test
+    void disableEnableUsersIdsTest() {
+
+        // Given
+        List<Long> ids = new ArrayList<>(LongStream.rangeClosed(1, 1200).boxed().toList());
+        ids.add(7L);
+        when(repository.countIdsWithRoleLevelAbove(anyList(), eq(RoleLevel.USER))).thenAnswer(invocation ->
+            invocation.<List<Long>>getArgument(0).stream().filter(id -> id <= 2L).count());
+        List<List<Long>> chunks = new ArrayList<>();
+        when(adminService.disableEnableUsers(anyList(), anyBoolean(), anyInt())).thenAnswer(invocation -> {
+            List<Long> chunk = invocation.getArgument(0);
+            chunks.add(List.copyOf(chunk));
+            return chunk.size() - 1;
+        });
+
+        // when
+        UserBulkResultDto result = service.disableEnableUsers(new UserBulkDto(ids, null, null, null), false, RoleLevel.USER);
+
+        // then
+        assertEquals(1200, result.getRequested());
+        assertEquals(2, result.getGuarded());
+        assertEquals(1197, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        assertEquals(3, result.getChunks());
+
+        assertEquals(List.of(500, 500, 200), chunks.stream().map(List::size).toList());
+        assertEquals(1L, chunks.get(0).get(0));
+        assertEquals(1200L, chunks.get(2).get(199));
+        verify(adminService, times(3)).disableEnableUsers(anyList(), eq(false), eq(RoleLevel.USER));
+        verify(repository, times(3)).countIdsWithRoleLevelAbove(anyList(), eq(RoleLevel.USER));
+    }
+
+    // To test the 'disableEnableUsers' method of the super admin: only the super admins are guarded
+    @Test
+    void disableEnableUsersSuperAdminTest() {
+
+        // Given
+        when(repository.countIdsWithRoleLevelAbove(List.of(10L, 11L, 13L), RoleLevel.ADMIN)).thenReturn(1L);
+        when(adminService.disableEnableUsers(List.of(10L, 11L, 13L), true, RoleLevel.ADMIN)).thenReturn(2);
+
+        // when
+        UserBulkResultDto result = service.disableEnableUsers(new UserBulkDto(List.of(13L, 10L, 11L), null, null, null),
+            true, RoleLevel.ADMIN);
+
+        // then
+        assertEquals(3, result.getRequested());
+        assertEquals(1, result.getGuarded());
+        assertEquals(2, result.getUpdated());
+        assertEquals(0, result.getUnchanged());
+        assertEquals(1, result.getChunks());
+    }
+
+    // To test the 'addRemoveAdminRoleFromUsers' method when all of the users are guarded: nothing is sent
+    @Test
+    void addRemoveAdminRoleFromUsersGuardedTest() {
+
+        // Given
+        when(repository.countIdsWithRoleLevelAbove(List.of(10L), RoleLevel.ADMIN)).thenReturn(1L);
+
+        // when
+        UserBulkResultDto result = service.addRemoveAdminRoleFromUsers(new UserBulkDto(List.of(10L), null, null, null), false);
+
+        // then
+        assertEquals(1, result.getRequested());
+        assertEquals(1, result.getGuarded());
+        assertEquals(0, result.getUpdated());
+        assertEquals(0, result.getChunks());
+        verify(superAdminService, never()).addRemoveAdminRoleFromUsers(anyList(), anyBoolean());
+    }
+
+}
@@ -3,6 +3,7 @@ package com.alejandro.gestordenotas.services;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -10,6 +11,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.security.Principal;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
@@ -18,14 +20,22 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import com.alejandro.gestordenotas.data.UserData;
 import com.alejandro.gestordenotas.data.CustomCondition;
 import com.alejandro.gestordenotas.data.RoleData;
+import com.alejandro.gestordenotas.entities.RoleLevel;
 import com.alejandro.gestordenotas.entities.User;
-import com.alejandro.gestordenotas.repositories.RoleRepository;
+import com.alejandro.gestordenotas.events.NoteChangeEvent;
+import com.alejandro.gestordenotas.events.UserChangeEvent;
+import com.alejandro.gestordenotas.repositories.NoteTombstoneRepository;
+import com.alejandro.gestordenotas.repositories.RefreshTokenRepository;
+import com.alejandro.gestordenotas.repositories.RoleRegistry;
 import com.alejandro.gestordenotas.repositories.UserRepository;
+import com.alejandro.gestordenotas.security.AuthenticatedUser;
 
 
 @ExtendWith(MockitoExtension.class)
@@ -37,7 +47,19 @@ class UserServiceImpTest {
 
     // To create a mock
     @Mock
-    RoleRepository roleRepository; 
+    RoleRegistry roleRegistry; 
+
+    // To create a mock
+    @Mock
+    NoteTombstoneRepository tombstoneRepository; 
+
+    // To create a mock
+    @Mock
+    RefreshTokenRepository refreshTokenRepository;
+
+    // To create a mock
+    @Mock
+    ApplicationEventPublisher eventPublisher;
 
     // To create a service object with the injection of a mock
     @InjectMocks
@@ -96,11 +118,13 @@ class UserServiceImpTest {
         User userInsert = new User(null, "Javier", "Javier123");
         userInsert.setAdmin(true);
         String adminRoleToSearch = "ROLE_ADMIN";
-        when(roleRepository.findByName(eq(userRoleToSearch))).thenReturn(Optional.of(RoleData.createRole001()));
-        when(roleRepository.findByName(eq(adminRoleToSearch))).thenReturn(Optional.of(RoleData.createRole002()));
+        when(roleRegistry.findByName(eq(userRoleToSearch))).thenReturn(Optional.of(RoleData.createRole001()));
+        when(roleRegistry.findByName(eq(adminRoleToSearch))).thenReturn(Optional.of(RoleData.createRole002()));
         when(repository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(passwordEncoder.encode(anyString())).thenReturn("Javier123Encrypted");
 
+        when(roleRegistry.levelOf(anyCollection())).thenReturn(RoleLevel.ADMIN);
+
         // when
         User newUser = service.save(userInsert);
         
@@ -109,10 +133,12 @@ class UserServiceImpTest {
         assertEquals("Javier123Encrypted", newUser.getPassword());
         
         assertEquals(2, newUser.getRoles().size());
+        assertEquals(RoleLevel.ADMIN, newUser.getRoleLevel());
 
-        verify(roleRepository, times(2)).findByName(any(String.class));
+        verify(roleRegistry, times(2)).findByName(any(String.class));
         verify(passwordEncoder).encode(anyString());
         verify(repository).save(any(User.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     // To test the 'save' method when the user was be saved with the user role
@@ -123,7 +149,7 @@ class UserServiceImpTest {
         String userRoleToSearch = "ROLE_USER";
         User userInsert = new User(null, "Javier", "Javier123");
         userInsert.setAdmin(false);
-        when(roleRepository.findByName(eq(userRoleToSearch))).thenReturn(Optional.of(RoleData.createRole001()));
+        when(roleRegistry.findByName(eq(userRoleToSearch))).thenReturn(Optional.of(RoleData.createRole001()));
         when(repository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(passwordEncoder.encode(anyString())).thenReturn("Javier123Encrypted");
 
@@ -136,7 +162,7 @@ class UserServiceImpTest {
         
         assertEquals(1, newUser.getRoles().size());
 
-        verify(roleRepository).findByName(any(String.class));
+        verify(roleRegistry).findByName(any(String.class));
         verify(passwordEncoder).encode(anyString());
         verify(repository).save(any(User.class));
     }
@@ -159,11 +185,18 @@ class UserServiceImpTest {
         assertTrue(result.isPresent());
         assertEquals("Angel", result.get().getUsername());
         assertEquals("Angel123Encrypted", result.get().getPassword());
+        // The access tokens created with the previous credentials are rejected
+        assertEquals(1, result.get().getTokenEpoch());
         // The event is not possible to test. It might only be with an integration test.
 
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
         verify(passwordEncoder).encode(anyString());
         verify(repository).save(any(User.class));
+        // The sessions opened with the previous password are closed
+        verify(refreshTokenRepository).revokeByUserId(idToUpdate);
+        // The user is forgotten with its previous username
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof UserChangeEvent userEvent
+            && "alejandro".equals(userEvent.getUsername()) && idToUpdate.equals(userEvent.getUserId()) && userEvent.isAccessChanged()));
     }
 
     // To test the 'update' method when we use an inexisting id
@@ -206,7 +239,13 @@ class UserServiceImpTest {
         assertEquals("ale123", result.get().getPassword());
 
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
+        verify(tombstoneRepository).deleteByUserId(argThat(new CustomCondition(UserData.idsValid, true)));
+        verify(refreshTokenRepository).deleteByUserId(argThat(new CustomCondition(UserData.idsValid, true)));
         verify(repository).deleteById(argThat(new CustomCondition(UserData.idsValid, true)));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof NoteChangeEvent noteEvent
+            && noteEvent.isUserDeleted()));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof UserChangeEvent userEvent
+            && "alejandro".equals(userEvent.getUsername()) && userEvent.isAccessChanged()));
     }
 
     // To test the 'delete' method when we use an inexisting id
@@ -227,6 +266,7 @@ class UserServiceImpTest {
         });
 
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, false)));
+        verify(tombstoneRepository, never()).deleteByUserId(anyLong());
         verify(repository, never()).deleteById(argThat(new CustomCondition(UserData.idsValid, false)));
     }
 
@@ -292,4 +332,22 @@ class UserServiceImpTest {
         verify(repository).findById(argThat(new CustomCondition(UserData.idsValid, true)));
     }
 
-}
\ No newline at end of file
+    // To test the 'isOwner' method when the id of the user is in its token: the db is not read
+    @Test
+    void isOwnerFromTokenTest() {
+
+        // Given
+        Principal authentication = new UsernamePasswordAuthenticationToken(new AuthenticatedUser(5L, "rayas"), null, List.of());
+
+        // When
+        boolean owner = service.isOwner(5L, authentication);
+        boolean noOwner = service.isOwner(4L, authentication);
+
+        // Then
+        assertTrue(owner);
+        assertFalse(noOwner);
+
+        verify(repository, never()).findById(anyLong());
+    }
+
+}
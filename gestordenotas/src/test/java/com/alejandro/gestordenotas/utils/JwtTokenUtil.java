@@ -2,48 +2,71 @@ package com.alejandro.gestordenotas.utils;
 
 import static com.alejandro.gestordenotas.security.TokenJwtConfig.*;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
+import com.alejandro.gestordenotas.entities.Role;
 import com.alejandro.gestordenotas.entities.User;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.alejandro.gestordenotas.security.RoleBits;
+import com.alejandro.gestordenotas.security.SigningKeyRing;
 
-import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 
 
 @Component
 public class JwtTokenUtil {
 
+    // The keys that sign the tokens (in a spring context, the same keys that the filters use)
+    private final SigningKeyRing keyRing;
+
+    // The bits of the roles (in a spring context, they are read from the db)
+    private final RoleBits roleBits;
+
+    @Autowired
+    public JwtTokenUtil(SigningKeyRing keyRing, RoleBits roleBits) {
+        this.keyRing = keyRing;
+        this.roleBits = roleBits;
+    }
+
+    // To create tokens out of a spring context (with its own keys in memory and the roles of 'insert.sql')
+    public JwtTokenUtil() {
+        this(new SigningKeyRing(null, null, Duration.ofDays(1), Duration.ofHours(2), Clock.systemUTC()),
+            new RoleBits(() -> List.of(new Role(1L, "ROLE_USER"), new Role(2L, "ROLE_ADMIN"), new Role(3L, "ROLE_SUPER_ADMIN"))));
+    }
+
+    public SigningKeyRing getKeyRing() {
+        return keyRing;
+    }
+
+    public RoleBits getRoleBits() {
+        return roleBits;
+    }
+
     public String createToken(User user) {
-        try {
-            // Serialize roles as authorities
-            List<Map<String, String>> authorities = user.getRoles().stream()
-                    .map(role -> Map.of("authority", role.getName()))
-                    .toList();
-
-            String authoritiesJson = new ObjectMapper().writeValueAsString(authorities);
-
-            Claims claims = Jwts.claims()
-                    .add("authorities", authoritiesJson)
-                    .add("username", user.getUsername())
-                    .build();
-
-            return Jwts.builder()
-                    .subject(user.getUsername())
-                    .claims(claims)
-                    .expiration(new Date(System.currentTimeMillis() + 3600000)) // 1 hour
-                    .issuedAt(new Date())
-                    .signWith(SECRET_KEY)
-                    .compact();
-
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Error when generate the token JWT", e);
-        }
+        // The roles are the authorities
+        List<SimpleGrantedAuthority> authorities = user.getRoles().stream()
+                .map(role -> new SimpleGrantedAuthority(role.getName()))
+                .toList();
+
+        SigningKeyRing.SigningKey signingKey = keyRing.getSigningKey();
+
+        return Jwts.builder()
+                .header().keyId(signingKey.getId()).and()
+                .subject(user.getUsername())
+                .claim(ROLES_CLAIM, roleBits.maskOf(authorities))
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(TOKEN_EPOCH_CLAIM, user.getTokenEpoch() > 0 ? user.getTokenEpoch() : null)
+                .claim("username", user.getUsername())
+                .expiration(new Date(System.currentTimeMillis() + 3600000)) // 1 hour
+                .issuedAt(new Date())
+                .signWith(signingKey.getKey())
+                .compact();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,5 @@
+-- This file is executed by hibernate only once, after the tables are created.
+-- The ids of the new notes are generated after the ids of the notes in 'insert.sql'.
+-- (the sequence is not restarted in 'insert.sql' because hibernate keeps in memory 
+-- the block of ids that it took from the sequence)
+ALTER SEQUENCE note_seq RESTART WITH 1000;
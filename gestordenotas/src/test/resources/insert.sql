@@ -1,5 +1,8 @@
 -- These instructions are ordered in the reverse order to the insert of data
+DELETE FROM note_change;
 DELETE FROM users_roles;
+DELETE FROM note_tombstone;
+DELETE FROM refresh_token;
 DELETE FROM note;
 DELETE FROM tbl_user;
 DELETE FROM role;
@@ -12,26 +15,27 @@ INSERT INTO role (id_role, name) VALUES
 
 -- Insert into user
 -- Insert into tbl_user (ids incrementados en +9)
-INSERT INTO tbl_user (id_user, username, password, admin, enabled) VALUES 
-(10, 'alejandro', 'ale123', true, true),
-(11, 'fernando', 'fer123', true, true),
-(12, 'celia', 'celia123', true, true),
-(13, 'jorge', 'jorge123', false, true),
-(14, 'rayas', '$2a$10$BDgkY07YMxPbXbnM3.Vl2ehN4Rz9ZpZ.n.zVtcoDLHLZRxAK3HNwa', false, true),
-(15, 'pancha', 'pancha123', false, false);
+-- (role_level: 0 user, 1 admin, 2 super admin)
+INSERT INTO tbl_user (id_user, username, password, admin, enabled, role_level) VALUES 
+(10, 'alejandro', 'ale123', true, true, 2),
+(11, 'fernando', 'fer123', true, true, 1),
+(12, 'celia', 'celia123', true, true, 1),
+(13, 'jorge', 'jorge123', false, true, 0),
+(14, 'rayas', '$2a$10$BDgkY07YMxPbXbnM3.Vl2ehN4Rz9ZpZ.n.zVtcoDLHLZRxAK3HNwa', false, true, 0),
+(15, 'pancha', 'pancha123', false, false, 0);
 
 -- Insert into note (referencias de id_user actualizadas en +9)
-INSERT INTO note (id_note, content, created_at, updated_at, id_user) VALUES 
-(11, 'This is the note No. 1', NULL, NULL, 10),
-(21, 'This is the note No. 2', NULL, NULL, 11),
-(31, 'This is the note No. 3', NULL, NULL, 11),
-(41, 'This is the note No. 4', NULL, NULL, 11),
-(51, 'This is the note No. 5', NULL, NULL, 12),
-(61, 'This is the note No. 6', NULL, NULL, 12),
-(71, 'This is the note No. 7', NULL, NULL, 13),
-(81, 'This is the note No. 8', NULL, NULL, 13),
-(91, 'This is the note No. 9', NULL, NULL, 15),
-(110, 'This is the note No. 10', NULL, NULL, 15);
+INSERT INTO note (id_note, content, created_at, updated_at, version, id_user) VALUES 
+(11, 'This is the note No. 1', '2025-01-01 10:00:00+00', '2025-01-01 10:00:00+00', 0, 10),
+(21, 'This is the note No. 2', '2025-01-02 10:00:00+00', '2025-01-02 10:00:00+00', 0, 11),
+(31, 'This is the note No. 3', '2025-01-03 10:00:00+00', '2025-01-03 10:00:00+00', 0, 11),
+(41, 'This is the note No. 4', '2025-01-03 10:00:00+00', '2025-01-03 10:00:00+00', 0, 11),
+(51, 'This is the note No. 5', '2025-01-04 10:00:00+00', '2025-01-04 10:00:00+00', 0, 12),
+(61, 'This is the note No. 6', '2025-01-05 10:00:00+00', '2025-01-05 10:00:00+00', 0, 12),
+(71, 'This is the note No. 7', '2025-01-06 10:00:00+00', '2025-01-06 10:00:00+00', 0, 13),
+(81, 'This is the note No. 8', '2025-01-07 10:00:00+00', '2025-01-07 10:00:00+00', 0, 13),
+(91, 'This is the note No. 9', '2025-01-08 10:00:00+00', '2025-01-08 10:00:00+00', 0, 15),
+(110, 'This is the note No. 10', '2025-01-09 10:00:00+00', '2025-01-09 10:00:00+00', 0, 15);
 
 -- Insert into users_roles (id_user actualizados en +9)
 INSERT INTO users_roles (id_user, id_role) VALUES 
@@ -59,3 +59,47 @@ where id_user in (select id_user
 
 
 
+
+-- Migrations
+
+-- The ids of the notes are generated by the pooled sequence 'note_seq' (emulated with a table in mysql).
+-- Create and seed the table BEFORE the first start with this version: otherwise hibernate ('ddl-auto=update')
+-- creates it with the value 1 and the first inserts take the ids of the existing notes.
+-- The first block of 50 ids starts after the existing notes (the statements can be run again):
+-- create table if not exists note_seq (next_val bigint) engine=InnoDB;
+-- insert into note_seq (next_val) select ifnull(max(id_note), 0) + 51 from note where not exists (select 1 from note_seq);
+-- If the application was already started without it, stop it and move the sequence after the existing notes:
+-- update note_seq set next_val = greatest(next_val, (select ifnull(max(id_note), 0) + 51 from note));
+
+-- The dates of the notes are moments (with microseconds) and 'updated_at' is the moment of the last change.
+-- Hibernate ('ddl-auto=update') does not change the type of the existing columns, so change them once:
+-- alter table note modify created_at datetime(6), modify updated_at datetime(6);
+-- update note set updated_at = coalesce(updated_at, created_at, now(6));
+-- create index idx_note_user_updated on note (id_user, updated_at, id_note);
+
+-- The sync reads the changes of the notes by the version of the notes of each user ('notes_version' of
+-- 'tbl_user', incremented in each transaction that changes its notes) instead of by their moment.
+-- Hibernate adds the columns with the value 0, so the clients sync the existing notes again
+-- (their previous tokens are rejected). The indexes by moment are not used anymore:
+-- drop index idx_note_user_updated on note;
+-- drop index idx_note_tombstone_user_deleted on note_tombstone;
+
+-- The notes have a version to reject the changes based on an old copy of a note ('If-Match').
+-- Hibernate ('ddl-auto=update') adds the column, mysql sets 0 in the existing notes:
+-- alter table note add column version bigint not null default 0;
+
+-- The content of the notes is saved in a binary column (the big contents are compressed).
+-- The notes saved before are still read as text, so only the type of the column changes:
+-- alter table note modify content longblob not null;
+
+-- The versions of the notes are the ids of the table 'note_change' (one row for each change) instead of
+-- the 'notes_version' of 'tbl_user', so the changes of the notes don't lock the row of the user.
+-- Create the table before the first start, after the versions already given, so the previous tokens are still valid:
+-- create table note_change (id_note_change bigint not null auto_increment, id_user bigint not null,
+--     created_at datetime(6) default localtimestamp(6) not null, primary key (id_note_change));
+-- insert into note_change (id_note_change, id_user) select greatest(
+--     (select ifnull(max(notes_version), 0) from note),
+--     (select ifnull(max(notes_version), 0) from note_tombstone),
+--     (select ifnull(max(notes_version), 0) from tbl_user)) + 1, 0;
+-- The column 'notes_version' of 'tbl_user' is not used anymore:
+-- alter table tbl_user drop column notes_version;